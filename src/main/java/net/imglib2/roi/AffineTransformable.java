@@ -0,0 +1,68 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import net.imglib2.realtransform.AffineGet;
+
+/**
+ * A {@link RealMaskRealInterval} whose image under an invertible affine
+ * transform can again be described by a concrete shape, for example a box
+ * becomes an oriented box and an ellipsoid becomes a general (quadric)
+ * ellipsoid.
+ * <p>
+ * {@link RealMaskRealInterval#transform(AffineGet)} of an
+ * {@code AffineTransformable} still returns a composite that follows later
+ * modifications of this mask, but evaluates {@code test()} and bounds on the
+ * concrete shape, which is rebuilt whenever the {@link #modificationCount()}
+ * changes.
+ *
+ * @see RealMaskRealInterval#transform(AffineGet)
+ */
+public interface AffineTransformable extends RealMaskRealInterval
+{
+	/**
+	 * Returns a snapshot of the transformed mask, that is, the mask containing
+	 * {@code x} iff this mask contains {@code transformToSource(x)}. The result
+	 * has an analytic {@code test()} and tight bounds. It does not follow
+	 * later modifications of this mask.
+	 *
+	 * @param transformToSource
+	 *            an invertible transform from the space of the result to the
+	 *            space of this mask, with equal source and target
+	 *            dimensionality
+	 * @return the transformed mask, or {@code null} if it cannot be described
+	 *         by a concrete shape
+	 */
+	RealMaskRealInterval transformed( AffineGet transformToSource );
+}
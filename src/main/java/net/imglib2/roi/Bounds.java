@@ -41,6 +41,7 @@ import net.imglib2.Positionable;
 import net.imglib2.RealInterval;
 import net.imglib2.RealPositionable;
 import net.imglib2.realtransform.InvertibleRealTransform;
+import net.imglib2.roi.util.TransformModificationCount;
 import net.imglib2.util.Intervals;
 
 import java.util.Arrays;
@@ -206,9 +207,15 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 	 * Abstract base class which adapts to changes in source interval, 
 	 * leaving {@link #minMax(long[], long[])} to be implemented by
 	 * derived classes.
+	 * <p>
+	 * If the sources are tracked (see {@link #modificationCount()}), min and
+	 * max are only recomputed after the sources were modified.
+	 * </p>
 	 */
 	public static abstract class AbstractAdaptingInterval extends AbstractAdaptingRealInterval implements Interval
 	{
+		private volatile CachedMinMax cache;
+
 		public AbstractAdaptingInterval( final int n )
 		{
 			super( n );
@@ -217,6 +224,10 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		@Override
 		public long min( final int d )
 		{
+			final CachedMinMax c = validCache();
+			if ( c != null )
+				return c.min[ d ];
+
 			final long[] min = new long[ n ];
 			min( min );
 			return min[ d ];
@@ -225,6 +236,10 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		@Override
 		public long max( final int d )
 		{
+			final CachedMinMax c = validCache();
+			if ( c != null )
+				return c.max[ d ];
+
 			final long[] max = new long[ n ];
 			max( max );
 			return max[ d ];
@@ -233,13 +248,13 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		@Override
 		public void min( final long[] min )
 		{
-			minMax( min, null );
+			currentMinMax( min, null );
 		}
 
 		@Override
 		public void max( final long[] max )
 		{
-			minMax( null, max );
+			currentMinMax( null, max );
 		}
 
 		@Override
@@ -265,7 +280,7 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		{
 			final long[] min = realMin == null ? null : new long[ n ];
 			final long[] max = realMax == null ? null : new long[ n ];
-			minMax( min, max );
+			currentMinMax( min, max );
 
 			if ( realMin != null )
 				for ( int d = 0; d < n; d++ )
@@ -280,7 +295,7 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		{
 			final long[] min = new long[ n ];
 			final long[] max = new long[ n ];
-			minMax( min, max );
+			currentMinMax( min, max );
 
 			for ( int d = 0; d < n; ++d )
 				dimensions[ d ] = max[ d ] - min[ d ] + 1;
@@ -289,6 +304,10 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		@Override
 		public long dimension( final int d )
 		{
+			final CachedMinMax c = validCache();
+			if ( c != null )
+				return c.max[ d ] - c.min[ d ] + 1;
+
 			final long[] min = new long[ n ];
 			final long[] max = new long[ n ];
 			minMax( min, max );
@@ -301,11 +320,67 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		{
 			final long[] min = new long[ n ];
 			final long[] max = new long[ n ];
-			minMax( min, max );
+			currentMinMax( min, max );
 
 			for ( int d = 0; d < n; d++ )
 				dimensions.setPosition( max[ d ] - min[ d ] + 1, d );
 		}
+
+		// -- Helper methods --
+
+		/**
+		 * Like {@link #minMax(long[], long[])}, but reuses the cached min and
+		 * max if the sources were not modified since they were computed.
+		 */
+		private void currentMinMax( final long[] min, final long[] max )
+		{
+			final CachedMinMax c = validCache();
+			if ( c == null )
+			{
+				minMax( min, max );
+				return;
+			}
+			if ( min != null )
+				System.arraycopy( c.min, 0, min, 0, n );
+			if ( max != null )
+				System.arraycopy( c.max, 0, max, 0, n );
+		}
+
+		/**
+		 * Returns min and max for the current {@link #modificationCount()},
+		 * computing them if necessary, or {@code null} if the sources are not
+		 * tracked.
+		 */
+		private CachedMinMax validCache()
+		{
+			final long modificationCount = modificationCount();
+			if ( modificationCount < 0 )
+				return null;
+			CachedMinMax c = cache;
+			if ( c == null || c.modificationCount != modificationCount )
+			{
+				c = new CachedMinMax( modificationCount, new long[ n ], new long[ n ] );
+				minMax( c.min, c.max );
+				cache = c;
+			}
+			return c;
+		}
+
+		private static final class CachedMinMax
+		{
+			final long modificationCount;
+
+			final long[] min;
+
+			final long[] max;
+
+			CachedMinMax( final long modificationCount, final long[] min, final long[] max )
+			{
+				this.modificationCount = modificationCount;
+				this.min = min;
+				this.max = max;
+			}
+		}
 	}
 
 	/**
@@ -322,6 +397,12 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 			this.source = source;
 		}
 
+		@Override
+		public long modificationCount()
+		{
+			return Masks.modificationCount( source );
+		}
+
 		@Override
 		public void minMax( long[] min, long[] max )
 		{
@@ -352,7 +433,13 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 			this.i2 = i2;
 			assert ( i1.numDimensions() == i2.numDimensions() );
 		}
-		
+
+		@Override
+		public long modificationCount()
+		{
+			return Masks.combineModificationCounts( Masks.modificationCount( i1 ), Masks.modificationCount( i2 ) );
+		}
+
 		@Override
 		public void minMax( long[] min, long[] max )
 		{
@@ -391,6 +478,12 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 			assert ( i1.numDimensions() == i2.numDimensions() );
 		}
 
+		@Override
+		public long modificationCount()
+		{
+			return Masks.combineModificationCounts( Masks.modificationCount( i1 ), Masks.modificationCount( i2 ) );
+		}
+
 		@Override
 		public void minMax( final long[] min, final long[] max )
 		{
@@ -480,17 +573,37 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 	 * Abstract base class for bounds which adapt to changes in the source
 	 * interval, leaving the {@link #realMinMax(double[], double[])} method
 	 * to be implemented by derived classes.
+	 * <p>
+	 * If the sources are tracked (see {@link #modificationCount()}), min and
+	 * max are only recomputed after the sources were modified.
+	 * </p>
 	 */
 	public static abstract class AbstractAdaptingRealInterval extends AbstractEuclideanSpace implements RealInterval
 	{
+		private volatile CachedRealMinMax cache;
+
 		public AbstractAdaptingRealInterval( final int n )
 		{
 			super( n );
 		}
 
+		/**
+		 * Returns the aggregated {@link MaskPredicate#modificationCount()
+		 * modification count} of the source intervals, or a negative value if
+		 * modifications of the sources are not tracked. This is the default.
+		 */
+		public long modificationCount()
+		{
+			return -1;
+		}
+
 		@Override
 		public double realMin( final int d )
 		{
+			final CachedRealMinMax c = validCache();
+			if ( c != null )
+				return c.min[ d ];
+
 			final double[] min = new double[ n ];
 			realMin( min );
 			return min[ d ];
@@ -499,6 +612,10 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		@Override
 		public double realMax( final int d )
 		{
+			final CachedRealMinMax c = validCache();
+			if ( c != null )
+				return c.max[ d ];
+
 			final double[] max = new double[ n ];
 			realMax( max );
 			return max[ d ];
@@ -507,13 +624,13 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		@Override
 		public void realMin( final double[] realMin )
 		{
-			realMinMax( realMin, null );
+			currentRealMinMax( realMin, null );
 		}
 
 		@Override
 		public void realMax( final double[] realMax )
 		{
-			realMinMax( null, realMax );
+			currentRealMinMax( null, realMax );
 		}
 
 		@Override
@@ -536,6 +653,62 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 
 		public abstract void realMinMax( final double[] realMin, final double[] realMax );
 
+		// -- Helper methods --
+
+		/**
+		 * Like {@link #realMinMax(double[], double[])}, but reuses the cached
+		 * min and max if the sources were not modified since they were
+		 * computed.
+		 */
+		private void currentRealMinMax( final double[] realMin, final double[] realMax )
+		{
+			final CachedRealMinMax c = validCache();
+			if ( c == null )
+			{
+				realMinMax( realMin, realMax );
+				return;
+			}
+			if ( realMin != null )
+				System.arraycopy( c.min, 0, realMin, 0, n );
+			if ( realMax != null )
+				System.arraycopy( c.max, 0, realMax, 0, n );
+		}
+
+		/**
+		 * Returns min and max for the current {@link #modificationCount()},
+		 * computing them if necessary, or {@code null} if the sources are not
+		 * tracked.
+		 */
+		private CachedRealMinMax validCache()
+		{
+			final long modificationCount = modificationCount();
+			if ( modificationCount < 0 )
+				return null;
+			CachedRealMinMax c = cache;
+			if ( c == null || c.modificationCount != modificationCount )
+			{
+				c = new CachedRealMinMax( modificationCount, new double[ n ], new double[ n ] );
+				realMinMax( c.min, c.max );
+				cache = c;
+			}
+			return c;
+		}
+
+		private static final class CachedRealMinMax
+		{
+			final long modificationCount;
+
+			final double[] min;
+
+			final double[] max;
+
+			CachedRealMinMax( final long modificationCount, final double[] min, final double[] max )
+			{
+				this.modificationCount = modificationCount;
+				this.min = min;
+				this.max = max;
+			}
+		}
 	}
 
 	/**
@@ -556,6 +729,12 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 			assert ( i1.numDimensions() == i2.numDimensions() );
 		}
 
+		@Override
+		public long modificationCount()
+		{
+			return Masks.combineModificationCounts( Masks.modificationCount( i1 ), Masks.modificationCount( i2 ) );
+		}
+
 		@Override
 		public void realMinMax( final double[] realMin, final double[] realMax )
 		{
@@ -601,7 +780,7 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 		else if ( interval instanceof AbstractAdaptingRealInterval )
 		{
-			( ( AbstractAdaptingRealInterval ) interval ).realMinMax( min, max );
+			( ( AbstractAdaptingRealInterval ) interval ).currentRealMinMax( min, max );
 		}
 		else
 		{
@@ -618,7 +797,7 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 		}
 		else if ( interval instanceof AbstractAdaptingInterval )
 		{
-			( ( AbstractAdaptingInterval ) interval ).minMax( min, max );
+			( ( AbstractAdaptingInterval ) interval ).currentMinMax( min, max );
 		}
 		else
 		{
@@ -645,6 +824,13 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 			assert ( i1.numDimensions() == i2.numDimensions() );
 		}
 
+		@Override
+		public long modificationCount()
+		{
+			return Masks.combineModificationCounts( Masks.modificationCount( i1 ), Masks.modificationCount( i2 ) );
+		}
+
+		@Override
 		public void realMinMax( final double[] realMin, final double[] realMax )
 		{
 			final double[] min1 = new double[ n ];
@@ -751,9 +937,15 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 
 		private final int numSourceDimensions;
 
+		private final TransformModificationCount transformModificationCount;
+
+		private long cachedModificationCount;
+
+		private long cachedTransformModificationCount;
+
 		/**
 		 * Creates {@link Bounds} for a transformed source interval. These
-		 * bounds update as the source interval changes.
+		 * bounds update as the source interval or the transform changes.
 		 *
 		 * @param source
 		 *            bounds to be transformed
@@ -773,6 +965,9 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 
 			cachedSourceMin = new double[ numSourceDimensions ];
 			cachedSourceMax = new double[ numSourceDimensions ];
+			transformModificationCount = new TransformModificationCount( transformToSource );
+			cachedModificationCount = modificationCount();
+			cachedTransformModificationCount = transformModificationCount.get();
 			getMinMax( source, cachedSourceMin, cachedSourceMax );
 
 			currentSourceMin = new double[ numSourceDimensions ];
@@ -784,6 +979,16 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 			updateMinMax();
 		}
 
+		/**
+		 * Aggregates the modification counts of the source interval and of
+		 * the transform, see {@link TransformModificationCount}.
+		 */
+		@Override
+		public long modificationCount()
+		{
+			return Masks.combineModificationCounts( Masks.modificationCount( source ), transformModificationCount.get() );
+		}
+
 		@Override
 		public double realMin( final int d )
 		{
@@ -815,17 +1020,30 @@ public abstract class Bounds< I extends RealInterval, B extends Bounds< I, B > >
 
 		private void updateMinMaxIfNeeded()
 		{
-			getMinMax( source, currentSourceMin, currentSourceMax );
-
-			for ( int d = 0; d < numSourceDimensions; d++ )
+			final long modificationCount = modificationCount();
+			if ( modificationCount >= 0 )
 			{
-				if ( cachedSourceMin[ d ] != currentSourceMin[ d ] || cachedSourceMax[ d ] != currentSourceMax[ d ] )
+				if ( modificationCount != cachedModificationCount )
 				{
-					System.arraycopy( currentSourceMin, 0, cachedSourceMax, 0 , numSourceDimensions );
-					System.arraycopy( currentSourceMax, 0, cachedSourceMin, 0 , numSourceDimensions );
+					cachedModificationCount = modificationCount;
+					getMinMax( source, cachedSourceMin, cachedSourceMax );
 					updateMinMax();
-					break;
 				}
+				return;
+			}
+
+			getMinMax( source, currentSourceMin, currentSourceMax );
+
+			final long transformCount = transformModificationCount.get();
+			boolean changed = transformCount != cachedTransformModificationCount;
+			for ( int d = 0; d < numSourceDimensions && !changed; d++ )
+				changed = cachedSourceMin[ d ] != currentSourceMin[ d ] || cachedSourceMax[ d ] != currentSourceMax[ d ];
+			if ( changed )
+			{
+				cachedTransformModificationCount = transformCount;
+				System.arraycopy( currentSourceMin, 0, cachedSourceMin, 0 , numSourceDimensions );
+				System.arraycopy( currentSourceMax, 0, cachedSourceMax, 0 , numSourceDimensions );
+				updateMinMax();
 			}
 		}
 
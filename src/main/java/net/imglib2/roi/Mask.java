@@ -42,6 +42,7 @@ import static net.imglib2.roi.Operators.XOR;
 import java.util.function.Predicate;
 
 import net.imglib2.Localizable;
+import net.imglib2.Point;
 import net.imglib2.transform.Transform;
 
 /**
@@ -82,6 +83,12 @@ public interface Mask extends MaskPredicate< Localizable >
 		return XOR.apply( this, other );
 	}
 
+	@Override
+	default Mask evaluator()
+	{
+		return this;
+	}
+
 	/*
 	 * TODO: transformFromSource or transformToSource? TODO: should this really
 	 * be a method in the interface?
@@ -90,4 +97,34 @@ public interface Mask extends MaskPredicate< Localizable >
 	{
 		throw new UnsupportedOperationException( "TODO, not yet implemented" );
 	}
+
+	/**
+	 * Evaluates {@link #test} for a row of {@code count} consecutive pixels.
+	 * Pixel {@code i} is located at {@code start}, moved by {@code i} along
+	 * dimension 0. The result for pixel {@code i} is written to
+	 * {@code out[ i ]}.
+	 * <p>
+	 * The default implementation tests each pixel separately. Masks override
+	 * this to evaluate the whole row in a tight loop over primitive
+	 * coordinates. Results must be identical to calling {@link #test} for each
+	 * pixel.
+	 * </p>
+	 *
+	 * @param start
+	 *            location of the first pixel in the row
+	 * @param count
+	 *            number of pixels to test
+	 * @param out
+	 *            array of at least {@code count} elements receiving the
+	 *            results
+	 */
+	default void testRow( final Localizable start, final int count, final boolean[] out )
+	{
+		final Point pos = new Point( start );
+		for ( int i = 0; i < count; i++ )
+		{
+			out[ i ] = test( pos );
+			pos.fwd( 0 );
+		}
+	}
 }
@@ -97,6 +97,39 @@ public interface MaskPredicate< T > extends Predicate< T >, EuclideanSpace
 		return knownConstant() == ALL_TRUE;
 	}
 
+	/**
+	 * Returns a stamp which changes whenever this mask is modified, i.e.,
+	 * whenever {@link #test} results or bounds may have changed. The stamp
+	 * only ever increases, so caches derived from a mask can be revalidated
+	 * by comparing a single {@code long}.
+	 * <p>
+	 * Masks which never change return {@code 0}. Composite masks aggregate the
+	 * stamps of their operands. A negative value means modifications are not
+	 * tracked, and derived results must not be cached. This is the default.
+	 * </p>
+	 */
+	default long modificationCount()
+	{
+		return -1;
+	}
+
+	/**
+	 * Returns a mask which tests the same region as this mask, to be used by
+	 * a single thread only. It may own scratch state (search structures,
+	 * source positions, transform copies, accessors) so that repeated tests do not need to
+	 * allocate or synchronize. The evaluator is a live view: it reflects later
+	 * modifications of this mask, and reports the same
+	 * {@link #modificationCount()}.
+	 * <p>
+	 * Masks without mutable evaluation state return {@code this}, which is the
+	 * default.
+	 * </p>
+	 */
+	default MaskPredicate< T > evaluator()
+	{
+		return this;
+	}
+
 	/**
 	 * Determines whether two masks describe the same region in the same way.
 	 * Each {@link #maskType() kind} of mask has its own semantics:
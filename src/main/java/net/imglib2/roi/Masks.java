@@ -36,16 +36,22 @@ package net.imglib2.roi;
 import java.util.Arrays;
 import java.util.function.Predicate;
 
+import net.imglib2.AbstractWrappedRealInterval;
 import net.imglib2.FinalInterval;
 import net.imglib2.FinalRealInterval;
 import net.imglib2.Interval;
 import net.imglib2.Localizable;
+import net.imglib2.Point;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.RealRandomAccessibleRealInterval;
+import net.imglib2.roi.geom.real.PointMask;
+import net.imglib2.roi.geom.real.RealPointCollection;
+import net.imglib2.roi.mask.integer.BitMaskInterval;
 import net.imglib2.roi.mask.integer.DefaultMask;
 import net.imglib2.roi.mask.integer.DefaultMaskInterval;
 import net.imglib2.roi.mask.integer.MaskAsRandomAccessible;
@@ -58,6 +64,8 @@ import net.imglib2.roi.mask.real.RealMaskAsRealRandomAccessible;
 import net.imglib2.roi.mask.real.RealMaskRealIntervalAsRealRandomAccessibleRealInterval;
 import net.imglib2.roi.mask.real.RealRandomAccessibleAsRealMask;
 import net.imglib2.roi.mask.real.RealRandomAccessibleRealIntervalAsRealMaskRealInterval;
+import net.imglib2.roi.util.IterableRegionOnBooleanRAI;
+import net.imglib2.roi.util.IterableRegionOnIterationCode;
 import net.imglib2.type.BooleanType;
 import net.imglib2.type.logic.BoolType;
 import net.imglib2.util.Intervals;
@@ -72,6 +80,11 @@ import net.imglib2.view.Views;
  */
 public class Masks
 {
+	/** Default memory budget of the {@link #rasterizationCache()}. */
+	private static final long RASTERIZATION_CACHE_BYTES = 64 * 1024 * 1024;
+
+	private static final RasterizationCache RASTERIZATION_CACHE = new RasterizationCache( RASTERIZATION_CACHE_BYTES );
+
 	/*
 	 * Methods for integer masks
 	 * ===============================================================
@@ -253,16 +266,47 @@ public class Masks
 	 * }
 	 * }</pre>
 	 *
+	 * The pixels inside the mask are rasterized when {@code inside()} is
+	 * used, and memoized in the {@link #rasterizationCache()} until the mask
+	 * is modified. Masks with untracked modifications (a negative
+	 * {@link MaskPredicate#modificationCount() modification count}) are not
+	 * rasterized, they are iterated by testing every pixel.
+	 *
+	 * {@link RealPointCollection}s and {@link PointMask}s are not rasterized,
+	 * their points are sorted into an iteration code directly.
+	 *
 	 * @param mask {@link RealMaskRealInterval} to be iterated in
 	 *             in integer coordinates.
 	 * @return {@code IterableRegion<BoolType>}
 	 */
 	public static IterableRegion< BoolType > toIterableRegion( final RealMaskRealInterval mask )
 	{
-		return Regions.iterable(
-				Views.interval(
-						Views.raster( Masks.toRealRandomAccessible( mask )),
-						Intervals.largestContainedInterval( mask ) ) );
+		return toIterableRegion( mask, RASTERIZATION_CACHE );
+	}
+
+	/**
+	 * View a {@link RealMaskRealInterval} as an {@link IterableRegion}, in
+	 * integer coordinates, memoizing rasterizations in the given
+	 * {@code cache}. See {@link #toIterableRegion(RealMaskRealInterval)}.
+	 *
+	 * @param mask {@link RealMaskRealInterval} to be iterated in
+	 *             in integer coordinates.
+	 * @param cache {@link RasterizationCache} to use
+	 * @return {@code IterableRegion<BoolType>}
+	 */
+	public static IterableRegion< BoolType > toIterableRegion( final RealMaskRealInterval mask, final RasterizationCache cache )
+	{
+		if ( mask instanceof RealPointCollection )
+			return ( ( RealPointCollection< ? > ) mask ).toIterableRegion();
+		if ( mask instanceof PointMask )
+			return ( ( PointMask ) mask ).toIterableRegion();
+		final Interval interval = Intervals.largestContainedInterval( mask );
+		final RandomAccessibleInterval< BoolType > rai = Views.interval(
+				Views.raster( Masks.toRealRandomAccessible( mask ) ),
+				interval );
+		if ( mask.modificationCount() < 0 || !RasterizationCache.canRasterize( interval ) )
+			return new IterableRegionOnBooleanRAI<>( rai );
+		return new IterableRegionOnIterationCode<>( rai, () -> cache.get( mask, interval ) );
 	}
 
 	/**
@@ -285,12 +329,56 @@ public class Masks
 	 * }
 	 * }</pre>
 	 *
+	 * The pixels inside the mask are rasterized when {@code inside()} is
+	 * used, and memoized in the {@link #rasterizationCache()} until the mask
+	 * is modified. Masks with untracked modifications (a negative
+	 * {@link MaskPredicate#modificationCount() modification count}) are not
+	 * rasterized, they are iterated by testing every pixel. A
+	 * {@link BitMaskInterval} is not rasterized again, its bitset is iterated
+	 * directly.
+	 *
 	 * @param mask {@link MaskInterval} to be iterated.
 	 * @return {@code IterableRegion<BoolType>}
 	 */
 	public static IterableRegion< BoolType > toIterableRegion( final MaskInterval mask )
 	{
-		return Regions.iterable( Masks.toRandomAccessibleInterval( mask ) );
+		return toIterableRegion( mask, RASTERIZATION_CACHE );
+	}
+
+	/**
+	 * View a {@link MaskInterval} as an {@link IterableRegion}, memoizing
+	 * rasterizations in the given {@code cache}. See
+	 * {@link #toIterableRegion(MaskInterval)}.
+	 *
+	 * @param mask {@link MaskInterval} to be iterated.
+	 * @param cache {@link RasterizationCache} to use
+	 * @return {@code IterableRegion<BoolType>}
+	 */
+	public static IterableRegion< BoolType > toIterableRegion( final MaskInterval mask, final RasterizationCache cache )
+	{
+		if ( mask instanceof BitMaskInterval )
+			return ( ( BitMaskInterval ) mask ).toIterableRegion();
+		final RandomAccessibleInterval< BoolType > rai = Masks.toRandomAccessibleInterval( mask );
+		if ( mask.modificationCount() < 0 || !RasterizationCache.canRasterize( mask ) )
+			return new IterableRegionOnBooleanRAI<>( rai );
+		return new IterableRegionOnIterationCode<>( rai, () -> cache.get( mask, mask ) );
+	}
+
+	/**
+	 * Returns the default {@link RasterizationCache} used by
+	 * {@link #toIterableRegion(RealMaskRealInterval)} and
+	 * {@link #toIterableRegion(MaskInterval)}, and hence by
+	 * {@link Regions#sample(RealMaskRealInterval, RandomAccessible)} and
+	 * {@link Regions#sample(MaskInterval, RandomAccessible)}. Its memory budget
+	 * can be adjusted with {@link RasterizationCache#setMaxBytes(long)}, a
+	 * budget of 0 disables caching. To keep rasterizations separate from
+	 * other users, pass an own cache to
+	 * {@link #toIterableRegion(RealMaskRealInterval, RasterizationCache)} or
+	 * {@link #toIterableRegion(MaskInterval, RasterizationCache)}.
+	 */
+	public static RasterizationCache rasterizationCache()
+	{
+		return RASTERIZATION_CACHE;
 	}
 
 	/*
@@ -501,4 +589,111 @@ public class Masks
 				mask1.boundaryType() == mask2.boundaryType() && //
 				mask1.numDimensions() == mask2.numDimensions();
 	}
+
+	/*
+	 * Modification counts
+	 * ===============================================================
+	 */
+
+	/**
+	 * Returns the {@link MaskPredicate#modificationCount() modification count}
+	 * of a mask operand or bounds source.
+	 * <ul>
+	 * <li>{@link MaskPredicate}s report their own count.</li>
+	 * <li>Adapting {@link Bounds} intervals aggregate the counts of their
+	 * sources, wrapped intervals report the count of the wrapped source.</li>
+	 * <li>{@link FinalInterval}s and {@link FinalRealInterval}s never change,
+	 * and return {@code 0}.</li>
+	 * <li>Any other interval might be modified without notice and is reported
+	 * as untracked ({@code -1}).</li>
+	 * <li>Plain {@link Predicate}s may have state that changes without notice,
+	 * and are reported as untracked ({@code -1}).</li>
+	 * </ul>
+	 */
+	public static long modificationCount( final Object source )
+	{
+		if ( source instanceof MaskPredicate )
+			return ( ( MaskPredicate< ? > ) source ).modificationCount();
+		if ( source instanceof Bounds.AbstractAdaptingRealInterval )
+			return ( ( Bounds.AbstractAdaptingRealInterval ) source ).modificationCount();
+		if ( source instanceof AbstractWrappedRealInterval )
+			return modificationCount( ( ( AbstractWrappedRealInterval< ? > ) source ).getSource() );
+		if ( source instanceof FinalInterval || source instanceof FinalRealInterval )
+			return 0;
+		return -1;
+	}
+
+	/**
+	 * Aggregates the modification counts of two operands. The result is
+	 * negative (untracked) if either count is negative, and otherwise
+	 * increases whenever either count increases.
+	 */
+	public static long combineModificationCounts( final long count0, final long count1 )
+	{
+		if ( count0 < 0 || count1 < 0 )
+			return -1;
+		return count0 + count1;
+	}
+
+	/**
+	 * Returns a thread-confined {@link MaskPredicate#evaluator() evaluator}
+	 * of {@code predicate} if it is a {@link MaskPredicate}, and
+	 * {@code predicate} itself otherwise.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public static < T > Predicate< T > evaluator( final Predicate< T > predicate )
+	{
+		if ( predicate instanceof MaskPredicate )
+			return ( ( MaskPredicate< T > ) predicate ).evaluator();
+		return predicate;
+	}
+
+	/*
+	 * Row evaluation
+	 * ===============================================================
+	 */
+
+	/**
+	 * Evaluates {@code predicate} for a row of {@code count} equally spaced
+	 * points, see {@link RealMask#testRow(RealLocalizable, double, int, boolean[])}.
+	 * If {@code predicate} is not a {@link RealMask}, each point is tested
+	 * separately.
+	 */
+	public static void testRow( final Predicate< ? super RealLocalizable > predicate, final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		if ( predicate instanceof RealMask )
+		{
+			( ( RealMask ) predicate ).testRow( start, step, count, out );
+			return;
+		}
+
+		final RealPoint pos = new RealPoint( start );
+		final double x0 = start.getDoublePosition( 0 );
+		for ( int i = 0; i < count; i++ )
+		{
+			pos.setPosition( x0 + i * step, 0 );
+			out[ i ] = predicate.test( pos );
+		}
+	}
+
+	/**
+	 * Evaluates {@code predicate} for a row of {@code count} consecutive
+	 * pixels, see {@link Mask#testRow(Localizable, int, boolean[])}. If
+	 * {@code predicate} is not a {@link Mask}, each pixel is tested separately.
+	 */
+	public static void testRow( final Predicate< ? super Localizable > predicate, final Localizable start, final int count, final boolean[] out )
+	{
+		if ( predicate instanceof Mask )
+		{
+			( ( Mask ) predicate ).testRow( start, count, out );
+			return;
+		}
+
+		final Point pos = new Point( start );
+		for ( int i = 0; i < count; i++ )
+		{
+			out[ i ] = predicate.test( pos );
+			pos.fwd( 0 );
+		}
+	}
 }
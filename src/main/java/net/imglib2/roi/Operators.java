@@ -59,6 +59,8 @@ import net.imglib2.roi.composite.DefaultUnaryCompositeRealMask;
 import net.imglib2.roi.composite.DefaultUnaryCompositeRealMaskRealInterval;
 import net.imglib2.roi.composite.RealTransformUnaryCompositeRealMask;
 import net.imglib2.roi.composite.RealTransformUnaryCompositeRealMaskRealInterval;
+import net.imglib2.roi.util.RowScratch;
+import net.imglib2.roi.util.TransformModificationCount;
 
 /**
  * MaskOperator interfaces and instances. The concrete operator instances (e.g.,
@@ -87,6 +89,13 @@ public class Operators
 		{
 			return t -> left.test( t ) && right.test( t );
 		}
+
+		@Override
+		public void combineRow( final boolean[] left, final boolean[] right, final int count )
+		{
+			for ( int i = 0; i < count; i++ )
+				left[ i ] &= right[ i ];
+		}
 	};
 
 	public static final Operators.BinaryMaskOperator OR = new Operators.BinaryMaskOperator( BoundaryType::or, Bounds.OR, KnownConstant::or )
@@ -96,6 +105,13 @@ public class Operators
 		{
 			return t -> left.test( t ) || right.test( t );
 		}
+
+		@Override
+		public void combineRow( final boolean[] left, final boolean[] right, final int count )
+		{
+			for ( int i = 0; i < count; i++ )
+				left[ i ] |= right[ i ];
+		}
 	};
 
 	public static final Operators.BinaryMaskOperator XOR = new Operators.BinaryMaskOperator( BoundaryType::xor, Bounds.XOR, KnownConstant::xor )
@@ -107,6 +123,13 @@ public class Operators
 				return t -> false;
 			return t -> left.test( t ) ^ right.test( t );
 		}
+
+		@Override
+		public void combineRow( final boolean[] left, final boolean[] right, final int count )
+		{
+			for ( int i = 0; i < count; i++ )
+				left[ i ] ^= right[ i ];
+		}
 	};
 
 	public static final Operators.BinaryMaskOperator MINUS = new Operators.BinaryMaskOperator( BoundaryType::minus, Bounds.MINUS, KnownConstant::minus )
@@ -118,6 +141,13 @@ public class Operators
 				return t -> false;
 			return t -> left.test( t ) && !right.test( t );
 		}
+
+		@Override
+		public void combineRow( final boolean[] left, final boolean[] right, final int count )
+		{
+			for ( int i = 0; i < count; i++ )
+				left[ i ] &= !right[ i ];
+		}
 	};
 
 	public static final Operators.UnaryMaskOperator NEGATE = new Operators.UnaryMaskOperator( BoundaryType::negate, Bounds.NEGATE, KnownConstant::negate )
@@ -127,6 +157,13 @@ public class Operators
 		{
 			return t -> !arg.test( t );
 		}
+
+		@Override
+		public void combineRow( final boolean[] arg, final int count )
+		{
+			for ( int i = 0; i < count; i++ )
+				arg[ i ] = !arg[ i ];
+		}
 	};
 
 	/*
@@ -192,6 +229,52 @@ public class Operators
 		}
 
 		public abstract < T > Predicate< T > predicate( Predicate< ? super T > left, Predicate< ? super T > right );
+
+		/**
+		 * Combines the results of evaluating the left and right operand on a
+		 * row of points. The result is written to {@code left}.
+		 * <p>
+		 * The default implementation applies {@link #predicate} element-wise.
+		 * Operators override this with a loop over the primitive arrays.
+		 * </p>
+		 */
+		public void combineRow( final boolean[] left, final boolean[] right, final int count )
+		{
+			final Predicate< Integer > p = predicate( i -> left[ i ], i -> right[ i ] );
+			for ( int i = 0; i < count; i++ )
+				left[ i ] = p.test( i );
+		}
+
+		/**
+		 * Evaluates the composite of {@code left} and {@code right} on a row of
+		 * points, see
+		 * {@link RealMask#testRow(RealLocalizable, double, int, boolean[])}.
+		 */
+		public void testRow( final Predicate< ? super RealLocalizable > left, final Predicate< ? super RealLocalizable > right, final RealLocalizable start, final double step, final int count, final boolean[] out )
+		{
+			try ( RowScratch scratch = RowScratch.acquire() )
+			{
+				final boolean[] tmp = scratch.booleans( count );
+				Masks.testRow( left, start, step, count, out );
+				Masks.testRow( right, start, step, count, tmp );
+				combineRow( out, tmp, count );
+			}
+		}
+
+		/**
+		 * Evaluates the composite of {@code left} and {@code right} on a row of
+		 * pixels, see {@link Mask#testRow(Localizable, int, boolean[])}.
+		 */
+		public void testRow( final Predicate< ? super Localizable > left, final Predicate< ? super Localizable > right, final Localizable start, final int count, final boolean[] out )
+		{
+			try ( RowScratch scratch = RowScratch.acquire() )
+			{
+				final boolean[] tmp = scratch.booleans( count );
+				Masks.testRow( left, start, count, out );
+				Masks.testRow( right, start, count, tmp );
+				combineRow( out, tmp, count );
+			}
+		}
 	}
 
 	public static abstract class UnaryMaskOperator implements MaskOperator
@@ -249,6 +332,41 @@ public class Operators
 		}
 
 		public abstract < T > Predicate< T > predicate( Predicate< ? super T > arg );
+
+		/**
+		 * Applies this operator to the results of evaluating the operand on a
+		 * row of points. The result is written to {@code arg}.
+		 * <p>
+		 * The default implementation applies {@link #predicate} element-wise.
+		 * Operators override this with a loop over the primitive array.
+		 * </p>
+		 */
+		public void combineRow( final boolean[] arg, final int count )
+		{
+			final Predicate< Integer > p = predicate( i -> arg[ i ] );
+			for ( int i = 0; i < count; i++ )
+				arg[ i ] = p.test( i );
+		}
+
+		/**
+		 * Evaluates the composite of {@code arg} on a row of points, see
+		 * {@link RealMask#testRow(RealLocalizable, double, int, boolean[])}.
+		 */
+		public void testRow( final Predicate< ? super RealLocalizable > arg, final RealLocalizable start, final double step, final int count, final boolean[] out )
+		{
+			Masks.testRow( arg, start, step, count, out );
+			combineRow( out, count );
+		}
+
+		/**
+		 * Evaluates the composite of {@code arg} on a row of pixels, see
+		 * {@link Mask#testRow(Localizable, int, boolean[])}.
+		 */
+		public void testRow( final Predicate< ? super Localizable > arg, final Localizable start, final int count, final boolean[] out )
+		{
+			Masks.testRow( arg, start, count, out );
+			combineRow( out, count );
+		}
 	}
 
 	/*
@@ -277,6 +395,8 @@ public class Operators
 
 		private final ThreadLocal< RealPoint > pt;
 
+		private final TransformModificationCount transformModificationCount;
+
 		private final UnaryOperator< BoundaryType > boundaryTypeOp;
 
 		private final UnaryOperator< KnownConstant > knownConstantOp;
@@ -287,6 +407,7 @@ public class Operators
 			n = transformToSource.numSourceDimensions();
 			m = transformToSource.numTargetDimensions();
 			pt = ThreadLocal.withInitial( () -> new RealPoint( m ) );
+			transformModificationCount = new TransformModificationCount( transformToSource );
 			boundaryTypeOp = ( willPreserveBounds( transformToSource ) && isContinuous( transformToSource ) )
 					? UnaryOperator.identity()
 					: t -> UNSPECIFIED;
@@ -315,6 +436,23 @@ public class Operators
 			return transformToSource;
 		}
 
+		/**
+		 * Returns a modification count of the transform, which increases
+		 * when an {@link AffineGet} is modified in place. Other transforms
+		 * are untracked ({@code -1}), see {@link TransformModificationCount}.
+		 */
+		public long transformModificationCount()
+		{
+			return transformModificationCount.get();
+		}
+
+		/**
+		 * Returns a predicate which tests {@code arg} at positions mapped by
+		 * the (live) transform. It may be used concurrently, each thread
+		 * using its own source position, as long as the transform's
+		 * {@code apply} is thread-safe. Use {@link #evaluator(Predicate)}
+		 * for repeated tests from a single thread.
+		 */
 		public Predicate< RealLocalizable > predicate( final Predicate< ? super RealLocalizable > arg )
 		{
 			return pos -> {
@@ -324,6 +462,32 @@ public class Operators
 			};
 		}
 
+		/**
+		 * Returns a predicate which tests {@code arg} at transformed
+		 * positions, to be used by a single thread only. It owns a source
+		 * position and an {@link Masks#evaluator(Predicate) evaluator} of
+		 * {@code arg}.
+		 * <p>
+		 * An {@link AffineGet} is stateless during {@code apply}, so it is
+		 * used live and later modifications of the transform are reflected,
+		 * like in {@link #predicate(Predicate)}. Other transforms may keep
+		 * scratch state during {@code apply}, so the evaluator owns a
+		 * {@link RealTransform#copy() copy}, which does not reflect later
+		 * modifications of the transform. Create a new evaluator after
+		 * modifying such a transform.
+		 * </p>
+		 */
+		public Predicate< RealLocalizable > evaluator( final Predicate< ? super RealLocalizable > arg )
+		{
+			final RealTransform transform = transformToSource instanceof AffineGet ? transformToSource : transformToSource.copy();
+			final RealPoint sourcePos = new RealPoint( m );
+			final Predicate< ? super RealLocalizable > argEvaluator = Masks.evaluator( arg );
+			return pos -> {
+				transform.apply( pos, sourcePos );
+				return argEvaluator.test( sourcePos );
+			};
+		}
+
 		public RealMask applyReal( final Predicate< ? super RealLocalizable > arg )
 		{
 			checkDimensions( arg );
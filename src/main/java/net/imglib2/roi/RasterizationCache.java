@@ -0,0 +1,400 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RealPoint;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.roi.util.iterationcode.IterationCodeBuilder;
+import net.imglib2.util.Intervals;
+
+/**
+ * Memoizes rasterizations of masks as {@link IterationCode}s.
+ * <p>
+ * Entries are keyed by mask identity and the integer {@link Interval} (the
+ * sampling grid) on which the mask was rasterized. An entry is valid as long
+ * as the {@link MaskPredicate#modificationCount() modification count} of the
+ * mask is the same as when it was rasterized. Masks with untracked
+ * modifications are rasterized on every call and never stored. The cache does
+ * not keep masks alive.
+ * </p>
+ * <p>
+ * The total size of stored {@link IterationCode}s is limited by a memory
+ * budget. If the budget is exceeded, least recently used entries are evicted.
+ * </p>
+ * <p>
+ * This class is thread-safe. Rasterization happens outside of the lock, so
+ * concurrent requests for the same entry might rasterize more than once.
+ * </p>
+ */
+public class RasterizationCache
+{
+	/**
+	 * Maximum number of pixels evaluated in one
+	 * {@link RealMask#testRow(net.imglib2.RealLocalizable, double, int, boolean[])
+	 * testRow()} call.
+	 */
+	private static final int ROW_LENGTH = 4096;
+
+	/**
+	 * Estimated memory overhead of an entry, not counting the iteration code
+	 * itself.
+	 */
+	private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+	private final LinkedHashMap< Key, Entry > entries;
+
+	private long maxBytes;
+
+	private long bytes;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	/**
+	 * Creates a cache which stores at most (approximately) {@code maxBytes}
+	 * bytes of {@link IterationCode}s.
+	 */
+	public RasterizationCache( final long maxBytes )
+	{
+		if ( maxBytes < 0 )
+			throw new IllegalArgumentException( "maxBytes must not be negative" );
+		this.maxBytes = maxBytes;
+		entries = new LinkedHashMap<>( 16, 0.75f, true );
+	}
+
+	/**
+	 * Get the {@link IterationCode} of the pixels in {@code interval} at which
+	 * {@code mask} is {@code true}, rasterizing {@code mask} if there is no
+	 * valid entry.
+	 */
+	public IterationCode get( final RealMask mask, final Interval interval )
+	{
+		return get( mask, interval, () -> rasterize( mask, interval ) );
+	}
+
+	/**
+	 * Get the {@link IterationCode} of the pixels in {@code interval} at which
+	 * {@code mask} is {@code true}, rasterizing {@code mask} if there is no
+	 * valid entry.
+	 */
+	public IterationCode get( final Mask mask, final Interval interval )
+	{
+		return get( mask, interval, () -> rasterize( mask, interval ) );
+	}
+
+	/**
+	 * Returns true if masks can be rasterized on {@code interval}.
+	 * {@link IterationCode}s store {@code int} coordinates, so the interval
+	 * must be within {@code int} range.
+	 */
+	public static boolean canRasterize( final Interval interval )
+	{
+		for ( int d = 0; d < interval.numDimensions(); d++ )
+			if ( interval.min( d ) < Integer.MIN_VALUE || interval.max( d ) > Integer.MAX_VALUE )
+				return false;
+		return interval.dimension( 0 ) <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Sets the memory budget, evicting entries if necessary. A budget of
+	 * {@code 0} disables caching.
+	 */
+	public synchronized void setMaxBytes( final long maxBytes )
+	{
+		if ( maxBytes < 0 )
+			throw new IllegalArgumentException( "maxBytes must not be negative" );
+		this.maxBytes = maxBytes;
+		evict();
+	}
+
+	public synchronized long maxBytes()
+	{
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the estimated memory used by the stored entries, in bytes.
+	 */
+	public synchronized long bytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of stored entries.
+	 */
+	public synchronized int numEntries()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of requests served from the cache.
+	 */
+	public synchronized long hits()
+	{
+		return hits;
+	}
+
+	/**
+	 * Returns the number of requests which required rasterization.
+	 */
+	public synchronized long misses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Returns the number of entries evicted to stay within the memory budget.
+	 */
+	public synchronized long evictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Removes all entries. Metrics are not reset.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		bytes = 0;
+	}
+
+	// -- Helper methods --
+
+	private interface Rasterizer
+	{
+		IterationCode rasterize();
+	}
+
+	private IterationCode get( final MaskPredicate< ? > mask, final Interval interval, final Rasterizer rasterizer )
+	{
+		final long modificationCount = mask.modificationCount();
+		if ( modificationCount < 0 )
+		{
+			synchronized ( this )
+			{
+				++misses;
+			}
+			return rasterizer.rasterize();
+		}
+
+		final Key key = new Key( mask, interval );
+		synchronized ( this )
+		{
+			final Entry entry = entries.get( key );
+			if ( entry != null && entry.modificationCount == modificationCount )
+			{
+				++hits;
+				return entry.code;
+			}
+			++misses;
+		}
+
+		final IterationCode code = rasterizer.rasterize();
+		final Entry entry = new Entry( modificationCount, code );
+		synchronized ( this )
+		{
+			final Entry previous = entries.put( key, entry );
+			if ( previous != null )
+				bytes -= previous.bytes;
+			bytes += entry.bytes;
+			evict();
+		}
+		return code;
+	}
+
+	/**
+	 * Removes cleared and least recently used entries until the memory budget
+	 * is met.
+	 */
+	private void evict()
+	{
+		final Iterator< Map.Entry< Key, Entry > > it = entries.entrySet().iterator();
+		while ( it.hasNext() )
+		{
+			final Map.Entry< Key, Entry > e = it.next();
+			if ( e.getKey().mask.get() == null )
+			{
+				bytes -= e.getValue().bytes;
+				it.remove();
+			}
+		}
+
+		final Iterator< Entry > lru = entries.values().iterator();
+		while ( bytes > maxBytes && lru.hasNext() )
+		{
+			bytes -= lru.next().bytes;
+			lru.remove();
+			++evictions;
+		}
+	}
+
+	/**
+	 * Evaluates the mask for a row of {@code count} pixels starting at
+	 * {@code start}.
+	 */
+	private interface RowTester
+	{
+		void testRow( long[] start, int count, boolean[] out );
+	}
+
+	static IterationCode rasterize( final RealMask mask, final Interval interval )
+	{
+		final RealPoint start = new RealPoint( interval.numDimensions() );
+		return rasterize( interval, ( pos, count, out ) -> {
+			for ( int d = 0; d < pos.length; d++ )
+				start.setPosition( pos[ d ], d );
+			mask.testRow( start, 1, count, out );
+		} );
+	}
+
+	static IterationCode rasterize( final Mask mask, final Interval interval )
+	{
+		final Point start = new Point( interval.numDimensions() );
+		return rasterize( interval, ( pos, count, out ) -> {
+			start.setPosition( pos );
+			mask.testRow( start, count, out );
+		} );
+	}
+
+	/**
+	 * Rasterizes row by row, in flat iteration order.
+	 */
+	private static IterationCode rasterize( final Interval interval, final RowTester tester )
+	{
+		final int n = interval.numDimensions();
+		final IterationCodeBuilder builder = new IterationCodeBuilder( n, interval.min( 0 ) );
+		if ( !Intervals.isEmpty( interval ) )
+		{
+			final long[] min = Intervals.minAsLongArray( interval );
+			final long[] max = Intervals.maxAsLongArray( interval );
+			max[ 0 ] = min[ 0 ];
+			final LocalizingIntervalIterator rows = new LocalizingIntervalIterator( min, max );
+
+			final boolean[] row = new boolean[ ( int ) Math.min( interval.dimension( 0 ), ROW_LENGTH ) ];
+			final long[] start = new long[ n ];
+			final Point pos = new Point( n );
+			while ( rows.hasNext() )
+			{
+				rows.fwd();
+				rows.localize( start );
+				pos.setPosition( start );
+				for ( long x = interval.min( 0 ); x <= interval.max( 0 ); x += row.length )
+				{
+					final int count = ( int ) Math.min( row.length, interval.max( 0 ) - x + 1 );
+					start[ 0 ] = x;
+					tester.testRow( start, count, row );
+					for ( int i = 0; i < count; i++ )
+					{
+						if ( row[ i ] )
+						{
+							pos.setPosition( x + i, 0 );
+							builder.add( pos );
+						}
+					}
+				}
+			}
+		}
+		builder.finish();
+		return builder;
+	}
+
+	private static final class Key
+	{
+		private final WeakReference< Object > mask;
+
+		private final long[] minMax;
+
+		private final int hashCode;
+
+		Key( final Object mask, final Interval interval )
+		{
+			this.mask = new WeakReference<>( mask );
+			final int n = interval.numDimensions();
+			minMax = new long[ 2 * n ];
+			for ( int d = 0; d < n; d++ )
+			{
+				minMax[ d ] = interval.min( d );
+				minMax[ n + d ] = interval.max( d );
+			}
+			hashCode = 31 * System.identityHashCode( mask ) + Arrays.hashCode( minMax );
+		}
+
+		@Override
+		public boolean equals( final Object obj )
+		{
+			if ( !( obj instanceof Key ) )
+				return false;
+			final Key other = ( Key ) obj;
+			final Object m = mask.get();
+			return m != null && m == other.mask.get() && Arrays.equals( minMax, other.minMax );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+	}
+
+	private static final class Entry
+	{
+		private final long modificationCount;
+
+		private final IterationCode code;
+
+		private final long bytes;
+
+		Entry( final long modificationCount, final IterationCode code )
+		{
+			this.modificationCount = modificationCount;
+			this.code = code;
+			bytes = ENTRY_OVERHEAD_BYTES + 4L * code.getItcode().size();
+		}
+	}
+}
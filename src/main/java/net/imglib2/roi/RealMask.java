@@ -42,6 +42,7 @@ import static net.imglib2.roi.Operators.XOR;
 import java.util.function.Predicate;
 
 import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
 import net.imglib2.realtransform.RealTransform;
 
 /**
@@ -83,8 +84,47 @@ public interface RealMask extends MaskPredicate< RealLocalizable >
 		return XOR.applyReal( this, other );
 	}
 
+	@Override
+	default RealMask evaluator()
+	{
+		return this;
+	}
+
 	default RealMask transform( final RealTransform transformToSource )
 	{
 		return new Operators.RealTransformMaskOperator( transformToSource ).applyReal( this );
 	}
+
+	/**
+	 * Evaluates {@link #test} for a row of {@code count} equally spaced points.
+	 * Point {@code i} is located at {@code start}, moved by {@code i * step}
+	 * along dimension 0. The result for point {@code i} is written to
+	 * {@code out[ i ]}.
+	 * <p>
+	 * The default implementation tests each point separately. Masks override
+	 * this to evaluate the whole row in a tight loop over primitive
+	 * coordinates. Results must be identical to calling {@link #test} for each
+	 * point.
+	 * </p>
+	 *
+	 * @param start
+	 *            location of the first point in the row
+	 * @param step
+	 *            spacing between consecutive points along dimension 0
+	 * @param count
+	 *            number of points to test
+	 * @param out
+	 *            array of at least {@code count} elements receiving the
+	 *            results
+	 */
+	default void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		final RealPoint pos = new RealPoint( start );
+		final double x0 = start.getDoublePosition( 0 );
+		for ( int i = 0; i < count; i++ )
+		{
+			pos.setPosition( x0 + i * step, 0 );
+			out[ i ] = test( pos );
+		}
+	}
 }
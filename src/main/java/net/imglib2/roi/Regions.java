@@ -33,17 +33,36 @@
  */
 package net.imglib2.roi;
 
+import java.util.ArrayList;
+import java.util.List;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.roi.util.BlockOccupancy;
 import net.imglib2.roi.util.IterableRegionOnBooleanRAI;
 import net.imglib2.roi.util.PositionableWrappedIterableRegion;
 import net.imglib2.roi.util.SamplingIterableInterval;
 import net.imglib2.type.BooleanType;
+import net.imglib2.type.logic.BitType;
 import net.imglib2.view.Views;
 
 public class Regions
 {
+	/**
+	 * Regions with fewer pixels than this are counted on the calling thread.
+	 */
+	private static final long MIN_PARALLEL_SIZE = 1 << 16;
+
 	/**
 	 * Given a region and an image, return an {@link IterableInterval} over the
 	 * pixels of the image inside the mask.
@@ -151,8 +170,9 @@ public class Regions
 	 * true pixels of a region (instead of all pixels in bounding box).
 	 * <p>
 	 * If {@code region} already is an {@code IterableRegion}, return it.
-	 * Otherwise, wrap it. This is potentially expensive, because it requires
-	 * iterating {@code region} once.
+	 * Otherwise, wrap it. Wrapping is cheap: the number of true pixels is only
+	 * computed (using {@link #countTrue(RandomAccessibleInterval)}) when the
+	 * {@code size()} of the {@code inside()} is first requested.
 	 *
 	 * @param <B>
 	 *     The {@link BooleanType} of the region.
@@ -170,14 +190,39 @@ public class Regions
 			return new IterableRegionOnBooleanRAI<>( region );
 	}
 
+	/**
+	 * Obtains an {@link IterableRegion} whose iteration consists of only the
+	 * true pixels of a sparse region.
+	 * <p>
+	 * If {@code region} already is an {@code IterableRegion}, return it.
+	 * Otherwise, {@code region} is scanned once to build a
+	 * {@link BlockOccupancy}, which is used by cursors to skip empty blocks.
+	 * Iterating the result then takes time proportional to the number of true
+	 * pixels. The result is a snapshot: if {@code region} is modified, call
+	 * this method again.
+	 *
+	 * @param <B>
+	 *     The {@link BooleanType} of the region.
+	 * @param region
+	 *     The region to filter by its true values.
+	 *
+	 * @return An {@link IterableRegion} consisting of true values of the input
+	 * region.
+	 */
+	public static < B extends BooleanType< B > > IterableRegion< B > sparseIterable( final RandomAccessibleInterval< B > region )
+	{
+		if ( region instanceof IterableRegion )
+			return ( IterableRegion< B > ) region;
+		else
+			return new IterableRegionOnBooleanRAI<>( region, new BlockOccupancy( region ) );
+	}
+
 	/**
 	 * Make any {@code RandomAccessibleInterval<BooleanType>} into an
 	 * {@code PositionableIterableRegion}.
 	 * <p>
 	 * If {@code region} already is a {@code PositionableIterableRegion}, return
-	 * it. Otherwise, wrap it. This is potentially expensive, because it
-	 * requires iterating {@code region} once, unless it already is an
-	 * {@code IterableRegion}.
+	 * it. Otherwise, wrap it (see {@link #iterable(RandomAccessibleInterval)}).
 	 *
 	 * @param region
 	 *            the region to make iterable and positionable
@@ -194,6 +239,12 @@ public class Regions
 
 	/**
 	 * Counts the number of true pixels in the given region.
+	 * <p>
+	 * For {@link BitType} {@link ArrayImg}s, {@link PlanarImg}s and cell images,
+	 * the count is computed directly on the underlying {@code long} words using
+	 * {@link Long#bitCount(long)}. Other regions are iterated. In both cases,
+	 * large regions are split into chunks that are counted in parallel, using
+	 * the {@link Parallelization#getTaskExecutor() current TaskExecutor}.
 	 *
 	 * @param <B>
 	 *     The {@link BooleanType} of the region.
@@ -203,6 +254,38 @@ public class Regions
 	 * @return The number of true values in the region.
 	 */
 	public static < B extends BooleanType< B > > long countTrue( final RandomAccessibleInterval< B > interval )
+	{
+		if ( interval instanceof NativeImg && interval.getType() instanceof BitType )
+		{
+			final long count = countBits( ( NativeImg< ?, ? > ) interval );
+			if ( count >= 0 )
+				return count;
+		}
+
+		final int n = interval.numDimensions();
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final int numTasks = ( int ) Math.min( taskExecutor.suggestNumberOfTasks(), n == 0 ? 1 : interval.dimension( n - 1 ) );
+		if ( numTasks <= 1 || interval.size() < MIN_PARALLEL_SIZE )
+			return countTrueSequential( interval );
+
+		// split into hyperslabs along the last dimension
+		final List< Interval > chunks = new ArrayList<>( numTasks );
+		final long[] min = interval.minAsLongArray();
+		final long[] max = interval.maxAsLongArray();
+		final long start = interval.min( n - 1 );
+		final long length = interval.dimension( n - 1 );
+		for ( int i = 0; i < numTasks; ++i )
+		{
+			min[ n - 1 ] = start + i * length / numTasks;
+			max[ n - 1 ] = start + ( i + 1 ) * length / numTasks - 1;
+			chunks.add( new FinalInterval( min, max ) );
+		}
+		return sum( taskExecutor.forEachApply( chunks, chunk -> countTrueSequential( Views.interval( interval, chunk ) ) ) );
+	}
+
+	// -- Helper methods --
+
+	private static < B extends BooleanType< B > > long countTrueSequential( final RandomAccessibleInterval< B > interval )
 	{
 		long sum = 0;
 		for ( final B t : Views.iterable( interval ) )
@@ -210,4 +293,99 @@ public class Regions
 				++sum;
 		return sum;
 	}
+
+	/**
+	 * Counts the set bits of a {@link BitType} image by popcount on its
+	 * storage.
+	 *
+	 * @return the number of set bits, or {@code -1} if the storage layout of
+	 *         {@code img} is not supported.
+	 */
+	private static long countBits( final NativeImg< ?, ? > img )
+	{
+		final List< BitRange > ranges = new ArrayList<>();
+		if ( img instanceof ArrayImg )
+		{
+			final Object access = ( ( ArrayImg< ?, ? > ) img ).update( null );
+			if ( !( access instanceof LongAccess ) )
+				return -1;
+			final long size = img.size();
+			final long wordsPerChunk = Math.max( 1, ( ( size + 63 ) / 64 ) / Parallelization.getTaskExecutor().suggestNumberOfTasks() );
+			final long bitsPerChunk = Math.max( MIN_PARALLEL_SIZE, wordsPerChunk * 64 );
+			for ( long o = 0; o < size; o += bitsPerChunk )
+			{
+				ranges.add( new BitRange( ( LongAccess ) access, o, Math.min( size, o + bitsPerChunk ) ) );
+			}
+		}
+		else if ( img instanceof PlanarImg )
+		{
+			final PlanarImg< ?, ? > planar = ( PlanarImg< ?, ? > ) img;
+			final long planeSize = img.size() / Math.max( 1, planar.numSlices() );
+			for ( int i = 0; i < planar.numSlices(); ++i )
+			{
+				final Object access = planar.getPlane( i );
+				if ( !( access instanceof LongAccess ) )
+					return -1;
+				ranges.add( new BitRange( ( LongAccess ) access, 0, planeSize ) );
+			}
+		}
+		else if ( img instanceof AbstractCellImg )
+		{
+			for ( final Object c : ( ( AbstractCellImg< ?, ?, ?, ? > ) img ).getCells() )
+			{
+				final Cell< ? > cell = ( Cell< ? > ) c;
+				final Object access = cell.getData();
+				if ( !( access instanceof LongAccess ) )
+					return -1;
+				ranges.add( new BitRange( ( LongAccess ) access, 0, cell.size() ) );
+			}
+		}
+		else
+			return -1;
+
+		return sum( Parallelization.getTaskExecutor().forEachApply( ranges, BitRange::countBits ) );
+	}
+
+	private static long sum( final List< Long > values )
+	{
+		long sum = 0;
+		for ( final long v : values )
+			sum += v;
+		return sum;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * The bits with indices in {@code [from, to)} of a {@link BitType} storage
+	 * {@code access}. {@code from} is a multiple of 64.
+	 */
+	private static final class BitRange
+	{
+		private final LongAccess access;
+
+		private final long from;
+
+		private final long to;
+
+		BitRange( final LongAccess access, final long from, final long to )
+		{
+			this.access = access;
+			this.from = from;
+			this.to = to;
+		}
+
+		long countBits()
+		{
+			final int fromWord = ( int ) ( from >>> 6 );
+			final int toWord = ( int ) ( to >>> 6 );
+			long sum = 0;
+			for ( int i = fromWord; i < toWord; ++i )
+				sum += Long.bitCount( access.getValue( i ) );
+			final int remainder = ( int ) ( to & 63 );
+			if ( remainder != 0 )
+				sum += Long.bitCount( access.getValue( toWord ) & ( ( 1L << remainder ) - 1 ) );
+			return sum;
+		}
+	}
 }
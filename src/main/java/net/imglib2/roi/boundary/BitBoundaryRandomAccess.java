@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.logic.BoolType;
+
+/**
+ * A boundary {@link RandomAccess} (see {@link NeighborhoodBoundaryRandomAccess})
+ * that reads the bits of a {@link BitType} {@link ArrayImg} or
+ * {@link PlanarImg} directly. The neighborhood is precomputed as flat index
+ * offsets within a plane, and plane index offsets, so testing a pixel is a
+ * sequence of array reads.
+ */
+final class BitBoundaryRandomAccess extends Point implements RandomAccess< BoolType >
+{
+	/** bits of the planes, a single plane for {@link ArrayImg} */
+	private final LongAccess[] planes;
+
+	/** number of dimensions stored in one plane */
+	private final int planeDims;
+
+	private final long[] max;
+
+	/**
+	 * Strides of the flat index within a plane (for {@code d < planeDims}), or
+	 * of the plane index (for {@code d >= planeDims}).
+	 */
+	private final long[] strides;
+
+	private final long[] indexOffsets;
+
+	private final int[] planeOffsets;
+
+	private final BoolType type;
+
+	private BitBoundaryRandomAccess( final LongAccess[] planes, final int planeDims, final long[] dims, final StructuringElement structuringElement )
+	{
+		super( dims.length );
+		this.planes = planes;
+		this.planeDims = planeDims;
+		max = new long[ n ];
+		strides = new long[ n ];
+		long indexStride = 1;
+		long planeStride = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			max[ d ] = dims[ d ] - 1;
+			if ( d < planeDims )
+			{
+				strides[ d ] = indexStride;
+				indexStride *= dims[ d ];
+			}
+			else
+			{
+				strides[ d ] = planeStride;
+				planeStride *= dims[ d ];
+			}
+		}
+
+		final long[][] offsets = structuringElement.neighborOffsets( n );
+		indexOffsets = new long[ offsets.length ];
+		planeOffsets = new int[ offsets.length ];
+		for ( int i = 0; i < offsets.length; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( d < planeDims )
+					indexOffsets[ i ] += offsets[ i ][ d ] * strides[ d ];
+				else
+					planeOffsets[ i ] += ( int ) ( offsets[ i ][ d ] * strides[ d ] );
+			}
+		}
+		type = new BoolType();
+	}
+
+	private BitBoundaryRandomAccess( final BitBoundaryRandomAccess ba )
+	{
+		super( ba );
+		this.planes = ba.planes;
+		this.planeDims = ba.planeDims;
+		this.max = ba.max;
+		this.strides = ba.strides;
+		this.indexOffsets = ba.indexOffsets;
+		this.planeOffsets = ba.planeOffsets;
+		this.type = ba.type.copy();
+	}
+
+	/**
+	 * Returns a {@link BitBoundaryRandomAccess} on {@code source}, or
+	 * {@code null} if {@code source} is not a {@link BitType} {@link ArrayImg}
+	 * or {@link PlanarImg}.
+	 */
+	static BitBoundaryRandomAccess create( final RandomAccessibleInterval< ? > source, final StructuringElement structuringElement )
+	{
+		if ( !( source.getType() instanceof BitType ) )
+			return null;
+		final long[] dims = source.dimensionsAsLongArray();
+		if ( source instanceof ArrayImg )
+		{
+			final Object access = ( ( ArrayImg< ?, ? > ) source ).update( null );
+			if ( !( access instanceof LongAccess ) )
+				return null;
+			return new BitBoundaryRandomAccess( new LongAccess[] { ( LongAccess ) access }, dims.length, dims, structuringElement );
+		}
+		if ( source instanceof PlanarImg )
+		{
+			final PlanarImg< ?, ? > planar = ( PlanarImg< ?, ? > ) source;
+			final LongAccess[] planes = new LongAccess[ planar.numSlices() ];
+			for ( int i = 0; i < planes.length; ++i )
+			{
+				final Object access = planar.getPlane( i );
+				if ( !( access instanceof LongAccess ) )
+					return null;
+				planes[ i ] = ( LongAccess ) access;
+			}
+			return new BitBoundaryRandomAccess( planes, Math.min( 2, dims.length ), dims, structuringElement );
+		}
+		return null;
+	}
+
+	@Override
+	public BoolType get()
+	{
+		long index = 0;
+		int plane = 0;
+		boolean border = false;
+		for ( int d = 0; d < n; ++d )
+		{
+			final long pos = position[ d ];
+			if ( d < planeDims )
+				index += pos * strides[ d ];
+			else
+				plane += ( int ) ( pos * strides[ d ] );
+			border |= pos <= 0 || pos >= max[ d ];
+		}
+
+		if ( !bit( plane, index ) )
+			type.set( false );
+		else if ( border )
+			type.set( true );
+		else
+		{
+			boolean boundary = false;
+			for ( int i = 0; i < indexOffsets.length && !boundary; ++i )
+				boundary = !bit( plane + planeOffsets[ i ], index + indexOffsets[ i ] );
+			type.set( boundary );
+		}
+		return type;
+	}
+
+	@Override
+	public BoolType getType()
+	{
+		return type;
+	}
+
+	@Override
+	public BitBoundaryRandomAccess copy()
+	{
+		return new BitBoundaryRandomAccess( this );
+	}
+
+	// -- Helper methods --
+
+	private boolean bit( final int plane, final long index )
+	{
+		return ( planes[ plane ].getValue( ( int ) ( index >>> 6 ) ) & ( 1L << index ) ) != 0;
+	}
+}
@@ -35,17 +35,21 @@ package net.imglib2.roi.boundary;
 
 import static net.imglib2.roi.boundary.Boundary.StructuringElement.FOUR_CONNECTED;
 
-import gnu.trove.list.array.TIntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
 import net.imglib2.AbstractWrappedInterval;
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
-import net.imglib2.Localizable;
-import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.roi.IterableRegion;
-import net.imglib2.roi.Regions;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.roi.util.iterationcode.IterationCodeCursor;
 import net.imglib2.type.BooleanType;
 import net.imglib2.type.logic.BoolType;
 
@@ -61,7 +65,15 @@ import net.imglib2.type.logic.BoolType;
  * Neighbors are defined by 4-neighborhood or 8-neighborhood (or n-dimensional
  * equivalent) according to the {@link StructuringElement} given in the
  * constructor. Note, that a {@link Boundary} constructed with 4-neighborhood
- * {@link StructuringElement} is 8-connected, and vice versa.
+ * {@link StructuringElement} is 8-connected, and vice versa. In 3D and
+ * higher, {@link StructuringElement#EDGE_CONNECTED} lies in between.
+ * <p>
+ * The boundary pixels are computed in the constructor, by streaming the
+ * source in flat order through a sliding window of bit-packed rows. Large
+ * sources are processed in parallel, using the
+ * {@link Parallelization#getTaskExecutor() current TaskExecutor}. The result
+ * is stored as an {@link IterationCode}, and iterated in flat order.
+ * </p>
  *
  * @param <T>
  *            BooleanType of the source {@link IterableRegion}.
@@ -74,17 +86,75 @@ public final class Boundary< T extends BooleanType< T > >
 
 	public enum StructuringElement
 	{
+		/**
+		 * Neighbors share a face: 4 in 2D, 6 in 3D, 2n in n-D.
+		 */
 		FOUR_CONNECTED,
-		EIGHT_CONNECTED
+
+		/**
+		 * Neighbors share a vertex: 8 in 2D, 26 in 3D, 3^n-1 in n-D.
+		 */
+		EIGHT_CONNECTED,
+
+		/**
+		 * Neighbors share an edge: 8 in 2D, 18 in 3D, 2n^2 in n-D. The offsets
+		 * to these neighbors are non-zero in at most two dimensions.
+		 */
+		EDGE_CONNECTED;
+
+		/**
+		 * Returns the maximum number of dimensions in which the offset to a
+		 * neighbor is non-zero.
+		 */
+		int maxNonZeroOffsets( final int n )
+		{
+			switch ( this )
+			{
+			case FOUR_CONNECTED:
+				return 1;
+			case EDGE_CONNECTED:
+				return Math.min( 2, n );
+			default:
+				return n;
+			}
+		}
+
+		/**
+		 * Returns the offsets to the neighbors of a pixel in {@code n}
+		 * dimensions, in flat iteration order.
+		 */
+		long[][] neighborOffsets( final int n )
+		{
+			final int maxNonZero = maxNonZeroOffsets( n );
+			final List< long[] > offsets = new ArrayList<>();
+			final long[] offset = new long[ n ];
+			Arrays.fill( offset, -1 );
+			while ( true )
+			{
+				int nonZero = 0;
+				for ( int d = 0; d < n; ++d )
+					if ( offset[ d ] != 0 )
+						++nonZero;
+				if ( nonZero > 0 && nonZero <= maxNonZero )
+					offsets.add( offset.clone() );
+
+				// next offset in {-1, 0, 1}^n
+				int d = 0;
+				while ( d < n && offset[ d ] == 1 )
+					offset[ d++ ] = -1;
+				if ( d == n )
+					break;
+				++offset[ d ];
+			}
+			return offsets.toArray( new long[ 0 ][] );
+		}
 	}
 
 	private StructuringElement structuringElement;
 
-	private final int n;
+	private final IterationCode code;
 
-	private final TIntArrayList coords;
-
-	private final int size;
+	private final long[] offset;
 
 	private final BoundaryIterable inside;
 
@@ -97,24 +167,20 @@ public final class Boundary< T extends BooleanType< T > >
 	{
 		super( region );
 		this.structuringElement = structuringElement;
-		n = region.numDimensions();
-		coords = new TIntArrayList();
-		final BoundaryConstructor< T > c = new BoundaryConstructor< T >( region, structuringElement );
-		while( true )
-		{
-			c.fwd();
-			if ( c.isValid() )
-			{
-				for ( int d = 0; d < n; ++d )
-					coords.add( c.getIntPosition( d ) );
-			}
-			else
-				break;
-		}
-		size = coords.size() / n;
+		code = BoundaryScanner.scan( region, structuringElement );
+		offset = region.minAsLongArray();
 		inside = new BoundaryIterable();
 	}
 
+	/**
+	 * Get the {@link IterationCode} of the boundary pixels. Its coordinates
+	 * are relative to the min of the source interval.
+	 */
+	public IterationCode iterationCode()
+	{
+		return code;
+	}
+
 	@Override
 	public IterableInterval< Void > inside()
 	{
@@ -124,9 +190,18 @@ public final class Boundary< T extends BooleanType< T > >
 	@Override
 	public RandomAccess< BoolType > randomAccess()
 	{
-		return structuringElement == FOUR_CONNECTED
-				? new BoundaryRandomAccess4< T >( sourceInterval )
-				: new BoundaryRandomAccess8< T >( sourceInterval );
+		final RandomAccess< BoolType > bits = BitBoundaryRandomAccess.create( sourceInterval, structuringElement );
+		if ( bits != null )
+			return bits;
+		switch ( structuringElement )
+		{
+		case FOUR_CONNECTED:
+			return new BoundaryRandomAccess4< T >( sourceInterval );
+		case EIGHT_CONNECTED:
+			return new BoundaryRandomAccess8< T >( sourceInterval );
+		default:
+			return new NeighborhoodBoundaryRandomAccess< T >( sourceInterval, structuringElement );
+		}
 	}
 
 	@Override
@@ -151,7 +226,7 @@ public final class Boundary< T extends BooleanType< T > >
 		@Override
 		public long size()
 		{
-			return size;
+			return code.getSize();
 		}
 
 		@Override
@@ -161,19 +236,19 @@ public final class Boundary< T extends BooleanType< T > >
 		}
 
 		@Override
-		public BoundaryCursor cursor()
+		public Cursor< Void > cursor()
 		{
-			return new BoundaryCursor();
+			return new IterationCodeCursor( code, offset );
 		}
 
 		@Override
-		public BoundaryCursor localizingCursor()
+		public Cursor< Void > localizingCursor()
 		{
 			return cursor();
 		}
 
 		@Override
-		public BoundaryCursor iterator()
+		public Cursor< Void > iterator()
 		{
 			return cursor();
 		}
@@ -181,6 +256,8 @@ public final class Boundary< T extends BooleanType< T > >
 		@Override
 		public Void firstElement()
 		{
+			if ( size() == 0 )
+				throw new NoSuchElementException();
 			return cursor().next();
 		}
 
@@ -190,171 +267,4 @@ public final class Boundary< T extends BooleanType< T > >
 			return null;
 		}
 	}
-
-	private final class BoundaryCursor extends Point implements Cursor< Void >
-	{
-		private int i;
-
-		private final int size = coords.size();
-
-		BoundaryCursor()
-		{
-			super( Boundary.this.numDimensions() );
-			i = 0;
-		}
-
-		private BoundaryCursor( final BoundaryCursor c )
-		{
-			i = c.i;
-			setPosition( c );
-		}
-
-		@Override
-		public Void get()
-		{
-			return null;
-		}
-
-		@Override
-		public Void next()
-		{
-			fwd();
-			return null;
-		}
-
-		@Override
-		public boolean hasNext()
-		{
-			return i < size;
-		}
-
-		@Override
-		public void fwd()
-		{
-			for ( int d = 0; d < n; ++d, ++i )
-				position[ d ] = coords.getQuick( i );
-		}
-
-		@Override
-		public void jumpFwd( final long steps )
-		{
-			i += n * ( steps - 1 );
-			fwd();
-		}
-
-		@Override
-		public void reset()
-		{
-			i = 0;
-		}
-
-		@Override
-		public void remove()
-		{
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public BoundaryCursor copy()
-		{
-			return new BoundaryCursor( this );
-		}
-
-		@Override
-		public BoundaryCursor copyCursor()
-		{
-			return copy();
-		}
-	}
-
-	static final class BoundaryConstructor< T extends BooleanType< T > > implements Localizable
-	{
-		private final Cursor< Void > c;
-
-		private final RandomAccess< BoolType > a;
-
-		private boolean valid;
-
-		public BoundaryConstructor( final RandomAccessibleInterval< T > region, final StructuringElement structuringElement )
-		{
-			c = Regions.iterable( region ).inside().localizingCursor();
-			a = structuringElement == FOUR_CONNECTED
-					? new BoundaryRandomAccess4< T >( region )
-					: new BoundaryRandomAccess8< T >( region );
-		}
-
-		public void fwd()
-		{
-			while ( c.hasNext() )
-			{
-				c.fwd();
-				a.setPosition( c );
-				if ( a.get().get() )
-				{
-					valid = true;
-					return;
-				}
-			}
-			valid = false;
-		}
-
-		public boolean isValid()
-		{
-			return valid;
-		}
-
-		@Override
-		public void localize( final float[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public void localize( final double[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public float getFloatPosition( final int d )
-		{
-			return c.getFloatPosition( d );
-		}
-
-		@Override
-		public double getDoublePosition( final int d )
-		{
-			return c.getDoublePosition( d );
-		}
-
-		@Override
-		public int numDimensions()
-		{
-			return c.numDimensions();
-		}
-
-		@Override
-		public void localize( final int[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public void localize( final long[] position )
-		{
-			c.localize( position );
-		}
-
-		@Override
-		public int getIntPosition( final int d )
-		{
-			return c.getIntPosition( d );
-		}
-
-		@Override
-		public long getLongPosition( final int d )
-		{
-			return c.getLongPosition( d );
-		}
-	}
 }
@@ -83,7 +83,7 @@ public final class BoundaryRandomAccess8< T extends BooleanType< T > > extends A
 		final long[] omax = new long[ n ];
 		Arrays.fill( omax, 1 );
 		final IntervalIterator idx = new IntervalIterator( new FinalInterval( omin, omax ) );
-		final int center = ( offsets.length - 1 ) / 2;
+		final int center = offsets.length / 2;
 		final long[] pos = new long[ n ];
 		for ( int i = 0; i < offsets.length; ++i )
 		{
@@ -131,15 +131,15 @@ public final class BoundaryRandomAccess8< T extends BooleanType< T > > extends A
 			}
 			for ( int i = 0; i < offsets.length; ++i )
 			{
-				source.move( offsets[ i ] );
+				moveSource( offsets[ i ] );
 				if ( !source.get().get() )
 				{
-					source.move( resets[ i ] );
+					moveSource( resets[ i ] );
 					type.set( true );
 					return type;
 				}
 			}
-			source.move( resets[ resets.length - 1 ] );
+			moveSource( resets[ resets.length - 1 ] );
 		}
 		type.set( false );
 		return type;
@@ -156,4 +156,21 @@ public final class BoundaryRandomAccess8< T extends BooleanType< T > > extends A
 	{
 		return new BoundaryRandomAccess8< T >( this );
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * Move the source by {@code distance}, one dimension at a time.
+	 * <p>
+	 * NB: {@code RandomAccess.move(long[])} is not used, because
+	 * {@code PlanarRandomAccess} (imglib2 7.1.2) moves higher dimensions as
+	 * well.
+	 * </p>
+	 */
+	private void moveSource( final long[] distance )
+	{
+		for ( int d = 0; d < n; ++d )
+			if ( distance[ d ] != 0 )
+				source.move( distance[ d ], d );
+	}
 }
@@ -0,0 +1,526 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.AbstractEuclideanSpace;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.type.BooleanType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Computes the {@link IterationCode} of the boundary pixels of a
+ * {@link BooleanType} {@link RandomAccessibleInterval}, as defined by
+ * {@link Boundary}.
+ * <p>
+ * The source is read once, in flat order, into bit-packed rows. A sliding
+ * window of three hyperplanes along the last dimension holds the rows needed
+ * to decide whether a pixel has a {@code false} neighbor, which is done with
+ * word-wise logic operations. Hyperslabs along the last dimension are
+ * processed in parallel, using the {@link Parallelization#getTaskExecutor()
+ * current TaskExecutor}.
+ * </p>
+ * <p>
+ * The coordinates of the resulting {@link IterationCode} are relative to the
+ * min of the source interval, so only its dimensions (not its position) must
+ * be within {@code int} range.
+ * </p>
+ */
+final class BoundaryScanner
+{
+	/**
+	 * Sources with fewer pixels than this are scanned on the calling thread.
+	 */
+	private static final long MIN_PARALLEL_SIZE = 1 << 16;
+
+	private final RandomAccessibleInterval< ? extends BooleanType< ? > > source;
+
+	private final int n;
+
+	/** dimensions of the source */
+	private final long[] dims;
+
+	/** number of pixels in a row */
+	private final int width;
+
+	/** number of {@code long} words in a row */
+	private final int words;
+
+	/** number of rows in a hyperplane (dimensions 1 to n - 2) */
+	private final int rowsPerPlane;
+
+	/** row index strides of dimensions 1 to n - 2 within a hyperplane */
+	private final int[] rowStrides;
+
+	/**
+	 * Offsets in dimensions 1 to n - 1 of the rows containing neighbors,
+	 * including the row itself.
+	 */
+	private final long[][] rowOffsets;
+
+	/**
+	 * Whether the neighbors in row {@code rowOffsets[ i ]} include the left and
+	 * right neighbors, i.e., whether that row must be eroded in dimension 0.
+	 */
+	private final boolean[] rowEroded;
+
+	private BoundaryScanner( final RandomAccessibleInterval< ? extends BooleanType< ? > > source, final StructuringElement structuringElement )
+	{
+		this.source = source;
+		n = source.numDimensions();
+		dims = source.dimensionsAsLongArray();
+		for ( int d = 0; d < n; ++d )
+			if ( dims[ d ] > Integer.MAX_VALUE )
+				throw new IllegalArgumentException( "Boundary supports at most " + Integer.MAX_VALUE + " pixels per dimension" );
+		width = ( int ) dims[ 0 ];
+		words = ( width + 63 ) >>> 6;
+		rowStrides = new int[ n ];
+		long rows = 1;
+		for ( int d = 1; d < n - 1; ++d )
+		{
+			rowStrides[ d ] = ( int ) rows;
+			rows *= dims[ d ];
+		}
+		if ( rows * words > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Boundary hyperplanes must have less than " + Integer.MAX_VALUE + " words" );
+		rowsPerPlane = ( int ) rows;
+
+		// group the neighbor offsets by row
+		final List< long[] > offsets = new ArrayList<>();
+		final List< Boolean > eroded = new ArrayList<>();
+		offsets.add( new long[ Math.max( 0, n - 1 ) ] );
+		eroded.add( true );
+		for ( final long[] offset : structuringElement.neighborOffsets( n ) )
+		{
+			final long[] rowOffset = Arrays.copyOfRange( offset, 1, n );
+			int i = 0;
+			while ( i < offsets.size() && !Arrays.equals( offsets.get( i ), rowOffset ) )
+				++i;
+			if ( i == offsets.size() )
+			{
+				offsets.add( rowOffset );
+				eroded.add( false );
+			}
+			if ( offset[ 0 ] != 0 )
+				eroded.set( i, true );
+		}
+		rowOffsets = offsets.toArray( new long[ 0 ][] );
+		rowEroded = new boolean[ rowOffsets.length ];
+		for ( int i = 0; i < rowEroded.length; ++i )
+			rowEroded[ i ] = eroded.get( i );
+	}
+
+	/**
+	 * Returns the {@link IterationCode} of the boundary pixels of
+	 * {@code source}, relative to {@code source.min()}.
+	 */
+	static IterationCode scan( final RandomAccessibleInterval< ? extends BooleanType< ? > > source, final StructuringElement structuringElement )
+	{
+		final BoundaryScanner scanner = new BoundaryScanner( source, structuringElement );
+		final int n = scanner.n;
+		if ( n == 1 )
+			return scanner.scanRow();
+
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final long planes = scanner.dims[ n - 1 ];
+		final int numTasks = ( int ) Math.min( taskExecutor.suggestNumberOfTasks(), planes );
+		if ( numTasks <= 1 || Intervals.numElements( source ) < MIN_PARALLEL_SIZE )
+			return scanner.scanSlab( 0, planes ).toIterationCode();
+
+		// split into hyperslabs along the last dimension
+		final List< long[] > slabs = new ArrayList<>( numTasks );
+		for ( int i = 0; i < numTasks; ++i )
+			slabs.add( new long[] { i * planes / numTasks, ( i + 1 ) * planes / numTasks } );
+		final List< Fragment > fragments = taskExecutor.forEachApply( slabs, slab -> scanner.scanSlab( slab[ 0 ], slab[ 1 ] ) );
+		return Fragment.concatenate( n, fragments ).toIterationCode();
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Scans a 1D source.
+	 */
+	private IterationCode scanRow()
+	{
+		final long[] row = new long[ words ];
+		final Cursor< ? extends BooleanType< ? > > c = Views.flatIterable( source ).cursor();
+		for ( int x = 0; x < width; ++x )
+			if ( c.next().get() )
+				row[ x >>> 6 ] |= 1L << x;
+		final long[] interior = new long[ words ];
+		erodeX( row, 0, interior, 0 );
+		final Fragment fragment = new Fragment( n );
+		fragment.addRow( row, 0, interior, 0, words, width, new long[ 0 ] );
+		return fragment.toIterationCode();
+	}
+
+	/**
+	 * Scans the hyperplanes {@code [from, to)} (relative to the source min) of
+	 * the last dimension.
+	 */
+	private Fragment scanSlab( final long from, final long to )
+	{
+		final int planeWords = rowsPerPlane * words;
+		final long planes = dims[ n - 1 ];
+
+		// sliding window of planes z - 1, z, z + 1, and of the same planes
+		// eroded in dimension 0. Planes outside the source are zero.
+		final long[][] raw = new long[ 3 ][ planeWords ];
+		final long[][] eroded = new long[ 3 ][ planeWords ];
+		if ( from > 0 )
+			readPlane( from - 1, raw[ 1 ], eroded[ 1 ] );
+		readPlane( from, raw[ 2 ], eroded[ 2 ] );
+
+		final Fragment fragment = new Fragment( n );
+		final long[] interior = new long[ words ];
+		final long[] rowPosition = new long[ n - 1 ];
+		for ( long z = from; z < to; ++z )
+		{
+			shift( raw );
+			shift( eroded );
+			if ( z + 1 < planes )
+				readPlane( z + 1, raw[ 2 ], eroded[ 2 ] );
+			else
+			{
+				Arrays.fill( raw[ 2 ], 0 );
+				Arrays.fill( eroded[ 2 ], 0 );
+			}
+
+			rowPosition[ n - 2 ] = z;
+			for ( int d = 0; d < n - 2; ++d )
+				rowPosition[ d ] = 0;
+			for ( int j = 0; j < rowsPerPlane; ++j )
+			{
+				interior( raw, eroded, j, rowPosition, interior );
+				fragment.addRow( raw[ 1 ], j * words, interior, 0, words, width, rowPosition );
+
+				// next row position in dimensions 1 to n - 2
+				for ( int d = 0; d < n - 2; ++d )
+				{
+					if ( ++rowPosition[ d ] < dims[ d + 1 ] )
+						break;
+					rowPosition[ d ] = 0;
+				}
+			}
+		}
+		return fragment;
+	}
+
+	private static void shift( final long[][] window )
+	{
+		final long[] first = window[ 0 ];
+		window[ 0 ] = window[ 1 ];
+		window[ 1 ] = window[ 2 ];
+		window[ 2 ] = first;
+	}
+
+	/**
+	 * Reads hyperplane {@code z} of the last dimension into {@code plane}, and
+	 * its erosion in dimension 0 into {@code eroded}.
+	 */
+	private void readPlane( final long z, final long[] plane, final long[] eroded )
+	{
+		Arrays.fill( plane, 0 );
+		final long[] min = source.minAsLongArray();
+		final long[] max = source.maxAsLongArray();
+		min[ n - 1 ] += z;
+		max[ n - 1 ] = min[ n - 1 ];
+		final Cursor< ? extends BooleanType< ? > > c = Views.flatIterable( Views.interval( source, new FinalInterval( min, max ) ) ).cursor();
+		for ( int j = 0; j < rowsPerPlane; ++j )
+		{
+			final int o = j * words;
+			for ( int x = 0; x < width; ++x )
+				if ( c.next().get() )
+					plane[ o + ( x >>> 6 ) ] |= 1L << x;
+			erodeX( plane, o, eroded, o );
+		}
+	}
+
+	/**
+	 * Computes the pixels of row {@code j} of the center plane whose neighbors
+	 * are all {@code true}.
+	 */
+	private void interior( final long[][] raw, final long[][] eroded, final int j, final long[] rowPosition, final long[] interior )
+	{
+		Arrays.fill( interior, -1L );
+		for ( int i = 0; i < rowOffsets.length; ++i )
+		{
+			final long[] rowOffset = rowOffsets[ i ];
+			int row = j;
+			for ( int d = 1; d < n - 1; ++d )
+			{
+				final long pos = rowPosition[ d - 1 ] + rowOffset[ d - 1 ];
+				if ( pos < 0 || pos >= dims[ d ] )
+				{
+					// neighbors outside the source are false
+					Arrays.fill( interior, 0 );
+					return;
+				}
+				row += rowOffset[ d - 1 ] * rowStrides[ d ];
+			}
+			final long[] plane = ( rowEroded[ i ] ? eroded : raw )[ 1 + ( int ) rowOffset[ n - 2 ] ];
+			final int o = row * words;
+			for ( int k = 0; k < words; ++k )
+				interior[ k ] &= plane[ o + k ];
+		}
+	}
+
+	/**
+	 * Writes the pixels of the row at {@code src[ srcOffset ]} whose left and
+	 * right neighbors are also set to {@code dst[ dstOffset ]}. Pixels outside
+	 * the row count as unset.
+	 */
+	private void erodeX( final long[] src, final int srcOffset, final long[] dst, final int dstOffset )
+	{
+		for ( int k = 0; k < words; ++k )
+		{
+			final long w = src[ srcOffset + k ];
+			final long left = ( w << 1 ) | ( k > 0 ? src[ srcOffset + k - 1 ] >>> 63 : 0 );
+			final long right = ( w >>> 1 ) | ( k < words - 1 ? src[ srcOffset + k + 1 ] << 63 : 0 );
+			dst[ dstOffset + k ] = w & left & right;
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Iteration code of the boundary pixels of consecutive rows.
+	 * <p>
+	 * Unlike a complete {@link IterationCode}, it starts with a full position
+	 * update {@code [-(n-1), p1, ..., p(n-1)]}, so that fragments of
+	 * consecutive hyperslabs can be concatenated.
+	 * </p>
+	 */
+	private static final class Fragment
+	{
+		private final int n;
+
+		private final TIntArrayList itcode = new TIntArrayList();
+
+		private long size;
+
+		private final long[] bbmin;
+
+		private final long[] bbmax;
+
+		/** position of the last row that was written, in dimensions 1 to n - 1 */
+		private final long[] last;
+
+		private boolean empty = true;
+
+		Fragment( final int n )
+		{
+			this.n = n;
+			bbmin = new long[ n ];
+			bbmax = new long[ n ];
+			Arrays.fill( bbmin, Long.MAX_VALUE );
+			Arrays.fill( bbmax, Long.MIN_VALUE );
+			last = new long[ Math.max( 0, n - 1 ) ];
+		}
+
+		/**
+		 * Appends the runs of pixels that are set in {@code row} but not in
+		 * {@code interior}. {@code position} is the row position in dimensions
+		 * 1 to n - 1.
+		 */
+		void addRow( final long[] row, final int rowOffset, final long[] interior, final int interiorOffset, final int words, final int width, final long[] position )
+		{
+			boolean started = false;
+			int runStart = -1;
+			for ( int k = 0; k < words; ++k )
+			{
+				final long w = row[ rowOffset + k ] & ~interior[ interiorOffset + k ];
+				final int base = k << 6;
+				int pos = 0;
+				while ( pos < 64 )
+				{
+					if ( runStart < 0 )
+					{
+						final long m = w >>> pos;
+						if ( m == 0 )
+							break;
+						pos += Long.numberOfTrailingZeros( m );
+						runStart = base + pos;
+					}
+					else
+					{
+						final long m = ~w >>> pos;
+						if ( m == 0 )
+							break;
+						pos += Long.numberOfTrailingZeros( m );
+						if ( !started )
+						{
+							startRow( position );
+							started = true;
+						}
+						addRun( runStart, base + pos - 1 );
+						runStart = -1;
+					}
+				}
+			}
+			if ( runStart >= 0 )
+			{
+				if ( !started )
+					startRow( position );
+				addRun( runStart, width - 1 );
+			}
+		}
+
+		private void startRow( final long[] position )
+		{
+			if ( empty )
+			{
+				itcode.add( -( n - 1 ) );
+				for ( int d = 0; d < n - 1; ++d )
+					itcode.add( ( int ) position[ d ] );
+				empty = false;
+			}
+			else
+			{
+				int changed = n - 1;
+				while ( changed > 0 && position[ changed - 1 ] == last[ changed - 1 ] )
+					--changed;
+				itcode.add( -changed );
+				for ( int d = 0; d < changed; ++d )
+					itcode.add( ( int ) position[ d ] );
+			}
+			for ( int d = 1; d < n; ++d )
+			{
+				final long p = position[ d - 1 ];
+				last[ d - 1 ] = p;
+				bbmin[ d ] = Math.min( bbmin[ d ], p );
+				bbmax[ d ] = Math.max( bbmax[ d ], p );
+			}
+		}
+
+		private void addRun( final int min, final int max )
+		{
+			itcode.add( min );
+			itcode.add( max );
+			size += max - min + 1;
+			bbmin[ 0 ] = Math.min( bbmin[ 0 ], min );
+			bbmax[ 0 ] = Math.max( bbmax[ 0 ], max );
+		}
+
+		/**
+		 * Concatenates fragments of consecutive hyperslabs.
+		 */
+		static Fragment concatenate( final int n, final List< Fragment > fragments )
+		{
+			final Fragment result = new Fragment( n );
+			for ( final Fragment fragment : fragments )
+			{
+				if ( fragment.empty )
+					continue;
+				result.itcode.addAll( fragment.itcode );
+				result.size += fragment.size;
+				for ( int d = 0; d < n; ++d )
+				{
+					result.bbmin[ d ] = Math.min( result.bbmin[ d ], fragment.bbmin[ d ] );
+					result.bbmax[ d ] = Math.max( result.bbmax[ d ], fragment.bbmax[ d ] );
+				}
+				result.empty = false;
+			}
+			return result;
+		}
+
+		IterationCode toIterationCode()
+		{
+			final TIntArrayList code = new TIntArrayList( itcode.size() );
+			if ( !empty )
+			{
+				// replace the leading full position update by the X offset
+				code.add( 0 );
+				code.add( itcode.toArray( 1, itcode.size() - 1 ) );
+			}
+			return new Code( n, code, size, bbmin, bbmax );
+		}
+	}
+
+	private static final class Code extends AbstractEuclideanSpace implements IterationCode
+	{
+		private final TIntArrayList itcode;
+
+		private final long size;
+
+		private final long[] bbmin;
+
+		private final long[] bbmax;
+
+		Code( final int n, final TIntArrayList itcode, final long size, final long[] bbmin, final long[] bbmax )
+		{
+			super( n );
+			this.itcode = itcode;
+			this.size = size;
+			this.bbmin = bbmin;
+			this.bbmax = bbmax;
+		}
+
+		@Override
+		public TIntArrayList getItcode()
+		{
+			return itcode;
+		}
+
+		@Override
+		public long getSize()
+		{
+			return size;
+		}
+
+		@Override
+		public long[] getBoundingBoxMin()
+		{
+			return bbmin;
+		}
+
+		@Override
+		public long[] getBoundingBoxMax()
+		{
+			return bbmax;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.AbstractConvertedRandomAccess;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.type.BooleanType;
+import net.imglib2.type.logic.BoolType;
+
+/**
+ * A {@link BoolType} {@link RandomAccess} on a {@link BooleanType} source
+ * {@link RandomAccessibleInterval}. It is {@code true} for pixels that are
+ * {@code true} in the source and have at least one {@code false} pixel in the
+ * neighborhood defined by a {@link StructuringElement}.
+ * <p>
+ * The neighbors are visited by moving a source {@link RandomAccess} through
+ * precomputed offsets, so this works for any source.
+ * </p>
+ *
+ * @param <T>
+ */
+public final class NeighborhoodBoundaryRandomAccess< T extends BooleanType< T > > extends AbstractConvertedRandomAccess< T, BoolType >
+{
+	private final int n;
+
+	private final long[] min;
+
+	private final long[] max;
+
+	/** moves from one neighbor to the next, starting at the center */
+	private final long[][] moves;
+
+	/** moves from each neighbor back to the center */
+	private final long[][] resets;
+
+	private final BoolType type;
+
+	public NeighborhoodBoundaryRandomAccess( final RandomAccessibleInterval< T > sourceInterval, final StructuringElement structuringElement )
+	{
+		super( sourceInterval.randomAccess() );
+		n = sourceInterval.numDimensions();
+		min = sourceInterval.minAsLongArray();
+		max = sourceInterval.maxAsLongArray();
+
+		final long[][] offsets = structuringElement.neighborOffsets( n );
+		moves = new long[ offsets.length ][ n ];
+		resets = new long[ offsets.length ][ n ];
+		final long[] pos = new long[ n ];
+		for ( int i = 0; i < offsets.length; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				moves[ i ][ d ] = offsets[ i ][ d ] - pos[ d ];
+				pos[ d ] = offsets[ i ][ d ];
+				resets[ i ][ d ] = -pos[ d ];
+			}
+		}
+
+		type = new BoolType();
+	}
+
+	private NeighborhoodBoundaryRandomAccess( final NeighborhoodBoundaryRandomAccess< T > ba )
+	{
+		super( ba.source.copy() );
+		this.n = ba.n;
+		this.min = ba.min;
+		this.max = ba.max;
+		this.moves = ba.moves;
+		this.resets = ba.resets;
+		this.type = ba.type.copy();
+	}
+
+	@Override
+	public BoolType get()
+	{
+		type.set( source.get().get() && isBoundary() );
+		return type;
+	}
+
+	@Override
+	public BoolType getType()
+	{
+		return type;
+	}
+
+	@Override
+	public NeighborhoodBoundaryRandomAccess< T > copy()
+	{
+		return new NeighborhoodBoundaryRandomAccess< T >( this );
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Whether the current (true) pixel is at the border of the source interval
+	 * or has a false neighbor.
+	 */
+	private boolean isBoundary()
+	{
+		for ( int d = 0; d < n; ++d )
+		{
+			final long pos = getLongPosition( d );
+			if ( pos <= min[ d ] || pos >= max[ d ] )
+				return true;
+		}
+		for ( int i = 0; i < moves.length; ++i )
+		{
+			moveSource( moves[ i ] );
+			if ( !source.get().get() )
+			{
+				moveSource( resets[ i ] );
+				return true;
+			}
+		}
+		moveSource( resets[ resets.length - 1 ] );
+		return false;
+	}
+
+	/**
+	 * Move the source by {@code distance}, one dimension at a time.
+	 * <p>
+	 * NB: {@code RandomAccess.move(long[])} is not used, because
+	 * {@code PlanarRandomAccess} (imglib2 7.1.2) moves higher dimensions as
+	 * well.
+	 * </p>
+	 */
+	private void moveSource( final long[] distance )
+	{
+		for ( int d = 0; d < n; ++d )
+			if ( distance[ d ] != 0 )
+				source.move( distance[ d ], d );
+	}
+}
@@ -44,6 +44,7 @@ import net.imglib2.Localizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators.BinaryMaskOperator;
 import net.imglib2.util.Intervals;
 
@@ -106,6 +107,28 @@ public class DefaultBinaryCompositeMaskInterval
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testRow( final Localizable start, final int count, final boolean[] out )
+	{
+		operator.testRow( arg0, arg1, start, count, out );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return Masks.combineModificationCounts( Masks.modificationCount( arg0 ), Masks.modificationCount( arg1 ) );
+	}
+
+	@Override
+	public DefaultBinaryCompositeMaskInterval evaluator()
+	{
+		final Predicate< ? super Localizable > arg0Evaluator = Masks.evaluator( arg0 );
+		final Predicate< ? super Localizable > arg1Evaluator = Masks.evaluator( arg1 );
+		return arg0Evaluator == arg0 && arg1Evaluator == arg1
+				? this
+				: new DefaultBinaryCompositeMaskInterval( operator, arg0Evaluator, arg1Evaluator, sourceInterval, boundaryType, knownConstantOp );
+	}
+
 	@Override
 	public BinaryMaskOperator operator()
 	{
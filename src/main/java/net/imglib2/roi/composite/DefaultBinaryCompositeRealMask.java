@@ -40,6 +40,7 @@ import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators.BinaryMaskOperator;
 import net.imglib2.roi.RealMask;
 
@@ -100,6 +101,28 @@ public class DefaultBinaryCompositeRealMask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		operator.testRow( arg0, arg1, start, step, count, out );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return Masks.combineModificationCounts( Masks.modificationCount( arg0 ), Masks.modificationCount( arg1 ) );
+	}
+
+	@Override
+	public DefaultBinaryCompositeRealMask evaluator()
+	{
+		final Predicate< ? super RealLocalizable > arg0Evaluator = Masks.evaluator( arg0 );
+		final Predicate< ? super RealLocalizable > arg1Evaluator = Masks.evaluator( arg1 );
+		return arg0Evaluator == arg0 && arg1Evaluator == arg1
+				? this
+				: new DefaultBinaryCompositeRealMask( operator, arg0Evaluator, arg1Evaluator, n, boundaryType, knownConstantOp );
+	}
+
 	@Override
 	public BinaryMaskOperator operator()
 	{
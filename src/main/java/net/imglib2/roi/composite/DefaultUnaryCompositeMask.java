@@ -41,6 +41,7 @@ import net.imglib2.Localizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Mask;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators.UnaryMaskOperator;
 
 /**
@@ -95,6 +96,27 @@ public class DefaultUnaryCompositeMask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testRow( final Localizable start, final int count, final boolean[] out )
+	{
+		operator.testRow( arg0, start, count, out );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return Masks.modificationCount( arg0 );
+	}
+
+	@Override
+	public DefaultUnaryCompositeMask evaluator()
+	{
+		final Predicate< ? super Localizable > arg0Evaluator = Masks.evaluator( arg0 );
+		return arg0Evaluator == arg0
+				? this
+				: new DefaultUnaryCompositeMask( operator, arg0Evaluator, n, boundaryType, knownConstantOp );
+	}
+
 	@Override
 	public UnaryMaskOperator operator()
 	{
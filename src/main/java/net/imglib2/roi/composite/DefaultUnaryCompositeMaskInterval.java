@@ -44,6 +44,7 @@ import net.imglib2.Localizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators.UnaryMaskOperator;
 import net.imglib2.util.Intervals;
 
@@ -102,6 +103,27 @@ public class DefaultUnaryCompositeMaskInterval
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testRow( final Localizable start, final int count, final boolean[] out )
+	{
+		operator.testRow( arg0, start, count, out );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return Masks.modificationCount( arg0 );
+	}
+
+	@Override
+	public DefaultUnaryCompositeMaskInterval evaluator()
+	{
+		final Predicate< ? super Localizable > arg0Evaluator = Masks.evaluator( arg0 );
+		return arg0Evaluator == arg0
+				? this
+				: new DefaultUnaryCompositeMaskInterval( operator, arg0Evaluator, sourceInterval, boundaryType, knownConstantOp );
+	}
+
 	@Override
 	public UnaryMaskOperator operator()
 	{
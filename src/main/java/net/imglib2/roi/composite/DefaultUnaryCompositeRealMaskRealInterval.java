@@ -43,6 +43,7 @@ import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators.UnaryMaskOperator;
 import net.imglib2.roi.RealMaskRealInterval;
 import net.imglib2.util.Intervals;
@@ -102,6 +103,27 @@ public class DefaultUnaryCompositeRealMaskRealInterval
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		operator.testRow( arg0, start, step, count, out );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return Masks.modificationCount( arg0 );
+	}
+
+	@Override
+	public DefaultUnaryCompositeRealMaskRealInterval evaluator()
+	{
+		final Predicate< ? super RealLocalizable > arg0Evaluator = Masks.evaluator( arg0 );
+		return arg0Evaluator == arg0
+				? this
+				: new DefaultUnaryCompositeRealMaskRealInterval( operator, arg0Evaluator, sourceInterval, boundaryType, knownConstantOp );
+	}
+
 	@Override
 	public UnaryMaskOperator operator()
 	{
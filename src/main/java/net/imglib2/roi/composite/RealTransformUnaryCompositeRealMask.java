@@ -40,6 +40,7 @@ import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators.MaskOperator;
 import net.imglib2.roi.Operators.RealTransformMaskOperator;
 import net.imglib2.roi.RealMask;
@@ -70,12 +71,23 @@ public class RealTransformUnaryCompositeRealMask
 			final int numDimensions,
 			final BoundaryType boundaryType,
 			final UnaryOperator< KnownConstant > knownConstantOp )
+	{
+		this( operator, arg0, operator.predicate( arg0 ), numDimensions, boundaryType, knownConstantOp );
+	}
+
+	private RealTransformUnaryCompositeRealMask(
+			final RealTransformMaskOperator operator,
+			final Predicate< ? super RealLocalizable > arg0,
+			final Predicate< ? super RealLocalizable > predicate,
+			final int numDimensions,
+			final BoundaryType boundaryType,
+			final UnaryOperator< KnownConstant > knownConstantOp )
 	{
 		super( numDimensions );
 		this.operator = operator;
 		this.arg0 = arg0;
 		this.boundaryType = boundaryType;
-		this.predicate = operator.predicate( arg0 );
+		this.predicate = predicate;
 		this.knownConstantOp = knownConstantOp;
 	}
 
@@ -97,6 +109,26 @@ public class RealTransformUnaryCompositeRealMask
 		return predicate.test( localizable );
 	}
 
+	/**
+	 * Aggregates the modification counts of the operand and of the transform,
+	 * see {@link RealTransformMaskOperator#transformModificationCount()}.
+	 */
+	@Override
+	public long modificationCount()
+	{
+		return Masks.combineModificationCounts( Masks.modificationCount( arg0 ), operator.transformModificationCount() );
+	}
+
+	/**
+	 * Returns a mask which tests with its own source position (and a copy of a
+	 * non-affine transform), see {@link RealTransformMaskOperator#evaluator(Predicate)}.
+	 */
+	@Override
+	public RealTransformUnaryCompositeRealMask evaluator()
+	{
+		return new RealTransformUnaryCompositeRealMask( operator, arg0, operator.evaluator( arg0 ), n, boundaryType, knownConstantOp );
+	}
+
 	@Override
 	public MaskOperator operator()
 	{
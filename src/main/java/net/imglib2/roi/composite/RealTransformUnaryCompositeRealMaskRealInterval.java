@@ -39,8 +39,13 @@ import java.util.function.UnaryOperator;
 import net.imglib2.AbstractWrappedRealInterval;
 import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
+import net.imglib2.RealPositionable;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.roi.AffineTransformable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.Operators.MaskOperator;
 import net.imglib2.roi.Operators.RealTransformMaskOperator;
 import net.imglib2.roi.RealMaskRealInterval;
@@ -48,6 +53,14 @@ import net.imglib2.roi.RealMaskRealInterval;
 /**
  * A {@link RealMaskRealInterval} which is the result of a transform operation
  * on a {@link RealMaskRealInterval}.
+ * <p>
+ * If the operand is {@link AffineTransformable} and the transform is affine
+ * (with equal source and target dimensionality), {@code test()} and bounds are
+ * evaluated on the concrete {@link AffineTransformable#transformed(AffineGet)
+ * transformed} shape. It is rebuilt when the {@link #modificationCount()}
+ * changes, that is, when the operand or the matrix of the transform is
+ * modified.
+ * </p>
  *
  * @author Tobias Pietzsch
  * @author Alison Walter
@@ -67,18 +80,42 @@ public class RealTransformUnaryCompositeRealMaskRealInterval extends
 
 	private final UnaryOperator< KnownConstant > knownConstantOp;
 
+	/**
+	 * Whether the operand can be transformed to a concrete shape.
+	 */
+	private final boolean affineTransformable;
+
+	/**
+	 * The last concrete transformed shape, or {@code null}.
+	 */
+	private volatile Transformed transformed;
+
 	public RealTransformUnaryCompositeRealMaskRealInterval(
 		final RealTransformMaskOperator operator,
 		final Predicate< ? super RealLocalizable > arg0, final RealInterval interval,
 		final BoundaryType boundaryType,
 		final UnaryOperator< KnownConstant > knownConstantOp )
+	{
+		this( operator, arg0, operator.predicate( arg0 ), interval, boundaryType, knownConstantOp );
+	}
+
+	private RealTransformUnaryCompositeRealMaskRealInterval(
+		final RealTransformMaskOperator operator,
+		final Predicate< ? super RealLocalizable > arg0,
+		final Predicate< ? super RealLocalizable > predicate,
+		final RealInterval interval, final BoundaryType boundaryType,
+		final UnaryOperator< KnownConstant > knownConstantOp )
 	{
 		super( interval );
 		this.operator = operator;
 		this.arg0 = arg0;
 		this.boundaryType = boundaryType;
-		this.predicate = operator.predicate( arg0 );
+		this.predicate = predicate;
 		this.knownConstantOp = knownConstantOp;
+		final RealTransform transformToSource = operator.getTransformToSource();
+		affineTransformable = arg0 instanceof AffineTransformable
+				&& transformToSource instanceof AffineGet
+				&& transformToSource.numSourceDimensions() == transformToSource.numTargetDimensions();
 	}
 
 	@Override
@@ -96,7 +133,84 @@ public class RealTransformUnaryCompositeRealMaskRealInterval extends
 	@Override
 	public boolean test( final RealLocalizable localizable )
 	{
-		return predicate.test( localizable );
+		final RealMaskRealInterval shape = transformedShape();
+		return shape == null ? predicate.test( localizable ) : shape.test( localizable );
+	}
+
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		final RealMaskRealInterval shape = transformedShape();
+		if ( shape == null )
+			RealMaskRealInterval.super.testRow( start, step, count, out );
+		else
+			shape.testRow( start, step, count, out );
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		final RealMaskRealInterval shape = transformedShape();
+		return shape == null ? super.realMin( d ) : shape.realMin( d );
+	}
+
+	@Override
+	public void realMin( final double[] min )
+	{
+		for ( int d = 0; d < numDimensions(); d++ )
+			min[ d ] = realMin( d );
+	}
+
+	@Override
+	public void realMin( final RealPositionable min )
+	{
+		for ( int d = 0; d < numDimensions(); d++ )
+			min.setPosition( realMin( d ), d );
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		final RealMaskRealInterval shape = transformedShape();
+		return shape == null ? super.realMax( d ) : shape.realMax( d );
+	}
+
+	@Override
+	public void realMax( final double[] max )
+	{
+		for ( int d = 0; d < numDimensions(); d++ )
+			max[ d ] = realMax( d );
+	}
+
+	@Override
+	public void realMax( final RealPositionable max )
+	{
+		for ( int d = 0; d < numDimensions(); d++ )
+			max.setPosition( realMax( d ), d );
+	}
+
+	/**
+	 * Aggregates the modification counts of the operand and of the transform,
+	 * see {@link RealTransformMaskOperator#transformModificationCount()}.
+	 */
+	@Override
+	public long modificationCount()
+	{
+		return Masks.combineModificationCounts( Masks.modificationCount( arg0 ), operator.transformModificationCount() );
+	}
+
+	/**
+	 * Returns a mask which tests with its own source position (and a copy of a
+	 * non-affine transform), see {@link RealTransformMaskOperator#evaluator(Predicate)}.
+	 * The concrete transformed shape, if any, is stateless and shared.
+	 */
+	@Override
+	public RealTransformUnaryCompositeRealMaskRealInterval evaluator()
+	{
+		final RealTransformUnaryCompositeRealMaskRealInterval evaluator = new RealTransformUnaryCompositeRealMaskRealInterval(
+				operator, arg0, operator.evaluator( arg0 ), sourceInterval, boundaryType, knownConstantOp );
+		evaluator.transformed = transformed;
+		return evaluator;
 	}
 
 	@Override
@@ -128,4 +242,41 @@ public class RealTransformUnaryCompositeRealMaskRealInterval extends
 	{
 		return ( arg0.hashCode() + operator.hashCode() ) * 33;
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * Returns the concrete transformed shape, or {@code null} if the operand
+	 * cannot be transformed or its modifications are not tracked.
+	 */
+	private RealMaskRealInterval transformedShape()
+	{
+		if ( !affineTransformable )
+			return null;
+		final long modificationCount = modificationCount();
+		if ( modificationCount < 0 )
+			return null;
+		Transformed t = transformed;
+		if ( t == null || t.modificationCount != modificationCount )
+		{
+			t = new Transformed( modificationCount, ( ( AffineTransformable ) arg0 ).transformed( ( AffineGet ) operator.getTransformToSource() ) );
+			transformed = t;
+		}
+		return t.shape;
+	}
+
+	// -- Helper classes --
+
+	private static final class Transformed
+	{
+		private final long modificationCount;
+
+		private final RealMaskRealInterval shape;
+
+		Transformed( final long modificationCount, final RealMaskRealInterval shape )
+		{
+			this.modificationCount = modificationCount;
+			this.shape = shape;
+		}
+	}
 }
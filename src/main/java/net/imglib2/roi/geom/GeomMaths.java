@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.IntPredicate;
 
 import net.imglib2.FinalInterval;
 import net.imglib2.FinalRealInterval;
@@ -56,6 +57,20 @@ import gnu.trove.list.array.TDoubleArrayList;
  */
 public class GeomMaths
 {
+	/**
+	 * Squared distance from a line segment up to which
+	 * {@link #lineContains(double[], double[], RealLocalizable, int)} accepts
+	 * points. Needs 1e-15 for double precision errors.
+	 */
+	private static final double LINE_CONTAINS_SQUARED_DISTANCE = 1e-15;
+
+	/**
+	 * Distance from the bounding box of a line segment beyond which
+	 * {@link #lineContains(double[], double[], RealLocalizable, int)} is
+	 * always false. Use this to discard segments before testing them.
+	 */
+	public static final double LINE_CONTAINS_TOLERANCE = 1e-7;
+
 	/**
 	 * Tests if the point given point is on a line.
 	 *
@@ -68,38 +83,98 @@ public class GeomMaths
 	 */
 	public static boolean lineContains( final double[] endpointOne, final double[] endpointTwo, final RealLocalizable testPoint, final int dims )
 	{
-		final double[] directionVector = computeDirectionVector( endpointOne, endpointTwo, dims );
-		final double[] testVector = new double[ dims ];
-		double projection = 0;
+		double magnitude = 0;
+		for ( int d = 0; d < dims; d++ )
+		{
+			final double v = endpointTwo[ d ] - endpointOne[ d ];
+			magnitude += v * v;
+		}
+		magnitude = Math.sqrt( magnitude );
 
 		// compute a vector from point1 to the test point l
 		// compute the dot product of this new vector and the direction
 		// vector of this line
+		double projection = 0;
 		for ( int d = 0; d < dims; d++ )
-		{
-			testVector[ d ] = testPoint.getDoublePosition( d ) - endpointOne[ d ];
-			projection += testVector[ d ] * directionVector[ d ];
-		}
-
-		final double[] point = new double[ dims ];
-		double squaredDistance = 0;
+			projection += ( testPoint.getDoublePosition( d ) - endpointOne[ d ] ) * ( ( endpointTwo[ d ] - endpointOne[ d ] ) / magnitude );
 
 		// Compute the corresponding point on the line nearest to the test
 		// point. If this point is greater than or less than either of the
 		// endpoints, the point becomes the endpoint.
 		// Compute the distance between this point and the test point l
+		double squaredDistance = 0;
+		for ( int d = 0; d < dims; d++ )
+		{
+			final double direction = ( endpointTwo[ d ] - endpointOne[ d ] ) / magnitude;
+			final double point = clamp( endpointOne[ d ] + ( projection * direction ), endpointOne[ d ], endpointTwo[ d ] );
+			final double diff = point - testPoint.getDoublePosition( d );
+			squaredDistance += diff * diff;
+		}
+
+		return squaredDistance <= LINE_CONTAINS_SQUARED_DISTANCE;
+	}
+
+	/**
+	 * Tests if the given point is on a line segment, with the segment given by
+	 * precomputed data. The result is identical to
+	 * {@link #lineContains(double[], double[], RealLocalizable, int)}, but
+	 * nothing is allocated or recomputed.
+	 *
+	 * @param data
+	 *            segment data, see {@link #lineData(double[], double[], int, double[], int)}
+	 * @param offset
+	 *            index of the first element of the segment in {@code data}
+	 * @param testPoint
+	 *            Point to test
+	 */
+	public static boolean lineContains( final double[] data, final int offset, final RealLocalizable testPoint, final int dims )
+	{
+		final int o = offset;
+		final int u = offset + dims;
+		final int lo = offset + 2 * dims;
+		final int hi = offset + 3 * dims;
+
+		double projection = 0;
+		for ( int d = 0; d < dims; d++ )
+			projection += ( testPoint.getDoublePosition( d ) - data[ o + d ] ) * data[ u + d ];
+
+		double squaredDistance = 0;
 		for ( int d = 0; d < dims; d++ )
 		{
-			point[ d ] = endpointOne[ d ] + ( projection * directionVector[ d ] );
-			if ( point[ d ] > Math.max( endpointOne[ d ], endpointTwo[ d ] ) )
-				point[ d ] = Math.max( endpointOne[ d ], endpointTwo[ d ] );
-			if ( point[ d ] < Math.min( endpointOne[ d ], endpointTwo[ d ] ) )
-				point[ d ] = Math.min( endpointOne[ d ], endpointTwo[ d ] );
-			squaredDistance += ( point[ d ] - testPoint.getDoublePosition( d ) ) * ( point[ d ] - testPoint.getDoublePosition( d ) );
+			double point = data[ o + d ] + ( projection * data[ u + d ] );
+			if ( point > data[ hi + d ] )
+				point = data[ hi + d ];
+			if ( point < data[ lo + d ] )
+				point = data[ lo + d ];
+			final double diff = point - testPoint.getDoublePosition( d );
+			squaredDistance += diff * diff;
 		}
+		return squaredDistance <= LINE_CONTAINS_SQUARED_DISTANCE;
+	}
 
-		// Needs 1e-15 for double precision errors
-		return squaredDistance <= 1e-15;
+	/**
+	 * Writes the data used by
+	 * {@link #lineContains(double[], int, RealLocalizable, int)} for the
+	 * segment from {@code endpointOne} to {@code endpointTwo}: the first
+	 * endpoint, the unit direction, and the minimum and maximum of the
+	 * endpoints, each with {@code dims} elements.
+	 */
+	public static void lineData( final double[] endpointOne, final double[] endpointTwo, final int dims, final double[] data, final int offset )
+	{
+		double magnitude = 0;
+		for ( int d = 0; d < dims; d++ )
+		{
+			final double v = endpointTwo[ d ] - endpointOne[ d ];
+			magnitude += v * v;
+		}
+		magnitude = Math.sqrt( magnitude );
+		for ( int d = 0; d < dims; d++ )
+		{
+			data[ offset + d ] = endpointOne[ d ];
+			data[ offset + dims + d ] = ( endpointTwo[ d ] - endpointOne[ d ] ) / magnitude;
+			data[ offset + 2 * dims + d ] = Math.min( endpointOne[ d ], endpointTwo[ d ] );
+			data[ offset + 3 * dims + d ] = Math.max( endpointOne[ d ], endpointTwo[ d ] );
+		}
 	}
 
 	/**
@@ -219,6 +294,55 @@ public class GeomMaths
 		return new FinalRealInterval( min, max );
 	}
 
+	/**
+	 * Writes the results of testing a row of {@code count} points against a
+	 * convex mask to {@code out}. The points inside the mask are contiguous
+	 * along the row, and {@code [lo, hi]} is an approximation (for example,
+	 * computed analytically) of the range of their indices. The ends of the
+	 * range are corrected by testing individual points, so that the results
+	 * are identical to testing each point.
+	 *
+	 * @param lo
+	 *            approximate index of the first point inside the mask
+	 * @param hi
+	 *            approximate index of the last point inside the mask
+	 * @param count
+	 *            number of points in the row
+	 * @param test
+	 *            exact test of the point with the given index
+	 * @param out
+	 *            receives the results
+	 */
+	public static void convexSpan( final double lo, final double hi, final int count, final IntPredicate test, final boolean[] out )
+	{
+		int first = ( int ) Math.max( 0, Math.min( count, Math.ceil( lo ) ) );
+		int last = ( int ) Math.max( -1, Math.min( count - 1, Math.floor( hi ) ) );
+		if ( lo != lo || hi != hi )
+		{
+			// NaN: no approximation available
+			first = 0;
+			last = -1;
+		}
+		while ( first > 0 && test.test( first - 1 ) )
+			--first;
+		while ( first <= last && !test.test( first ) )
+			++first;
+		if ( first > last )
+		{
+			// the approximation may have missed a single point
+			last = first - 1;
+			if ( first < count && test.test( first ) )
+				last = first;
+		}
+		while ( last < count - 1 && last >= first && test.test( last + 1 ) )
+			++last;
+		while ( last >= first && !test.test( last ) )
+			--last;
+		Arrays.fill( out, 0, count, false );
+		if ( first <= last )
+			Arrays.fill( out, first, last + 1, true );
+	}
+
 	/**
 	 * Finds the smallest {@link RealInterval} which contains all x, y
 	 * coordinates. If the x and y arrays are not equal in length the larger
@@ -305,25 +429,17 @@ public class GeomMaths
 	// -- Helper methods --
 
 	/**
-	 * Creates a direction vector from pointOne to pointTwo.
+	 * Clamps {@code v} to the range spanned by {@code a} and {@code b}, in
+	 * the order used by
+	 * {@link #lineContains(double[], double[], RealLocalizable, int)}.
 	 */
-	private static double[] computeDirectionVector( final double[] pointOne, final double[] pointTwo, final int dims )
+	private static double clamp( final double v, final double a, final double b )
 	{
-		final double[] directionVector = new double[ dims ];
-		double magnitude = 0;
-		for ( int d = 0; d < dims; d++ )
-		{
-			directionVector[ d ] = pointTwo[ d ] - pointOne[ d ];
-			magnitude += directionVector[ d ] * directionVector[ d ];
-		}
-
-		magnitude = Math.sqrt( magnitude );
-
-		for ( int d = 0; d < dims; d++ )
-		{
-			directionVector[ d ] = directionVector[ d ] / magnitude;
-		}
-
-		return directionVector;
+		double c = v;
+		if ( c > Math.max( a, b ) )
+			c = Math.max( a, b );
+		if ( c < Math.min( a, b ) )
+			c = Math.min( a, b );
+		return c;
 	}
 }
@@ -0,0 +1,462 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.integer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.roi.geom.real.Polygon2D;
+import net.imglib2.roi.geom.real.Polyline;
+import net.imglib2.roi.geom.real.Polyshape;
+
+/**
+ * The integer locations on a polyline or polygon outline in n-dimensional
+ * space.
+ * <p>
+ * Each segment from vertex {@code a} to vertex {@code b} is sampled at
+ * {@code m} points, where {@code m} is the largest absolute coordinate
+ * difference. Point {@code k} is at {@code a + round( k * (b - a) / m )}, with
+ * halves rounded up, which is computed in integer arithmetic. The last point
+ * of a segment is the first point of the next one and is visited only once.
+ * Open polylines end at their last vertex, closed outlines end just before
+ * the first vertex.
+ * </p>
+ * <p>
+ * Cursors step with an integer DDA and do not allocate per point.
+ * {@link #size()} is precomputed, and {@link Cursor#jumpFwd(long)} is constant
+ * time within a segment, and logarithmic in the number of segments otherwise.
+ * {@link #split(int)} divides the points into contiguous parts, e.g. for
+ * sampling an intensity profile along a track in parallel.
+ * </p>
+ */
+public class IterablePolyline extends AbstractInterval implements IterableInterval< Void >
+{
+	private final Path path;
+
+	/** Index of the first point. */
+	private final long from;
+
+	/** Index after the last point. */
+	private final long to;
+
+	/**
+	 * Creates the integer locations on the polyline through {@code vertices}.
+	 *
+	 * @param vertices
+	 *            the vertices, all with the same number of dimensions
+	 * @param closed
+	 *            whether the last vertex is connected to the first one
+	 */
+	public IterablePolyline( final List< ? extends Localizable > vertices, final boolean closed )
+	{
+		this( new Path( vertices, closed ) );
+	}
+
+	private IterablePolyline( final Path path )
+	{
+		this( path, 0, path.size() );
+	}
+
+	private IterablePolyline( final Path path, final long from, final long to )
+	{
+		super( path.n );
+		this.path = path;
+		this.from = from;
+		this.to = to;
+		path.bounds( from, to, min, max );
+	}
+
+	/**
+	 * Returns the integer locations on the given {@link Polyline}, with
+	 * vertices rounded to the nearest integer position.
+	 */
+	public static IterablePolyline of( final Polyline polyline )
+	{
+		return new IterablePolyline( roundedVertices( polyline ), false );
+	}
+
+	/**
+	 * Returns the integer locations on the outline of the given
+	 * {@link Polygon2D}, with vertices rounded to the nearest integer
+	 * position.
+	 */
+	public static IterablePolyline of( final Polygon2D polygon )
+	{
+		return new IterablePolyline( roundedVertices( polygon ), true );
+	}
+
+	/**
+	 * Divides the points into at most {@code numParts} contiguous parts of
+	 * nearly equal size. Iterating the parts in order visits the same points
+	 * as iterating this polyline.
+	 */
+	public List< IterablePolyline > split( final int numParts )
+	{
+		final long size = size();
+		final int parts = ( int ) Math.max( 1, Math.min( numParts, size ) );
+		final List< IterablePolyline > list = new ArrayList<>( parts );
+		for ( int i = 0; i < parts; i++ )
+			list.add( new IterablePolyline( path, from + size * i / parts, from + size * ( i + 1 ) / parts ) );
+		return list;
+	}
+
+	@Override
+	public long size()
+	{
+		return to - from;
+	}
+
+	@Override
+	public Void firstElement()
+	{
+		return null;
+	}
+
+	@Override
+	public Object iterationOrder()
+	{
+		return this;
+	}
+
+	@Override
+	public Iterator< Void > iterator()
+	{
+		return cursor();
+	}
+
+	@Override
+	public Cursor< Void > cursor()
+	{
+		return localizingCursor();
+	}
+
+	@Override
+	public Cursor< Void > localizingCursor()
+	{
+		return new PolylineCursor();
+	}
+
+	@Override
+	public Void getType()
+	{
+		return null;
+	}
+
+	// -- Helper methods --
+
+	private static List< Point > roundedVertices( final Polyshape polyshape )
+	{
+		final int n = polyshape.numDimensions();
+		final List< Point > vertices = new ArrayList<>( polyshape.numVertices() );
+		for ( int i = 0; i < polyshape.numVertices(); i++ )
+		{
+			final Point p = new Point( n );
+			for ( int d = 0; d < n; d++ )
+				p.setPosition( Math.round( polyshape.vertex( i ).getDoublePosition( d ) ), d );
+			vertices.add( p );
+		}
+		return vertices;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * The segments of the polyline. Segment {@code s} starts at
+	 * {@code start[ s * n ... ]}, moves by {@code delta[ s * n ... ]}, has
+	 * {@code steps[ s ]} points, and its first point has index
+	 * {@code offsets[ s ]}. An open polyline ends with a segment consisting
+	 * of its last vertex only.
+	 */
+	private static final class Path
+	{
+		private final int n;
+
+		private final int numSegments;
+
+		private final long[] start;
+
+		private final long[] delta;
+
+		private final long[] steps;
+
+		private final long[] offsets;
+
+		Path( final List< ? extends Localizable > vertices, final boolean closed )
+		{
+			n = vertices.isEmpty() ? 0 : vertices.get( 0 ).numDimensions();
+			final int numVertices = vertices.size();
+			final long[] start = new long[ ( numVertices + 1 ) * n ];
+			final long[] delta = new long[ ( numVertices + 1 ) * n ];
+			final long[] steps = new long[ numVertices + 1 ];
+			final long[] offsets = new long[ numVertices + 2 ];
+			int s = 0;
+			for ( int i = 0; i < numVertices; i++ )
+			{
+				final Localizable a = vertices.get( i );
+				final boolean last = i == numVertices - 1;
+				if ( last && !closed )
+					break;
+				final Localizable b = vertices.get( last ? 0 : i + 1 );
+				long m = 0;
+				for ( int d = 0; d < n; d++ )
+				{
+					start[ s * n + d ] = a.getLongPosition( d );
+					delta[ s * n + d ] = b.getLongPosition( d ) - a.getLongPosition( d );
+					m = Math.max( m, Math.abs( delta[ s * n + d ] ) );
+				}
+				if ( m > 0 )
+				{
+					steps[ s ] = m;
+					offsets[ s + 1 ] = offsets[ s ] + m;
+					++s;
+				}
+			}
+			// the last vertex of an open polyline, or the only location of a
+			// closed outline with all vertices at the same location
+			if ( numVertices > 0 && ( !closed || s == 0 ) )
+			{
+				final Localizable v = vertices.get( closed ? 0 : numVertices - 1 );
+				for ( int d = 0; d < n; d++ )
+				{
+					start[ s * n + d ] = v.getLongPosition( d );
+					delta[ s * n + d ] = 0;
+				}
+				steps[ s ] = 1;
+				offsets[ s + 1 ] = offsets[ s ] + 1;
+				++s;
+			}
+			numSegments = s;
+			this.start = start;
+			this.delta = delta;
+			this.steps = steps;
+			this.offsets = offsets;
+		}
+
+		long size()
+		{
+			return offsets[ numSegments ];
+		}
+
+		/**
+		 * Returns the segment containing point {@code index}.
+		 */
+		int segment( final long index )
+		{
+			final int i = Arrays.binarySearch( offsets, 0, numSegments + 1, index );
+			if ( i >= 0 )
+			{
+				// segments have at least one point, so offsets are distinct
+				return i;
+			}
+			return -i - 2;
+		}
+
+		/**
+		 * Writes the coordinate along {@code d} of point {@code k} of segment
+		 * {@code s} to {@code position[ d ]}, and the remainder of the
+		 * rounding to {@code remainder[ d ]}.
+		 */
+		void locate( final int s, final long k, final long[] position, final long[] remainder )
+		{
+			final long twoM = 2 * steps[ s ];
+			for ( int d = 0; d < n; d++ )
+			{
+				final long numerator = 2 * k * delta[ s * n + d ] + steps[ s ];
+				position[ d ] = start[ s * n + d ] + Math.floorDiv( numerator, twoM );
+				remainder[ d ] = Math.floorMod( numerator, twoM );
+			}
+		}
+
+		/**
+		 * Computes the bounding box of points {@code from} (inclusive) to
+		 * {@code to} (exclusive). Coordinates along each segment are monotonic,
+		 * so only the first and last point in each segment are needed.
+		 */
+		void bounds( final long from, final long to, final long[] min, final long[] max )
+		{
+			Arrays.fill( min, Long.MAX_VALUE );
+			Arrays.fill( max, Long.MIN_VALUE );
+			if ( from >= to )
+				return;
+			final long[] position = new long[ n ];
+			final long[] remainder = new long[ n ];
+			for ( int s = segment( from ); s < numSegments && offsets[ s ] < to; s++ )
+			{
+				final long first = Math.max( from, offsets[ s ] ) - offsets[ s ];
+				final long last = Math.min( to, offsets[ s + 1 ] ) - 1 - offsets[ s ];
+				locate( s, first, position, remainder );
+				expand( position, min, max );
+				locate( s, last, position, remainder );
+				expand( position, min, max );
+			}
+		}
+
+		private void expand( final long[] position, final long[] min, final long[] max )
+		{
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ d ] = Math.min( min[ d ], position[ d ] );
+				max[ d ] = Math.max( max[ d ], position[ d ] );
+			}
+		}
+	}
+
+	private final class PolylineCursor extends AbstractLocalizable implements Cursor< Void >
+	{
+		/** Index of the current point. */
+		private long index;
+
+		/** Current segment. */
+		private int segment;
+
+		/** Index of the current point within {@link #segment}. */
+		private long k;
+
+		/** Remainders of the rounded coordinates, in {@code [0, 2m)}. */
+		private final long[] remainder;
+
+		PolylineCursor()
+		{
+			super( path.n );
+			remainder = new long[ n ];
+			reset();
+		}
+
+		PolylineCursor( final PolylineCursor c )
+		{
+			super( c.position.clone() );
+			remainder = c.remainder.clone();
+			index = c.index;
+			segment = c.segment;
+			k = c.k;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return index < to - 1;
+		}
+
+		@Override
+		public void fwd()
+		{
+			final boolean positioned = index >= from;
+			++index;
+			if ( positioned && k + 1 < path.steps[ segment ] )
+			{
+				++k;
+				final int o = segment * n;
+				final long twoM = 2 * path.steps[ segment ];
+				for ( int d = 0; d < n; d++ )
+				{
+					remainder[ d ] += 2 * path.delta[ o + d ];
+					if ( remainder[ d ] >= twoM )
+					{
+						remainder[ d ] -= twoM;
+						++position[ d ];
+					}
+					else if ( remainder[ d ] < 0 )
+					{
+						remainder[ d ] += twoM;
+						--position[ d ];
+					}
+				}
+			}
+			else
+				locate();
+		}
+
+		@Override
+		public void jumpFwd( final long steps )
+		{
+			final boolean positioned = index >= from;
+			index += steps;
+			if ( positioned && k + steps < path.steps[ segment ] )
+			{
+				k += steps;
+				path.locate( segment, k, position, remainder );
+			}
+			else
+				locate();
+		}
+
+		@Override
+		public void reset()
+		{
+			index = from - 1;
+			segment = 0;
+			k = 0;
+		}
+
+		@Override
+		public Void get()
+		{
+			return null;
+		}
+
+		@Override
+		public Void getType()
+		{
+			return null;
+		}
+
+		@Override
+		public Void next()
+		{
+			fwd();
+			return null;
+		}
+
+		@Override
+		public PolylineCursor copy()
+		{
+			return new PolylineCursor( this );
+		}
+
+		private void locate()
+		{
+			segment = path.segment( index );
+			k = index - path.offsets[ segment ];
+			path.locate( segment, k, position, remainder );
+		}
+	}
+}
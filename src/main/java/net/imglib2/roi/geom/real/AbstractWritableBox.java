@@ -46,6 +46,8 @@ import net.imglib2.roi.util.RealLocalizableRealPositionable;
  */
 public abstract class AbstractWritableBox extends AbstractRealInterval implements WritableBox
 {
+	private long modificationCount;
+
 	/**
 	 * Creates an n-d rectangular {@link RealMask}. The dimensionality is
 	 * dictated by the length of the min array.
@@ -87,6 +89,13 @@ public abstract class AbstractWritableBox extends AbstractRealInterval implement
 		final double center = ( max[ d ] + min[ d ] ) / 2.0;
 		max[ d ] = center + length / 2.0;
 		min[ d ] = center - length / 2.0;
+		++modificationCount;
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
 	}
 
 	@Override
@@ -119,6 +128,7 @@ public abstract class AbstractWritableBox extends AbstractRealInterval implement
 				max[ d ] = position[ d ] + halfSideLength;
 				min[ d ] = position[ d ] - halfSideLength;
 			}
+			++modificationCount;
 		}
 	}
 }
@@ -34,6 +34,7 @@
 package net.imglib2.roi.geom.real;
 
 import net.imglib2.RealLocalizable;
+import net.imglib2.roi.util.RowScratch;
 
 /**
  * Abstract base class for {@link WritableEllipsoid} implementations.
@@ -92,4 +93,28 @@ public abstract class AbstractWritableEllipsoid extends AbstractWritableSuperEll
 
 		return distancePowered;
 	}
+
+	@Override
+	protected void distancePowered( final RealLocalizable start, final double step, final int count, final double[] distances )
+	{
+		assert ( start.numDimensions() >= n ): "start must have no less than " + n + " dimensions";
+
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			final double[] terms = scratch.doubles( n );
+			for ( int d = 1; d < n; d++ )
+				terms[ d ] = ( ( start.getDoublePosition( d ) - center[ d ] ) / semiAxisLengths[ d ] ) * ( ( start.getDoublePosition( d ) - center[ d ] ) / semiAxisLengths[ d ] );
+
+			final double x0 = start.getDoublePosition( 0 );
+			for ( int i = 0; i < count; i++ )
+			{
+				final double x = x0 + i * step;
+				double distancePowered = 0;
+				distancePowered += ( ( x - center[ 0 ] ) / semiAxisLengths[ 0 ] ) * ( ( x - center[ 0 ] ) / semiAxisLengths[ 0 ] );
+				for ( int d = 1; d < n; d++ )
+					distancePowered += terms[ d ];
+				distances[ i ] = distancePowered;
+			}
+		}
+	}
 }
@@ -37,6 +37,7 @@ import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.RowScratch;
 
 /**
  * Abstract base class for {@link WritableSphere} implementations.
@@ -49,6 +50,8 @@ public abstract class AbstractWritableSphere extends AbstractEuclideanSpace impl
 
 	protected double radius;
 
+	private long modificationCount;
+
 	/**
 	 * Creates an n-d sphere.
 	 *
@@ -124,6 +127,13 @@ public abstract class AbstractWritableSphere extends AbstractEuclideanSpace impl
 		if ( radius <= 0 )
 			throw new IllegalArgumentException( "Radius must be positive and non-zero." );
 		this.radius = radius;
+		++modificationCount;
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
 	}
 
 	@Override
@@ -151,6 +161,36 @@ public abstract class AbstractWritableSphere extends AbstractEuclideanSpace impl
 		return distancePowered;
 	}
 
+	/**
+	 * Computes {@link #distancePowered(RealLocalizable)} for {@code count}
+	 * points, the i-th point being {@code start} moved by {@code i * step}
+	 * along dimension 0. The terms of the other dimensions are computed once
+	 * per row, and summed in the same order as the single point version, so
+	 * results are identical.
+	 */
+	protected void distancePowered( final RealLocalizable start, final double step, final int count, final double[] distances )
+	{
+		assert ( start.numDimensions() >= n ): "start must have no less than " + n + " dimensions";
+
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			final double[] terms = scratch.doubles( n );
+			for ( int d = 1; d < n; d++ )
+				terms[ d ] = ( start.getDoublePosition( d ) - center[ d ] ) * ( start.getDoublePosition( d ) - center[ d ] );
+
+			final double x0 = start.getDoublePosition( 0 );
+			for ( int i = 0; i < count; i++ )
+			{
+				final double x = x0 + i * step;
+				double distancePowered = 0;
+				distancePowered += ( x - center[ 0 ] ) * ( x - center[ 0 ] );
+				for ( int d = 1; d < n; d++ )
+					distancePowered += terms[ d ];
+				distances[ i ] = distancePowered;
+			}
+		}
+	}
+
 	// -- Helper classes --
 
 	private class SphereCenter extends AbstractRealMaskPoint
@@ -164,7 +204,8 @@ public abstract class AbstractWritableSphere extends AbstractEuclideanSpace impl
 		@Override
 		public void updateBounds()
 		{
-			// No implementation needed, min/max easy to compute
+			// min/max easy to compute, only record the change
+			++modificationCount;
 		}
 
 	}
@@ -33,10 +33,13 @@
  */
 package net.imglib2.roi.geom.real;
 
+import java.util.Arrays;
+
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
+import net.imglib2.roi.util.RowScratch;
 
 /**
  * Abstract base class for {@link WritableSuperEllipsoid} implementations.
@@ -45,12 +48,43 @@ import net.imglib2.roi.util.RealLocalizableRealPositionable;
  */
 public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSpace implements WritableSuperEllipsoid
 {
+	/**
+	 * Largest exponent for which {@link #testDistancePowered(RealLocalizable)}
+	 * uses repeated multiplication instead of {@link Math#pow(double, double)}.
+	 */
+	private static final int MAX_INTEGER_EXPONENT = 64;
+
+	/**
+	 * Relative distance to the boundary below which the kernels of
+	 * {@link #testDistancePowered(RealLocalizable)} fall back to
+	 * {@link #distancePowered(RealLocalizable)}. It is far larger than their
+	 * rounding errors.
+	 */
+	private static final double KERNEL_TOLERANCE = 1e-9;
+
 	protected double exponent;
 
 	protected final double[] center;
 
 	protected final double[] semiAxisLengths;
 
+	private long modificationCount;
+
+	private final double[] inverseSemiAxisLengths;
+
+	/** {@link #exponent} if it is a small integer, 0 otherwise. */
+	private int integerExponent;
+
+	/**
+	 * Scaled distances below this in every dimension are certainly inside.
+	 */
+	private double innerLimit;
+
+	/**
+	 * A scaled distance above this in any dimension is certainly outside.
+	 */
+	private double outerLimit;
+
 	/**
 	 * Creates an n-d superellipsoid, where n is determined by the length of the
 	 * smaller array.
@@ -74,6 +108,7 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		this.exponent = exponent;
 		this.semiAxisLengths = new double[ n ];
 		this.center = new double[ n ];
+		inverseSemiAxisLengths = new double[ n ];
 
 		for ( int i = 0; i < n; i++ )
 		{
@@ -82,7 +117,9 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 				throw new IllegalArgumentException( "Semi-axis lengths must be positive and non-zero" );
 			this.semiAxisLengths[ i ] = val;
 			this.center[ i ] = center[ i ];
+			inverseSemiAxisLengths[ i ] = 1 / val;
 		}
+		updateExponentLimits();
 	}
 
 	@Override
@@ -125,6 +162,8 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		if ( exponent <= 0 )
 			throw new IllegalArgumentException( "exponent must be positve and non-zero" );
 		this.exponent = exponent;
+		updateExponentLimits();
+		++modificationCount;
 	}
 
 	@Override
@@ -133,6 +172,14 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		if ( length <= 0 )
 			throw new IllegalArgumentException( "Semi-axis length must be positive and non-zero" );
 		semiAxisLengths[ d ] = length;
+		inverseSemiAxisLengths[ d ] = 1 / length;
+		++modificationCount;
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
 	}
 
 	@Override
@@ -168,6 +215,183 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		return distancePowered;
 	}
 
+	/**
+	 * Computes {@link #distancePowered(RealLocalizable)} for {@code count}
+	 * points, the i-th point being {@code start} moved by {@code i * step}
+	 * along dimension 0. The terms of the other dimensions are computed once
+	 * per row, and summed in the same order as the single point version, so
+	 * results are identical.
+	 */
+	protected void distancePowered( final RealLocalizable start, final double step, final int count, final double[] distances )
+	{
+		assert ( start.numDimensions() >= n ): "start must have no less than " + n + " dimensions";
+
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			final double[] terms = scratch.doubles( n );
+			for ( int d = 1; d < n; d++ )
+				terms[ d ] = Math.pow( Math.abs( ( start.getDoublePosition( d ) - center[ d ] ) / semiAxisLengths[ d ] ), exponent );
+
+			final double x0 = start.getDoublePosition( 0 );
+			for ( int i = 0; i < count; i++ )
+			{
+				final double x = x0 + i * step;
+				double distancePowered = 0;
+				distancePowered += Math.pow( Math.abs( ( x - center[ 0 ] ) / semiAxisLengths[ 0 ] ), exponent );
+				for ( int d = 1; d < n; d++ )
+					distancePowered += terms[ d ];
+				distances[ i ] = distancePowered;
+			}
+		}
+	}
+
+	/**
+	 * Returns a value which compares to {@code 1} like
+	 * {@link #distancePowered(RealLocalizable)}, i.e., {@code <= 1} and
+	 * {@code < 1} give the same results, and which is cheaper to compute.
+	 * <p>
+	 * Small integer exponents are evaluated by multiplication with reciprocal
+	 * semi-axis lengths. Other exponents are first checked against an inner
+	 * box, which is certainly inside, and the bounding box, outside of which
+	 * is certainly outside. Points close to the boundary are always decided
+	 * by {@link #distancePowered(RealLocalizable)}.
+	 * </p>
+	 */
+	protected double testDistancePowered( final RealLocalizable l )
+	{
+		assert ( l.numDimensions() >= n ): "l must have no less than " + n + " dimensions";
+
+		if ( integerExponent > 0 )
+		{
+			double distancePowered = 0;
+			for ( int d = 0; d < n; d++ )
+				distancePowered += power( Math.abs( l.getDoublePosition( d ) - center[ d ] ) * inverseSemiAxisLengths[ d ] );
+			return nearBoundary( distancePowered ) ? distancePowered( l ) : distancePowered;
+		}
+
+		boolean inner = true;
+		for ( int d = 0; d < n; d++ )
+		{
+			final double t = Math.abs( l.getDoublePosition( d ) - center[ d ] ) * inverseSemiAxisLengths[ d ];
+			if ( t > outerLimit )
+				return Double.POSITIVE_INFINITY;
+			inner &= t < innerLimit;
+		}
+		return inner ? 0 : distancePowered( l );
+	}
+
+	/**
+	 * Computes {@link #testDistancePowered(RealLocalizable)} for {@code count}
+	 * points, the i-th point being {@code start} moved by {@code i * step}
+	 * along dimension 0. If any point is close to the boundary,
+	 * {@link #distancePowered(RealLocalizable, double, int, double[])} is
+	 * computed for the row.
+	 */
+	protected void testDistancePowered( final RealLocalizable start, final double step, final int count, final double[] distances )
+	{
+		assert ( start.numDimensions() >= n ): "start must have no less than " + n + " dimensions";
+
+		// sum of the dimension > 0 terms, or whether they are all in the inner box
+		double rowDistancePowered = 0;
+		boolean rowInner = true;
+		for ( int d = 1; d < n; d++ )
+		{
+			final double t = Math.abs( start.getDoublePosition( d ) - center[ d ] ) * inverseSemiAxisLengths[ d ];
+			if ( integerExponent > 0 )
+				rowDistancePowered += power( t );
+			else if ( t > outerLimit )
+			{
+				Arrays.fill( distances, 0, count, Double.POSITIVE_INFINITY );
+				return;
+			}
+			else
+				rowInner &= t < innerLimit;
+		}
+
+		// NaN marks points that need the exact distance
+		boolean exact = false;
+		final double x0 = start.getDoublePosition( 0 );
+		for ( int i = 0; i < count; i++ )
+		{
+			final double t = Math.abs( x0 + i * step - center[ 0 ] ) * inverseSemiAxisLengths[ 0 ];
+			double distancePowered;
+			if ( integerExponent > 0 )
+			{
+				distancePowered = power( t ) + rowDistancePowered;
+				if ( nearBoundary( distancePowered ) )
+					distancePowered = Double.NaN;
+			}
+			else if ( t > outerLimit )
+				distancePowered = Double.POSITIVE_INFINITY;
+			else if ( rowInner && t < innerLimit )
+				distancePowered = 0;
+			else
+				distancePowered = Double.NaN;
+			exact |= Double.isNaN( distancePowered );
+			distances[ i ] = distancePowered;
+		}
+
+		if ( exact )
+		{
+			try ( RowScratch scratch = RowScratch.acquire() )
+			{
+				final double[] exactDistances = scratch.doubles( count );
+				distancePowered( start, step, count, exactDistances );
+				for ( int i = 0; i < count; i++ )
+					if ( Double.isNaN( distances[ i ] ) )
+						distances[ i ] = exactDistances[ i ];
+			}
+		}
+	}
+
+	private void updateExponentLimits()
+	{
+		integerExponent = exponent == Math.rint( exponent ) && exponent <= MAX_INTEGER_EXPONENT ? ( int ) exponent : 0;
+		// The margins cover rounding for both small and large exponents:
+		// (1 -/+ KERNEL_TOLERANCE) for the powered terms, (1 + KERNEL_TOLERANCE)
+		// for the scaled distances.
+		innerLimit = Math.pow( ( 1 - KERNEL_TOLERANCE ) / n, 1 / exponent ) / ( 1 + KERNEL_TOLERANCE );
+		outerLimit = Math.pow( 1 + KERNEL_TOLERANCE, 1 / exponent ) * ( 1 + KERNEL_TOLERANCE );
+	}
+
+	/** Returns {@code t} to the power of {@link #integerExponent}. */
+	private double power( final double t )
+	{
+		switch ( integerExponent )
+		{
+		case 1:
+			return t;
+		case 2:
+			return t * t;
+		case 4:
+		{
+			final double t2 = t * t;
+			return t2 * t2;
+		}
+		default:
+		{
+			double result = 1;
+			double base = t;
+			for ( int e = integerExponent; e > 0; e >>= 1 )
+			{
+				if ( ( e & 1 ) != 0 )
+					result *= base;
+				base *= base;
+			}
+			return result;
+		}
+		}
+	}
+
+	/**
+	 * Whether a distance computed by one of the fast kernels is too close to
+	 * {@code 1} to decide the side of the boundary (or NaN).
+	 */
+	private static boolean nearBoundary( final double distancePowered )
+	{
+		return !( distancePowered > 1 + KERNEL_TOLERANCE || distancePowered < 1 - KERNEL_TOLERANCE );
+	}
+
 	// -- Helper classes --
 
 	private class SuperEllipsoidCenter extends AbstractRealMaskPoint
@@ -181,7 +405,8 @@ public abstract class AbstractWritableSuperEllipsoid extends AbstractEuclideanSp
 		@Override
 		public void updateBounds()
 		{
-			// Not needed, bounds are simple enough to compute
+			// Bounds are simple enough to compute, only record the change
+			++modificationCount;
 		}
 
 	}
@@ -35,6 +35,8 @@
 package net.imglib2.roi.geom.real;
 
 import net.imglib2.RealLocalizable;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.roi.AffineTransformable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.MaskPredicate;
 import net.imglib2.roi.Masks;
@@ -48,7 +50,7 @@ import net.imglib2.util.Util;
  * @author Alison Walter
  * @author Curtis Rueden
  */
-public interface Box extends RealMaskRealInterval
+public interface Box extends RealMaskRealInterval, AffineTransformable
 {
 	/** Returns side length of Box in dimension d. */
 	double sideLength( int d );
@@ -62,6 +64,19 @@ public interface Box extends RealMaskRealInterval
 		return Box.class;
 	}
 
+	/**
+	 * Returns the transformed box as an {@link OrientedBox}, or {@code null}
+	 * if the boundary type of this box is neither {@code CLOSED} nor
+	 * {@code OPEN}.
+	 */
+	@Override
+	default RealMaskRealInterval transformed( final AffineGet transformToSource )
+	{
+		if ( boundaryType() != BoundaryType.CLOSED && boundaryType() != BoundaryType.OPEN )
+			return null;
+		return new OrientedBox( minAsDoubleArray(), maxAsDoubleArray(), transformToSource, boundaryType() );
+	}
+
 	/**
 	 * Determines whether this box describes the same region as another one.
 	 * 
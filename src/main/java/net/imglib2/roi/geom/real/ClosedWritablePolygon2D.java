@@ -68,6 +68,10 @@ public class ClosedWritablePolygon2D extends DefaultWritablePolygon2D
 	@Override
 	public boolean test( final RealLocalizable localizable )
 	{
+		final PolygonEdgeIndex index = edgeIndex();
+		if ( index != null )
+			return index.onEdge( localizable ) ? true : index.contains( localizable.getDoublePosition( 0 ), localizable.getDoublePosition( 1 ) );
+
 		// check edges, this needs to be done first because pnpoly has
 		// unknown edge behavior
 		boolean edge = false;
@@ -98,6 +102,19 @@ public class ClosedWritablePolygon2D extends DefaultWritablePolygon2D
 		return GeomMaths.pnpoly( x, y, localizable );
 	}
 
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		final PolygonEdgeIndex index = edgeIndex();
+		if ( index == null )
+			super.testRow( start, step, count, out );
+		else
+		{
+			index.containsRow( start, step, count, out );
+			index.markEdgesInRow( start, step, count, out, true );
+		}
+	}
+
 	@Override
 	public BoundaryType boundaryType()
 	{
@@ -36,6 +36,7 @@ package net.imglib2.roi.geom.real;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.util.RowScratch;
 
 /**
  * A {@link Sphere} which contains <b>all</b> boundary points.
@@ -63,6 +64,18 @@ public class ClosedWritableSphere extends AbstractWritableSphere
 		return distancePowered( l ) <= radius * radius;
 	}
 
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			final double[] distances = scratch.doubles( count );
+			distancePowered( start, step, count, distances );
+			for ( int i = 0; i < count; i++ )
+				out[ i ] = distances[ i ] <= radius * radius;
+		}
+	}
+
 	@Override
 	public BoundaryType boundaryType()
 	{
@@ -37,7 +37,6 @@ import java.util.Arrays;
 
 import net.imglib2.AbstractRealInterval;
 import net.imglib2.RealLocalizable;
-import net.imglib2.roi.geom.GeomMaths;
 import net.imglib2.roi.util.AbstractRealMaskPoint;
 import net.imglib2.roi.util.RealLocalizableRealPositionable;
 import net.imglib2.util.Intervals;
@@ -54,6 +53,10 @@ public class DefaultWritableLine extends AbstractRealInterval implements Writabl
 
 	private double[] pointTwo;
 
+	private long modificationCount;
+
+	private volatile SegmentIndex segment;
+
 	/**
 	 * Creates a line with endpoints at the given positions.
 	 *
@@ -112,10 +115,16 @@ public class DefaultWritableLine extends AbstractRealInterval implements Writabl
 	@Override
 	public boolean test( final RealLocalizable l )
 	{
-		if ( Intervals.contains( this, l ) ) { return GeomMaths.lineContains( pointOne, pointTwo, l, n ); }
+		if ( Intervals.contains( this, l ) ) { return segment().contains( l ); }
 		return false;
 	}
 
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
+	}
+
 	/**
 	 * Returns a {@link RealLocalizableRealPositionable} positioned at the same
 	 * location as the first location passed to the constructor.
@@ -150,6 +159,20 @@ public class DefaultWritableLine extends AbstractRealInterval implements Writabl
 
 	// -- Helper methods --
 
+	/**
+	 * Returns the precomputed segment, rebuilt after an endpoint moved.
+	 */
+	private SegmentIndex segment()
+	{
+		SegmentIndex index = segment;
+		if ( index == null || index.modificationCount() != modificationCount )
+		{
+			index = new SegmentIndex( Arrays.asList( pointOne, pointTwo ), n, modificationCount );
+			segment = index;
+		}
+		return index;
+	}
+
 	/**
 	 * Creates a {@code double[]} from a {@link RealLocalizable}.
 	 *
@@ -181,6 +204,7 @@ public class DefaultWritableLine extends AbstractRealInterval implements Writabl
 				min[ d ] = Math.min( pointOne[ d ], pointTwo[ d ] );
 				max[ d ] = Math.max( pointOne[ d ], pointTwo[ d ] );
 			}
+			++modificationCount;
 		}
 	}
 }
@@ -34,6 +34,8 @@
 
 package net.imglib2.roi.geom.real;
 
+import java.util.Arrays;
+
 import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.roi.Mask;
@@ -46,6 +48,15 @@ import net.imglib2.util.Util;
  */
 public class DefaultWritablePointMask extends RealPoint implements WritablePointMask
 {
+	/**
+	 * Position at the last {@link #modificationCount()} call. The point can be
+	 * moved through many methods, so changes are detected by comparison
+	 * instead of overriding all of them.
+	 */
+	private final double[] lastPosition;
+
+	private long modificationCount;
+
 	/**
 	 * Creates a {@link WritablePointMask} with the given point, such that only
 	 * that point is contained in the {@link Mask}. The dimensionality of the
@@ -57,6 +68,7 @@ public class DefaultWritablePointMask extends RealPoint implements WritablePoint
 	public DefaultWritablePointMask( final RealLocalizable pt )
 	{
 		super( pt );
+		lastPosition = position.clone();
 	}
 
 	/**
@@ -70,6 +82,7 @@ public class DefaultWritablePointMask extends RealPoint implements WritablePoint
 	public DefaultWritablePointMask( final double[] pt )
 	{
 		super( pt );
+		lastPosition = position.clone();
 	}
 
 	@Override
@@ -78,6 +91,17 @@ public class DefaultWritablePointMask extends RealPoint implements WritablePoint
 		return Util.locationsEqual( this, l );
 	}
 
+	@Override
+	public synchronized long modificationCount()
+	{
+		if ( !Arrays.equals( position, lastPosition ) )
+		{
+			System.arraycopy( position, 0, lastPosition, 0, n );
+			++modificationCount;
+		}
+		return modificationCount;
+	}
+
 	@Override
 	public boolean equals( final Object obj )
 	{
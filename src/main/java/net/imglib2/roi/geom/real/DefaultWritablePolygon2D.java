@@ -55,6 +55,12 @@ import gnu.trove.list.array.TDoubleArrayList;
  * {@link OpenWritablePolygon2D} or {@link ClosedWritablePolygon2D}. These implementations will
  * be less efficient but have consistent edge behavior.
  * </p>
+ * <p>
+ * Polygons with many vertices lazily build an index of their edges bucketed
+ * by y, so that tests only examine edges overlapping the tested point, and
+ * {@link #testRow} computes the crossings of a row once. The index is
+ * rebuilt after vertices are added, removed or moved.
+ * </p>
  *
  * @author Tobias Pietzsch
  * @author Daniel Seebacher, University of Konstanz
@@ -66,6 +72,10 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 
 	protected final VertexList y;
 
+	private long modificationCount;
+
+	private volatile PolygonEdgeIndex edgeIndex;
+
 	/**
 	 * Creates a 2D polygon with the provided vertices.
 	 *
@@ -121,7 +131,26 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 	@Override
 	public boolean test( final RealLocalizable localizable )
 	{
-		return GeomMaths.pnpoly( x, y, localizable );
+		final PolygonEdgeIndex index = edgeIndex();
+		return index == null
+				? GeomMaths.pnpoly( x, y, localizable )
+				: index.contains( localizable.getDoublePosition( 0 ), localizable.getDoublePosition( 1 ) );
+	}
+
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		final PolygonEdgeIndex index = edgeIndex();
+		if ( index == null )
+			WritablePolygon2D.super.testRow( start, step, count, out );
+		else
+			index.containsRow( start, step, count, out );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
 	}
 
 	/** Return a copy of the vertex */
@@ -149,6 +178,7 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 		x.insert( index, px );
 		y.insert( index, py );
 		expandMinMax(px, py, px, py);
+		++modificationCount;
 	}
 
 	@Override
@@ -157,6 +187,7 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 		x.removeAt( index );
 		y.removeAt( index );
 		updateMinMax();
+		++modificationCount;
 	}
 
 	@Override
@@ -174,6 +205,7 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 
 		final RealInterval bounds = GeomMaths.getBoundsReal( vertices );
 		expandMinMax( bounds.realMin( 0 ), bounds.realMin( 1 ), bounds.realMax( 0 ), bounds.realMax( 1 ) );
+		++modificationCount;
 	}
 
 	@Override
@@ -190,6 +222,23 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 
 	// -- Helper methods --
 
+	/**
+	 * Returns the edge index for the current vertices, or {@code null} if the
+	 * polygon has too few vertices for an index to pay off.
+	 */
+	PolygonEdgeIndex edgeIndex()
+	{
+		if ( x.size() < PolygonEdgeIndex.MIN_VERTICES )
+			return null;
+		PolygonEdgeIndex index = edgeIndex;
+		if ( index == null || index.modificationCount() != modificationCount )
+		{
+			index = new PolygonEdgeIndex( x, y, modificationCount );
+			edgeIndex = index;
+		}
+		return index;
+	}
+
 	/**
 	 * Populates the x and y arrays, and sets min/max values.
 	 *
@@ -266,6 +315,7 @@ public class DefaultWritablePolygon2D extends AbstractRealInterval implements Wr
 			y.set( pos, position[ 1 ] );
 
 			updateMinMax();
+			++modificationCount;
 		}
 	}
 
@@ -48,6 +48,10 @@ import net.imglib2.roi.util.RealLocalizableRealPositionable;
 
 /**
  * A polyline, which can be embedded in n-dimensional space.
+ * <p>
+ * Tests use a lazily built {@link SegmentIndex}, which is rebuilt after
+ * vertices are added, removed or moved.
+ * </p>
  *
  * @author Alison Walter
  */
@@ -55,6 +59,10 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 {
 	private final ArrayList< double[] > vertices;
 
+	private long modificationCount;
+
+	private volatile SegmentIndex segments;
+
 	/**
 	 * Creates a polyline with the specified vertices. The dimensionality of the
 	 * space is determined by the dimensionality of the first vertex. If a given
@@ -83,15 +91,13 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 	@Override
 	public boolean test( final RealLocalizable l )
 	{
-		for ( int i = 1; i < vertices.size(); i++ )
-		{
-			final double[] ptOne = vertices.get( i - 1 );
-			final double[] ptTwo = vertices.get( i );
-			final boolean testLineContains = GeomMaths.lineContains( ptOne, ptTwo, l, n );
-			if ( testLineContains )
-				return true;
-		}
-		return false;
+		return segments().contains( l );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
 	}
 
 	/**
@@ -121,6 +127,7 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 			p[ d ] = vertex.getDoublePosition( d );
 		vertices.add( index, p );
 		expandMinMax( p, p );
+		++modificationCount;
 	}
 
 	@Override
@@ -128,6 +135,7 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 	{
 		vertices.remove( index );
 		updateMinMax();
+		++modificationCount;
 	}
 
 	@Override
@@ -150,6 +158,7 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 			final double[] vertex = vertices.get( offset++ );
 			expandMinMax( vertex, vertex );
 		}
+		++modificationCount;
 	}
 
 	@Override
@@ -166,6 +175,17 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 
 	// -- Helper methods --
 
+	private SegmentIndex segments()
+	{
+		SegmentIndex index = segments;
+		if ( index == null || index.modificationCount() != modificationCount )
+		{
+			index = new SegmentIndex( vertices, n, modificationCount );
+			segments = index;
+		}
+		return index;
+	}
+
 	private void updateMinMax()
 	{
 		Arrays.fill( min, Double.POSITIVE_INFINITY );
@@ -199,6 +219,7 @@ public class DefaultWritablePolyline extends AbstractRealInterval implements Wri
 		public void updateBounds()
 		{
 			updateMinMax();
+			++modificationCount;
 		}
 
 	}
@@ -34,25 +34,33 @@
 package net.imglib2.roi.geom.real;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 
 import net.imglib2.AbstractRealInterval;
-import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
-import net.imglib2.roi.geom.GeomMaths;
 import net.imglib2.util.Intervals;
 
 import gnu.trove.list.array.TDoubleArrayList;
 
 /**
- * {@link RealPointCollection} backed by a {@code Map}.
+ * {@link RealPointCollection} backed by a hash map from point coordinates to
+ * points.
+ * <p>
+ * {@link #test}, {@link #addPoint} and {@link #removePoint} are expected
+ * constant time. Points are found by the coordinates they had when they were
+ * added. Bounds are updated incrementally, and only recomputed from all points
+ * when the last point on a bound is removed.
+ * </p>
  *
  * @author Alison Walter
  */
 public class DefaultWritableRealPointCollection< L extends RealLocalizable > extends AbstractRealInterval implements WritableRealPointCollection< L >
 {
-	private final Map< TDoubleArrayList, L > points;
+	private final RealPointHash< L > points;
+
+	private final PointBounds bounds;
+
+	private long modificationCount;
 
 	/**
 	 * Creates a point collection which includes points in the given
@@ -62,12 +70,12 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 	 *            points to include in the collection, the first point
 	 *            determines the dimensionality of the collection. The keys in
 	 *            the map should be {@code TDoubleArrayList}s which correspond
-	 *            to the position of the points.
+	 *            to the position of the points. The points are copied into
+	 *            the collection.
 	 */
 	public DefaultWritableRealPointCollection( final Map< TDoubleArrayList, L > points )
 	{
-		super( GeomMaths.getBoundsReal( points.values() ) );
-		this.points = points;
+		this( points.values() );
 	}
 
 	/**
@@ -80,27 +88,30 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 	 */
 	public DefaultWritableRealPointCollection( final Collection< L > points )
 	{
-		this( createHashMap( points ) );
+		super( points.iterator().next().numDimensions() );
+		this.points = new RealPointHash<>( n, points.size() );
+		for ( final L p : points )
+			this.points.put( p );
+		bounds = new PointBounds( min, max );
+		bounds.set( this.points );
 	}
 
 	@Override
 	public boolean test( final RealLocalizable l )
 	{
-		if ( Intervals.contains( this, l ) )
-		{
-			for ( final L pt : points.values() )
-			{
-				if ( squareDistance( pt, l ) <= 0 )
-					return true;
-			}
-		}
-		return false;
+		return Intervals.contains( this, l ) && points.contains( l );
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
 	}
 
 	@Override
 	public Iterable< L > points()
 	{
-		return points.values();
+		return points;
 	}
 
 	@Override
@@ -115,35 +126,28 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 		if ( point.numDimensions() != n )
 			throw new IllegalArgumentException( "Point must have " + n + " dimensions" );
 
-		final double[] l = new double[ point.numDimensions() ];
-		point.localize( l );
-		points.put( new TDoubleArrayList( l ), point );
-
-		// Update bounds.
-		for ( int d = 0; d < numDimensions(); d++ )
-		{
-			if ( l[ d ] > max[ d ] )
-				max[ d ] = l[ d ];
-			if ( l[ d ] < min[ d ] )
-				min[ d ] = l[ d ];
-		}
+		final L previous = points.put( point );
+		if ( previous == null )
+			bounds.add( point );
+		++modificationCount;
 	}
 
 	/**
 	 * Removes the given point from the set, if the point is found in the set.
 	 *
 	 * @param point
-	 *            point to be removed, it must have the same hash as a point in
-	 *            the set in order to be removed
+	 *            point to be removed, it must have the same coordinates as a
+	 *            point in the set in order to be removed
 	 */
 	@Override
 	public void removePoint( final L point )
 	{
-		final double[] l = new double[ point.numDimensions() ];
-		point.localize( l );
-		points.remove( new TDoubleArrayList( l ) );
-
-		updateMinMax();
+		final L removed = points.remove( point );
+		if ( removed == null )
+			return;
+		if ( !bounds.remove( point ) )
+			bounds.set( points );
+		++modificationCount;
 	}
 
 	@Override
@@ -157,34 +161,4 @@ public class DefaultWritableRealPointCollection< L extends RealLocalizable > ext
 	{
 		return RealPointCollection.hashCode( this );
 	}
-
-	// -- Helper methods --
-
-	private double squareDistance( final L ptOne, final RealLocalizable ptTwo )
-	{
-		double distance = 0;
-		for ( int i = 0; i < n; i++ )
-			distance += ( ptOne.getDoublePosition( i ) - ptTwo.getDoublePosition( i ) ) * ( ptOne.getDoublePosition( i ) - ptTwo.getDoublePosition( i ) );
-		return distance;
-	}
-
-	private static < L extends RealLocalizable > HashMap< TDoubleArrayList, L > createHashMap( final Collection< L > points )
-	{
-		final HashMap< TDoubleArrayList, L > map = new HashMap<>();
-
-		for ( final L p : points )
-		{
-			final double[] l = new double[ p.numDimensions() ];
-			p.localize( l );
-			map.put( new TDoubleArrayList( l ), p );
-		}
-		return map;
-	}
-
-	private void updateMinMax()
-	{
-		final RealInterval interval = GeomMaths.getBoundsReal( points.values() );
-		interval.realMin( min );
-		interval.realMax( max );
-	}
 }
@@ -34,6 +34,9 @@
 
 package net.imglib2.roi.geom.real;
 
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.roi.AffineTransformable;
+import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.RealMaskRealInterval;
 
 /**
@@ -42,7 +45,18 @@ import net.imglib2.roi.RealMaskRealInterval;
  *
  * @author Alison Walter
  */
-public interface Ellipsoid extends SuperEllipsoid
+public interface Ellipsoid extends SuperEllipsoid, AffineTransformable
 {
-
+	/**
+	 * Returns the transformed ellipsoid as a {@link QuadricEllipsoid}, or
+	 * {@code null} if the boundary type of this ellipsoid is neither
+	 * {@code CLOSED} nor {@code OPEN}.
+	 */
+	@Override
+	default RealMaskRealInterval transformed( final AffineGet transformToSource )
+	{
+		if ( boundaryType() != BoundaryType.CLOSED && boundaryType() != BoundaryType.OPEN )
+			return null;
+		return QuadricEllipsoid.transformed( this, transformToSource );
+	}
 }
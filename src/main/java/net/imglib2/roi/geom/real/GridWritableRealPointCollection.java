@@ -0,0 +1,565 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.imglib2.AbstractRealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPositionable;
+
+/**
+ * A {@link WritableRealPointCollection} which buckets its points into a
+ * uniform grid of cubic cells, so that edits, {@link #test} and
+ * {@link #neighbors radius queries} only look at nearby points.
+ * <p>
+ * Only occupied cells are stored. {@link #addPoint}, {@link #removePoint} and
+ * {@link #test} are expected constant time when the cell size is in the order
+ * of the typical distance between points. Points are found by the coordinates
+ * they had when they were added, and a point added at the coordinates of
+ * another one replaces it.
+ * </p>
+ * <p>
+ * Queries and edits may be called concurrently from different threads:
+ * queries share a read lock and work directly on the grid, edits take the
+ * write lock. Bounds are read under the read lock as well.
+ * {@link #points()} returns a copy.
+ * </p>
+ */
+public class GridWritableRealPointCollection< L extends RealLocalizable > extends AbstractRealInterval implements WritableRealPointCollection< L >
+{
+	private final double cellSize;
+
+	private final Map< Cell, Bucket< L > > cells;
+
+	private final PointBounds bounds;
+
+	private final Lock readLock;
+
+	private final Lock writeLock;
+
+	private long size;
+
+	private volatile long modificationCount;
+
+	/**
+	 * Creates an empty point collection.
+	 *
+	 * @param n
+	 *            number of dimensions
+	 * @param cellSize
+	 *            side length of the grid cells, ideally in the order of the
+	 *            typical distance between points, and of the radius of
+	 *            {@link #neighbors} queries
+	 */
+	public GridWritableRealPointCollection( final int n, final double cellSize )
+	{
+		super( n );
+		if ( !( cellSize > 0 ) || Double.isInfinite( cellSize ) )
+			throw new IllegalArgumentException( "cellSize must be positive and finite" );
+		this.cellSize = cellSize;
+		cells = new HashMap<>();
+		bounds = new PointBounds( min, max );
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+		readLock = lock.readLock();
+		writeLock = lock.writeLock();
+	}
+
+	/**
+	 * Creates a point collection which includes the given points.
+	 *
+	 * @param points
+	 *            points to include in the collection, the first point
+	 *            determines the dimensionality of the collection
+	 * @param cellSize
+	 *            side length of the grid cells, see
+	 *            {@link #GridWritableRealPointCollection(int, double)}
+	 */
+	public GridWritableRealPointCollection( final Collection< L > points, final double cellSize )
+	{
+		this( points.iterator().next().numDimensions(), cellSize );
+		for ( final L p : points )
+			addPoint( p );
+		modificationCount = 0;
+	}
+
+	public double cellSize()
+	{
+		return cellSize;
+	}
+
+	@Override
+	public boolean test( final RealLocalizable l )
+	{
+		readLock.lock();
+		try
+		{
+			final Bucket< L > bucket = cells.get( cell( l ) );
+			return bucket != null && bucket.indexOf( l ) >= 0;
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the points within {@code radius} of {@code center}, in no
+	 * particular order.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if {@code radius} is negative or NaN
+	 */
+	public List< L > neighbors( final RealLocalizable center, final double radius )
+	{
+		if ( !( radius >= 0 ) )
+			throw new IllegalArgumentException( "radius must not be negative" );
+		final List< L > neighbors = new ArrayList<>();
+		final double squaredRadius = radius * radius;
+		readLock.lock();
+		try
+		{
+			final long[] cellMin = new long[ n ];
+			final long[] cellMax = new long[ n ];
+			double numCells = 1;
+			for ( int d = 0; d < n; d++ )
+			{
+				cellMin[ d ] = cellIndex( center.getDoublePosition( d ) - radius );
+				cellMax[ d ] = cellIndex( center.getDoublePosition( d ) + radius );
+				numCells *= ( double ) cellMax[ d ] - cellMin[ d ] + 1;
+			}
+
+			if ( numCells > cells.size() )
+			{
+				// fewer occupied cells than cells in range
+				for ( final Map.Entry< Cell, Bucket< L > > entry : cells.entrySet() )
+					if ( entry.getKey().within( cellMin, cellMax ) )
+						entry.getValue().neighbors( center, squaredRadius, neighbors );
+			}
+			else
+			{
+				final Cell probe = new Cell( cellMin.clone() );
+				while ( true )
+				{
+					probe.rehash();
+					final Bucket< L > bucket = cells.get( probe );
+					if ( bucket != null )
+						bucket.neighbors( center, squaredRadius, neighbors );
+					if ( !probe.next( cellMin, cellMax ) )
+						break;
+				}
+			}
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+		return neighbors;
+	}
+
+	@Override
+	public void addPoint( final L point )
+	{
+		if ( point.numDimensions() != n )
+			throw new IllegalArgumentException( "Point must have " + n + " dimensions" );
+
+		writeLock.lock();
+		try
+		{
+			final Bucket< L > bucket = cells.computeIfAbsent( cell( point ), c -> new Bucket<>( n ) );
+			if ( bucket.put( point ) )
+			{
+				++size;
+				bounds.add( point );
+			}
+			++modificationCount;
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the point at the coordinates of the given point, if there is
+	 * one.
+	 */
+	@Override
+	public void removePoint( final L point )
+	{
+		writeLock.lock();
+		try
+		{
+			final Cell cell = cell( point );
+			final Bucket< L > bucket = cells.get( cell );
+			if ( bucket == null || !bucket.remove( point ) )
+				return;
+			if ( bucket.size == 0 )
+				cells.remove( cell );
+			--size;
+			if ( !bounds.remove( point ) )
+				bounds.set( points() );
+			++modificationCount;
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		readLock.lock();
+		try
+		{
+			return min[ d ];
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void realMin( final double[] realMin )
+	{
+		readLock.lock();
+		try
+		{
+			System.arraycopy( min, 0, realMin, 0, n );
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void realMin( final RealPositionable realMin )
+	{
+		readLock.lock();
+		try
+		{
+			realMin.setPosition( min );
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		readLock.lock();
+		try
+		{
+			return max[ d ];
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void realMax( final double[] realMax )
+	{
+		readLock.lock();
+		try
+		{
+			System.arraycopy( max, 0, realMax, 0, n );
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void realMax( final RealPositionable realMax )
+	{
+		readLock.lock();
+		try
+		{
+			realMax.setPosition( max );
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a copy of the points in the collection.
+	 */
+	@Override
+	public List< L > points()
+	{
+		readLock.lock();
+		try
+		{
+			final List< L > points = new ArrayList<>( ( int ) size );
+			for ( final Bucket< L > bucket : cells.values() )
+				for ( int i = 0; i < bucket.size; i++ )
+					points.add( bucket.value( i ) );
+			return points;
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public long size()
+	{
+		readLock.lock();
+		try
+		{
+			return size;
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		return obj instanceof RealPointCollection && RealPointCollection.equals( this, ( RealPointCollection< ? > ) obj );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return RealPointCollection.hashCode( this );
+	}
+
+	// -- Helper methods --
+
+	private long cellIndex( final double x )
+	{
+		return ( long ) Math.floor( x / cellSize );
+	}
+
+	private Cell cell( final RealLocalizable l )
+	{
+		final long[] index = new long[ n ];
+		for ( int d = 0; d < n; d++ )
+			index[ d ] = cellIndex( l.getDoublePosition( d ) );
+		final Cell cell = new Cell( index );
+		cell.rehash();
+		return cell;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Integer coordinates of a grid cell. Mutable only for probing during
+	 * queries; cells used as keys are never modified.
+	 */
+	private static final class Cell
+	{
+		private final long[] index;
+
+		private int hash;
+
+		Cell( final long[] index )
+		{
+			this.index = index;
+		}
+
+		void rehash()
+		{
+			hash = Arrays.hashCode( index );
+		}
+
+		boolean within( final long[] min, final long[] max )
+		{
+			for ( int d = 0; d < index.length; d++ )
+				if ( index[ d ] < min[ d ] || index[ d ] > max[ d ] )
+					return false;
+			return true;
+		}
+
+		/**
+		 * Moves to the next cell in {@code [min, max]} in flat iteration
+		 * order. Returns {@code false} if this was the last one.
+		 */
+		boolean next( final long[] min, final long[] max )
+		{
+			for ( int d = 0; d < index.length; d++ )
+			{
+				if ( index[ d ] < max[ d ] )
+				{
+					++index[ d ];
+					return true;
+				}
+				index[ d ] = min[ d ];
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals( final Object obj )
+		{
+			return obj instanceof Cell && Arrays.equals( index, ( ( Cell ) obj ).index );
+		}
+	}
+
+	/**
+	 * The points of one cell, with their coordinates in a flat array.
+	 */
+	private static final class Bucket< L extends RealLocalizable >
+	{
+		private final int n;
+
+		private double[] coordinates;
+
+		private Object[] values;
+
+		private int size;
+
+		Bucket( final int n )
+		{
+			this.n = n;
+			coordinates = new double[ 4 * n ];
+			values = new Object[ 4 ];
+		}
+
+		@SuppressWarnings( "unchecked" )
+		L value( final int i )
+		{
+			return ( L ) values[ i ];
+		}
+
+		/**
+		 * Returns the index of the point at the coordinates of {@code l}, or
+		 * {@code -1}.
+		 */
+		int indexOf( final RealLocalizable l )
+		{
+			for ( int i = 0; i < size; i++ )
+				if ( equalsAt( i, l ) )
+					return i;
+			return -1;
+		}
+
+		/**
+		 * Adds {@code point}, or replaces the point at the same coordinates.
+		 * Returns {@code true} if the point was added.
+		 */
+		boolean put( final L point )
+		{
+			final int i = indexOf( point );
+			if ( i >= 0 )
+			{
+				values[ i ] = point;
+				return false;
+			}
+			if ( size == values.length )
+			{
+				values = Arrays.copyOf( values, 2 * size );
+				coordinates = Arrays.copyOf( coordinates, 2 * size * n );
+			}
+			values[ size ] = point;
+			for ( int d = 0; d < n; d++ )
+				coordinates[ size * n + d ] = point.getDoublePosition( d );
+			++size;
+			return true;
+		}
+
+		/**
+		 * Removes the point at the coordinates of {@code l}. Returns
+		 * {@code true} if there was one.
+		 */
+		boolean remove( final RealLocalizable l )
+		{
+			final int i = indexOf( l );
+			if ( i < 0 )
+				return false;
+			--size;
+			values[ i ] = values[ size ];
+			values[ size ] = null;
+			System.arraycopy( coordinates, size * n, coordinates, i * n, n );
+			return true;
+		}
+
+		void neighbors( final RealLocalizable center, final double squaredRadius, final List< L > neighbors )
+		{
+			for ( int i = 0; i < size; i++ )
+			{
+				double squaredDistance = 0;
+				for ( int d = 0; d < n; d++ )
+				{
+					final double diff = coordinates[ i * n + d ] - center.getDoublePosition( d );
+					squaredDistance += diff * diff;
+				}
+				if ( squaredDistance <= squaredRadius )
+					neighbors.add( value( i ) );
+			}
+		}
+
+		private boolean equalsAt( final int i, final RealLocalizable l )
+		{
+			for ( int d = 0; d < n; d++ )
+				if ( coordinates[ i * n + d ] != l.getDoublePosition( d ) )
+					return false;
+			return true;
+		}
+	}
+}
@@ -81,6 +81,16 @@ public class KDTreeRealPointCollection< L extends RealLocalizable > extends NNSR
 		super( tree, new NearestNeighborSearchOnKDTree<>( tree ) );
 	}
 
+	/**
+	 * Returns {@code 0}, points cannot be added to or removed from a
+	 * {@link KDTree}.
+	 */
+	@Override
+	public long modificationCount()
+	{
+		return 0;
+	}
+
 	// -- Helper methods --
 
 	/**
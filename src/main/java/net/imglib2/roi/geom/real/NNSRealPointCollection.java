@@ -45,6 +45,11 @@ import net.imglib2.neighborsearch.NearestNeighborSearchOnIterableRealInterval;
  * A {@link RealPointCollection} which checks if points are in the collection by
  * performing a {@link NearestNeighborSearch} on the provided
  * {@link IterableRealInterval}.
+ * <p>
+ * The search is stateful, so {@link #test} synchronizes on this collection.
+ * Threads testing many points should use their own {@link #evaluator()}, which
+ * searches with a copy of the {@link NearestNeighborSearch}.
+ * </p>
  *
  * @author Alison Walter
  */
@@ -91,16 +96,22 @@ public class NNSRealPointCollection< L extends RealLocalizable > extends Abstrac
 	}
 
 	@Override
-	public boolean test( final RealLocalizable l )
+	public synchronized boolean test( final RealLocalizable l )
 	{
 		search.search( l );
 		return search.getSquareDistance() <= 0;
 	}
 
+	@Override
+	public RealPointCollection< L > evaluator()
+	{
+		return new Evaluator( search.copy() );
+	}
+
 	@Override
 	public double realMin( final int d )
 	{
-		return interval.realMax( d );
+		return interval.realMin( d );
 	}
 
 	@Override
@@ -156,4 +167,37 @@ public class NNSRealPointCollection< L extends RealLocalizable > extends Abstrac
 	{
 		return RealPointCollection.hashCode( this );
 	}
+
+	// -- Helper classes --
+
+	/**
+	 * A view on the same points, which searches with its own
+	 * {@link NearestNeighborSearch} and does not synchronize.
+	 */
+	private final class Evaluator extends NNSRealPointCollection< L >
+	{
+		Evaluator( final NearestNeighborSearch< L > search )
+		{
+			super( NNSRealPointCollection.this.interval, search );
+		}
+
+		@Override
+		public boolean test( final RealLocalizable l )
+		{
+			search.search( l );
+			return search.getSquareDistance() <= 0;
+		}
+
+		@Override
+		public RealPointCollection< L > evaluator()
+		{
+			return this;
+		}
+
+		@Override
+		public long modificationCount()
+		{
+			return NNSRealPointCollection.this.modificationCount();
+		}
+	}
 }
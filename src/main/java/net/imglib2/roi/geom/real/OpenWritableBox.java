@@ -78,6 +78,24 @@ public class OpenWritableBox extends AbstractWritableBox
 		return isInside;
 	}
 
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		boolean isInside = true;
+		for ( int d = 1; d < n && isInside; d++ )
+		{
+			final double x = start.getDoublePosition( d );
+			isInside &= x > min[ d ] && x < max[ d ];
+		}
+
+		final double x0 = start.getDoublePosition( 0 );
+		for ( int i = 0; i < count; i++ )
+		{
+			final double x = x0 + i * step;
+			out[ i ] = isInside && x > min[ 0 ] && x < max[ 0 ];
+		}
+	}
+
 	@Override
 	public BoundaryType boundaryType()
 	{
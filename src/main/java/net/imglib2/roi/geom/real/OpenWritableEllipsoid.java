@@ -36,6 +36,7 @@ package net.imglib2.roi.geom.real;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.util.RowScratch;
 
 /**
  * A {@link Ellipsoid} which does not contain any edge points, defined by a
@@ -65,7 +66,19 @@ public class OpenWritableEllipsoid extends AbstractWritableEllipsoid
 	@Override
 	public boolean test( final RealLocalizable l )
 	{
-		return distancePowered( l ) < 1.0;
+		return testDistancePowered( l ) < 1.0;
+	}
+
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			final double[] distances = scratch.doubles( count );
+			testDistancePowered( start, step, count, distances );
+			for ( int i = 0; i < count; i++ )
+				out[ i ] = distances[ i ] < 1.0;
+		}
 	}
 
 	@Override
@@ -0,0 +1,232 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.Arrays;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMaths;
+
+/**
+ * A {@link RealMaskRealInterval} which defines an n-d box that is not
+ * necessarily aligned with the axes. A point {@code x} is contained if
+ * {@code transformToBox(x)} is contained in the axis-aligned box given by
+ * {@code min} and {@code max}. This is the result of an affine transform of a
+ * {@link Box}, see {@link Box#transformed(AffineGet)}.
+ * <p>
+ * {@code OrientedBox}es are immutable.
+ * </p>
+ */
+public class OrientedBox implements RealMaskRealInterval
+{
+	private final int n;
+
+	private final double[] boxMin;
+
+	private final double[] boxMax;
+
+	/**
+	 * Affine transform to box coordinates, as {@code n x (n+1)} matrix.
+	 */
+	private final double[][] affine;
+
+	private final BoundaryType boundaryType;
+
+	private final double[] min;
+
+	private final double[] max;
+
+	/**
+	 * @param boxMin
+	 *            minimum of the box, in box coordinates
+	 * @param boxMax
+	 *            maximum of the box, in box coordinates
+	 * @param transformToBox
+	 *            invertible transform from the space of this mask to box
+	 *            coordinates
+	 * @param boundaryType
+	 *            {@link BoundaryType#CLOSED} or {@link BoundaryType#OPEN}
+	 */
+	public OrientedBox( final double[] boxMin, final double[] boxMax, final AffineGet transformToBox, final BoundaryType boundaryType )
+	{
+		n = boxMin.length;
+		if ( boxMax.length != n || transformToBox.numSourceDimensions() != n || transformToBox.numTargetDimensions() != n )
+			throw new IllegalArgumentException( "incompatible dimensionalities" );
+		if ( boundaryType != BoundaryType.CLOSED && boundaryType != BoundaryType.OPEN )
+			throw new IllegalArgumentException( "boundary type must be CLOSED or OPEN" );
+		this.boxMin = boxMin.clone();
+		this.boxMax = boxMax.clone();
+		this.boundaryType = boundaryType;
+		affine = new double[ n ][ n + 1 ];
+		for ( int r = 0; r < n; r++ )
+			for ( int c = 0; c <= n; c++ )
+				affine[ r ][ c ] = transformToBox.get( r, c );
+
+		// bounds of the transformed corners
+		min = new double[ n ];
+		max = new double[ n ];
+		Arrays.fill( min, Double.POSITIVE_INFINITY );
+		Arrays.fill( max, Double.NEGATIVE_INFINITY );
+		final AffineGet fromBox = transformToBox.inverse();
+		final double[] corner = new double[ n ];
+		final double[] transformed = new double[ n ];
+		for ( int index = 0; index < 1 << n; index++ )
+		{
+			for ( int d = 0; d < n; d++ )
+				corner[ d ] = ( index & ( 1 << ( n - 1 - d ) ) ) == 0 ? boxMin[ d ] : boxMax[ d ];
+			fromBox.apply( corner, transformed );
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ d ] = Math.min( min[ d ], transformed[ d ] );
+				max[ d ] = Math.max( max[ d ], transformed[ d ] );
+			}
+		}
+	}
+
+	/** Returns the minimum of the box in dimension d, in box coordinates. */
+	public double boxMin( final int d )
+	{
+		return boxMin[ d ];
+	}
+
+	/** Returns the maximum of the box in dimension d, in box coordinates. */
+	public double boxMax( final int d )
+	{
+		return boxMax[ d ];
+	}
+
+	/**
+	 * Returns element {@code (row, column)} of the {@code n x (n+1)} matrix
+	 * transforming to box coordinates.
+	 */
+	public double transformToBox( final int row, final int column )
+	{
+		return affine[ row ][ column ];
+	}
+
+	@Override
+	public boolean test( final RealLocalizable l )
+	{
+		return contains( l, l.getDoublePosition( 0 ) );
+	}
+
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		final double x0 = start.getDoublePosition( 0 );
+		double lo = 0;
+		double hi = count - 1;
+		for ( int r = 0; r < n; r++ )
+		{
+			// box coordinate r along the row is y + i * slope
+			final double y = transform( r, start, x0 );
+			final double slope = affine[ r ][ 0 ] * step;
+			if ( slope == 0 )
+			{
+				if ( y < boxMin[ r ] || y > boxMax[ r ] )
+					hi = -1;
+			}
+			else
+			{
+				final double a = ( boxMin[ r ] - y ) / slope;
+				final double b = ( boxMax[ r ] - y ) / slope;
+				lo = Math.max( lo, Math.min( a, b ) );
+				hi = Math.min( hi, Math.max( a, b ) );
+			}
+		}
+		GeomMaths.convexSpan( lo, hi, count, i -> contains( start, x0 + i * step ), out );
+	}
+
+	@Override
+	public BoundaryType boundaryType()
+	{
+		return boundaryType;
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return 0;
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		return min[ d ];
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		return max[ d ];
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Tests the point {@code l}, with coordinate 0 replaced by {@code x0}.
+	 */
+	private boolean contains( final RealLocalizable l, final double x0 )
+	{
+		for ( int r = 0; r < n; r++ )
+		{
+			final double y = transform( r, l, x0 );
+			if ( boundaryType == BoundaryType.CLOSED ? y < boxMin[ r ] || y > boxMax[ r ] : y <= boxMin[ r ] || y >= boxMax[ r ] )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Box coordinate {@code r} of the point {@code l}, with coordinate 0
+	 * replaced by {@code x0}.
+	 */
+	private double transform( final int r, final RealLocalizable l, final double x0 )
+	{
+		final double[] row = affine[ r ];
+		double y = row[ 0 ] * x0;
+		for ( int c = 1; c < n; c++ )
+			y += row[ c ] * l.getDoublePosition( c );
+		return y + row[ n ];
+	}
+}
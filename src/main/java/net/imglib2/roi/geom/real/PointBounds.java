@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.Arrays;
+
+import net.imglib2.RealLocalizable;
+
+/**
+ * Maintains the bounds of a changing set of points in the {@code min} and
+ * {@code max} arrays of an interval. It counts the points on each bound, so
+ * that removing a point only requires a rescan of all points when it was the
+ * last point on a bound.
+ */
+final class PointBounds
+{
+	private final double[] min;
+
+	private final double[] max;
+
+	/**
+	 * Number of points with coordinate {@code min[ d ]}, resp.
+	 * {@code max[ d ]}, along each dimension.
+	 */
+	private final long[] minCount;
+
+	private final long[] maxCount;
+
+	PointBounds( final double[] min, final double[] max )
+	{
+		this.min = min;
+		this.max = max;
+		minCount = new long[ min.length ];
+		maxCount = new long[ max.length ];
+		clear();
+	}
+
+	/**
+	 * Resets the bounds to an empty interval.
+	 */
+	void clear()
+	{
+		Arrays.fill( min, Double.POSITIVE_INFINITY );
+		Arrays.fill( max, Double.NEGATIVE_INFINITY );
+		Arrays.fill( minCount, 0 );
+		Arrays.fill( maxCount, 0 );
+	}
+
+	/**
+	 * Resets the bounds to those of {@code points}.
+	 */
+	void set( final Iterable< ? extends RealLocalizable > points )
+	{
+		clear();
+		for ( final RealLocalizable p : points )
+			add( p );
+	}
+
+	void add( final RealLocalizable p )
+	{
+		for ( int d = 0; d < min.length; d++ )
+		{
+			final double x = p.getDoublePosition( d );
+			if ( x < min[ d ] )
+			{
+				min[ d ] = x;
+				minCount[ d ] = 1;
+			}
+			else if ( x == min[ d ] )
+				++minCount[ d ];
+			if ( x > max[ d ] )
+			{
+				max[ d ] = x;
+				maxCount[ d ] = 1;
+			}
+			else if ( x == max[ d ] )
+				++maxCount[ d ];
+		}
+	}
+
+	/**
+	 * Accounts for the removal of a point at {@code p}. Returns {@code false}
+	 * if it was the last point on a bound, and the bounds must be
+	 * {@link #set(Iterable) recomputed}.
+	 */
+	boolean remove( final RealLocalizable p )
+	{
+		boolean valid = true;
+		for ( int d = 0; d < min.length; d++ )
+		{
+			final double x = p.getDoublePosition( d );
+			if ( x == min[ d ] && --minCount[ d ] == 0 )
+				valid = false;
+			if ( x == max[ d ] && --maxCount[ d ] == 0 )
+				valid = false;
+		}
+		return valid;
+	}
+}
@@ -34,11 +34,18 @@
 
 package net.imglib2.roi.geom.real;
 
+import java.util.Collections;
+
 import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.roi.AffineTransformable;
 import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.IterableRegion;
 import net.imglib2.roi.MaskPredicate;
 import net.imglib2.roi.Masks;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.type.logic.BoolType;
 import net.imglib2.util.Util;
 
 /**
@@ -47,7 +54,7 @@ import net.imglib2.util.Util;
  * @author Alison Walter
  * @author Curtis Rueden
  */
-public interface PointMask extends RealMaskRealInterval, RealLocalizable
+public interface PointMask extends RealMaskRealInterval, RealLocalizable, AffineTransformable
 {
 	@Override
 	default Class<?> maskType()
@@ -73,6 +80,32 @@ public interface PointMask extends RealMaskRealInterval, RealLocalizable
 		return getDoublePosition( d );
 	}
 
+	/**
+	 * Get the integer-grid samples of this point as an {@link IterableRegion},
+	 * in the interval used by
+	 * {@link Masks#toIterableRegion(RealMaskRealInterval)}. Its
+	 * {@link IterableRegion#inside() inside} contains the point if it has
+	 * integer coordinates, and is empty otherwise. It follows later moves of
+	 * the point within the interval of the region.
+	 */
+	default IterableRegion< BoolType > toIterableRegion()
+	{
+		return PointRasterization.toIterableRegion( this, () -> Collections.singleton( this ) );
+	}
+
+	/**
+	 * Returns a point mask at the transformed position.
+	 */
+	@Override
+	default RealMaskRealInterval transformed( final AffineGet transformToSource )
+	{
+		if ( transformToSource.numSourceDimensions() != numDimensions() || transformToSource.numTargetDimensions() != numDimensions() )
+			throw new IllegalArgumentException( "incompatible dimensionalities" );
+		final RealPoint p = new RealPoint( numDimensions() );
+		transformToSource.inverse().apply( this, p );
+		return new DefaultWritablePointMask( p );
+	}
+
 	/**
 	 * Determines whether this point describes the same region as another one.
 	 * 
@@ -0,0 +1,191 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.Masks;
+import net.imglib2.roi.RasterizationCache;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.util.IterableRegionOnBooleanRAI;
+import net.imglib2.roi.util.IterableRegionOnIterationCode;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.roi.util.iterationcode.IterationCodeBuilder;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Builds the integer-grid inside set of point-like masks directly from their
+ * points, instead of testing every pixel of the bounding box.
+ * <p>
+ * A point is a grid sample of the rasterized mask iff all its coordinates are
+ * integers. Those points are sorted into flat iteration order, duplicates are
+ * dropped, and the result is stored as an {@link IterationCode}. The code is
+ * built when the inside is first used, and rebuilt when the
+ * {@link RealMaskRealInterval#modificationCount() modification count} of the
+ * mask changes.
+ * </p>
+ */
+final class PointRasterization
+{
+	/** Orders positions by their last coordinate first. */
+	private static final Comparator< long[] > FLAT_ORDER = ( a, b ) -> {
+		for ( int d = a.length - 1; d >= 0; d-- )
+		{
+			final int c = Long.compare( a[ d ], b[ d ] );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	};
+
+	private PointRasterization()
+	{
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Returns the rasterization of {@code mask} (as in
+	 * {@link Masks#toIterableRegion(RealMaskRealInterval)}) whose inside is
+	 * exactly the integer positions among the current {@code points}.
+	 */
+	static IterableRegion< BoolType > toIterableRegion( final RealMaskRealInterval mask, final Supplier< ? extends Iterable< ? extends RealLocalizable > > points )
+	{
+		final Interval interval = Intervals.largestContainedInterval( mask );
+		final RandomAccessibleInterval< BoolType > rai = Views.interval(
+				Views.raster( Masks.toRealRandomAccessible( mask ) ),
+				interval );
+		if ( !RasterizationCache.canRasterize( interval ) )
+			return new IterableRegionOnBooleanRAI<>( rai );
+		return new IterableRegionOnIterationCode<>( rai, new LazyCode( mask, points, interval ) );
+	}
+
+	// -- Helper methods --
+
+	private static IterationCode rasterize( final Iterable< ? extends RealLocalizable > points, final Interval interval )
+	{
+		final int n = interval.numDimensions();
+		final List< long[] > positions = new ArrayList<>();
+		for ( final RealLocalizable p : points )
+		{
+			final long[] position = gridPosition( p, interval );
+			if ( position != null )
+				positions.add( position );
+		}
+		Collections.sort( positions, FLAT_ORDER );
+
+		final IterationCodeBuilder builder = new IterationCodeBuilder( n, interval.min( 0 ) );
+		final Point pos = new Point( n );
+		long[] prev = null;
+		for ( final long[] position : positions )
+		{
+			if ( prev != null && Arrays.equals( prev, position ) )
+				continue;
+			pos.setPosition( position );
+			builder.add( pos );
+			prev = position;
+		}
+		builder.finish();
+		return builder;
+	}
+
+	/**
+	 * Returns the position of {@code p} if it is a grid point inside
+	 * {@code interval}, {@code null} otherwise.
+	 */
+	private static long[] gridPosition( final RealLocalizable p, final Interval interval )
+	{
+		final int n = interval.numDimensions();
+		final long[] position = new long[ n ];
+		for ( int d = 0; d < n; d++ )
+		{
+			final double x = p.getDoublePosition( d );
+			final long l = ( long ) x;
+			if ( l != x || l < interval.min( d ) || l > interval.max( d ) )
+				return null;
+			position[ d ] = l;
+		}
+		return position;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Supplies the {@link IterationCode} of the current points, rebuilding it
+	 * when the modification count of the mask changes. Masks with untracked
+	 * modifications are rasterized on every request.
+	 */
+	private static final class LazyCode implements Supplier< IterationCode >
+	{
+		private final RealMaskRealInterval mask;
+
+		private final Supplier< ? extends Iterable< ? extends RealLocalizable > > points;
+
+		private final Interval interval;
+
+		private long modificationCount = -1;
+
+		private IterationCode code;
+
+		LazyCode( final RealMaskRealInterval mask, final Supplier< ? extends Iterable< ? extends RealLocalizable > > points, final Interval interval )
+		{
+			this.mask = mask;
+			this.points = points;
+			this.interval = interval;
+		}
+
+		@Override
+		public synchronized IterationCode get()
+		{
+			final long count = mask.modificationCount();
+			if ( code == null || count < 0 || count != modificationCount )
+			{
+				code = rasterize( points.get(), interval );
+				modificationCount = count;
+			}
+			return code;
+		}
+	}
+}
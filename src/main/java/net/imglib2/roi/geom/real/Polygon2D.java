@@ -34,7 +34,10 @@
 
 package net.imglib2.roi.geom.real;
 
+import java.util.List;
 import net.imglib2.RealLocalizable;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.roi.AffineTransformable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.MaskPredicate;
 import net.imglib2.roi.RealMaskRealInterval;
@@ -45,7 +48,7 @@ import net.imglib2.roi.RealMaskRealInterval;
  * @author Alison Walter
  * @author Curtis Rueden
  */
-public interface Polygon2D extends Polyshape
+public interface Polygon2D extends Polyshape, AffineTransformable
 {
 	@Override
 	default Class<?> maskType()
@@ -59,6 +62,21 @@ public interface Polygon2D extends Polyshape
 		return 2;
 	}
 
+	/**
+	 * Returns a polygon with the transformed vertices and the same boundary
+	 * type as this polygon.
+	 */
+	@Override
+	default RealMaskRealInterval transformed( final AffineGet transformToSource )
+	{
+		final List< RealLocalizable > vertices = Polyshape.transformedVertices( this, transformToSource );
+		if ( boundaryType() == BoundaryType.CLOSED )
+			return new ClosedWritablePolygon2D( vertices );
+		if ( boundaryType() == BoundaryType.OPEN )
+			return new OpenWritablePolygon2D( vertices );
+		return new DefaultWritablePolygon2D( vertices );
+	}
+
 	/**
 	 * Determines whether this polygon describes the same region as another one.
 	 * 
@@ -0,0 +1,355 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.Arrays;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.roi.geom.GeomMaths;
+
+import gnu.trove.list.array.TDoubleArrayList;
+
+/**
+ * Edges of a {@link Polygon2D} bucketed into horizontal slabs, so that a test
+ * only examines edges which overlap the y coordinate of the tested point.
+ * <p>
+ * Crossings are computed exactly as in
+ * {@link GeomMaths#pnpoly(TDoubleArrayList, TDoubleArrayList, RealLocalizable)},
+ * and edge tests use
+ * {@link GeomMaths#lineContains(double[], double[], RealLocalizable, int)},
+ * so results are identical to the unindexed tests. The index is a snapshot of
+ * the vertices and is immutable.
+ * </p>
+ */
+final class PolygonEdgeIndex
+{
+	/**
+	 * Minimum number of vertices for which an index pays off.
+	 */
+	static final int MIN_VERTICES = 16;
+
+	/**
+	 * Maximum average number of slabs per edge. Long edges are entered into
+	 * every slab they overlap, so the number of slabs is reduced until the
+	 * total number of entries stays below this bound.
+	 */
+	private static final int MAX_ENTRIES_PER_EDGE = 8;
+
+	/** See {@link GeomMaths#LINE_CONTAINS_TOLERANCE}. */
+	private static final double EDGE_TOLERANCE = GeomMaths.LINE_CONTAINS_TOLERANCE;
+
+	private final long modificationCount;
+
+	private final int numEdges;
+
+	/** Edge {@code e} goes from vertex {@code e - 1} (j) to vertex {@code e} (i). */
+	private final double[] xi, yi, xj, yj;
+
+	private final double minY;
+
+	private final double maxY;
+
+	private final double scale;
+
+	private final int numSlabs;
+
+	/** Edges of slab {@code s} are {@code slabEdges[ slabStart[ s ] ... slabStart[ s + 1 ] - 1 ]}. */
+	private final int[] slabStart;
+
+	private final int[] slabEdges;
+
+	PolygonEdgeIndex( final TDoubleArrayList x, final TDoubleArrayList y, final long modificationCount )
+	{
+		this.modificationCount = modificationCount;
+		numEdges = x.size();
+		xi = x.toArray();
+		yi = y.toArray();
+		xj = new double[ numEdges ];
+		yj = new double[ numEdges ];
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for ( int e = 0; e < numEdges; e++ )
+		{
+			final int j = e == 0 ? numEdges - 1 : e - 1;
+			xj[ e ] = xi[ j ];
+			yj[ e ] = yi[ j ];
+			min = Math.min( min, yi[ e ] );
+			max = Math.max( max, yi[ e ] );
+		}
+		minY = min;
+		maxY = max;
+
+		int slabs = Math.max( 1, numEdges );
+		int[] counts;
+		while ( true )
+		{
+			counts = countEntries( slabs, scale( slabs ) );
+			if ( slabs == 1 || counts[ slabs ] <= ( long ) MAX_ENTRIES_PER_EDGE * numEdges )
+				break;
+			slabs = ( slabs + 1 ) / 2;
+		}
+		numSlabs = slabs;
+		scale = scale( slabs );
+
+		slabStart = new int[ numSlabs + 1 ];
+		for ( int s = 0; s < numSlabs; s++ )
+			slabStart[ s + 1 ] = slabStart[ s ] + counts[ s ];
+		slabEdges = new int[ slabStart[ numSlabs ] ];
+		final int[] fill = Arrays.copyOf( slabStart, numSlabs );
+		for ( int e = 0; e < numEdges; e++ )
+		{
+			final int sMax = slab( Math.max( yi[ e ], yj[ e ] ) );
+			for ( int s = slab( Math.min( yi[ e ], yj[ e ] ) ); s <= sMax; s++ )
+				slabEdges[ fill[ s ]++ ] = e;
+		}
+	}
+
+	/**
+	 * Returns the modification count of the polygon when this index was
+	 * built.
+	 */
+	long modificationCount()
+	{
+		return modificationCount;
+	}
+
+	/**
+	 * Returns the same result as
+	 * {@link GeomMaths#pnpoly(TDoubleArrayList, TDoubleArrayList, RealLocalizable)}.
+	 */
+	boolean contains( final double xl, final double yl )
+	{
+		if ( !( yl >= minY && yl < maxY ) )
+			return false;
+		final int s = slab( yl );
+		boolean result = false;
+		for ( int k = slabStart[ s ]; k < slabStart[ s + 1 ]; k++ )
+		{
+			final int e = slabEdges[ k ];
+			if ( ( yi[ e ] > yl ) != ( yj[ e ] > yl ) && ( xl < ( xj[ e ] - xi[ e ] ) * ( yl - yi[ e ] ) / ( yj[ e ] - yi[ e ] ) + xi[ e ] ) )
+				result = !result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if {@code l} lies on an edge, in the sense of
+	 * {@link GeomMaths#lineContains(double[], double[], RealLocalizable, int)}.
+	 */
+	boolean onEdge( final RealLocalizable l )
+	{
+		final double xl = l.getDoublePosition( 0 );
+		final double yl = l.getDoublePosition( 1 );
+		final double[] pt1 = new double[ 2 ];
+		final double[] pt2 = new double[ 2 ];
+		final int sMax = slab( yl + EDGE_TOLERANCE );
+		for ( int s = slab( yl - EDGE_TOLERANCE ); s <= sMax; s++ )
+			for ( int k = slabStart[ s ]; k < slabStart[ s + 1 ]; k++ )
+			{
+				final int e = slabEdges[ k ];
+				if ( near( e, xl, yl ) && lineContains( e, pt1, pt2, l ) )
+					return true;
+			}
+		return false;
+	}
+
+	/**
+	 * Writes the results of {@link #contains(double, double)} for a row of
+	 * {@code count} points starting at {@code start} with spacing
+	 * {@code step} along x. The crossings of the row with the edges are
+	 * computed once, and each point is classified by the number of crossings
+	 * to its right.
+	 */
+	void containsRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		final double x0 = start.getDoublePosition( 0 );
+		final double yl = start.getDoublePosition( 1 );
+		if ( !( yl >= minY && yl < maxY ) )
+		{
+			Arrays.fill( out, 0, count, false );
+			return;
+		}
+
+		final int s = slab( yl );
+		final double[] crossings = new double[ slabStart[ s + 1 ] - slabStart[ s ] ];
+		int numCrossings = 0;
+		for ( int k = slabStart[ s ]; k < slabStart[ s + 1 ]; k++ )
+		{
+			final int e = slabEdges[ k ];
+			if ( ( yi[ e ] > yl ) != ( yj[ e ] > yl ) )
+			{
+				final double crossing = ( xj[ e ] - xi[ e ] ) * ( yl - yi[ e ] ) / ( yj[ e ] - yi[ e ] ) + xi[ e ];
+				// xl < NaN never holds, so NaN crossings never count
+				if ( !Double.isNaN( crossing ) )
+					crossings[ numCrossings++ ] = crossing;
+			}
+		}
+		Arrays.sort( crossings, 0, numCrossings );
+
+		for ( int i = 0; i < count; i++ )
+		{
+			final double xl = x0 + i * step;
+			// xl < crossing for all crossings after the first one > xl
+			out[ i ] = ( ( numCrossings - countAtMost( crossings, numCrossings, xl ) ) & 1 ) == 1;
+		}
+	}
+
+	/**
+	 * Sets {@code out[ i ] = value} for all points of the row which lie on an
+	 * edge, in the sense of {@link #onEdge(RealLocalizable)}.
+	 */
+	void markEdgesInRow( final RealLocalizable start, final double step, final int count, final boolean[] out, final boolean value )
+	{
+		final double x0 = start.getDoublePosition( 0 );
+		final double yl = start.getDoublePosition( 1 );
+		final RealPoint pos = new RealPoint( start );
+		final double[] pt1 = new double[ 2 ];
+		final double[] pt2 = new double[ 2 ];
+		final int sMax = slab( yl + EDGE_TOLERANCE );
+		for ( int s = slab( yl - EDGE_TOLERANCE ); s <= sMax; s++ )
+			for ( int k = slabStart[ s ]; k < slabStart[ s + 1 ]; k++ )
+			{
+				final int e = slabEdges[ k ];
+				if ( yl < Math.min( yi[ e ], yj[ e ] ) - EDGE_TOLERANCE || yl > Math.max( yi[ e ], yj[ e ] ) + EDGE_TOLERANCE )
+					continue;
+
+				// range of points within the x extent of the edge, widened by
+				// one point on either side
+				int from = 0;
+				int to = count - 1;
+				if ( step != 0 )
+				{
+					final double t0 = ( Math.min( xi[ e ], xj[ e ] ) - EDGE_TOLERANCE - x0 ) / step;
+					final double t1 = ( Math.max( xi[ e ], xj[ e ] ) + EDGE_TOLERANCE - x0 ) / step;
+					from = ( int ) Math.max( 0, Math.floor( Math.min( t0, t1 ) ) - 1 );
+					to = ( int ) Math.min( count - 1, Math.ceil( Math.max( t0, t1 ) ) + 1 );
+				}
+				for ( int i = from; i <= to; i++ )
+				{
+					final double xl = x0 + i * step;
+					if ( out[ i ] == value || !near( e, xl, yl ) )
+						continue;
+					pos.setPosition( xl, 0 );
+					if ( lineContains( e, pt1, pt2, pos ) )
+						out[ i ] = value;
+				}
+			}
+	}
+
+	// -- Helper methods --
+
+	private double scale( final int slabs )
+	{
+		return maxY > minY ? slabs / ( maxY - minY ) : 0;
+	}
+
+	private int slab( final double y )
+	{
+		return slab( y, numSlabs, scale );
+	}
+
+	/**
+	 * Monotonic in {@code y}, so the slabs of all y within an edge's y range
+	 * lie within the slabs of its endpoints.
+	 */
+	private int slab( final double y, final int slabs, final double scale )
+	{
+		final double s = ( y - minY ) * scale;
+		if ( !( s > 0 ) )
+			return 0;
+		return s >= slabs ? slabs - 1 : ( int ) s;
+	}
+
+	/**
+	 * Returns the number of entries per slab, and their total in the last
+	 * element.
+	 */
+	private int[] countEntries( final int slabs, final double scale )
+	{
+		final int[] counts = new int[ slabs + 1 ];
+		long total = 0;
+		for ( int e = 0; e < numEdges; e++ )
+		{
+			final int sMin = slab( Math.min( yi[ e ], yj[ e ] ), slabs, scale );
+			final int sMax = slab( Math.max( yi[ e ], yj[ e ] ), slabs, scale );
+			for ( int s = sMin; s <= sMax; s++ )
+				++counts[ s ];
+			total += sMax - sMin + 1;
+		}
+		counts[ slabs ] = ( int ) Math.min( Integer.MAX_VALUE, total );
+		return counts;
+	}
+
+	private boolean near( final int e, final double xl, final double yl )
+	{
+		return xl >= Math.min( xi[ e ], xj[ e ] ) - EDGE_TOLERANCE
+				&& xl <= Math.max( xi[ e ], xj[ e ] ) + EDGE_TOLERANCE
+				&& yl >= Math.min( yi[ e ], yj[ e ] ) - EDGE_TOLERANCE
+				&& yl <= Math.max( yi[ e ], yj[ e ] ) + EDGE_TOLERANCE;
+	}
+
+	/**
+	 * Tests edge {@code e} with the endpoints in the same order as the
+	 * unindexed edge tests of {@link ClosedWritablePolygon2D} and
+	 * {@link OpenWritablePolygon2D}.
+	 */
+	private boolean lineContains( final int e, final double[] pt1, final double[] pt2, final RealLocalizable l )
+	{
+		pt1[ 0 ] = xj[ e ];
+		pt1[ 1 ] = yj[ e ];
+		pt2[ 0 ] = xi[ e ];
+		pt2[ 1 ] = yi[ e ];
+		return GeomMaths.lineContains( pt1, pt2, l, 2 );
+	}
+
+	/**
+	 * Returns the number of elements {@code <= v} in the sorted
+	 * {@code a[ 0 ... length - 1 ]}.
+	 */
+	private static int countAtMost( final double[] a, final int length, final double v )
+	{
+		int lo = 0;
+		int hi = length;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( a[ mid ] <= v )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
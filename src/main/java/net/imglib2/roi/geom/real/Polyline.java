@@ -35,6 +35,8 @@
 package net.imglib2.roi.geom.real;
 
 import net.imglib2.RealLocalizable;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.roi.AffineTransformable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.MaskPredicate;
 import net.imglib2.roi.RealMaskRealInterval;
@@ -45,7 +47,7 @@ import net.imglib2.roi.RealMaskRealInterval;
  * @author Alison Walter
  * @author Curtis Rueden
  */
-public interface Polyline extends Polyshape
+public interface Polyline extends Polyshape, AffineTransformable
 {
 	@Override
 	default Class<?> maskType()
@@ -59,6 +61,15 @@ public interface Polyline extends Polyshape
 		return BoundaryType.CLOSED;
 	}
 
+	/**
+	 * Returns a polyline with the transformed vertices.
+	 */
+	@Override
+	default RealMaskRealInterval transformed( final AffineGet transformToSource )
+	{
+		return new DefaultWritablePolyline( Polyshape.transformedVertices( this, transformToSource ) );
+	}
+
 	/**
 	 * Determines whether this polyline describes the same region as another one.
 	 * 
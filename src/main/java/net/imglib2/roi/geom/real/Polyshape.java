@@ -35,9 +35,12 @@
 package net.imglib2.roi.geom.real;
 
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
 
 import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineGet;
 import net.imglib2.roi.Masks;
 import net.imglib2.roi.RealMaskRealInterval;
 import net.imglib2.util.IterablePair;
@@ -73,6 +76,26 @@ public interface Polyshape extends RealMaskRealInterval
 		};
 	}
 
+	/**
+	 * Returns the vertices of {@code polyshape} mapped by the inverse of
+	 * {@code transformToSource}.
+	 */
+	static List< RealLocalizable > transformedVertices( final Polyshape polyshape, final AffineGet transformToSource )
+	{
+		final int n = polyshape.numDimensions();
+		if ( transformToSource.numSourceDimensions() != n || transformToSource.numTargetDimensions() != n )
+			throw new IllegalArgumentException( "incompatible dimensionalities" );
+		final AffineGet transformFromSource = transformToSource.inverse();
+		final List< RealLocalizable > vertices = new ArrayList<>( polyshape.numVertices() );
+		for ( final RealLocalizable v : polyshape.vertices() )
+		{
+			final RealPoint p = new RealPoint( n );
+			transformFromSource.apply( v, p );
+			vertices.add( p );
+		}
+		return vertices;
+	}
+
 	/**
 	 * Determines whether two polyshapes describe the same region.
 	 * <p>
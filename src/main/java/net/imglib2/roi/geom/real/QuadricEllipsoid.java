@@ -0,0 +1,277 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMaths;
+
+/**
+ * A {@link RealMaskRealInterval} which defines a general n-d ellipsoid
+ * {@code (x - c)^T Q (x - c) <= 1}, with center {@code c} and symmetric,
+ * positive definite quadric matrix {@code Q}. The axes of the ellipsoid are
+ * not necessarily aligned with the coordinate axes. This is the result of an
+ * affine transform of an {@link Ellipsoid} or {@link Sphere}, see
+ * {@link Ellipsoid#transformed(AffineGet)}.
+ * <p>
+ * {@code QuadricEllipsoid}s are immutable.
+ * </p>
+ */
+public class QuadricEllipsoid implements RealMaskRealInterval
+{
+	private final int n;
+
+	private final double[] center;
+
+	private final double[][] quadric;
+
+	private final BoundaryType boundaryType;
+
+	private final double[] min;
+
+	private final double[] max;
+
+	/**
+	 * @param center
+	 *            center of the ellipsoid
+	 * @param quadric
+	 *            symmetric, positive definite {@code n x n} matrix
+	 * @param boundaryType
+	 *            {@link BoundaryType#CLOSED} or {@link BoundaryType#OPEN}
+	 */
+	public QuadricEllipsoid( final double[] center, final double[][] quadric, final BoundaryType boundaryType )
+	{
+		n = center.length;
+		if ( quadric.length != n )
+			throw new IllegalArgumentException( "incompatible dimensionalities" );
+		if ( boundaryType != BoundaryType.CLOSED && boundaryType != BoundaryType.OPEN )
+			throw new IllegalArgumentException( "boundary type must be CLOSED or OPEN" );
+		this.center = center.clone();
+		this.quadric = new double[ n ][];
+		for ( int i = 0; i < n; i++ )
+		{
+			if ( quadric[ i ].length != n )
+				throw new IllegalArgumentException( "incompatible dimensionalities" );
+			this.quadric[ i ] = quadric[ i ].clone();
+		}
+		this.boundaryType = boundaryType;
+
+		// The extent along axis d is sqrt( (Q^-1)_dd ).
+		final double[][] inverse = invert( this.quadric );
+		min = new double[ n ];
+		max = new double[ n ];
+		for ( int d = 0; d < n; d++ )
+		{
+			final double extent = Math.sqrt( inverse[ d ][ d ] );
+			min[ d ] = center[ d ] - extent;
+			max[ d ] = center[ d ] + extent;
+		}
+	}
+
+	/**
+	 * Returns the image of an {@link Ellipsoid} under an affine transform, that
+	 * is, the ellipsoid containing {@code x} iff {@code ellipsoid} contains
+	 * {@code transformToSource(x)}.
+	 */
+	public static QuadricEllipsoid transformed( final Ellipsoid ellipsoid, final AffineGet transformToSource )
+	{
+		final int n = ellipsoid.numDimensions();
+		if ( transformToSource.numSourceDimensions() != n || transformToSource.numTargetDimensions() != n )
+			throw new IllegalArgumentException( "incompatible dimensionalities" );
+
+		// Q = M^T D M, with M the linear part of transformToSource, and
+		// D = diag( 1 / semiAxisLength^2 )
+		final double[][] quadric = new double[ n ][ n ];
+		for ( int k = 0; k < n; k++ )
+		{
+			final double r = ellipsoid.semiAxisLength( k );
+			final double w = 1 / ( r * r );
+			for ( int i = 0; i < n; i++ )
+				for ( int j = 0; j < n; j++ )
+					quadric[ i ][ j ] += transformToSource.get( k, i ) * w * transformToSource.get( k, j );
+		}
+		final RealPoint center = new RealPoint( n );
+		transformToSource.inverse().apply( ellipsoid.center(), center );
+		return new QuadricEllipsoid( center.positionAsDoubleArray(), quadric, ellipsoid.boundaryType() );
+	}
+
+	/** Returns the center of the ellipsoid. */
+	public RealLocalizable center()
+	{
+		return RealPoint.wrap( center.clone() );
+	}
+
+	/** Returns element {@code (row, column)} of the quadric matrix. */
+	public double quadric( final int row, final int column )
+	{
+		return quadric[ row ][ column ];
+	}
+
+	@Override
+	public boolean test( final RealLocalizable l )
+	{
+		return contains( l, l.getDoublePosition( 0 ) );
+	}
+
+	@Override
+	public void testRow( final RealLocalizable start, final double step, final int count, final boolean[] out )
+	{
+		// value along the row is q00 * u^2 + 2 * p * u + c, with u the offset
+		// from the center in dimension 0
+		final double x0 = start.getDoublePosition( 0 );
+		double p = 0;
+		double c = 0;
+		for ( int i = 1; i < n; i++ )
+		{
+			final double di = start.getDoublePosition( i ) - center[ i ];
+			p += quadric[ 0 ][ i ] * di;
+			for ( int j = 1; j < n; j++ )
+				c += di * quadric[ i ][ j ] * ( start.getDoublePosition( j ) - center[ j ] );
+		}
+		final double q00 = quadric[ 0 ][ 0 ];
+		final double discriminant = p * p - q00 * ( c - 1 );
+		double lo = Double.NaN;
+		double hi = Double.NaN;
+		if ( discriminant < 0 || step == 0 )
+		{
+			lo = 0;
+			hi = -1;
+			if ( step == 0 && contains( start, x0 ) )
+				hi = count - 1;
+		}
+		else
+		{
+			final double s = Math.sqrt( discriminant );
+			final double a = ( ( -p - s ) / q00 + center[ 0 ] - x0 ) / step;
+			final double b = ( ( -p + s ) / q00 + center[ 0 ] - x0 ) / step;
+			lo = Math.min( a, b );
+			hi = Math.max( a, b );
+		}
+		GeomMaths.convexSpan( lo, hi, count, i -> contains( start, x0 + i * step ), out );
+	}
+
+	@Override
+	public BoundaryType boundaryType()
+	{
+		return boundaryType;
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return 0;
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		return min[ d ];
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		return max[ d ];
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Tests the point {@code l}, with coordinate 0 replaced by {@code x0}.
+	 */
+	private boolean contains( final RealLocalizable l, final double x0 )
+	{
+		double value = 0;
+		for ( int i = 0; i < n; i++ )
+		{
+			final double di = ( i == 0 ? x0 : l.getDoublePosition( i ) ) - center[ i ];
+			double row = quadric[ i ][ 0 ] * ( x0 - center[ 0 ] );
+			for ( int j = 1; j < n; j++ )
+				row += quadric[ i ][ j ] * ( l.getDoublePosition( j ) - center[ j ] );
+			value += di * row;
+		}
+		return boundaryType == BoundaryType.CLOSED ? value <= 1 : value < 1;
+	}
+
+	/**
+	 * Inverts a matrix by Gauss-Jordan elimination with partial pivoting.
+	 */
+	private static double[][] invert( final double[][] matrix )
+	{
+		final int n = matrix.length;
+		final double[][] a = new double[ n ][ 2 * n ];
+		for ( int r = 0; r < n; r++ )
+		{
+			System.arraycopy( matrix[ r ], 0, a[ r ], 0, n );
+			a[ r ][ n + r ] = 1;
+		}
+		for ( int c = 0; c < n; c++ )
+		{
+			int pivot = c;
+			for ( int r = c + 1; r < n; r++ )
+				if ( Math.abs( a[ r ][ c ] ) > Math.abs( a[ pivot ][ c ] ) )
+					pivot = r;
+			if ( a[ pivot ][ c ] == 0 )
+				throw new IllegalArgumentException( "quadric matrix is singular" );
+			final double[] tmp = a[ pivot ];
+			a[ pivot ] = a[ c ];
+			a[ c ] = tmp;
+			final double scale = 1 / a[ c ][ c ];
+			for ( int k = 0; k < 2 * n; k++ )
+				a[ c ][ k ] *= scale;
+			for ( int r = 0; r < n; r++ )
+			{
+				if ( r == c )
+					continue;
+				final double f = a[ r ][ c ];
+				if ( f != 0 )
+					for ( int k = 0; k < 2 * n; k++ )
+						a[ r ][ k ] -= f * a[ c ][ k ];
+			}
+		}
+		final double[][] inverse = new double[ n ][ n ];
+		for ( int r = 0; r < n; r++ )
+			System.arraycopy( a[ r ], n, inverse[ r ], 0, n );
+		return inverse;
+	}
+}
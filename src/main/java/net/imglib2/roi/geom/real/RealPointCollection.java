@@ -36,9 +36,11 @@ package net.imglib2.roi.geom.real;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.IterableRegion;
 import net.imglib2.roi.MaskPredicate;
 import net.imglib2.roi.Masks;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.type.logic.BoolType;
 
 /**
  * A {@link RealMaskRealInterval} which defines a collection of real space points in n-d space.
@@ -54,6 +56,22 @@ public interface RealPointCollection< L extends RealLocalizable > extends RealMa
 	/** Returns the number of points in the collection. */
 	long size();
 
+	/**
+	 * Get the integer-grid samples of this point collection as an
+	 * {@link IterableRegion}, in the interval used by
+	 * {@link Masks#toIterableRegion(RealMaskRealInterval)}.
+	 * <p>
+	 * The {@link IterableRegion#inside() inside} iterates the points with
+	 * integer coordinates in flat order, without testing the pixels in
+	 * between. Its size is known without iterating. The inside follows later
+	 * changes to the collection, within the interval of the region.
+	 * </p>
+	 */
+	default IterableRegion< BoolType > toIterableRegion()
+	{
+		return PointRasterization.toIterableRegion( this, this::points );
+	}
+
 	@Override
 	default Class<?> maskType()
 	{
@@ -0,0 +1,282 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.imglib2.RealLocalizable;
+
+/**
+ * An open-addressing hash map from point coordinates to points, storing the
+ * coordinates in a flat {@code double[]}. Lookups, insertions and removals
+ * are expected constant time and do not allocate.
+ * <p>
+ * Coordinates are compared with {@code ==}, so {@code -0.0} equals
+ * {@code 0.0}, and coordinates containing {@code NaN} never match. Concurrent
+ * reads are safe as long as there are no concurrent modifications.
+ * </p>
+ */
+final class RealPointHash< L extends RealLocalizable > implements Iterable< L >
+{
+	private static final int MIN_CAPACITY = 16;
+
+	/** Marks a slot whose point was removed. */
+	private static final Object REMOVED = new Object();
+
+	private final int n;
+
+	/** {@code n} coordinates per slot. */
+	private double[] coordinates;
+
+	/** {@code null} for empty slots. */
+	private Object[] values;
+
+	private int size;
+
+	/** Number of slots which are not empty, including removed ones. */
+	private int used;
+
+	RealPointHash( final int n, final int expectedSize )
+	{
+		this.n = n;
+		allocate( capacityFor( expectedSize ) );
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	boolean contains( final RealLocalizable position )
+	{
+		return find( position ) >= 0;
+	}
+
+	/**
+	 * Inserts {@code value} at its position, replacing and returning the point
+	 * previously stored at the same position, if any.
+	 */
+	L put( final L value )
+	{
+		final int slot = find( value );
+		if ( slot >= 0 )
+		{
+			final L previous = value( slot );
+			values[ slot ] = value;
+			return previous;
+		}
+		if ( 2 * ( used + 1 ) > values.length )
+			rehash( capacityFor( size + 1 ) );
+		insert( value );
+		return null;
+	}
+
+	/**
+	 * Removes and returns the point stored at {@code position}, or returns
+	 * {@code null} if there is none.
+	 */
+	L remove( final RealLocalizable position )
+	{
+		final int slot = find( position );
+		if ( slot < 0 )
+			return null;
+		final L previous = value( slot );
+		values[ slot ] = REMOVED;
+		--size;
+		return previous;
+	}
+
+	@Override
+	public Iterator< L > iterator()
+	{
+		return new Iterator< L >()
+		{
+			private int slot = advance( 0 );
+
+			@Override
+			public boolean hasNext()
+			{
+				return slot < values.length;
+			}
+
+			@Override
+			public L next()
+			{
+				if ( !hasNext() )
+					throw new NoSuchElementException();
+				final L value = value( slot );
+				slot = advance( slot + 1 );
+				return value;
+			}
+
+			private int advance( final int from )
+			{
+				int s = from;
+				while ( s < values.length && ( values[ s ] == null || values[ s ] == REMOVED ) )
+					++s;
+				return s;
+			}
+		};
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings( "unchecked" )
+	private L value( final int slot )
+	{
+		return ( L ) values[ slot ];
+	}
+
+	/**
+	 * Returns the slot holding a point at {@code position}, or {@code -1}.
+	 */
+	private int find( final RealLocalizable position )
+	{
+		final int mask = values.length - 1;
+		for ( int slot = hash( position ) & mask;; slot = ( slot + 1 ) & mask )
+		{
+			final Object value = values[ slot ];
+			if ( value == null )
+				return -1;
+			if ( value != REMOVED && equalsAt( slot, position ) )
+				return slot;
+		}
+	}
+
+	private void insert( final L value )
+	{
+		final int slot = freeSlot( hash( value ) );
+		values[ slot ] = value;
+		for ( int d = 0; d < n; d++ )
+			coordinates[ slot * n + d ] = value.getDoublePosition( d );
+	}
+
+	/**
+	 * Claims and returns the first free slot probed from {@code hash}.
+	 */
+	private int freeSlot( final int hash )
+	{
+		final int mask = values.length - 1;
+		int slot = hash & mask;
+		while ( values[ slot ] != null && values[ slot ] != REMOVED )
+			slot = ( slot + 1 ) & mask;
+		if ( values[ slot ] == null )
+			++used;
+		++size;
+		return slot;
+	}
+
+	private boolean equalsAt( final int slot, final RealLocalizable position )
+	{
+		for ( int d = 0; d < n; d++ )
+			if ( coordinates[ slot * n + d ] != position.getDoublePosition( d ) )
+				return false;
+		return true;
+	}
+
+	private int hash( final RealLocalizable position )
+	{
+		long h = 0;
+		for ( int d = 0; d < n; d++ )
+		{
+			// adding 0.0 maps -0.0 to 0.0, which compares equal
+			h = 31 * h + Double.doubleToLongBits( position.getDoublePosition( d ) + 0.0 );
+		}
+		return mix( h );
+	}
+
+	/**
+	 * Hashes the coordinates stored at {@code slot} of {@code coords}, like
+	 * {@link #hash(RealLocalizable)}.
+	 */
+	private int hash( final double[] coords, final int slot )
+	{
+		long h = 0;
+		for ( int d = 0; d < n; d++ )
+			h = 31 * h + Double.doubleToLongBits( coords[ slot * n + d ] + 0.0 );
+		return mix( h );
+	}
+
+	private static int mix( final long hash )
+	{
+		long h = hash ^ ( hash >>> 33 );
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return ( int ) h;
+	}
+
+	/**
+	 * Moves all points to a new table of the given capacity. Points are stored
+	 * under the coordinates they had when they were added, even if they have
+	 * been moved since.
+	 */
+	private void rehash( final int capacity )
+	{
+		final Object[] oldValues = values;
+		final double[] oldCoordinates = coordinates;
+		allocate( capacity );
+		for ( int oldSlot = 0; oldSlot < oldValues.length; oldSlot++ )
+		{
+			final Object value = oldValues[ oldSlot ];
+			if ( value != null && value != REMOVED )
+			{
+				final int slot = freeSlot( hash( oldCoordinates, oldSlot ) );
+				values[ slot ] = value;
+				System.arraycopy( oldCoordinates, oldSlot * n, coordinates, slot * n, n );
+			}
+		}
+	}
+
+	private void allocate( final int capacity )
+	{
+		values = new Object[ capacity ];
+		coordinates = new double[ capacity * n ];
+		size = 0;
+		used = 0;
+	}
+
+	/**
+	 * Returns a power of two with room for {@code size} points at a load
+	 * factor of at most 1/4, so that there is room to grow before the next
+	 * rehash at 1/2.
+	 */
+	private static int capacityFor( final int size )
+	{
+		int capacity = MIN_CAPACITY;
+		while ( capacity < 4L * size )
+			capacity <<= 1;
+		return capacity;
+	}
+}
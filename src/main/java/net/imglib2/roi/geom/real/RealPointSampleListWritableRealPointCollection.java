@@ -55,6 +55,7 @@ import net.imglib2.neighborsearch.NearestNeighborSearch;
  */
 public class RealPointSampleListWritableRealPointCollection< L extends RealLocalizable > extends NNSRealPointCollection< L > implements WritableRealPointCollection< L >
 {
+	private long modificationCount;
 
 	/**
 	 * Creates a {@link RealPointCollection} with the points in the
@@ -92,6 +93,13 @@ public class RealPointSampleListWritableRealPointCollection< L extends RealLocal
 		final double[] pos = new double[ n ];
 		point.localize( pos );
 		( ( RealPointSampleList< L > ) this.points() ).add( new RealPoint( pos ), point );
+		++modificationCount;
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return modificationCount;
 	}
 
 	// -- Helper methods --
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.real;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.geom.GeomMaths;
+
+/**
+ * Precomputed segments of a {@link Line} or {@link Polyline}, with a bounding
+ * volume hierarchy over runs of consecutive segments.
+ * <p>
+ * Each segment stores its first endpoint, unit direction and bounds (see
+ * {@link GeomMaths#lineData(double[], double[], int, double[], int)}), so that
+ * {@link #contains(RealLocalizable)} gives the same results as
+ * {@link GeomMaths#lineContains(double[], double[], RealLocalizable, int)} for
+ * each segment, without allocating. Consecutive segments of a polyline are
+ * usually close to each other, so the hierarchy simply groups them by index:
+ * leaves hold {@value #LEAF_SIZE} consecutive segments, and each node bounds
+ * its two children. Tests only visit nodes whose bounds are near the tested
+ * point. The index is a snapshot of the vertices and is immutable.
+ * </p>
+ */
+final class SegmentIndex
+{
+	private static final int LEAF_SIZE = 8;
+
+	private static final double TOLERANCE = GeomMaths.LINE_CONTAINS_TOLERANCE;
+
+	private final long modificationCount;
+
+	private final int n;
+
+	private final int numSegments;
+
+	/** {@code 4 * n} elements per segment. */
+	private final double[] data;
+
+	/**
+	 * Index of the first leaf in the implicit binary tree. Node {@code k} has
+	 * children {@code 2k} and {@code 2k + 1}, and the root is node 1.
+	 */
+	private final int firstLeaf;
+
+	/** {@code n} elements per node. */
+	private final double[] nodeMin;
+
+	private final double[] nodeMax;
+
+	/**
+	 * Creates the segments between consecutive {@code vertices}.
+	 */
+	SegmentIndex( final List< double[] > vertices, final int n, final long modificationCount )
+	{
+		this.modificationCount = modificationCount;
+		this.n = n;
+		numSegments = Math.max( 0, vertices.size() - 1 );
+		data = new double[ 4 * n * numSegments ];
+		for ( int s = 0; s < numSegments; s++ )
+			GeomMaths.lineData( vertices.get( s ), vertices.get( s + 1 ), n, data, 4 * n * s );
+
+		final int numLeaves = Math.max( 1, ( numSegments + LEAF_SIZE - 1 ) / LEAF_SIZE );
+		firstLeaf = Integer.highestOneBit( 2 * numLeaves - 1 );
+		nodeMin = new double[ 2 * firstLeaf * n ];
+		nodeMax = new double[ 2 * firstLeaf * n ];
+		Arrays.fill( nodeMin, Double.POSITIVE_INFINITY );
+		Arrays.fill( nodeMax, Double.NEGATIVE_INFINITY );
+		for ( int s = 0; s < numSegments; s++ )
+		{
+			final int node = firstLeaf + s / LEAF_SIZE;
+			for ( int d = 0; d < n; d++ )
+			{
+				nodeMin[ node * n + d ] = Math.min( nodeMin[ node * n + d ], data[ 4 * n * s + 2 * n + d ] );
+				nodeMax[ node * n + d ] = Math.max( nodeMax[ node * n + d ], data[ 4 * n * s + 3 * n + d ] );
+			}
+		}
+		for ( int node = firstLeaf - 1; node > 0; node-- )
+			for ( int d = 0; d < n; d++ )
+			{
+				nodeMin[ node * n + d ] = Math.min( nodeMin[ 2 * node * n + d ], nodeMin[ ( 2 * node + 1 ) * n + d ] );
+				nodeMax[ node * n + d ] = Math.max( nodeMax[ 2 * node * n + d ], nodeMax[ ( 2 * node + 1 ) * n + d ] );
+			}
+	}
+
+	/**
+	 * Returns the modification count of the shape when this index was built.
+	 */
+	long modificationCount()
+	{
+		return modificationCount;
+	}
+
+	/**
+	 * Returns true if any segment contains {@code l}, in the sense of
+	 * {@link GeomMaths#lineContains(double[], double[], RealLocalizable, int)}.
+	 */
+	boolean contains( final RealLocalizable l )
+	{
+		int node = 1;
+		while ( true )
+		{
+			if ( near( nodeMin, nodeMax, node * n, l ) )
+			{
+				if ( node < firstLeaf )
+				{
+					node = 2 * node;
+					continue;
+				}
+				if ( leafContains( node - firstLeaf, l ) )
+					return true;
+			}
+			// move to the next sibling, going up from right children
+			while ( ( node & 1 ) == 1 )
+				node >>= 1;
+			if ( node == 0 )
+				return false;
+			++node;
+		}
+	}
+
+	// -- Helper methods --
+
+	private boolean leafContains( final int leaf, final RealLocalizable l )
+	{
+		final int end = Math.min( numSegments, ( leaf + 1 ) * LEAF_SIZE );
+		for ( int s = leaf * LEAF_SIZE; s < end; s++ )
+		{
+			final int offset = 4 * n * s;
+			if ( near( data, data, offset + 2 * n, offset + 3 * n, l ) && GeomMaths.lineContains( data, offset, l, n ) )
+				return true;
+		}
+		return false;
+	}
+
+	private boolean near( final double[] min, final double[] max, final int offset, final RealLocalizable l )
+	{
+		return near( min, max, offset, offset, l );
+	}
+
+	private boolean near( final double[] min, final double[] max, final int minOffset, final int maxOffset, final RealLocalizable l )
+	{
+		for ( int d = 0; d < n; d++ )
+		{
+			final double x = l.getDoublePosition( d );
+			if ( x < min[ minOffset + d ] - TOLERANCE || x > max[ maxOffset + d ] + TOLERANCE )
+				return false;
+		}
+		return true;
+	}
+}
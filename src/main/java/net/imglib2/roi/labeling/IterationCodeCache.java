@@ -0,0 +1,217 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.labeling;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import net.imglib2.roi.util.iterationcode.RunLengthCode;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Least-recently-used cache of the iteration codes of {@link LabelRegion}s,
+ * bounded by an (approximate) number of bytes. Evicted codes are rebuilt on
+ * demand by scanning the bounding box of the label.
+ * <p>
+ * The cache of a {@link LabelRegions} is obtained by
+ * {@link LabelRegions#getIterationCodeCache()}. It exposes counters for hits,
+ * misses and evictions. The most recently added code is never evicted, so the
+ * cache may exceed its budget by the size of one label's codes.
+ * </p>
+ */
+public final class IterationCodeCache
+{
+	/** Rough per-entry overhead of map entry, lists and arrays. */
+	private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+	static final class Entry
+	{
+		final ArrayList< TIntArrayList > itcodes;
+
+		volatile RunLengthCode mergedCode;
+
+		private long bytes;
+
+		Entry( final ArrayList< TIntArrayList > itcodes )
+		{
+			this.itcodes = itcodes;
+			bytes = ENTRY_OVERHEAD_BYTES;
+			for ( final TIntArrayList itcode : itcodes )
+				bytes += 4L * itcode.size();
+		}
+	}
+
+	private final long maxBytes;
+
+	private final LinkedHashMap< Object, Entry > entries;
+
+	private long bytes;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	IterationCodeCache( final long maxBytes )
+	{
+		if ( maxBytes < 0 )
+			throw new IllegalArgumentException( "negative cache budget " + maxBytes );
+		this.maxBytes = maxBytes;
+		entries = new LinkedHashMap<>( 16, 0.75f, true );
+	}
+
+	/**
+	 * Get the cached codes for {@code key}, or load and cache them.
+	 * <p>
+	 * The loader is called without holding the lock of the cache, so that
+	 * several labels can be loaded in parallel.
+	 * </p>
+	 */
+	Entry get( final Object key, final Supplier< ArrayList< TIntArrayList > > loader )
+	{
+		synchronized ( this )
+		{
+			final Entry entry = entries.get( key );
+			if ( entry != null )
+			{
+				++hits;
+				return entry;
+			}
+			++misses;
+		}
+		final Entry loaded = new Entry( loader.get() );
+		synchronized ( this )
+		{
+			final Entry entry = entries.get( key );
+			if ( entry != null )
+				return entry;
+			entries.put( key, loaded );
+			bytes += loaded.bytes;
+			evict( key );
+			return loaded;
+		}
+	}
+
+	/**
+	 * Attach the merged code of {@code key} to its {@code entry}, and account
+	 * for its size.
+	 */
+	synchronized void setMergedCode( final Object key, final Entry entry, final RunLengthCode code )
+	{
+		if ( entry.mergedCode != null )
+			return;
+		entry.mergedCode = code;
+		final long codeBytes = 8L * ( code.numRows() * ( long ) ( code.numDimensions() - 1 ) + 2L * code.numRuns() ) + 4L * code.numRows();
+		entry.bytes += codeBytes;
+		if ( entries.get( key ) == entry )
+		{
+			bytes += codeBytes;
+			evict( key );
+		}
+	}
+
+	/**
+	 * Remove all entries, because the labeling changed. This is not counted as
+	 * eviction.
+	 */
+	synchronized void clear()
+	{
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Returns the budget in bytes.
+	 */
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the approximate number of bytes of the cached codes.
+	 */
+	public synchronized long getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of labels whose codes are cached.
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Evict least recently used entries, except {@code keep}, until the
+	 * budget is met.
+	 */
+	private void evict( final Object keep )
+	{
+		final Iterator< Map.Entry< Object, Entry > > it = entries.entrySet().iterator();
+		while ( bytes > maxBytes && it.hasNext() )
+		{
+			final Map.Entry< Object, Entry > e = it.next();
+			if ( e.getKey() == keep )
+				continue;
+			it.remove();
+			bytes -= e.getValue().bytes;
+			++evictions;
+		}
+	}
+}
@@ -50,6 +50,8 @@ import net.imglib2.roi.PositionableIterableRegion;
 import net.imglib2.roi.labeling.LabelRegions.LabelRegionProperties;
 import net.imglib2.roi.util.PositionableInterval;
 import net.imglib2.roi.util.PositionableLocalizable;
+import net.imglib2.roi.util.iterationcode.RunLengthCode;
+import net.imglib2.roi.util.iterationcode.RunLengthCodeRandomAccess;
 import net.imglib2.type.logic.BoolType;
 import net.imglib2.util.Intervals;
 
@@ -76,8 +78,6 @@ public class LabelRegion< T > extends PositionableInterval implements Positionab
 
 	private final T label;
 
-	private final ArrayList< TIntArrayList > itcodes;
-
 	private long insideSize;
 
 	private final RealPoint centerOfMass;
@@ -94,7 +94,6 @@ public class LabelRegion< T > extends PositionableInterval implements Positionab
 		this.label = label;
 		expectedGeneration = regionProperties.update();
 		insideSize = regionProperties.getSize();
-		itcodes = regionProperties.getItcodes();
 		centerOfMass = RealPoint.wrap( regionProperties.getCenterOfMass() );
 		inside = new LabelRegionIterable();
 	}
@@ -110,7 +109,6 @@ public class LabelRegion< T > extends PositionableInterval implements Positionab
 		this.label = other.label;
 		this.expectedGeneration = other.expectedGeneration;
 		this.insideSize = other.insideSize;
-		this.itcodes = other.itcodes;
 		this.centerOfMass = other.centerOfMass;
 		this.inside = new LabelRegionIterable();
 	}
@@ -157,6 +155,17 @@ public class LabelRegion< T > extends PositionableInterval implements Positionab
 		}
 	}
 
+	/**
+	 * Returns the pixels of this region, at its current position, as a
+	 * {@link RunLengthCode}. The fragments of the region are merged into a
+	 * single canonical code, which is cached until the labeling changes.
+	 */
+	public RunLengthCode iterationCode()
+	{
+		update();
+		return regionProperties.getMergedCode().translate( currentOffset );
+	}
+
 	public RealLocalizable getCenterOfMass()
 	{
 		update();
@@ -170,6 +179,22 @@ public class LabelRegion< T > extends PositionableInterval implements Positionab
 		return new LabelRegionRandomAccess<>( this, currentOffset );
 	}
 
+	/**
+	 * Returns a {@link RandomAccess} which answers membership from the
+	 * {@link #iterationCode() iteration code} of this region, by binary search
+	 * over its rows and runs, without reading the labeling. This is useful if
+	 * the labeling is a lazy or expensive view.
+	 * <p>
+	 * The access follows changes of the position of this region. It reflects
+	 * the labeling at the time it was created.
+	 * </p>
+	 */
+	public RunLengthCodeRandomAccess codeRandomAccess()
+	{
+		update();
+		return new RunLengthCodeRandomAccess( regionProperties.getMergedCode(), currentOffset );
+	}
+
 	@Override
 	public RandomAccess< BoolType > randomAccess( final Interval interval )
 	{
@@ -203,7 +228,13 @@ public class LabelRegion< T > extends PositionableInterval implements Positionab
 		public LabelRegionCursor cursor()
 		{
 			update();
-			return new LabelRegionCursor( itcodes, currentOffset );
+			if ( regions.isMergeFragments() )
+			{
+				final ArrayList< TIntArrayList > merged = new ArrayList<>( 1 );
+				merged.add( regionProperties.getMergedCode().getItcode() );
+				return new LabelRegionCursor( merged, currentOffset );
+			}
+			return new LabelRegionCursor( regionProperties.getItcodes(), currentOffset );
 		}
 
 		@Override
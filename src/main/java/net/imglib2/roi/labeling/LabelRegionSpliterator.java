@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.labeling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over a snapshot of {@link LabelRegion}s, which splits
+ * by region size rather than by number of regions. Each region weighs its
+ * number of pixels plus one, so that a single giant region ends up in a chunk
+ * of its own instead of delaying the regions that share its chunk.
+ *
+ * @param <T>
+ *            the label type
+ */
+final class LabelRegionSpliterator< T > implements Spliterator< LabelRegion< T > >
+{
+	private final LabelRegion< T >[] regions;
+
+	/** {@code cumulativeWeights[i]} is the weight of regions {@code [0, i)}. */
+	private final long[] cumulativeWeights;
+
+	private int index;
+
+	private final int fence;
+
+	LabelRegionSpliterator( final LabelRegion< T >[] regions, final long[] weights )
+	{
+		this.regions = regions;
+		cumulativeWeights = new long[ regions.length + 1 ];
+		for ( int i = 0; i < regions.length; ++i )
+			cumulativeWeights[ i + 1 ] = cumulativeWeights[ i ] + weights[ i ] + 1;
+		index = 0;
+		fence = regions.length;
+	}
+
+	private LabelRegionSpliterator( final LabelRegionSpliterator< T > parent, final int index, final int fence )
+	{
+		regions = parent.regions;
+		cumulativeWeights = parent.cumulativeWeights;
+		this.index = index;
+		this.fence = fence;
+	}
+
+	@Override
+	public boolean tryAdvance( final Consumer< ? super LabelRegion< T > > action )
+	{
+		if ( index >= fence )
+			return false;
+		action.accept( regions[ index++ ] );
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining( final Consumer< ? super LabelRegion< T > > action )
+	{
+		while ( index < fence )
+			action.accept( regions[ index++ ] );
+	}
+
+	@Override
+	public LabelRegionSpliterator< T > trySplit()
+	{
+		if ( fence - index < 2 )
+			return null;
+		final int mid = splitIndex( index, fence, ( cumulativeWeights[ index ] + cumulativeWeights[ fence ] ) / 2 );
+		final LabelRegionSpliterator< T > prefix = new LabelRegionSpliterator<>( this, index, mid );
+		index = mid;
+		return prefix;
+	}
+
+	/**
+	 * Split the remaining regions into at most {@code numChunks} consecutive
+	 * chunks of about equal weight.
+	 */
+	List< LabelRegionSpliterator< T > > partition( final int numChunks )
+	{
+		final List< LabelRegionSpliterator< T > > chunks = new ArrayList<>();
+		final long start = cumulativeWeights[ index ];
+		final long total = cumulativeWeights[ fence ] - start;
+		int from = index;
+		for ( int k = 1; k <= numChunks && from < fence; ++k )
+		{
+			final int to = k == numChunks || fence - from < 2
+					? fence
+					: splitIndex( from, fence, start + total * k / numChunks );
+			chunks.add( new LabelRegionSpliterator<>( this, from, to ) );
+			from = to;
+		}
+		return chunks;
+	}
+
+	@Override
+	public long estimateSize()
+	{
+		return fence - index;
+	}
+
+	@Override
+	public int characteristics()
+	{
+		return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | DISTINCT;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Returns the index {@code mid} in {@code (from, to)} whose cumulative
+	 * weight is closest to {@code target}.
+	 */
+	private int splitIndex( final int from, final int to, final long target )
+	{
+		int mid = Arrays.binarySearch( cumulativeWeights, from + 1, to, target );
+		if ( mid < 0 )
+		{
+			// insertion point: first index with larger cumulative weight
+			mid = -mid - 1;
+			if ( mid > from + 1 && target - cumulativeWeights[ mid - 1 ] < cumulativeWeights[ mid ] - target )
+				--mid;
+		}
+		return Math.min( Math.max( mid, from + 1 ), to - 1 );
+	}
+}
@@ -41,13 +41,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import gnu.trove.list.array.TIntArrayList;
 import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.Cursor;
 import net.imglib2.Localizable;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
 import net.imglib2.roi.util.iterationcode.IterationCodeBuilder;
+import net.imglib2.roi.util.iterationcode.RunLengthCode;
 import net.imglib2.view.Views;
 
 /**
@@ -106,10 +113,71 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 
 	private int expectedGeneration;
 
+	private volatile boolean mergeFragments;
+
+	/**
+	 * If {@code true}, only statistics are collected on update, and itcodes
+	 * are built per label when first needed.
+	 */
+	private final boolean lazyIterationCodes;
+
+	/**
+	 * If not {@code null}, lazily built itcodes are kept in this cache instead
+	 * of the {@link LabelRegionProperties}.
+	 */
+	private final IterationCodeCache itcodeCache;
+
 	public LabelRegions( final RandomAccessibleInterval< LabelingType< T > > labeling )
+	{
+		this( labeling, false );
+	}
+
+	/**
+	 * Create {@link LabelRegions} for {@code labeling}.
+	 * <p>
+	 * If {@code lazyIterationCodes} is {@code true}, updating collects only
+	 * size, bounding box and center of mass of each label, in flat primitive
+	 * arrays indexed by label set. The iteration code of a label is built
+	 * when it is first needed (for example by iterating
+	 * {@link LabelRegion#inside()}), by scanning only the bounding box of the
+	 * label. This saves time and memory if most labels are only asked for
+	 * their statistics.
+	 * </p>
+	 *
+	 * @param labeling
+	 *            the labeling
+	 * @param lazyIterationCodes
+	 *            whether iteration codes are built on demand, per label.
+	 */
+	public LabelRegions( final RandomAccessibleInterval< LabelingType< T > > labeling, final boolean lazyIterationCodes )
+	{
+		this( labeling, lazyIterationCodes, null );
+	}
+
+	/**
+	 * Create {@link LabelRegions} for {@code labeling}, which build iteration
+	 * codes lazily (see {@link #LabelRegions(RandomAccessibleInterval, boolean)})
+	 * and hold them in an {@link IterationCodeCache} of at most
+	 * {@code maxCachedBytes}. Evicted codes are rebuilt on demand by scanning
+	 * the bounding box of the label, so heap use is bounded no matter how many
+	 * labels there are.
+	 *
+	 * @param labeling
+	 *            the labeling
+	 * @param maxCachedBytes
+	 *            approximate budget for cached iteration codes, in bytes.
+	 */
+	public LabelRegions( final RandomAccessibleInterval< LabelingType< T > > labeling, final long maxCachedBytes )
+	{
+		this( labeling, true, new IterationCodeCache( maxCachedBytes ) );
+	}
+
+	private LabelRegions( final RandomAccessibleInterval< LabelingType< T > > labeling, final boolean lazyIterationCodes, final IterationCodeCache itcodeCache )
 	{
 		super( labeling.numDimensions() );
 		this.labeling = labeling;
+		this.lazyIterationCodes = lazyIterationCodes;
+		this.itcodeCache = itcodeCache;
 		type = labeling.getType();
 		indexToFragmentProperties = new ArrayList<>();
 		labelToLabelRegionProperties = new HashMap<>();
@@ -121,13 +189,7 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 	public LabelRegion< T > getLabelRegion( final T label )
 	{
 		update();
-		LabelRegion< T > labelRegion = labelToLabelRegion.get( label );
-		if ( labelRegion == null )
-		{
-			labelRegion = new LabelRegion<>(this, labelToLabelRegionProperties.get(label), label);
-			labelToLabelRegion.put( label, labelRegion );
-		}
-		return labelRegion;
+		return getOrCreateLabelRegion( label );
 	}
 
 	/**
@@ -140,6 +202,45 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 		return labelToLabelRegionProperties.keySet();
 	}
 
+	/**
+	 * Get the cache of iteration codes, or {@code null} if these
+	 * {@link LabelRegions} were not created with a cache budget.
+	 *
+	 * @see #LabelRegions(RandomAccessibleInterval, long)
+	 */
+	public IterationCodeCache getIterationCodeCache()
+	{
+		return itcodeCache;
+	}
+
+	/**
+	 * Set whether {@link LabelRegion} cursors visit the pixels of a label in
+	 * flat iteration order.
+	 * <p>
+	 * By default, the fragments of a label (pixels with the same label set)
+	 * are iterated one after the other. For heavily overlapping labelings,
+	 * this jumps around in memory when sampling an image through a
+	 * {@link LabelRegion}. If {@code mergeFragments} is {@code true}, the
+	 * fragments of each label are merged into a single {@link RunLengthCode},
+	 * which is computed on first use and cached until the labeling changes.
+	 * </p>
+	 */
+	public void setMergeFragments( final boolean mergeFragments )
+	{
+		this.mergeFragments = mergeFragments;
+	}
+
+	/**
+	 * Returns whether {@link LabelRegion} cursors visit the pixels of a label
+	 * in flat iteration order.
+	 *
+	 * @see #setMergeFragments(boolean)
+	 */
+	public boolean isMergeFragments()
+	{
+		return mergeFragments;
+	}
+
 	@Override
 	public Iterator< LabelRegion< T > > iterator()
 	{
@@ -156,14 +257,7 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 			@Override
 			public LabelRegion< T > next()
 			{
-				final T label = labelIterator.next();
-				LabelRegion< T > labelRegion = labelToLabelRegion.get( label );
-				if ( labelRegion == null )
-				{
-					labelRegion = new LabelRegion<>(LabelRegions.this, labelToLabelRegionProperties.get(label), label);
-					labelToLabelRegion.put( label, labelRegion );
-				}
-				return labelRegion;
+				return getOrCreateLabelRegion( labelIterator.next() );
 			}
 
 			@Override
@@ -174,6 +268,130 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 		};
 	}
 
+	/**
+	 * Returns a {@link Spliterator} over a snapshot of all existing
+	 * {@link LabelRegion}s, ordered by decreasing size. It is safe to use from
+	 * multiple threads, and it splits by region size rather than by number of
+	 * regions.
+	 */
+	@Override
+	public Spliterator< LabelRegion< T > > spliterator()
+	{
+		return snapshot();
+	}
+
+	/**
+	 * Returns a sequential {@link Stream} over a snapshot of all existing
+	 * {@link LabelRegion}s.
+	 */
+	public Stream< LabelRegion< T > > stream()
+	{
+		return StreamSupport.stream( spliterator(), false );
+	}
+
+	/**
+	 * Returns a parallel {@link Stream} over a snapshot of all existing
+	 * {@link LabelRegion}s, split by region size.
+	 */
+	public Stream< LabelRegion< T > > parallelStream()
+	{
+		return StreamSupport.stream( spliterator(), true );
+	}
+
+	/**
+	 * Apply {@code action} to all existing {@link LabelRegion}s, in parallel,
+	 * using the {@link Parallelization#getTaskExecutor() current
+	 * TaskExecutor}.
+	 *
+	 * @see #forEachParallel(TaskExecutor, Consumer)
+	 */
+	public void forEachParallel( final Consumer< ? super LabelRegion< T > > action )
+	{
+		forEachParallel( Parallelization.getTaskExecutor(), action );
+	}
+
+	/**
+	 * Apply {@code action} to all existing {@link LabelRegion}s, in parallel,
+	 * using {@code taskExecutor}. The regions are divided into
+	 * {@link TaskExecutor#suggestNumberOfTasks()} chunks of about equal total
+	 * size.
+	 * <p>
+	 * {@code action} receives the canonical {@link LabelRegion} instances (as
+	 * returned by {@link #getLabelRegion(Object)}), so it should not
+	 * reposition them.
+	 * </p>
+	 */
+	public void forEachParallel( final TaskExecutor taskExecutor, final Consumer< ? super LabelRegion< T > > action )
+	{
+		final List< LabelRegionSpliterator< T > > chunks = snapshot().partition( taskExecutor.suggestNumberOfTasks() );
+		taskExecutor.forEach( chunks, chunk -> chunk.forEachRemaining( action ) );
+	}
+
+	/**
+	 * Get the properties of {@code label}, or {@code null} if the label does
+	 * not exist.
+	 */
+	LabelRegionProperties getLabelRegionProperties( final T label )
+	{
+		update();
+		synchronized ( this )
+		{
+			return labelToLabelRegionProperties.get( label );
+		}
+	}
+
+	// -- Helper methods --
+
+	private LabelRegion< T > getOrCreateLabelRegion( final T label )
+	{
+		synchronized ( this )
+		{
+			LabelRegion< T > labelRegion = labelToLabelRegion.get( label );
+			if ( labelRegion == null )
+			{
+				labelRegion = new LabelRegion<>( this, labelToLabelRegionProperties.get( label ), label );
+				labelToLabelRegion.put( label, labelRegion );
+			}
+			return labelRegion;
+		}
+	}
+
+	/**
+	 * Create the {@link LabelRegion}s of all existing labels and return a
+	 * {@link LabelRegionSpliterator} over them.
+	 */
+	private LabelRegionSpliterator< T > snapshot()
+	{
+		update();
+		final List< T > labels;
+		synchronized ( this )
+		{
+			labels = new ArrayList<>( labelToLabelRegionProperties.keySet() );
+		}
+		@SuppressWarnings( { "rawtypes", "unchecked" } )
+		final LabelRegion< T >[] regions = new LabelRegion[ labels.size() ];
+		for ( int i = 0; i < regions.length; ++i )
+			regions[ i ] = getOrCreateLabelRegion( labels.get( i ) );
+
+		// NB: Largest regions first, so that they are split off early.
+		final long[] weights = new long[ regions.length ];
+		for ( int i = 0; i < regions.length; ++i )
+			weights[ i ] = regions[ i ].inside().size();
+		final Integer[] order = new Integer[ regions.length ];
+		for ( int i = 0; i < order.length; ++i )
+			order[ i ] = i;
+		Arrays.sort( order, ( i, j ) -> Long.compare( weights[ j ], weights[ i ] ) );
+		@SuppressWarnings( { "rawtypes", "unchecked" } )
+		final LabelRegion< T >[] sortedRegions = new LabelRegion[ regions.length ];
+		final long[] sortedWeights = new long[ regions.length ];
+		for ( int i = 0; i < order.length; ++i )
+		{
+			sortedRegions[ i ] = regions[ order[ i ] ];
+			sortedWeights[ i ] = weights[ order[ i ] ];
+		}
+		return new LabelRegionSpliterator<>( sortedRegions, sortedWeights );
+	}
+
 	static final class FragmentProperties extends IterationCodeBuilder
 	{
 		private final int index;
@@ -227,6 +445,14 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 
 		private final ArrayList< TIntArrayList > itcodes;
 
+		/**
+		 * Indices of the label sets containing the label, in increasing
+		 * order. Only collected if itcodes are built lazily.
+		 */
+		private final TIntArrayList setIndices;
+
+		private volatile RunLengthCode mergedCode;
+
 		private final LabelRegions< ? > labelRegions;
 
 		LabelRegionProperties( final LabelRegions< ? > labelRegions )
@@ -238,6 +464,7 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 			bbmin = new long[ n ];
 			bbmax = new long[ n ];
 			itcodes = new ArrayList< TIntArrayList >();
+			setIndices = new TIntArrayList();
 			reset();
 		}
 
@@ -263,27 +490,45 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 			Arrays.fill( bbmin, Long.MAX_VALUE );
 			Arrays.fill( bbmax, Long.MIN_VALUE );
 			itcodes.clear();
+			setIndices.clear();
+			mergedCode = null;
 		}
 
 		void add( final FragmentProperties frag )
 		{
-			size += frag.getSize();
+			add( frag.getSize(), frag.getSumPositions(), frag.getBoundingBoxMin(), frag.getBoundingBoxMax(), 0 );
+			itcodes.add( frag.getItcode() );
+		}
+
+		/**
+		 * Add the statistics of a fragment, given as size and the {@code n}
+		 * elements starting at {@code o} of the other arrays.
+		 */
+		void add( final long fragSize, final long[] fragSumPositions, final long[] fragBBMin, final long[] fragBBMax, final int o )
+		{
+			size += fragSize;
 
-			final long[] fragSumPositions = frag.getSumPositions();
 			for ( int d = 0; d < n; ++d )
-				sumPositions[ d ] += fragSumPositions[ d ];
+				sumPositions[ d ] += fragSumPositions[ o + d ];
 
-			final long[] fragBBMin = frag.getBoundingBoxMin();
-			final long[] fragBBMax = frag.getBoundingBoxMax();
 			for ( int d = 0; d < n; d++ )
 			{
-				if ( fragBBMin[ d ] < bbmin[ d ] )
-					bbmin[ d ] = fragBBMin[ d ];
-				if ( fragBBMax[ d ] > bbmax[ d ] )
-					bbmax[ d ] = fragBBMax[ d ];
+				if ( fragBBMin[ o + d ] < bbmin[ d ] )
+					bbmin[ d ] = fragBBMin[ o + d ];
+				if ( fragBBMax[ o + d ] > bbmax[ d ] )
+					bbmax[ d ] = fragBBMax[ o + d ];
 			}
+		}
 
-			itcodes.add( frag.getItcode() );
+		/**
+		 * Add the statistics of the label set with the given {@code index},
+		 * see {@link #add(long, long[], long[], long[], int)}, and remember
+		 * the index for building the itcode lazily.
+		 */
+		void add( final int index, final long fragSize, final long[] fragSumPositions, final long[] fragBBMin, final long[] fragBBMax, final int o )
+		{
+			add( fragSize, fragSumPositions, fragBBMin, fragBBMax, o );
+			setIndices.add( index );
 		}
 
 		void finish()
@@ -318,10 +563,72 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 			return bbmax;
 		}
 
+		/**
+		 * Get the itcodes of all fragments of the label. If the
+		 * {@link LabelRegions} builds itcodes lazily, a single itcode for the
+		 * label is built on the first request. With an
+		 * {@link IterationCodeCache}, it is held there and rebuilt after
+		 * eviction.
+		 */
 		ArrayList< TIntArrayList > getItcodes()
 		{
+			final IterationCodeCache cache = labelRegions.itcodeCache;
+			if ( cache != null )
+				return cache.get( this, this::buildItcodes ).itcodes;
+			if ( labelRegions.lazyIterationCodes )
+			{
+				synchronized ( this )
+				{
+					if ( itcodes.isEmpty() && size > 0 )
+						itcodes.add( labelRegions.buildItcode( setIndices, bbmin, bbmax ) );
+				}
+			}
 			return itcodes;
 		}
+
+		private ArrayList< TIntArrayList > buildItcodes()
+		{
+			final ArrayList< TIntArrayList > list = new ArrayList<>( 1 );
+			if ( size > 0 )
+				list.add( labelRegions.buildItcode( setIndices, bbmin, bbmax ) );
+			return list;
+		}
+
+		/**
+		 * Get the union of all fragment itcodes as a single canonical code in
+		 * flat iteration order. It is computed by a k-way merge of the
+		 * fragment runs on first request.
+		 */
+		RunLengthCode getMergedCode()
+		{
+			final IterationCodeCache cache = labelRegions.itcodeCache;
+			if ( cache != null )
+			{
+				final IterationCodeCache.Entry entry = cache.get( this, this::buildItcodes );
+				RunLengthCode code = entry.mergedCode;
+				if ( code == null )
+				{
+					code = RunLengthCode.of( entry.itcodes, new long[ n ] );
+					cache.setMergedCode( this, entry, code );
+				}
+				return code;
+			}
+
+			RunLengthCode code = mergedCode;
+			if ( code == null )
+			{
+				synchronized ( this )
+				{
+					code = mergedCode;
+					if ( code == null )
+					{
+						code = RunLengthCode.of( getItcodes(), new long[ n ] );
+						mergedCode = code;
+					}
+				}
+			}
+			return code;
+		}
 	}
 
 	/**
@@ -344,6 +651,8 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 				{
 					for ( final LabelRegionProperties props : allLabelToLabelRegionProperties.values() )
 						props.reset();
+					if ( itcodeCache != null )
+						itcodeCache.clear();
 
 					// remember existing LabelRegions created on previous getLabelRegion() or iterator()
 					final HashMap< T, LabelRegion< T > > oldLabelToLabelRegion = new HashMap< T, LabelRegion< T > >( labelToLabelRegion );
@@ -354,47 +663,10 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 
 					final LabelingMapping< T > mapping = type.getMapping();
 					final int numFragments = mapping.numSets();
-					for ( int i = 0; i < numFragments; ++i )
-						indexToFragmentProperties.add( new FragmentProperties( i, labeling ) );
-
-					final Cursor< ? extends LabelingType< ? > > c = Views.flatIterable( labeling ).localizingCursor();
-					while ( c.hasNext() )
-					{
-						final int index = c.next().getIndex().getInteger();
-						// TODO: Do a benchmark: For sparsely labeled images it
-						// might be faster to use a non-localizing Cursor, because
-						// we don't collect background coordinates. What is the
-						// trade-off?
-						if ( index > 0 )
-							indexToFragmentProperties.get( index ).add( c );
-					}
-					// generation = type.getGeneration();
-					for ( final FragmentProperties frag : indexToFragmentProperties )
-						frag.finish();
-
-					// now build LabelProperties
-					for ( final FragmentProperties frag : indexToFragmentProperties )
-					{
-						if ( frag.getSize() <= 0 )
-							continue;
-
-						final Set< T > fragLabels = mapping.labelsAtIndex( frag.getIndex() );
-						for ( final T label : fragLabels )
-						{
-							LabelRegionProperties props = labelToLabelRegionProperties.get( label );
-							if ( props == null )
-							{
-								props = allLabelToLabelRegionProperties.get( label );
-								if ( props == null )
-								{
-									props = new LabelRegionProperties( this );
-									allLabelToLabelRegionProperties.put( label, props );
-								}
-								labelToLabelRegionProperties.put( label, props );
-							}
-							props.add( frag );
-						}
-					}
+					if ( lazyIterationCodes )
+						collectStatistics( mapping, numFragments );
+					else
+						collectFragments( mapping, numFragments );
 
 					for ( final Entry< T, LabelRegionProperties > entry : labelToLabelRegionProperties.entrySet() )
 					{
@@ -418,4 +690,126 @@ public class LabelRegions< T > extends AbstractEuclideanSpace implements Iterabl
 		}
 		return expectedGeneration;
 	}
+
+	/**
+	 * Build {@link FragmentProperties} (statistics and itcode) for every label
+	 * set, and add them to the {@link LabelRegionProperties} of their labels.
+	 */
+	private void collectFragments( final LabelingMapping< T > mapping, final int numFragments )
+	{
+		for ( int i = 0; i < numFragments; ++i )
+			indexToFragmentProperties.add( new FragmentProperties( i, labeling ) );
+
+		final Cursor< ? extends LabelingType< ? > > c = Views.flatIterable( labeling ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			final int index = c.next().getIndex().getInteger();
+			// TODO: Do a benchmark: For sparsely labeled images it
+			// might be faster to use a non-localizing Cursor, because
+			// we don't collect background coordinates. What is the
+			// trade-off?
+			if ( index > 0 )
+				indexToFragmentProperties.get( index ).add( c );
+		}
+		// generation = type.getGeneration();
+		for ( final FragmentProperties frag : indexToFragmentProperties )
+			frag.finish();
+
+		// now build LabelProperties
+		for ( final FragmentProperties frag : indexToFragmentProperties )
+		{
+			if ( frag.getSize() <= 0 )
+				continue;
+
+			final Set< T > fragLabels = mapping.labelsAtIndex( frag.getIndex() );
+			for ( final T label : fragLabels )
+				getOrCreateProperties( label ).add( frag );
+		}
+	}
+
+	/**
+	 * Collect size, sum of positions and bounding box for every label set in
+	 * flat arrays, and add them to the {@link LabelRegionProperties} of their
+	 * labels. No itcodes are built.
+	 */
+	private void collectStatistics( final LabelingMapping< T > mapping, final int numFragments )
+	{
+		final long[] sizes = new long[ numFragments ];
+		final long[] sumPositions = new long[ numFragments * n ];
+		final long[] bbmin = new long[ numFragments * n ];
+		final long[] bbmax = new long[ numFragments * n ];
+		Arrays.fill( bbmin, Long.MAX_VALUE );
+		Arrays.fill( bbmax, Long.MIN_VALUE );
+
+		final long[] pos = new long[ n ];
+		final Cursor< ? extends LabelingType< ? > > c = Views.flatIterable( labeling ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			final int index = c.next().getIndex().getInteger();
+			if ( index > 0 )
+			{
+				++sizes[ index ];
+				c.localize( pos );
+				final int o = index * n;
+				for ( int d = 0; d < n; ++d )
+				{
+					final long p = pos[ d ];
+					sumPositions[ o + d ] += p;
+					if ( p < bbmin[ o + d ] )
+						bbmin[ o + d ] = p;
+					if ( p > bbmax[ o + d ] )
+						bbmax[ o + d ] = p;
+				}
+			}
+		}
+
+		for ( int i = 0; i < numFragments; ++i )
+		{
+			if ( sizes[ i ] <= 0 )
+				continue;
+
+			for ( final T label : mapping.labelsAtIndex( i ) )
+				getOrCreateProperties( label ).add( i, sizes[ i ], sumPositions, bbmin, bbmax, i * n );
+		}
+	}
+
+	private LabelRegionProperties getOrCreateProperties( final T label )
+	{
+		LabelRegionProperties props = labelToLabelRegionProperties.get( label );
+		if ( props == null )
+		{
+			props = allLabelToLabelRegionProperties.get( label );
+			if ( props == null )
+			{
+				props = new LabelRegionProperties( this );
+				allLabelToLabelRegionProperties.put( label, props );
+			}
+			labelToLabelRegionProperties.put( label, props );
+		}
+		return props;
+	}
+
+	/**
+	 * Build the itcode of a label by scanning the labeling within the given
+	 * bounding box for the label sets (given by increasing
+	 * {@code setIndices}) which contain the label.
+	 */
+	private TIntArrayList buildItcode( final TIntArrayList setIndices, final long[] bbmin, final long[] bbmax )
+	{
+		final int numIndices = setIndices.size();
+		final boolean[] hasLabel = new boolean[ numIndices == 0 ? 0 : setIndices.get( numIndices - 1 ) + 1 ];
+		for ( int i = 0; i < numIndices; ++i )
+			hasLabel[ setIndices.get( i ) ] = true;
+
+		final IterationCodeBuilder builder = new IterationCodeBuilder( n, bbmin[ 0 ] );
+		final Cursor< ? extends LabelingType< ? > > c = Views.flatIterable( Views.interval( labeling, bbmin, bbmax ) ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			final int index = c.next().getIndex().getInteger();
+			if ( index < hasLabel.length && hasLabel[ index ] )
+				builder.add( c );
+		}
+		builder.finish();
+		return builder.getItcode();
+	}
 }
@@ -0,0 +1,386 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.labeling;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import net.imglib2.EuclideanSpace;
+import net.imglib2.roi.labeling.LabelRegions.LabelRegionProperties;
+import net.imglib2.roi.util.iterationcode.RunLengthCode;
+import net.imglib2.roi.util.iterationcode.RunLengthCodeBuilder;
+import net.imglib2.roi.util.iterationcode.RunLengthOperations;
+
+/**
+ * A compact, serializable summary of the {@link LabelRegions} of one tile of
+ * a larger labeling. For each label it holds size, sum of positions and
+ * bounding box, and optionally additive feature accumulators and the
+ * {@link RunLengthCode} of its pixels. All positions are in global
+ * coordinates, that is, translated by the offset of the tile.
+ * <p>
+ * Summaries of different tiles are combined by {@link #merge}, which is
+ * associative and commutative. A coordinator can thus assemble global label
+ * statistics from the partial results of many workers, without reading the
+ * labeling. For serialization, the labels must be {@link Serializable}.
+ * </p>
+ *
+ * @param <T>
+ *            the label type
+ */
+public final class LabelRegionsSummary< T > implements EuclideanSpace, Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Summary of one label.
+	 */
+	public static final class LabelSummary implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long size;
+
+		private final long[] sumPositions;
+
+		private final long[] bbmin;
+
+		private final long[] bbmax;
+
+		private final double[] features;
+
+		private transient RunLengthCode code;
+
+		LabelSummary( final long size, final long[] sumPositions, final long[] bbmin, final long[] bbmax, final double[] features, final RunLengthCode code )
+		{
+			this.size = size;
+			this.sumPositions = sumPositions;
+			this.bbmin = bbmin;
+			this.bbmax = bbmax;
+			this.features = features;
+			this.code = code;
+		}
+
+		public long getSize()
+		{
+			return size;
+		}
+
+		public long[] getSumPositions()
+		{
+			return sumPositions.clone();
+		}
+
+		public double[] getCenterOfMass()
+		{
+			final double[] centerOfMass = new double[ sumPositions.length ];
+			for ( int d = 0; d < centerOfMass.length; ++d )
+				centerOfMass[ d ] = ( double ) sumPositions[ d ] / size;
+			return centerOfMass;
+		}
+
+		public long[] getBoundingBoxMin()
+		{
+			return bbmin.clone();
+		}
+
+		public long[] getBoundingBoxMax()
+		{
+			return bbmax.clone();
+		}
+
+		/**
+		 * Get the feature accumulators, or {@code null} if none were
+		 * {@link LabelRegionsSummary#accumulate accumulated}.
+		 */
+		public double[] getFeatures()
+		{
+			return features == null ? null : features.clone();
+		}
+
+		/**
+		 * Get the pixels of the label, or {@code null} if the summary was
+		 * created without iteration codes.
+		 */
+		public RunLengthCode getIterationCode()
+		{
+			return code;
+		}
+
+		LabelSummary withFeatures( final double[] values )
+		{
+			return new LabelSummary( size, sumPositions, bbmin, bbmax, add( features, values ), code );
+		}
+
+		LabelSummary merge( final LabelSummary other )
+		{
+			final int n = sumPositions.length;
+			final long[] mergedSum = new long[ n ];
+			final long[] mergedMin = new long[ n ];
+			final long[] mergedMax = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				mergedSum[ d ] = sumPositions[ d ] + other.sumPositions[ d ];
+				mergedMin[ d ] = Math.min( bbmin[ d ], other.bbmin[ d ] );
+				mergedMax[ d ] = Math.max( bbmax[ d ], other.bbmax[ d ] );
+			}
+			final RunLengthCode mergedCode = code == null || other.code == null
+					? null
+					: RunLengthOperations.union( code, other.code );
+			return new LabelSummary( size + other.size, mergedSum, mergedMin, mergedMax, add( features, other.features ), mergedCode );
+		}
+
+		@Override
+		public boolean equals( final Object obj )
+		{
+			if ( !( obj instanceof LabelSummary ) )
+				return false;
+			final LabelSummary other = ( LabelSummary ) obj;
+			return size == other.size
+					&& Arrays.equals( sumPositions, other.sumPositions )
+					&& Arrays.equals( bbmin, other.bbmin )
+					&& Arrays.equals( bbmax, other.bbmax )
+					&& Arrays.equals( features, other.features )
+					&& Objects.equals( code, other.code );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash( size, Arrays.hashCode( sumPositions ), Arrays.hashCode( bbmin ), Arrays.hashCode( bbmax ) );
+		}
+
+		/**
+		 * Writes the runs of the code row by row, since {@link RunLengthCode}
+		 * is not {@link Serializable}.
+		 */
+		private void writeObject( final ObjectOutputStream out ) throws IOException
+		{
+			out.defaultWriteObject();
+			out.writeBoolean( code != null );
+			if ( code == null )
+				return;
+			final int n = sumPositions.length;
+			out.writeInt( code.numRows() );
+			for ( int r = 0; r < code.numRows(); ++r )
+			{
+				for ( int d = 1; d < n; ++d )
+					out.writeLong( code.rowPosition( r, d ) );
+				out.writeInt( code.endRun( r ) - code.firstRun( r ) );
+				for ( int i = code.firstRun( r ); i < code.endRun( r ); ++i )
+				{
+					out.writeLong( code.runMin( i ) );
+					out.writeLong( code.runMax( i ) );
+				}
+			}
+		}
+
+		private void readObject( final ObjectInputStream in ) throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			if ( !in.readBoolean() )
+				return;
+			final int n = sumPositions.length;
+			final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( n );
+			final long[] row = new long[ n - 1 ];
+			final int numRows = in.readInt();
+			for ( int r = 0; r < numRows; ++r )
+			{
+				for ( int d = 0; d < n - 1; ++d )
+					row[ d ] = in.readLong();
+				final int numRuns = in.readInt();
+				for ( int i = 0; i < numRuns; ++i )
+					builder.addRun( row, in.readLong(), in.readLong() );
+			}
+			code = builder.build();
+		}
+	}
+
+	private final int n;
+
+	private final boolean withIterationCodes;
+
+	private final HashMap< T, LabelSummary > labels;
+
+	private LabelRegionsSummary( final int n, final boolean withIterationCodes, final HashMap< T, LabelSummary > labels )
+	{
+		this.n = n;
+		this.withIterationCodes = withIterationCodes;
+		this.labels = labels;
+	}
+
+	/**
+	 * Summarize all existing labels of {@code regions}.
+	 * <p>
+	 * If {@code regions} was created with lazy iteration codes and
+	 * {@code withIterationCodes} is {@code false}, no iteration codes are
+	 * built at all.
+	 * </p>
+	 *
+	 * @param regions
+	 *            the regions of a tile.
+	 * @param globalOffset
+	 *            position of the tile's origin in global coordinates.
+	 * @param withIterationCodes
+	 *            whether to include the pixels of each label as a
+	 *            {@link RunLengthCode}.
+	 */
+	public static < T > LabelRegionsSummary< T > of( final LabelRegions< T > regions, final long[] globalOffset, final boolean withIterationCodes )
+	{
+		final int n = regions.numDimensions();
+		if ( globalOffset.length != n )
+			throw new IllegalArgumentException( "expected an offset with " + n + " dimensions" );
+		final HashMap< T, LabelSummary > labels = new HashMap<>();
+		for ( final T label : regions.getExistingLabels() )
+		{
+			final LabelRegionProperties props = regions.getLabelRegionProperties( label );
+			final long size = props.getSize();
+			final long[] sumPositions = props.getSumPositions().clone();
+			final long[] bbmin = props.getBoundingBoxMin().clone();
+			final long[] bbmax = props.getBoundingBoxMax().clone();
+			for ( int d = 0; d < n; ++d )
+			{
+				sumPositions[ d ] += size * globalOffset[ d ];
+				bbmin[ d ] += globalOffset[ d ];
+				bbmax[ d ] += globalOffset[ d ];
+			}
+			final RunLengthCode code = withIterationCodes
+					? props.getMergedCode().translate( globalOffset )
+					: null;
+			labels.put( label, new LabelSummary( size, sumPositions, bbmin, bbmax, null, code ) );
+		}
+		return new LabelRegionsSummary<>( n, withIterationCodes, labels );
+	}
+
+	/**
+	 * Add {@code values} element-wise to the feature accumulators of
+	 * {@code label}. Accumulators are merged by summation, so they should
+	 * hold additive quantities such as sums of intensities or sums of
+	 * squares.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the label is not in this summary, or the number of values
+	 *             differs from previously accumulated ones.
+	 */
+	public void accumulate( final T label, final double... values )
+	{
+		final LabelSummary summary = labels.get( label );
+		if ( summary == null )
+			throw new IllegalArgumentException( "label " + label + " is not in this summary" );
+		labels.put( label, summary.withFeatures( values ) );
+	}
+
+	/**
+	 * Returns the combined summary of this and {@code other}, which should
+	 * describe disjoint tiles of the same labeling. Neither summary is
+	 * modified. The result has iteration codes only if both summaries have
+	 * them.
+	 */
+	public LabelRegionsSummary< T > merge( final LabelRegionsSummary< T > other )
+	{
+		if ( other.n != n )
+			throw new IllegalArgumentException( "summaries have different numbers of dimensions" );
+		final HashMap< T, LabelSummary > merged = new HashMap<>( labels );
+		for ( final Map.Entry< T, LabelSummary > entry : other.labels.entrySet() )
+			merged.merge( entry.getKey(), entry.getValue(), LabelSummary::merge );
+		final boolean mergedWithCodes = withIterationCodes && other.withIterationCodes;
+		if ( !mergedWithCodes && ( withIterationCodes || other.withIterationCodes ) )
+			merged.replaceAll( ( label, s ) -> s.code == null ? s : new LabelSummary( s.size, s.sumPositions, s.bbmin, s.bbmax, s.features, null ) );
+		return new LabelRegionsSummary<>( n, mergedWithCodes, merged );
+	}
+
+	/**
+	 * Get the summaries of all labels.
+	 */
+	public Map< T, LabelSummary > getLabelSummaries()
+	{
+		return Collections.unmodifiableMap( labels );
+	}
+
+	/**
+	 * Get the summary of {@code label}, or {@code null} if it does not occur.
+	 */
+	public LabelSummary getLabelSummary( final T label )
+	{
+		return labels.get( label );
+	}
+
+	public boolean hasIterationCodes()
+	{
+		return withIterationCodes;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		if ( !( obj instanceof LabelRegionsSummary ) )
+			return false;
+		final LabelRegionsSummary< ? > other = ( LabelRegionsSummary< ? > ) obj;
+		return n == other.n && withIterationCodes == other.withIterationCodes && labels.equals( other.labels );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return labels.hashCode();
+	}
+
+	// -- Helper methods --
+
+	private static double[] add( final double[] a, final double[] b )
+	{
+		if ( a == null )
+			return b == null ? null : b.clone();
+		if ( b == null )
+			return a.clone();
+		if ( a.length != b.length )
+			throw new IllegalArgumentException( "feature accumulators have different lengths" );
+		final double[] sum = new double[ a.length ];
+		for ( int i = 0; i < sum.length; ++i )
+			sum[ i ] = a[ i ] + b[ i ];
+		return sum;
+	}
+}
@@ -0,0 +1,556 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.mask.integer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.AbstractWrappedInterval;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Mask;
+import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Masks;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@link MaskInterval} that stores its pixels as a bitset.
+ * <p>
+ * Each row (line along dimension 0) of the interval is packed into
+ * {@code long} words, rows are stored in flat iteration order. Boolean
+ * operations between {@code BitMaskInterval}s with the same interval
+ * ({@link #and(BitMaskInterval)}, {@link #or(BitMaskInterval)},
+ * {@link #xor(BitMaskInterval)}, {@link #minus(BitMaskInterval)},
+ * {@link #complement()}) are computed 64 pixels at a time and result in new
+ * {@code BitMaskInterval}s. The number of contained pixels is computed by
+ * popcount, and {@link #inside()} cursors jump directly from one contained
+ * pixel to the next.
+ * <p>
+ * Use {@link #of(MaskInterval)} to materialize an arbitrary (for example,
+ * composite) {@code MaskInterval} once, such that it can be reused cheaply.
+ * {@code BitMaskInterval}s are immutable.
+ */
+public class BitMaskInterval extends AbstractInterval implements MaskInterval
+{
+	/**
+	 * Rows are rasterized in chunks of at most this many pixels.
+	 */
+	private static final int ROW_LENGTH = 4096;
+
+	private final int wordsPerRow;
+
+	private final int numRows;
+
+	/**
+	 * Mask of the valid bits in the last word of each row. Bits beyond the end
+	 * of a row are always {@code 0}.
+	 */
+	private final long lastWordMask;
+
+	private final long[] words;
+
+	private final long size;
+
+	private final InsideIterable inside;
+
+	private BitMaskInterval( final Interval interval, final long[] words )
+	{
+		super( interval );
+		final long numWordsPerRow = Intervals.isEmpty( interval ) ? 0 : ( interval.dimension( 0 ) + 63 ) / 64;
+		final long numRowsLong = Intervals.isEmpty( interval ) ? 0 : Intervals.numElements( interval ) / interval.dimension( 0 );
+		if ( numWordsPerRow * numRowsLong > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "interval is too large for a BitMaskInterval" );
+		wordsPerRow = ( int ) numWordsPerRow;
+		numRows = ( int ) numRowsLong;
+		final int remainder = Intervals.isEmpty( interval ) ? 0 : ( int ) ( interval.dimension( 0 ) & 63 );
+		lastWordMask = remainder == 0 ? -1L : ( 1L << remainder ) - 1;
+		this.words = words == null ? new long[ wordsPerRow * numRows ] : words;
+		long sum = 0;
+		for ( final long w : this.words )
+			sum += Long.bitCount( w );
+		size = sum;
+		inside = new InsideIterable();
+	}
+
+	/**
+	 * Creates a {@code BitMaskInterval} containing exactly the pixels of
+	 * {@code mask} within its bounds. If {@code mask} already is a
+	 * {@code BitMaskInterval}, it is returned.
+	 */
+	public static BitMaskInterval of( final MaskInterval mask )
+	{
+		if ( mask instanceof BitMaskInterval )
+			return ( BitMaskInterval ) mask;
+		return of( mask, mask );
+	}
+
+	/**
+	 * Creates a {@code BitMaskInterval} containing exactly the pixels of
+	 * {@code mask} within {@code interval}.
+	 */
+	public static BitMaskInterval of( final Mask mask, final Interval interval )
+	{
+		final BitMaskInterval result = new BitMaskInterval( interval, null );
+		final int n = interval.numDimensions();
+		if ( result.numRows == 0 )
+			return result;
+
+		final long[] min = Intervals.minAsLongArray( interval );
+		final long[] max = Intervals.maxAsLongArray( interval );
+		max[ 0 ] = min[ 0 ];
+		final LocalizingIntervalIterator rows = new LocalizingIntervalIterator( min, max );
+		final boolean[] row = new boolean[ ( int ) Math.min( interval.dimension( 0 ), ROW_LENGTH ) ];
+		final Point start = new Point( n );
+		final long[] words = result.words;
+		int rowOffset = 0;
+		while ( rows.hasNext() )
+		{
+			rows.fwd();
+			start.setPosition( rows );
+			for ( long x = 0; x < interval.dimension( 0 ); x += row.length )
+			{
+				final int count = ( int ) Math.min( row.length, interval.dimension( 0 ) - x );
+				start.setPosition( interval.min( 0 ) + x, 0 );
+				mask.testRow( start, count, row );
+				for ( int i = 0; i < count; i++ )
+				{
+					if ( row[ i ] )
+					{
+						final long bit = x + i;
+						words[ rowOffset + ( int ) ( bit >>> 6 ) ] |= 1L << bit;
+					}
+				}
+			}
+			rowOffset += result.wordsPerRow;
+		}
+		return new BitMaskInterval( interval, words );
+	}
+
+	/**
+	 * Returns the number of pixels contained in this mask.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns a {@code BitMaskInterval} containing the pixels contained in both
+	 * this and {@code other}, which must have the same interval.
+	 */
+	public BitMaskInterval and( final BitMaskInterval other )
+	{
+		checkSameInterval( other );
+		final long[] result = new long[ words.length ];
+		for ( int i = 0; i < result.length; i++ )
+			result[ i ] = words[ i ] & other.words[ i ];
+		return new BitMaskInterval( this, result );
+	}
+
+	/**
+	 * Returns a {@code BitMaskInterval} containing the pixels contained in
+	 * this or {@code other}, which must have the same interval.
+	 */
+	public BitMaskInterval or( final BitMaskInterval other )
+	{
+		checkSameInterval( other );
+		final long[] result = new long[ words.length ];
+		for ( int i = 0; i < result.length; i++ )
+			result[ i ] = words[ i ] | other.words[ i ];
+		return new BitMaskInterval( this, result );
+	}
+
+	/**
+	 * Returns a {@code BitMaskInterval} containing the pixels contained in
+	 * exactly one of this and {@code other}, which must have the same interval.
+	 */
+	public BitMaskInterval xor( final BitMaskInterval other )
+	{
+		checkSameInterval( other );
+		final long[] result = new long[ words.length ];
+		for ( int i = 0; i < result.length; i++ )
+			result[ i ] = words[ i ] ^ other.words[ i ];
+		return new BitMaskInterval( this, result );
+	}
+
+	/**
+	 * Returns a {@code BitMaskInterval} containing the pixels contained in
+	 * this but not in {@code other}, which must have the same interval.
+	 */
+	public BitMaskInterval minus( final BitMaskInterval other )
+	{
+		checkSameInterval( other );
+		final long[] result = new long[ words.length ];
+		for ( int i = 0; i < result.length; i++ )
+			result[ i ] = words[ i ] & ~other.words[ i ];
+		return new BitMaskInterval( this, result );
+	}
+
+	/**
+	 * Returns a {@code BitMaskInterval} containing the pixels of this interval
+	 * that are not contained in this mask. Unlike {@link #negate()}, the result
+	 * is bounded by this interval.
+	 */
+	public BitMaskInterval complement()
+	{
+		final long[] result = new long[ words.length ];
+		for ( int i = 0; i < result.length; i++ )
+			result[ i ] = ~words[ i ];
+		if ( wordsPerRow > 0 )
+			for ( int i = wordsPerRow - 1; i < result.length; i += wordsPerRow )
+				result[ i ] &= lastWordMask;
+		return new BitMaskInterval( this, result );
+	}
+
+	@Override
+	public boolean test( final Localizable l )
+	{
+		if ( !Intervals.contains( this, l ) )
+			return false;
+		final long x = l.getLongPosition( 0 ) - min[ 0 ];
+		return ( words[ rowOffset( l ) + ( int ) ( x >>> 6 ) ] & ( 1L << x ) ) != 0;
+	}
+
+	@Override
+	public void testRow( final Localizable start, final int count, final boolean[] out )
+	{
+		for ( int d = 1; d < n; d++ )
+		{
+			final long p = start.getLongPosition( d );
+			if ( p < min[ d ] || p > max[ d ] )
+			{
+				Arrays.fill( out, 0, count, false );
+				return;
+			}
+		}
+		final int rowOffset = rowOffset( start );
+		final long x0 = start.getLongPosition( 0 );
+		for ( int i = 0; i < count; i++ )
+		{
+			final long x = x0 + i - min[ 0 ];
+			out[ i ] = x >= 0 && x < max[ 0 ] - min[ 0 ] + 1 && ( words[ rowOffset + ( int ) ( x >>> 6 ) ] & ( 1L << x ) ) != 0;
+		}
+	}
+
+	@Override
+	public BoundaryType boundaryType()
+	{
+		return BoundaryType.UNSPECIFIED;
+	}
+
+	@Override
+	public KnownConstant knownConstant()
+	{
+		return size == 0 ? KnownConstant.ALL_FALSE : KnownConstant.UNKNOWN;
+	}
+
+	@Override
+	public long modificationCount()
+	{
+		return 0;
+	}
+
+	/**
+	 * Get an {@code IterableInterval} view of the pixels contained in this
+	 * mask, in flat iteration order.
+	 */
+	public IterableInterval< Void > inside()
+	{
+		return inside;
+	}
+
+	/**
+	 * Get an {@link IterableRegion} view of this mask, whose
+	 * {@link IterableRegion#inside() inside} iterates the bitset directly.
+	 */
+	public IterableRegion< BoolType > toIterableRegion()
+	{
+		return new Region();
+	}
+
+	// -- Helper methods --
+
+	private void checkSameInterval( final BitMaskInterval other )
+	{
+		if ( !Intervals.equals( this, other ) )
+			throw new IllegalArgumentException( "BitMaskIntervals must have the same interval" );
+	}
+
+	/**
+	 * Index of the first word of the row containing {@code l}, which must be
+	 * inside the interval (except in dimension 0).
+	 */
+	private int rowOffset( final Localizable l )
+	{
+		long row = 0;
+		for ( int d = n - 1; d > 0; d-- )
+			row = row * ( max[ d ] - min[ d ] + 1 ) + l.getLongPosition( d ) - min[ d ];
+		return ( int ) row * wordsPerRow;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Iterates the set bits, jumping from one to the next using
+	 * {@link Long#numberOfTrailingZeros(long)}.
+	 */
+	private final class BitCursor extends AbstractLocalizable implements Cursor< Void >
+	{
+		private final long[] rowDimensions;
+
+		private final long[] rowMin;
+
+		private final long[] rowPosition;
+
+		/**
+		 * Index of the current word.
+		 */
+		private int wordIndex;
+
+		/**
+		 * The bits of the current word that have not been visited yet.
+		 */
+		private long word;
+
+		private int row;
+
+		private long remaining;
+
+		BitCursor()
+		{
+			super( BitMaskInterval.this.n );
+			rowDimensions = new long[ n - 1 ];
+			rowMin = new long[ n - 1 ];
+			for ( int d = 1; d < n; d++ )
+			{
+				rowDimensions[ d - 1 ] = max[ d ] - min[ d ] + 1;
+				rowMin[ d - 1 ] = min[ d ];
+			}
+			rowPosition = new long[ n - 1 ];
+			reset();
+		}
+
+		private BitCursor( final BitCursor other )
+		{
+			super( other.position.clone() );
+			rowDimensions = other.rowDimensions;
+			rowMin = other.rowMin;
+			rowPosition = other.rowPosition.clone();
+			wordIndex = other.wordIndex;
+			word = other.word;
+			row = other.row;
+			remaining = other.remaining;
+		}
+
+		@Override
+		public Void get()
+		{
+			return null;
+		}
+
+		@Override
+		public void jumpFwd( long steps )
+		{
+			if ( steps <= 0 )
+				return;
+			if ( steps > remaining )
+			{
+				remaining = 0;
+				return;
+			}
+			int c = Long.bitCount( word );
+			while ( c < steps )
+			{
+				steps -= c;
+				remaining -= c;
+				word = words[ ++wordIndex ];
+				c = Long.bitCount( word );
+			}
+			for ( long i = 1; i < steps; i++ )
+				word &= word - 1;
+			remaining -= steps - 1;
+			fwd();
+		}
+
+		@Override
+		public void fwd()
+		{
+			if ( remaining == 0 )
+				return;
+			while ( word == 0 )
+				word = words[ ++wordIndex ];
+			final int bit = Long.numberOfTrailingZeros( word );
+			word &= word - 1;
+			--remaining;
+
+			final int r = wordIndex / wordsPerRow;
+			position[ 0 ] = min[ 0 ] + 64L * ( wordIndex - r * wordsPerRow ) + bit;
+			if ( r != row )
+			{
+				row = r;
+				IntervalIndexer.indexToPositionWithOffset( r, rowDimensions, rowMin, rowPosition );
+				System.arraycopy( rowPosition, 0, position, 1, n - 1 );
+			}
+		}
+
+		@Override
+		public void reset()
+		{
+			for ( int d = 0; d < n; d++ )
+				position[ d ] = min[ d ];
+			position[ 0 ] = min[ 0 ] - 1;
+			wordIndex = 0;
+			word = words.length == 0 ? 0 : words[ 0 ];
+			row = 0;
+			remaining = size;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return remaining > 0;
+		}
+
+		@Override
+		public Void next()
+		{
+			fwd();
+			return null;
+		}
+
+		@Override
+		public BitCursor copy()
+		{
+			return new BitCursor( this );
+		}
+	}
+
+	private final class InsideIterable extends AbstractWrappedInterval< Interval > implements IterableInterval< Void >
+	{
+		InsideIterable()
+		{
+			super( BitMaskInterval.this );
+		}
+
+		@Override
+		public long size()
+		{
+			return size;
+		}
+
+		@Override
+		public Void firstElement()
+		{
+			if ( size() == 0 )
+				throw new NoSuchElementException();
+			return cursor().next();
+		}
+
+		@Override
+		public Object iterationOrder()
+		{
+			return this;
+		}
+
+		@Override
+		public Iterator< Void > iterator()
+		{
+			return cursor();
+		}
+
+		@Override
+		public Cursor< Void > cursor()
+		{
+			return new BitCursor();
+		}
+
+		@Override
+		public Cursor< Void > localizingCursor()
+		{
+			return cursor();
+		}
+
+		@Override
+		public Void getType()
+		{
+			return null;
+		}
+	}
+
+	private final class Region extends AbstractWrappedInterval< RandomAccessibleInterval< BoolType > > implements IterableRegion< BoolType >
+	{
+		Region()
+		{
+			super( Masks.toRandomAccessibleInterval( BitMaskInterval.this ) );
+		}
+
+		@Override
+		public RandomAccess< BoolType > randomAccess()
+		{
+			return sourceInterval.randomAccess();
+		}
+
+		@Override
+		public RandomAccess< BoolType > randomAccess( final Interval interval )
+		{
+			return sourceInterval.randomAccess( interval );
+		}
+
+		@Override
+		public BoolType getType()
+		{
+			return sourceInterval.getType();
+		}
+
+		@Override
+		public IterableInterval< Void > inside()
+		{
+			return inside;
+		}
+	}
+}
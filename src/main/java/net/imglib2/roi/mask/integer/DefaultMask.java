@@ -40,6 +40,7 @@ import net.imglib2.Localizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.Mask;
+import net.imglib2.roi.Masks;
 
 /**
  * @author Tobias Pietzsch
@@ -80,6 +81,12 @@ public class DefaultMask extends AbstractEuclideanSpace implements Mask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public long modificationCount()
+	{
+		return Masks.modificationCount( predicate );
+	}
+
 	@Override
 	public KnownConstant knownConstant()
 	{
@@ -41,6 +41,7 @@ import net.imglib2.Localizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
 import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Masks;
 import net.imglib2.util.Intervals;
 
 /**
@@ -80,6 +81,12 @@ public class DefaultMaskInterval extends AbstractInterval implements MaskInterva
 		return false;
 	}
 
+	@Override
+	public long modificationCount()
+	{
+		return Masks.modificationCount( predicate );
+	}
+
 	@Override
 	public KnownConstant knownConstant()
 	{
@@ -37,10 +37,24 @@ import net.imglib2.Localizable;
 import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.roi.Mask;
+import net.imglib2.roi.Masks;
 import net.imglib2.type.BooleanType;
 
 /**
  * {@link RandomAccess} based on {@link Mask} with {@link Localizable}s.
+ * <p>
+ * When the access is moved forward one pixel at a time along dimension 0 (as
+ * cursors over an interval do) the mask is evaluated in blocks of growing
+ * length using {@link Mask#testRow(Localizable, int, boolean[])}, and values
+ * are served from that block, as long as the
+ * {@link net.imglib2.roi.MaskPredicate#modificationCount() modification count}
+ * of the mask does not change. Masks with a negative (untracked) count, and
+ * any other access pattern, fall back to testing single points.
+ * </p>
+ * <p>
+ * Each access tests with its own {@link Mask#evaluator() evaluator} of the
+ * mask, so accesses can be used concurrently from different threads.
+ * </p>
  *
  * @author Christian Dietz, University of Konstanz
  * @author Daniel Seebacher, University of Konstanz
@@ -50,26 +64,52 @@ public class MaskPredicateRandomAccess< B extends BooleanType< B > > extends Poi
 {
 	private final Mask contains;
 
+	private final Mask evaluator;
+
 	private final B type;
 
+	/** Maximum number of values evaluated at once. */
+	private static final int MAX_ROW_LENGTH = 256;
+
+	/** Values of the current block. */
+	private final boolean[] row;
+
+	/** Position of the first value of the current block. */
+	private final long[] rowStart;
+
+	/** Number of valid values in {@link #row}, 0 if there is no block. */
+	private int rowLength;
+
+	/** Index into {@link #row} of the last value served. */
+	private int rowIndex;
+
+	/** Modification count of the mask when the current block was evaluated. */
+	private long rowModificationCount;
+
 	public MaskPredicateRandomAccess( final Mask contains, final B type )
 	{
 		super( contains.numDimensions() );
 		this.contains = contains;
+		evaluator = contains.evaluator();
 		this.type = type.copy();
+		row = new boolean[ MAX_ROW_LENGTH ];
+		rowStart = new long[ n ];
 	}
 
 	protected MaskPredicateRandomAccess( final MaskPredicateRandomAccess< B > cra )
 	{
 		super( cra );
 		contains = cra.contains;
+		evaluator = contains.evaluator();
 		type = cra.type.copy();
+		row = new boolean[ MAX_ROW_LENGTH ];
+		rowStart = new long[ n ];
 	}
 
 	@Override
 	public B get()
 	{
-		type.set( contains.test( this ) );
+		type.set( evaluate() );
 		return type;
 	}
 
@@ -90,4 +130,38 @@ public class MaskPredicateRandomAccess< B extends BooleanType< B > > extends Poi
 	{
 		return copy();
 	}
+
+	// -- Helper methods --
+
+	private boolean evaluate()
+	{
+		int length = 1;
+		final long modificationCount = Masks.modificationCount( contains );
+		if ( rowLength > 0 && modificationCount >= 0 && modificationCount == rowModificationCount && isNextInRow() )
+		{
+			if ( ++rowIndex < rowLength )
+				return row[ rowIndex ];
+			length = Math.min( 2 * rowLength, MAX_ROW_LENGTH );
+		}
+
+		System.arraycopy( position, 0, rowStart, 0, n );
+		rowIndex = 0;
+		rowLength = length;
+		rowModificationCount = modificationCount;
+		if ( length == 1 )
+			row[ 0 ] = evaluator.test( this );
+		else
+			evaluator.testRow( this, length, row );
+		return row[ 0 ];
+	}
+
+	private boolean isNextInRow()
+	{
+		if ( position[ 0 ] != rowStart[ 0 ] + rowIndex + 1 )
+			return false;
+		for ( int d = 1; d < n; d++ )
+			if ( position[ d ] != rowStart[ d ] )
+				return false;
+		return true;
+	}
 }
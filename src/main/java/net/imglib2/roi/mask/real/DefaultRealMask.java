@@ -39,6 +39,7 @@ import net.imglib2.AbstractEuclideanSpace;
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.RealMask;
 
 /**
@@ -80,6 +81,12 @@ public class DefaultRealMask extends AbstractEuclideanSpace implements RealMask
 		return predicate.test( localizable );
 	}
 
+	@Override
+	public long modificationCount()
+	{
+		return Masks.modificationCount( predicate );
+	}
+
 	@Override
 	public KnownConstant knownConstant()
 	{
@@ -40,6 +40,7 @@ import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
 import net.imglib2.roi.BoundaryType;
 import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.RealMaskRealInterval;
 import net.imglib2.util.Intervals;
 
@@ -80,6 +81,12 @@ public class DefaultRealMaskRealInterval extends AbstractRealInterval implements
 		return false;
 	}
 
+	@Override
+	public long modificationCount()
+	{
+		return Masks.modificationCount( predicate );
+	}
+
 	@Override
 	public KnownConstant knownConstant()
 	{
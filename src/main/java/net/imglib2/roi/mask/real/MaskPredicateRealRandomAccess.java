@@ -39,11 +39,26 @@ import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.RealRandomAccess;
 import net.imglib2.roi.MaskPredicate;
+import net.imglib2.roi.Masks;
 import net.imglib2.roi.RealMask;
 import net.imglib2.type.BooleanType;
 
 /**
  * {@link RealRandomAccess} based on {@link RealMask}.
+ * <p>
+ * When the access is moved forward by exactly one along dimension 0 (as
+ * cursors over a rasterized mask do) the mask is evaluated in blocks of
+ * growing length using
+ * {@link RealMask#testRow(RealLocalizable, double, int, boolean[])}, and values
+ * are served from that block, as long as the
+ * {@link net.imglib2.roi.MaskPredicate#modificationCount() modification count}
+ * of the mask does not change. Masks with a negative (untracked) count, and
+ * any other access pattern, fall back to testing single points.
+ * </p>
+ * <p>
+ * Each access tests with its own {@link MaskPredicate#evaluator() evaluator}
+ * of the mask, so accesses can be used concurrently from different threads.
+ * </p>
  *
  * @author Christian Dietz
  * @author Tobias Pietzsch
@@ -52,26 +67,52 @@ public class MaskPredicateRealRandomAccess< B extends BooleanType< B > > extends
 {
 	private final Predicate< ? super RealLocalizable > contains;
 
+	private final Predicate< ? super RealLocalizable > evaluator;
+
 	private final B type;
 
+	/** Maximum number of values evaluated at once. */
+	private static final int MAX_ROW_LENGTH = 256;
+
+	/** Values of the current block. */
+	private final boolean[] row;
+
+	/** Position of the first value of the current block. */
+	private final double[] rowStart;
+
+	/** Number of valid values in {@link #row}, 0 if there is no block. */
+	private int rowLength;
+
+	/** Index into {@link #row} of the last value served. */
+	private int rowIndex;
+
+	/** Modification count of the mask when the current block was evaluated. */
+	private long rowModificationCount;
+
 	public MaskPredicateRealRandomAccess( final MaskPredicate< ? super RealLocalizable > contains, final B type )
 	{
 		super( contains.numDimensions() );
 		this.contains = contains;
+		evaluator = Masks.evaluator( contains );
 		this.type = type.createVariable();
+		row = new boolean[ MAX_ROW_LENGTH ];
+		rowStart = new double[ n ];
 	}
 
 	protected MaskPredicateRealRandomAccess( final MaskPredicateRealRandomAccess< B > cra )
 	{
 		super( cra.numDimensions() );
 		contains = cra.contains;
+		evaluator = Masks.evaluator( contains );
 		type = cra.type.copy();
+		row = new boolean[ MAX_ROW_LENGTH ];
+		rowStart = new double[ n ];
 	}
 
 	@Override
 	public B get()
 	{
-		type.set( contains.test( this ) );
+		type.set( evaluate() );
 		return type;
 	}
 
@@ -92,4 +133,38 @@ public class MaskPredicateRealRandomAccess< B extends BooleanType< B > > extends
 	{
 		return copy();
 	}
+
+	// -- Helper methods --
+
+	private boolean evaluate()
+	{
+		int length = 1;
+		final long modificationCount = Masks.modificationCount( contains );
+		if ( rowLength > 0 && modificationCount >= 0 && modificationCount == rowModificationCount && isNextInRow() )
+		{
+			if ( ++rowIndex < rowLength )
+				return row[ rowIndex ];
+			length = Math.min( 2 * rowLength, MAX_ROW_LENGTH );
+		}
+
+		System.arraycopy( position, 0, rowStart, 0, n );
+		rowIndex = 0;
+		rowLength = length;
+		rowModificationCount = modificationCount;
+		if ( length == 1 )
+			row[ 0 ] = evaluator.test( this );
+		else
+			Masks.testRow( evaluator, this, 1.0, length, row );
+		return row[ 0 ];
+	}
+
+	private boolean isNextInRow()
+	{
+		if ( position[ 0 ] != rowStart[ 0 ] + ( rowIndex + 1 ) )
+			return false;
+		for ( int d = 1; d < n; d++ )
+			if ( position[ d ] != rowStart[ d ] )
+				return false;
+		return true;
+	}
 }
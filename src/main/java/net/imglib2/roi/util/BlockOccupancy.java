@@ -0,0 +1,210 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.type.BooleanType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.view.Views;
+
+/**
+ * A summary of where the {@code true} samples of a boolean
+ * {@link RandomAccessibleInterval} are.
+ * <p>
+ * The samples of the interval are enumerated in flat iteration order and
+ * partitioned into consecutive blocks of {@link #blockSize()} samples. For each
+ * block, the number of {@code true} samples is stored. On a coarser level,
+ * {@link #groupSize()} consecutive blocks are combined into a group, and the
+ * number of {@code true} samples in each group is stored as well. Cursors can
+ * use this to skip empty groups and blocks entirely, and to {@code jumpFwd} by
+ * block counts, so that iterating a sparse region takes time proportional to
+ * the number of its {@code true} samples.
+ * <p>
+ * The summary is a snapshot of the interval at construction time. It must be
+ * rebuilt if the interval is modified.
+ */
+public class BlockOccupancy
+{
+	public static final int DEFAULT_BLOCK_SIZE = 256;
+
+	public static final int DEFAULT_GROUP_SIZE = 64;
+
+	private final FinalInterval interval;
+
+	private final int blockSize;
+
+	private final int groupSize;
+
+	private final int[] blockCounts;
+
+	private final long[] groupCounts;
+
+	private final long size;
+
+	public < B extends BooleanType< B > > BlockOccupancy( final RandomAccessibleInterval< B > region )
+	{
+		this( region, DEFAULT_BLOCK_SIZE, DEFAULT_GROUP_SIZE );
+	}
+
+	/**
+	 * @param region
+	 *            the boolean interval to summarize
+	 * @param blockSize
+	 *            number of samples (in flat iteration order) per block
+	 * @param groupSize
+	 *            number of blocks per group
+	 */
+	public < B extends BooleanType< B > > BlockOccupancy( final RandomAccessibleInterval< B > region, final int blockSize, final int groupSize )
+	{
+		if ( blockSize < 1 || groupSize < 1 )
+			throw new IllegalArgumentException( "block and group sizes must be positive" );
+		final long numBlocks = ( region.size() + blockSize - 1 ) / blockSize;
+		if ( numBlocks > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "too many blocks, use a larger block size" );
+
+		this.interval = new FinalInterval( region );
+		this.blockSize = blockSize;
+		this.groupSize = groupSize;
+		blockCounts = new int[ ( int ) numBlocks ];
+		groupCounts = new long[ ( int ) ( ( numBlocks + groupSize - 1 ) / groupSize ) ];
+
+		if ( !countBits( region ) )
+			countSamples( region );
+
+		long sum = 0;
+		for ( int b = 0; b < blockCounts.length; ++b )
+		{
+			groupCounts[ b / groupSize ] += blockCounts[ b ];
+			sum += blockCounts[ b ];
+		}
+		size = sum;
+	}
+
+	/**
+	 * The interval that is summarized.
+	 */
+	public Interval interval()
+	{
+		return interval;
+	}
+
+	/**
+	 * The total number of {@code true} samples.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	public int blockSize()
+	{
+		return blockSize;
+	}
+
+	public int groupSize()
+	{
+		return groupSize;
+	}
+
+	public int numBlocks()
+	{
+		return blockCounts.length;
+	}
+
+	/**
+	 * The number of {@code true} samples in the given block.
+	 */
+	public int blockCount( final int block )
+	{
+		return blockCounts[ block ];
+	}
+
+	/**
+	 * The number of {@code true} samples in the given group of blocks.
+	 */
+	public long groupCount( final int group )
+	{
+		return groupCounts[ group ];
+	}
+
+	// -- Helper methods --
+
+	private < B extends BooleanType< B > > void countSamples( final RandomAccessibleInterval< B > region )
+	{
+		final Cursor< B > cursor = Views.flatIterable( region ).cursor();
+		int block = 0;
+		int inBlock = 0;
+		while ( cursor.hasNext() )
+		{
+			if ( cursor.next().get() )
+				++blockCounts[ block ];
+			if ( ++inBlock == blockSize )
+			{
+				inBlock = 0;
+				++block;
+			}
+		}
+	}
+
+	/**
+	 * Counts block occupancy by popcount, if {@code region} is a {@link BitType}
+	 * {@link ArrayImg} and blocks are aligned to {@code long} words.
+	 *
+	 * @return whether the counts could be computed this way.
+	 */
+	private boolean countBits( final RandomAccessibleInterval< ? > region )
+	{
+		if ( !( region instanceof ArrayImg ) || blockSize % 64 != 0 || !( region.getType() instanceof BitType ) )
+			return false;
+		final Object data = ( ( ArrayImg< ?, ? > ) region ).update( null );
+		if ( !( data instanceof LongAccess ) )
+			return false;
+
+		final LongAccess access = ( LongAccess ) data;
+		final long numBits = region.size();
+		final int wordsPerBlock = blockSize / 64;
+		final int numFullWords = ( int ) ( numBits >>> 6 );
+		for ( int w = 0; w < numFullWords; ++w )
+			blockCounts[ w / wordsPerBlock ] += Long.bitCount( access.getValue( w ) );
+		final int remainder = ( int ) ( numBits & 63 );
+		if ( remainder != 0 )
+			blockCounts[ numFullWords / wordsPerBlock ] += Long.bitCount( access.getValue( numFullWords ) & ( ( 1L << remainder ) - 1 ) );
+		return true;
+	}
+}
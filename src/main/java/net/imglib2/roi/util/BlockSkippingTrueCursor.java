@@ -0,0 +1,258 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.BooleanType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * A {@code Cursor<Void>} that iterates the {@code true} pixels of a boolean
+ * {@link RandomAccessibleInterval} in flat iteration order, using a
+ * {@link BlockOccupancy} to skip empty blocks and to {@link #jumpFwd(long)} by
+ * block counts.
+ */
+class BlockSkippingTrueCursor< T extends BooleanType< T > >
+		extends AbstractLocalizable
+		implements Cursor< Void >
+{
+	private final BlockOccupancy occupancy;
+
+	private final RandomAccess< T > access;
+
+	private final long[] min;
+
+	private final long[] max;
+
+	private final long[] dimensions;
+
+	/**
+	 * Position of {@link #access}. This is the next candidate sample in the
+	 * current block, if {@link #step} is {@code false}, or the last visited
+	 * {@code true} sample, if {@link #step} is {@code true}.
+	 */
+	private final long[] candidate;
+
+	private boolean step;
+
+	private int block;
+
+	/**
+	 * Number of {@code true} samples in the current block that have not been
+	 * visited yet.
+	 */
+	private int remainingInBlock;
+
+	/**
+	 * Number of {@code true} samples that have not been visited yet.
+	 */
+	private long remaining;
+
+	public BlockSkippingTrueCursor( final RandomAccessibleInterval< T > interval, final BlockOccupancy occupancy )
+	{
+		super( interval.numDimensions() );
+		this.occupancy = occupancy;
+		access = interval.randomAccess();
+		min = interval.minAsLongArray();
+		max = interval.maxAsLongArray();
+		dimensions = interval.dimensionsAsLongArray();
+		candidate = new long[ n ];
+		reset();
+	}
+
+	private BlockSkippingTrueCursor( final BlockSkippingTrueCursor< T > other )
+	{
+		super( other.position.clone() );
+		occupancy = other.occupancy;
+		access = other.access.copy();
+		min = other.min;
+		max = other.max;
+		dimensions = other.dimensions;
+		candidate = other.candidate.clone();
+		step = other.step;
+		block = other.block;
+		remainingInBlock = other.remainingInBlock;
+		remaining = other.remaining;
+	}
+
+	@Override
+	public Void get()
+	{
+		return null;
+	}
+
+	@Override
+	public void jumpFwd( long steps )
+	{
+		if ( steps <= remainingInBlock )
+		{
+			for ( long i = 0; i < steps; ++i )
+				fwd();
+			return;
+		}
+
+		steps -= remainingInBlock;
+		remaining -= remainingInBlock;
+		remainingInBlock = 0;
+		if ( steps > remaining )
+		{
+			remaining = 0;
+			return;
+		}
+
+		// skip groups and blocks that are passed over entirely
+		final int groupSize = occupancy.groupSize();
+		int b = block + 1;
+		while ( true )
+		{
+			if ( b % groupSize == 0 )
+			{
+				final long c = occupancy.groupCount( b / groupSize );
+				if ( c < steps )
+				{
+					steps -= c;
+					remaining -= c;
+					b += groupSize;
+					continue;
+				}
+			}
+			final int c = occupancy.blockCount( b );
+			if ( c >= steps )
+				break;
+			steps -= c;
+			remaining -= c;
+			++b;
+		}
+		enterBlock( b );
+		for ( long i = 0; i < steps; ++i )
+			fwd();
+	}
+
+	@Override
+	public void fwd()
+	{
+		if ( remaining == 0 )
+			return;
+
+		if ( remainingInBlock == 0 )
+			enterBlock( nextOccupiedBlock( block + 1 ) );
+
+		if ( step )
+			advance();
+		while ( !access.get().get() )
+			advance();
+		System.arraycopy( candidate, 0, position, 0, n );
+		step = true;
+		--remainingInBlock;
+		--remaining;
+	}
+
+	@Override
+	public void reset()
+	{
+		System.arraycopy( min, 0, position, 0, n );
+		if ( n > 0 )
+			position[ 0 ] = min[ 0 ] - 1;
+		block = -1;
+		remainingInBlock = 0;
+		remaining = occupancy.size();
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return remaining > 0;
+	}
+
+	@Override
+	public Void next()
+	{
+		fwd();
+		return get();
+	}
+
+	@Override
+	public BlockSkippingTrueCursor< T > copy()
+	{
+		return new BlockSkippingTrueCursor<>( this );
+	}
+
+	// -- Helper methods --
+
+	private int nextOccupiedBlock( int b )
+	{
+		final int groupSize = occupancy.groupSize();
+		while ( occupancy.blockCount( b ) == 0 )
+		{
+			if ( b % groupSize == 0 && occupancy.groupCount( b / groupSize ) == 0 )
+				b += groupSize;
+			else
+				++b;
+		}
+		return b;
+	}
+
+	private void enterBlock( final int b )
+	{
+		block = b;
+		remainingInBlock = occupancy.blockCount( b );
+		IntervalIndexer.indexToPositionWithOffset( ( long ) b * occupancy.blockSize(), dimensions, min, candidate );
+		access.setPosition( candidate );
+		step = false;
+	}
+
+	/**
+	 * Move {@link #candidate} (and {@link #access}) to the next sample in flat
+	 * iteration order.
+	 */
+	private void advance()
+	{
+		if ( ++candidate[ 0 ] <= max[ 0 ] )
+		{
+			access.fwd( 0 );
+			return;
+		}
+		candidate[ 0 ] = min[ 0 ];
+		for ( int d = 1; d < n; ++d )
+		{
+			if ( ++candidate[ d ] <= max[ d ] )
+				break;
+			candidate[ d ] = min[ d ];
+		}
+		access.setPosition( candidate );
+	}
+}
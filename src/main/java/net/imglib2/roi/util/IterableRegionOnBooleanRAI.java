@@ -44,6 +44,7 @@ import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.IterableRegion;
 import net.imglib2.roi.Regions;
 import net.imglib2.type.BooleanType;
+import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 
 /**
@@ -51,6 +52,14 @@ import net.imglib2.view.Views;
  * Cursors on the result only iterate {@code true} samples of the source interval.
  *
  * {@link Cursor Cursors} are realized by wrapping source cursors (using {@link TrueCursor}).
+ * They do not need to know the number of {@code true} samples. Unless it was
+ * given at construction, that number is computed (using
+ * {@link Regions#countTrue(RandomAccessibleInterval)}) when
+ * {@code inside().size()} is first called, and cached afterwards.
+ * <p>
+ * For sparse regions, a {@link BlockOccupancy} can be given at construction.
+ * Cursors then iterate the {@code true} samples in flat iteration order,
+ * skipping empty blocks of the source entirely.
  *
  * @author Tobias Pietzsch
  */
@@ -58,21 +67,54 @@ public class IterableRegionOnBooleanRAI< T extends BooleanType< T > >
 		extends AbstractWrappedInterval< RandomAccessibleInterval< T > >
 		implements IterableRegion< T >
 {
-	private final long size;
+	/**
+	 * The number of {@code true} samples, or {@code -1} if it has not been
+	 * computed yet.
+	 */
+	private volatile long size;
 
 	private final IterableInterval< T > sourceIterable;
 
+	private final BlockOccupancy occupancy;
+
 	private final InsideIterable inside;
 
 	public IterableRegionOnBooleanRAI( final RandomAccessibleInterval< T > interval )
 	{
-		this( interval, Regions.countTrue( interval ) );
+		this( interval, -1 );
 	}
 
+	/**
+	 * @param interval
+	 *            the boolean source interval
+	 * @param size
+	 *            the number of {@code true} samples in {@code interval}, or
+	 *            {@code -1} if it should be computed lazily
+	 */
 	public IterableRegionOnBooleanRAI( final RandomAccessibleInterval< T > interval, final long size )
+	{
+		this( interval, size, null );
+	}
+
+	/**
+	 * @param interval
+	 *            the boolean source interval
+	 * @param occupancy
+	 *            block occupancy of {@code interval}, used to skip empty
+	 *            blocks during iteration
+	 */
+	public IterableRegionOnBooleanRAI( final RandomAccessibleInterval< T > interval, final BlockOccupancy occupancy )
+	{
+		this( interval, occupancy.size(), occupancy );
+		if ( !Intervals.equals( interval, occupancy.interval() ) )
+			throw new IllegalArgumentException( "BlockOccupancy does not match interval" );
+	}
+
+	private IterableRegionOnBooleanRAI( final RandomAccessibleInterval< T > interval, final long size, final BlockOccupancy occupancy )
 	{
 		super( interval );
 		this.size = size;
+		this.occupancy = occupancy;
 		sourceIterable = Views.iterable( interval );
 		inside = new InsideIterable();
 	}
@@ -135,15 +177,22 @@ public class IterableRegionOnBooleanRAI< T extends BooleanType< T > >
 		@Override
 		public long size()
 		{
-			return size;
+			long s = size;
+			if ( s < 0 )
+			{
+				s = Regions.countTrue( IterableRegionOnBooleanRAI.this.sourceInterval );
+				size = s;
+			}
+			return s;
 		}
 
 		@Override
 		public Void firstElement()
 		{
-			if ( size() == 0 )
+			final Cursor< Void > cursor = cursor();
+			if ( !cursor.hasNext() )
 				throw new NoSuchElementException();
-			return cursor().next();
+			return cursor.next();
 		}
 
 		@Override
@@ -161,13 +210,17 @@ public class IterableRegionOnBooleanRAI< T extends BooleanType< T > >
 		@Override
 		public Cursor< Void > cursor()
 		{
-			return new TrueCursor< T >( sourceIterable.cursor(), size );
+			if ( occupancy != null )
+				return new BlockSkippingTrueCursor<>( IterableRegionOnBooleanRAI.this.sourceInterval, occupancy );
+			return new TrueCursor< T >( sourceIterable.cursor() );
 		}
 
 		@Override
 		public Cursor< Void > localizingCursor()
 		{
-			return new TrueCursor< T >( sourceIterable.localizingCursor(), size );
+			if ( occupancy != null )
+				return new BlockSkippingTrueCursor<>( IterableRegionOnBooleanRAI.this.sourceInterval, occupancy );
+			return new TrueCursor< T >( sourceIterable.localizingCursor() );
 		}
 
 		@Override
@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import net.imglib2.AbstractWrappedInterval;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.roi.util.iterationcode.IterationCodeCursor;
+import net.imglib2.type.BooleanType;
+
+/**
+ * Wrap a boolean {@link RandomAccessibleInterval} as a {@link IterableRegion},
+ * where the {@code true} samples are given by an {@link IterationCode}.
+ * Random access goes to the source interval, cursors on the result iterate the
+ * {@link IterationCode} without touching the source.
+ * <p>
+ * The {@link IterationCode} must contain exactly the {@code true} samples of
+ * the source interval, in absolute coordinates. If the source can change, the
+ * code can be given by a {@link Supplier}, which is asked for the current code
+ * whenever {@code inside()} is sized or iterated.
+ * </p>
+ */
+public class IterableRegionOnIterationCode< T extends BooleanType< T > >
+		extends AbstractWrappedInterval< RandomAccessibleInterval< T > >
+		implements IterableRegion< T >
+{
+	private final Supplier< ? extends IterationCode > code;
+
+	private final long[] offset;
+
+	private final InsideIterable inside;
+
+	public IterableRegionOnIterationCode( final RandomAccessibleInterval< T > interval, final IterationCode code )
+	{
+		this( interval, () -> code );
+	}
+
+	/**
+	 * @param interval
+	 *            the boolean source interval
+	 * @param code
+	 *            supplies the {@link IterationCode} of the current
+	 *            {@code true} samples of {@code interval}
+	 */
+	public IterableRegionOnIterationCode( final RandomAccessibleInterval< T > interval, final Supplier< ? extends IterationCode > code )
+	{
+		super( interval );
+		this.code = code;
+		offset = new long[ interval.numDimensions() ];
+		inside = new InsideIterable();
+	}
+
+	/**
+	 * Get the {@link IterationCode} of the {@code true} samples.
+	 */
+	public IterationCode iterationCode()
+	{
+		return code.get();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess()
+	{
+		return sourceInterval.randomAccess();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess( final Interval interval )
+	{
+		return sourceInterval.randomAccess( interval );
+	}
+
+	@Override
+	public Cursor< T > cursor()
+	{
+		return sourceInterval.cursor();
+	}
+
+	@Override
+	public Cursor< T > localizingCursor()
+	{
+		return sourceInterval.localizingCursor();
+	}
+
+	@Override
+	public Object iterationOrder()
+	{
+		return sourceInterval.iterationOrder();
+	}
+
+	@Override
+	public long size()
+	{
+		return sourceInterval.size();
+	}
+
+	@Override
+	public T getType()
+	{
+		return sourceInterval.getType();
+	}
+
+	@Override
+	public IterableInterval< Void > inside()
+	{
+		return inside;
+	}
+
+	private final class InsideIterable extends AbstractWrappedInterval< Interval > implements IterableInterval< Void >
+	{
+		InsideIterable()
+		{
+			super( IterableRegionOnIterationCode.this );
+		}
+
+		@Override
+		public long size()
+		{
+			return code.get().getSize();
+		}
+
+		@Override
+		public Void firstElement()
+		{
+			if ( size() == 0 )
+				throw new NoSuchElementException();
+			return cursor().next();
+		}
+
+		@Override
+		public Object iterationOrder()
+		{
+			return this;
+		}
+
+		@Override
+		public Iterator< Void > iterator()
+		{
+			return cursor();
+		}
+
+		@Override
+		public Cursor< Void > cursor()
+		{
+			return new IterationCodeCursor( code.get(), offset );
+		}
+
+		@Override
+		public Cursor< Void > localizingCursor()
+		{
+			return cursor();
+		}
+
+		@Override
+		public Void getType()
+		{
+			return null;
+		}
+	}
+}
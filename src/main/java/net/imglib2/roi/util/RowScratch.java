@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import java.util.ArrayList;
+
+/**
+ * Per-thread scratch arrays for row-wise mask evaluation, e.g. in
+ * {@link net.imglib2.roi.RealMask#testRow}. The arrays grow only when a
+ * row is longer than any row seen before on the same thread, so evaluating
+ * many rows does not allocate.
+ * <p>
+ * Scratch is handed out as a per-thread stack, so that nested evaluations
+ * (e.g. composites of composites) never share arrays. Every
+ * {@link #acquire()} must be matched by a {@link #close()}, preferably with
+ * try-with-resources:
+ * </p>
+ *
+ * <pre>
+ * try ( RowScratch scratch = RowScratch.acquire() )
+ * {
+ * 	final boolean[] tmp = scratch.booleans( count );
+ * 	...
+ * }
+ * </pre>
+ * <p>
+ * The returned arrays may be longer than requested, and their contents are
+ * unspecified.
+ * </p>
+ */
+public final class RowScratch implements AutoCloseable
+{
+	private static final ThreadLocal< Stack > stacks = ThreadLocal.withInitial( Stack::new );
+
+	private final Stack stack;
+
+	private boolean[] booleans = new boolean[ 0 ];
+
+	private double[] doubles = new double[ 0 ];
+
+	private RowScratch( final Stack stack )
+	{
+		this.stack = stack;
+	}
+
+	/**
+	 * Returns the scratch at the top of the current thread's stack.
+	 */
+	public static RowScratch acquire()
+	{
+		return stacks.get().push();
+	}
+
+	/**
+	 * Returns a {@code boolean[]} of at least {@code count} elements.
+	 */
+	public boolean[] booleans( final int count )
+	{
+		if ( booleans.length < count )
+			booleans = new boolean[ count ];
+		return booleans;
+	}
+
+	/**
+	 * Returns a {@code double[]} of at least {@code count} elements.
+	 */
+	public double[] doubles( final int count )
+	{
+		if ( doubles.length < count )
+			doubles = new double[ count ];
+		return doubles;
+	}
+
+	/**
+	 * Returns this scratch to the current thread's stack. The arrays must not
+	 * be used afterwards.
+	 */
+	@Override
+	public void close()
+	{
+		stack.pop();
+	}
+
+	// -- Helper classes --
+
+	private static final class Stack
+	{
+		private final ArrayList< RowScratch > scratches = new ArrayList<>();
+
+		private int depth;
+
+		RowScratch push()
+		{
+			if ( depth == scratches.size() )
+				scratches.add( new RowScratch( this ) );
+			return scratches.get( depth++ );
+		}
+
+		void pop()
+		{
+			--depth;
+		}
+	}
+}
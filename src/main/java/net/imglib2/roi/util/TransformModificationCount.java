@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.realtransform.RealTransform;
+
+/**
+ * Provides a {@link net.imglib2.roi.MaskPredicate#modificationCount()
+ * modification count} for a {@link RealTransform} that may be modified in
+ * place.
+ * <p>
+ * Changes of an {@link AffineGet} are detected by comparing its matrix with
+ * the matrix seen last, the count increases whenever they differ. Other
+ * transforms cannot be observed and are reported as untracked ({@code -1}).
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public final class TransformModificationCount
+{
+	private final RealTransform transform;
+
+	/**
+	 * The matrix seen last and its count, or {@code null} for untracked
+	 * transforms.
+	 */
+	private volatile Stamp stamp;
+
+	public TransformModificationCount( final RealTransform transform )
+	{
+		this.transform = transform;
+		stamp = transform instanceof AffineGet ? new Stamp( ( ( AffineGet ) transform ).getRowPackedCopy(), 0 ) : null;
+	}
+
+	/**
+	 * Returns the current count, or {@code -1} if the transform is untracked.
+	 */
+	public long get()
+	{
+		Stamp s = stamp;
+		if ( s == null )
+			return -1;
+		final AffineGet affine = ( AffineGet ) transform;
+		if ( s.hasMatrixOf( affine ) )
+			return s.count;
+		synchronized ( this )
+		{
+			s = stamp;
+			if ( !s.hasMatrixOf( affine ) )
+			{
+				s = new Stamp( affine.getRowPackedCopy(), s.count + 1 );
+				stamp = s;
+			}
+			return s.count;
+		}
+	}
+
+	// -- Helper classes --
+
+	private static final class Stamp
+	{
+		/**
+		 * Row-packed matrix of the transform.
+		 */
+		private final double[] matrix;
+
+		private final long count;
+
+		Stamp( final double[] matrix, final long count )
+		{
+			this.matrix = matrix;
+			this.count = count;
+		}
+
+		boolean hasMatrixOf( final AffineGet transform )
+		{
+			final int n = transform.numDimensions();
+			int i = 0;
+			for ( int r = 0; r < n; ++r )
+				for ( int c = 0; c <= n; ++c )
+					if ( matrix[ i++ ] != transform.get( r, c ) )
+						return false;
+			return true;
+		}
+	}
+}
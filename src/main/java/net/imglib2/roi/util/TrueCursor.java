@@ -40,6 +40,12 @@ import net.imglib2.type.BooleanType;
 /**
  * A {@code Cursor<Void>} that iterates only the {@code true} pixels of a source
  * {@code Cursor<BooleanType>}.
+ * <p>
+ * The number of {@code true} pixels does not need to be known in advance. A
+ * second cursor is run ahead to the next {@code true} pixel only when
+ * {@link #hasNext()} or {@link #fwd()} require it. The source cursor then
+ * jumps to that pixel without being evaluated, and is only localized when
+ * the position of the {@code TrueCursor} is requested.
  *
  * @author Tobias Pietzsch
  */
@@ -47,26 +53,42 @@ class TrueCursor< T extends BooleanType< T > >
 		extends AbstractWrappedLocalizable< Cursor< T > >
 		implements Cursor< Void >
 {
-	private long index;
+	/**
+	 * Evaluates the source, and runs ahead of {@link #source} to find the
+	 * next {@code true} pixel.
+	 */
+	private final Cursor< T > ahead;
 
-	private final long maxIndex;
+	/**
+	 * Number of steps {@link #ahead} has moved past {@link #source}.
+	 */
+	private long steps;
 
-	private final boolean empty;
+	/**
+	 * Whether {@link #ahead} has already been moved to the next {@code true}
+	 * pixel (or past the end, if there is none).
+	 */
+	private boolean peeked;
 
-	public TrueCursor( final Cursor< T > cursor, final long size )
+	/**
+	 * If {@link #peeked}, whether {@link #ahead} is on a {@code true} pixel.
+	 */
+	private boolean hasNextTrue;
+
+	public TrueCursor( final Cursor< T > cursor )
 	{
 		super( cursor );
-		maxIndex = size;
-		empty = size == 0;
+		ahead = cursor.copy();
 		reset();
 	}
 
 	protected TrueCursor( final TrueCursor< T > other )
 	{
-		super( other.source.copyCursor() );
-		index = other.index;
-		empty = other.empty;
-		maxIndex = other.maxIndex;
+		super( other.source.copy() );
+		ahead = other.ahead.copy();
+		steps = other.steps;
+		peeked = other.peeked;
+		hasNextTrue = other.hasNextTrue;
 	}
 
 	@Override
@@ -85,24 +107,41 @@ class TrueCursor< T extends BooleanType< T > >
 	@Override
 	public void fwd()
 	{
-		if ( empty )
-			return;
-		while ( !source.next().get() )
-			;
-		++index;
+		if ( hasNext() )
+		{
+			source.jumpFwd( steps );
+			steps = 0;
+			peeked = false;
+		}
 	}
 
 	@Override
 	public void reset()
 	{
-		index = 0;
 		source.reset();
+		ahead.reset();
+		steps = 0;
+		peeked = false;
 	}
 
 	@Override
 	public boolean hasNext()
 	{
-		return index < maxIndex;
+		if ( !peeked )
+		{
+			hasNextTrue = false;
+			while ( ahead.hasNext() )
+			{
+				++steps;
+				if ( ahead.next().get() )
+				{
+					hasNextTrue = true;
+					break;
+				}
+			}
+			peeked = true;
+		}
+		return hasNextTrue;
 	}
 
 	@Override
@@ -0,0 +1,528 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.imglib2.AbstractEuclideanSpace;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.KnownConstant;
+import net.imglib2.roi.Masks;
+import net.imglib2.roi.boundary.Boundary;
+import net.imglib2.roi.labeling.LabelRegion;
+import net.imglib2.roi.mask.integer.DefaultMaskInterval;
+import net.imglib2.roi.util.IterableRegionOnIterationCode;
+import net.imglib2.type.logic.BoolType;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * An {@link IterationCode} in canonical form. Rows (positions in dimensions
+ * 1, ..., n-1) are sorted in flat iteration order and each row holds sorted
+ * runs {@code [min, max]} along dimension 0 which neither overlap nor touch.
+ * <p>
+ * Rows and runs are stored in flat primitive arrays with an index from rows to
+ * runs. Set operations and morphology work on these runs rather than on
+ * pixels, and membership is decided by binary search. The
+ * {@link #getItcode() itcode} is only encoded when requested.
+ * </p>
+ * <p>
+ * Instances are immutable. They are created by {@link RunLengthCodeBuilder}
+ * or by the {@code of(...)} factory methods.
+ * </p>
+ */
+public final class RunLengthCode extends AbstractEuclideanSpace implements IterationCode
+{
+	private final int numRows;
+
+	/** Positions of the rows in dimensions 1, ..., n-1 ({@code n-1} per row). */
+	private final long[] rows;
+
+	/** Index of the first run of each row, followed by the number of runs. */
+	private final int[] rowRuns;
+
+	/** {@code min} and {@code max} of each run. */
+	private final long[] runs;
+
+	private final long size;
+
+	private final long[] bbmin;
+
+	private final long[] bbmax;
+
+	private volatile TIntArrayList itcode;
+
+	RunLengthCode( final int n, final int numRows, final long[] rows, final int[] rowRuns, final long[] runs )
+	{
+		super( n );
+		this.numRows = numRows;
+		this.rows = rows;
+		this.rowRuns = rowRuns;
+		this.runs = runs;
+		bbmin = new long[ n ];
+		bbmax = new long[ n ];
+		Arrays.fill( bbmin, Long.MAX_VALUE );
+		Arrays.fill( bbmax, Long.MIN_VALUE );
+		long s = 0;
+		for ( int r = 0; r < numRows; ++r )
+		{
+			for ( int d = 1; d < n; ++d )
+			{
+				final long p = rowPosition( r, d );
+				bbmin[ d ] = Math.min( bbmin[ d ], p );
+				bbmax[ d ] = Math.max( bbmax[ d ], p );
+			}
+			bbmin[ 0 ] = Math.min( bbmin[ 0 ], runMin( rowRuns[ r ] ) );
+			bbmax[ 0 ] = Math.max( bbmax[ 0 ], runMax( rowRuns[ r + 1 ] - 1 ) );
+			for ( int i = rowRuns[ r ]; i < rowRuns[ r + 1 ]; ++i )
+				s += runMax( i ) - runMin( i ) + 1;
+		}
+		size = s;
+	}
+
+	/**
+	 * Returns the canonical form of {@code code}.
+	 */
+	public static RunLengthCode of( final IterationCode code )
+	{
+		if ( code instanceof RunLengthCode )
+			return ( RunLengthCode ) code;
+		final int n = code.numDimensions();
+		return of( Collections.singletonList( code.getItcode() ), new long[ n ] );
+	}
+
+	/**
+	 * Returns the canonical form of {@code code}, translated by {@code offset}.
+	 */
+	public static RunLengthCode of( final IterationCode code, final long[] offset )
+	{
+		return of( Collections.singletonList( code.getItcode() ), offset );
+	}
+
+	/**
+	 * Returns the union of the given itcodes, translated by {@code offset}.
+	 * Each itcode is decoded into a stream of runs, and the streams are merged
+	 * in flat iteration order. The itcodes need not be sorted or disjoint.
+	 *
+	 * @param itcodes
+	 *            itcodes as described in {@link IterationCode}.
+	 * @param offset
+	 *            translation applied to all itcodes. Its length determines the
+	 *            number of dimensions.
+	 */
+	public static RunLengthCode of( final List< TIntArrayList > itcodes, final long[] offset )
+	{
+		final int n = offset.length;
+		final List< RunStream > streams = new ArrayList<>( itcodes.size() );
+		for ( final TIntArrayList itcode : itcodes )
+		{
+			final RunList list = RunList.decode( itcode, offset );
+			if ( !list.isEmpty() )
+				streams.add( list.sorted().stream() );
+		}
+		final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( n );
+		RunStream.merge( streams, builder );
+		return builder.build();
+	}
+
+	/**
+	 * Returns the canonical form of the inside of {@code region}.
+	 * <p>
+	 * Regions which already carry an {@link IterationCode} (such as
+	 * {@link IterableRegionOnIterationCode}, {@link Boundary} and
+	 * {@link LabelRegion}) are converted run by run. For any other region, the
+	 * positions of its {@link IterableRegion#inside() inside} are collected.
+	 * </p>
+	 */
+	public static RunLengthCode of( final IterableRegion< ? > region )
+	{
+		if ( region instanceof IterableRegionOnIterationCode )
+			return of( ( ( IterableRegionOnIterationCode< ? > ) region ).iterationCode() );
+		if ( region instanceof Boundary )
+			return of( ( ( Boundary< ? > ) region ).iterationCode(), region.minAsLongArray() );
+		if ( region instanceof LabelRegion )
+			return ( ( LabelRegion< ? > ) region ).iterationCode();
+
+		final int n = region.numDimensions();
+		final RunList list = new RunList( n );
+		final Cursor< Void > c = region.inside().localizingCursor();
+		final long[] pos = new long[ n ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			list.addPixel( pos );
+		}
+		final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( n );
+		if ( !list.isEmpty() )
+			RunStream.merge( Collections.singletonList( list.sorted().stream() ), builder );
+		return builder.build();
+	}
+
+	/**
+	 * Returns an {@link IterableRegion} whose inside is iterated by this code
+	 * and whose random access tests membership by binary search over the runs.
+	 * The interval of the region is the bounding box of this code.
+	 */
+	public IterableRegion< BoolType > toIterableRegion()
+	{
+		final Interval interval;
+		if ( numRows == 0 )
+		{
+			final long[] max = new long[ n ];
+			Arrays.fill( max, -1 );
+			interval = new FinalInterval( new long[ n ], max );
+		}
+		else
+			interval = new FinalInterval( bbmin, bbmax );
+		final DefaultMaskInterval mask = new DefaultMaskInterval( interval, BoundaryType.UNSPECIFIED, this::contains,
+				numRows == 0 ? KnownConstant.ALL_FALSE : KnownConstant.UNKNOWN );
+		return new IterableRegionOnIterationCode<>( Masks.toRandomAccessibleInterval( mask ), this );
+	}
+
+	/**
+	 * Returns this code translated by {@code offset}. The row index is shared
+	 * with this code.
+	 */
+	public RunLengthCode translate( final long... offset )
+	{
+		boolean zero = true;
+		for ( final long o : offset )
+			zero &= o == 0;
+		if ( zero )
+			return this;
+		final long[] translatedRows = new long[ numRows * ( n - 1 ) ];
+		for ( int i = 0; i < translatedRows.length; ++i )
+			translatedRows[ i ] = rows[ i ] + offset[ i % ( n - 1 ) + 1 ];
+		final long[] translatedRuns = new long[ 2 * numRuns() ];
+		for ( int i = 0; i < translatedRuns.length; ++i )
+			translatedRuns[ i ] = runs[ i ] + offset[ 0 ];
+		return new RunLengthCode( n, numRows, translatedRows, rowRuns, translatedRuns );
+	}
+
+	/**
+	 * Returns {@code true} if {@code position} is contained in this code.
+	 */
+	public boolean contains( final Localizable position )
+	{
+		final int row = findRow( position );
+		if ( row < 0 )
+			return false;
+		final long x = position.getLongPosition( 0 );
+		int lo = rowRuns[ row ];
+		int hi = rowRuns[ row + 1 ] - 1;
+		while ( lo <= hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( runMax( mid ) < x )
+				lo = mid + 1;
+			else if ( runMin( mid ) > x )
+				hi = mid - 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the index of the row at the position of {@code position} in
+	 * dimensions 1, ..., n-1, or {@code -1} if there is no such row.
+	 */
+	public int findRow( final Localizable position )
+	{
+		int lo = 0;
+		int hi = numRows - 1;
+		while ( lo <= hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			final int c = compareRow( mid, position );
+			if ( c < 0 )
+				lo = mid + 1;
+			else if ( c > 0 )
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the row at {@code rowPosition} (dimensions 1, ...,
+	 * n-1), or {@code -1} if there is no such row.
+	 */
+	public int findRow( final long[] rowPosition )
+	{
+		int lo = 0;
+		int hi = numRows - 1;
+		while ( lo <= hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			final int c = compareRow( mid, rowPosition );
+			if ( c < 0 )
+				lo = mid + 1;
+			else if ( c > 0 )
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	public int numRows()
+	{
+		return numRows;
+	}
+
+	public int numRuns()
+	{
+		return rowRuns[ numRows ];
+	}
+
+	/**
+	 * Returns the position of {@code row} in dimension {@code d}, where
+	 * {@code 1 <= d < n}.
+	 */
+	public long rowPosition( final int row, final int d )
+	{
+		return rows[ row * ( n - 1 ) + d - 1 ];
+	}
+
+	/**
+	 * Returns the index of the first run of {@code row}.
+	 */
+	public int firstRun( final int row )
+	{
+		return rowRuns[ row ];
+	}
+
+	/**
+	 * Returns the index after the last run of {@code row}.
+	 */
+	public int endRun( final int row )
+	{
+		return rowRuns[ row + 1 ];
+	}
+
+	public long runMin( final int run )
+	{
+		return runs[ 2 * run ];
+	}
+
+	public long runMax( final int run )
+	{
+		return runs[ 2 * run + 1 ];
+	}
+
+	public boolean isEmpty()
+	{
+		return numRows == 0;
+	}
+
+	/**
+	 * Encodes this code as described in {@link IterationCode}. The X offset
+	 * is the minimum of the bounding box.
+	 *
+	 * @throws ArithmeticException
+	 *             if a coordinate does not fit into an {@code int}.
+	 */
+	@Override
+	public TIntArrayList getItcode()
+	{
+		TIntArrayList code = itcode;
+		if ( code == null )
+		{
+			code = encode();
+			itcode = code;
+		}
+		return code;
+	}
+
+	@Override
+	public long getSize()
+	{
+		return size;
+	}
+
+	@Override
+	public long[] getBoundingBoxMin()
+	{
+		return bbmin;
+	}
+
+	@Override
+	public long[] getBoundingBoxMax()
+	{
+		return bbmax;
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		if ( this == obj )
+			return true;
+		if ( !( obj instanceof RunLengthCode ) )
+			return false;
+		final RunLengthCode other = ( RunLengthCode ) obj;
+		if ( n != other.n || numRows != other.numRows || numRuns() != other.numRuns() )
+			return false;
+		for ( int i = 0; i < numRows * ( n - 1 ); ++i )
+			if ( rows[ i ] != other.rows[ i ] )
+				return false;
+		for ( int r = 0; r <= numRows; ++r )
+			if ( rowRuns[ r ] != other.rowRuns[ r ] )
+				return false;
+		for ( int i = 0; i < 2 * numRuns(); ++i )
+			if ( runs[ i ] != other.runs[ i ] )
+				return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int h = n;
+		for ( int i = 0; i < numRows * ( n - 1 ); ++i )
+			h = 31 * h + Long.hashCode( rows[ i ] );
+		for ( int i = 0; i < 2 * numRuns(); ++i )
+			h = 31 * h + Long.hashCode( runs[ i ] );
+		return h;
+	}
+
+	// -- Helper methods --
+
+	int compareRow( final int row, final long[] rowPosition )
+	{
+		for ( int d = n - 1; d >= 1; --d )
+		{
+			final int c = Long.compare( rowPosition( row, d ), rowPosition[ d - 1 ] );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	private int compareRow( final int row, final Localizable position )
+	{
+		for ( int d = n - 1; d >= 1; --d )
+		{
+			final int c = Long.compare( rowPosition( row, d ), position.getLongPosition( d ) );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	private TIntArrayList encode()
+	{
+		final TIntArrayList code = new TIntArrayList( 2 * numRuns() + 2 * numRows + n );
+		if ( numRows == 0 )
+			return code;
+		final long offsetX = bbmin[ 0 ];
+		code.add( Math.toIntExact( offsetX ) );
+		for ( int d = 1; d < n; ++d )
+			code.add( Math.toIntExact( rowPosition( 0, d ) ) );
+		for ( int r = 0; r < numRows; ++r )
+		{
+			if ( r > 0 )
+			{
+				int changed = n - 1;
+				while ( rowPosition( r, changed ) == rowPosition( r - 1, changed ) )
+					--changed;
+				code.add( -changed );
+				for ( int d = 1; d <= changed; ++d )
+					code.add( Math.toIntExact( rowPosition( r, d ) ) );
+			}
+			for ( int i = rowRuns[ r ]; i < rowRuns[ r + 1 ]; ++i )
+			{
+				code.add( Math.toIntExact( runMin( i ) - offsetX ) );
+				code.add( Math.toIntExact( runMax( i ) - offsetX ) );
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * A {@link RunStream} over the runs of {@code code}, with rows shifted by
+	 * {@code rowShift} (dimensions 1, ..., n-1) and runs widened by
+	 * {@code grow} on both sides.
+	 */
+	RunStream stream( final long[] rowShift, final long grow )
+	{
+		return new RunStream()
+		{
+			private int row = 0;
+
+			private int run = 0;
+
+			@Override
+			public boolean hasRun()
+			{
+				return row < numRows;
+			}
+
+			@Override
+			public long rowPosition( final int d )
+			{
+				return RunLengthCode.this.rowPosition( row, d ) + rowShift[ d - 1 ];
+			}
+
+			@Override
+			public long min()
+			{
+				return runMin( run ) - grow;
+			}
+
+			@Override
+			public long max()
+			{
+				return runMax( run ) + grow;
+			}
+
+			@Override
+			public void next()
+			{
+				if ( ++run >= rowRuns[ row + 1 ] )
+					++row;
+			}
+		};
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import net.imglib2.AbstractEuclideanSpace;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Builds a {@link RunLengthCode} from runs added in flat iteration order.
+ * Within a row, runs must be added with non-decreasing {@code min}. Runs that
+ * overlap or touch the previous run are merged into it.
+ */
+public class RunLengthCodeBuilder extends AbstractEuclideanSpace
+{
+	private final TLongArrayList rows = new TLongArrayList();
+
+	private final TIntArrayList rowRuns = new TIntArrayList();
+
+	private final TLongArrayList runs = new TLongArrayList();
+
+	private int numRows = 0;
+
+	public RunLengthCodeBuilder( final int n )
+	{
+		super( n );
+		rowRuns.add( 0 );
+	}
+
+	/**
+	 * Adds the run {@code [min, max]} in the row at {@code rowPosition}
+	 * (dimensions 1, ..., n-1).
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the run is empty or precedes the last added run in flat
+	 *             iteration order.
+	 */
+	public void addRun( final long[] rowPosition, final long min, final long max )
+	{
+		if ( rowPosition.length != n - 1 )
+			throw new IllegalArgumentException( "expected " + ( n - 1 ) + " row coordinates" );
+		final int c = numRows == 0 ? 1 : compareLastRow( rowPosition );
+		add( c, rowPosition, min, max );
+	}
+
+	/**
+	 * Adds the current run of {@code stream}.
+	 */
+	void addRun( final RunStream stream )
+	{
+		if ( stream.min() > stream.max() )
+			throw new IllegalArgumentException( "empty run [" + stream.min() + ", " + stream.max() + "]" );
+		int c = 1;
+		if ( numRows > 0 )
+		{
+			final int o = ( numRows - 1 ) * ( n - 1 ) - 1;
+			c = 0;
+			for ( int d = n - 1; d >= 1 && c == 0; --d )
+				c = Long.compare( stream.rowPosition( d ), rows.get( o + d ) );
+		}
+		if ( c > 0 )
+			for ( int d = 1; d < n; ++d )
+				rows.add( stream.rowPosition( d ) );
+		add( c, null, stream.min(), stream.max() );
+	}
+
+	/**
+	 * Returns the {@link RunLengthCode} of all runs added so far.
+	 */
+	public RunLengthCode build()
+	{
+		return new RunLengthCode( n, numRows, rows.toArray(), rowRuns.toArray(), runs.toArray() );
+	}
+
+	// -- Helper methods --
+
+	private int compareLastRow( final long[] rowPosition )
+	{
+		final int o = ( numRows - 1 ) * ( n - 1 ) - 1;
+		for ( int d = n - 1; d >= 1; --d )
+		{
+			final int c = Long.compare( rowPosition[ d - 1 ], rows.get( o + d ) );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	/**
+	 * Appends a run. {@code c} is the comparison of the run's row with the
+	 * last row. If {@code c > 0} and {@code rowPosition != null}, the row is
+	 * appended from {@code rowPosition}, otherwise it has already been.
+	 */
+	private void add( final int c, final long[] rowPosition, final long min, final long max )
+	{
+		if ( min > max )
+			throw new IllegalArgumentException( "empty run [" + min + ", " + max + "]" );
+		if ( c < 0 )
+			throw new IllegalArgumentException( "runs must be added in flat iteration order" );
+		if ( c > 0 )
+		{
+			if ( rowPosition != null )
+				rows.add( rowPosition );
+			++numRows;
+			rowRuns.add( rowRuns.get( numRows - 1 ) );
+		}
+		else
+		{
+			final int last = runs.size() - 2;
+			final long lastMin = runs.get( last );
+			final long lastMax = runs.get( last + 1 );
+			if ( min < lastMin )
+				throw new IllegalArgumentException( "runs must be added in flat iteration order" );
+			if ( min <= lastMax + 1 )
+			{
+				if ( max > lastMax )
+					runs.set( last + 1, max );
+				return;
+			}
+		}
+		runs.add( min );
+		runs.add( max );
+		rowRuns.set( numRows, rowRuns.get( numRows ) + 1 );
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.logic.BoolType;
+
+/**
+ * A {@link RandomAccess} which is {@code true} on the pixels of a
+ * {@link RunLengthCode}, translated by an offset.
+ * <p>
+ * Membership is decided by binary search, first over the rows of the code,
+ * then over the runs of the row. The last row found is remembered, so moving
+ * along dimension 0 only searches runs. No image data is read.
+ * </p>
+ * <p>
+ * The offset array is not copied. Changes to it are reflected in subsequent
+ * {@link #get()} calls.
+ * </p>
+ */
+public class RunLengthCodeRandomAccess extends Point implements RandomAccess< BoolType >
+{
+	private final RunLengthCode code;
+
+	private final long[] offset;
+
+	private final BoolType type;
+
+	private final long[] row;
+
+	/** Whether {@link #row} holds the row of the previous query. */
+	private boolean rowValid;
+
+	/** Index of the row of the previous query, or -1 if there is none. */
+	private int cachedRow;
+
+	public RunLengthCodeRandomAccess( final RunLengthCode code, final long[] offset )
+	{
+		super( code.numDimensions() );
+		this.code = code;
+		this.offset = offset;
+		type = new BoolType();
+		row = new long[ n - 1 ];
+	}
+
+	protected RunLengthCodeRandomAccess( final RunLengthCodeRandomAccess a )
+	{
+		super( a.position, true );
+		code = a.code;
+		offset = a.offset;
+		type = a.type.copy();
+		row = new long[ n - 1 ];
+	}
+
+	@Override
+	public BoolType get()
+	{
+		type.set( contains() );
+		return type;
+	}
+
+	@Override
+	public BoolType getType()
+	{
+		return type;
+	}
+
+	@Override
+	public RunLengthCodeRandomAccess copy()
+	{
+		return new RunLengthCodeRandomAccess( this );
+	}
+
+	// -- Helper methods --
+
+	private boolean contains()
+	{
+		boolean sameRow = rowValid;
+		for ( int d = 1; d < n; ++d )
+		{
+			final long p = position[ d ] - offset[ d ];
+			sameRow &= p == row[ d - 1 ];
+			row[ d - 1 ] = p;
+		}
+		if ( !sameRow )
+		{
+			cachedRow = code.findRow( row );
+			rowValid = true;
+		}
+		if ( cachedRow < 0 )
+			return false;
+		final long x = position[ 0 ] - offset[ 0 ];
+		int lo = code.firstRun( cachedRow );
+		int hi = code.endRun( cachedRow ) - 1;
+		while ( lo <= hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( code.runMax( mid ) < x )
+				lo = mid + 1;
+			else if ( code.runMin( mid ) > x )
+				hi = mid - 1;
+			else
+				return true;
+		}
+		return false;
+	}
+}
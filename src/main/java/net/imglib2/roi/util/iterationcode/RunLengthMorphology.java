@@ -0,0 +1,375 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.type.logic.BoolType;
+
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Binary morphology on {@link RunLengthCode}s. All operations work on runs
+ * along dimension 0, so their cost scales with the number of runs times the
+ * number of rows of the {@link StructuringElement}, not with the number of
+ * pixels.
+ * <p>
+ * A {@link StructuringElement} is symmetric and centered at the origin. It is
+ * described by the offsets of its rows (in dimensions 1, ..., n-1) and the
+ * half-width of each row along dimension 0.
+ * </p>
+ * <ul>
+ * <li>Dilation shifts the code by every row offset, widens every run by the
+ * half-width of that row, and merges the shifted run streams.</li>
+ * <li>Erosion intersects, for every row of the code, the runs of the rows at
+ * every offset, each narrowed by the half-width of that offset.</li>
+ * </ul>
+ */
+public final class RunLengthMorphology
+{
+	private RunLengthMorphology()
+	{
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * A structuring element that is symmetric about the origin and convex
+	 * along dimension 0.
+	 */
+	public static final class StructuringElement
+	{
+		private final int n;
+
+		/** Row offsets in dimensions 1, ..., n-1 ({@code n-1} per row). */
+		private final long[][] rowOffsets;
+
+		/** Half-width along dimension 0 of each row. */
+		private final long[] halfWidths;
+
+		private StructuringElement( final int n, final long[][] rowOffsets, final long[] halfWidths )
+		{
+			this.n = n;
+			this.rowOffsets = rowOffsets;
+			this.halfWidths = halfWidths;
+		}
+
+		/**
+		 * A box extending {@code radii[d]} pixels from the origin in each
+		 * dimension {@code d}.
+		 */
+		public static StructuringElement box( final long... radii )
+		{
+			checkRadii( radii );
+			final List< long[] > offsets = rowOffsets( radii );
+			final long[] halfWidths = new long[ offsets.size() ];
+			Arrays.fill( halfWidths, radii[ 0 ] );
+			return new StructuringElement( radii.length, offsets.toArray( new long[ 0 ][] ), halfWidths );
+		}
+
+		/**
+		 * The pixels {@code x} satisfying {@code sum_d (x_d / radii[d])^2 <= 1}.
+		 * A radius of 0 restricts that dimension to {@code x_d = 0}.
+		 *
+		 * @throws ArithmeticException
+		 *             if the product of the squared radii overflows a
+		 *             {@code long}.
+		 */
+		public static StructuringElement ellipsoid( final long... radii )
+		{
+			checkRadii( radii );
+
+			// NB: Multiply the inequality by the product of all squared
+			// non-zero radii, so that it can be evaluated exactly.
+			long product = 1;
+			for ( final long r : radii )
+				if ( r > 0 )
+					product = Math.multiplyExact( product, Math.multiplyExact( r, r ) );
+			final List< long[] > offsets = new ArrayList<>();
+			final TLongArrayList halfWidths = new TLongArrayList();
+			for ( final long[] o : rowOffsets( radii ) )
+			{
+				long s = 0;
+				for ( int d = 1; d < radii.length; ++d )
+					if ( o[ d - 1 ] != 0 )
+						s = Math.addExact( s, Math.multiplyExact( o[ d - 1 ] * o[ d - 1 ], product / ( radii[ d ] * radii[ d ] ) ) );
+				if ( s > product )
+					continue;
+				offsets.add( o );
+				final long r0 = radii[ 0 ];
+				halfWidths.add( r0 == 0 ? 0 : sqrtFloor( ( product - s ) / ( product / ( r0 * r0 ) ) ) );
+			}
+			return new StructuringElement( radii.length, offsets.toArray( new long[ 0 ][] ), halfWidths.toArray() );
+		}
+
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		/**
+		 * Returns the number of pixels in this structuring element.
+		 */
+		public long size()
+		{
+			long size = 0;
+			for ( final long w : halfWidths )
+				size += 2 * w + 1;
+			return size;
+		}
+
+		private static void checkRadii( final long[] radii )
+		{
+			if ( radii.length == 0 )
+				throw new IllegalArgumentException( "structuring element needs at least one dimension" );
+			for ( final long r : radii )
+				if ( r < 0 )
+					throw new IllegalArgumentException( "negative radius " + r );
+		}
+
+		/**
+		 * All offsets in the box {@code [-radii[d], radii[d]]}, dimensions 1,
+		 * ..., n-1, in flat iteration order.
+		 */
+		private static List< long[] > rowOffsets( final long[] radii )
+		{
+			final int m = radii.length - 1;
+			final List< long[] > offsets = new ArrayList<>();
+			final long[] o = new long[ m ];
+			for ( int d = 0; d < m; ++d )
+				o[ d ] = -radii[ d + 1 ];
+			while ( true )
+			{
+				offsets.add( o.clone() );
+				int d = 0;
+				for ( ; d < m; ++d )
+				{
+					if ( ++o[ d ] <= radii[ d + 1 ] )
+						break;
+					o[ d ] = -radii[ d + 1 ];
+				}
+				if ( d == m )
+					return offsets;
+			}
+		}
+
+		/**
+		 * The largest {@code w} with {@code w * w <= q}.
+		 */
+		private static long sqrtFloor( final long q )
+		{
+			long w = ( long ) Math.sqrt( q );
+			while ( w * w > q )
+				--w;
+			while ( ( w + 1 ) * ( w + 1 ) <= q )
+				++w;
+			return w;
+		}
+	}
+
+	/**
+	 * Returns the dilation of {@code code} by {@code se}.
+	 */
+	public static RunLengthCode dilate( final RunLengthCode code, final StructuringElement se )
+	{
+		checkDimensions( code, se );
+		final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( code.numDimensions() );
+		if ( code.isEmpty() )
+			return builder.build();
+		final List< RunStream > streams = new ArrayList<>( se.rowOffsets.length );
+		for ( int k = 0; k < se.rowOffsets.length; ++k )
+			streams.add( code.stream( se.rowOffsets[ k ], se.halfWidths[ k ] ) );
+		RunStream.merge( streams, builder );
+		return builder.build();
+	}
+
+	/**
+	 * Returns the erosion of {@code code} by {@code se}.
+	 */
+	public static RunLengthCode erode( final RunLengthCode code, final StructuringElement se )
+	{
+		checkDimensions( code, se );
+		final int n = code.numDimensions();
+		final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( n );
+		final long[] row = new long[ n - 1 ];
+		final long[] target = new long[ n - 1 ];
+		TLongArrayList current = new TLongArrayList();
+		TLongArrayList next = new TLongArrayList();
+		for ( int r = 0; r < code.numRows(); ++r )
+		{
+			for ( int d = 1; d < n; ++d )
+				row[ d - 1 ] = code.rowPosition( r, d );
+			current.resetQuick();
+			boolean first = true;
+			for ( int k = 0; k < se.rowOffsets.length; ++k )
+			{
+				final long[] o = se.rowOffsets[ k ];
+				for ( int d = 0; d < n - 1; ++d )
+					target[ d ] = row[ d ] - o[ d ];
+				final int j = code.findRow( target );
+				if ( j < 0 )
+				{
+					current.resetQuick();
+					break;
+				}
+				final long w = se.halfWidths[ k ];
+				if ( first )
+				{
+					for ( int i = code.firstRun( j ); i < code.endRun( j ); ++i )
+						addNonEmpty( current, code.runMin( i ) + w, code.runMax( i ) - w );
+					first = false;
+				}
+				else
+				{
+					next.resetQuick();
+					intersect( current, code, j, w, next );
+					final TLongArrayList tmp = current;
+					current = next;
+					next = tmp;
+				}
+				if ( current.isEmpty() )
+					break;
+			}
+			for ( int i = 0; i < current.size(); i += 2 )
+				builder.addRun( row, current.get( i ), current.get( i + 1 ) );
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns the opening (erosion followed by dilation) of {@code code} by
+	 * {@code se}.
+	 */
+	public static RunLengthCode open( final RunLengthCode code, final StructuringElement se )
+	{
+		return dilate( erode( code, se ), se );
+	}
+
+	/**
+	 * Returns the closing (dilation followed by erosion) of {@code code} by
+	 * {@code se}.
+	 */
+	public static RunLengthCode close( final RunLengthCode code, final StructuringElement se )
+	{
+		return erode( dilate( code, se ), se );
+	}
+
+	/**
+	 * Returns the dilation of the inside of {@code region} by {@code se}.
+	 *
+	 * @see RunLengthCode#of(IterableRegion)
+	 */
+	public static IterableRegion< BoolType > dilate( final IterableRegion< ? > region, final StructuringElement se )
+	{
+		return dilate( RunLengthCode.of( region ), se ).toIterableRegion();
+	}
+
+	/**
+	 * Returns the erosion of the inside of {@code region} by {@code se}.
+	 *
+	 * @see RunLengthCode#of(IterableRegion)
+	 */
+	public static IterableRegion< BoolType > erode( final IterableRegion< ? > region, final StructuringElement se )
+	{
+		return erode( RunLengthCode.of( region ), se ).toIterableRegion();
+	}
+
+	/**
+	 * Returns the opening of the inside of {@code region} by {@code se}.
+	 *
+	 * @see RunLengthCode#of(IterableRegion)
+	 */
+	public static IterableRegion< BoolType > open( final IterableRegion< ? > region, final StructuringElement se )
+	{
+		return open( RunLengthCode.of( region ), se ).toIterableRegion();
+	}
+
+	/**
+	 * Returns the closing of the inside of {@code region} by {@code se}.
+	 *
+	 * @see RunLengthCode#of(IterableRegion)
+	 */
+	public static IterableRegion< BoolType > close( final IterableRegion< ? > region, final StructuringElement se )
+	{
+		return close( RunLengthCode.of( region ), se ).toIterableRegion();
+	}
+
+	// -- Helper methods --
+
+	private static void checkDimensions( final RunLengthCode code, final StructuringElement se )
+	{
+		if ( code.numDimensions() != se.numDimensions() )
+			throw new IllegalArgumentException( "structuring element has " + se.numDimensions() + " dimensions, expected " + code.numDimensions() );
+	}
+
+	private static void addNonEmpty( final TLongArrayList runs, final long min, final long max )
+	{
+		if ( min <= max )
+		{
+			runs.add( min );
+			runs.add( max );
+		}
+	}
+
+	/**
+	 * Intersects the runs in {@code a} with the runs of {@code row} of
+	 * {@code code}, narrowed by {@code w}, and stores the result in
+	 * {@code result}.
+	 */
+	private static void intersect( final TLongArrayList a, final RunLengthCode code, final int row, final long w, final TLongArrayList result )
+	{
+		int i = 0;
+		int j = code.firstRun( row );
+		final int jEnd = code.endRun( row );
+		while ( i < a.size() && j < jEnd )
+		{
+			final long bMin = code.runMin( j ) + w;
+			final long bMax = code.runMax( j ) - w;
+			if ( bMin > bMax )
+			{
+				++j;
+				continue;
+			}
+			final long aMin = a.get( i );
+			final long aMax = a.get( i + 1 );
+			addNonEmpty( result, Math.max( aMin, bMin ), Math.min( aMax, bMax ) );
+			if ( aMax < bMax )
+				i += 2;
+			else
+				++j;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.type.logic.BoolType;
+
+/**
+ * Set operations on {@link RunLengthCode}s. Both operands are traversed once
+ * in flat iteration order, and within each row their runs are merged, so the
+ * cost scales with the number of runs, not with the number of pixels of the
+ * bounding box.
+ * <p>
+ * The {@link IterableRegion} variants convert their operands with
+ * {@link RunLengthCode#of(IterableRegion)}. For example, the pixels of a cell
+ * {@code a} which lie in a nucleus {@code b} are
+ * {@code intersection(a, b)}, where {@code a} and {@code b} may be
+ * {@code LabelRegion}s.
+ * </p>
+ */
+public final class RunLengthOperations
+{
+	private RunLengthOperations()
+	{
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Decides whether a pixel is in the result, given whether it is in the
+	 * first and in the second operand.
+	 */
+	@FunctionalInterface
+	private interface Operator
+	{
+		boolean apply( boolean inA, boolean inB );
+	}
+
+	public static RunLengthCode union( final RunLengthCode a, final RunLengthCode b )
+	{
+		return combine( a, b, ( x, y ) -> x || y );
+	}
+
+	public static RunLengthCode intersection( final RunLengthCode a, final RunLengthCode b )
+	{
+		return combine( a, b, ( x, y ) -> x && y );
+	}
+
+	/**
+	 * Returns the pixels of {@code a} which are not in {@code b}.
+	 */
+	public static RunLengthCode difference( final RunLengthCode a, final RunLengthCode b )
+	{
+		return combine( a, b, ( x, y ) -> x && !y );
+	}
+
+	public static RunLengthCode xor( final RunLengthCode a, final RunLengthCode b )
+	{
+		return combine( a, b, ( x, y ) -> x ^ y );
+	}
+
+	public static IterableRegion< BoolType > union( final IterableRegion< ? > a, final IterableRegion< ? > b )
+	{
+		return union( RunLengthCode.of( a ), RunLengthCode.of( b ) ).toIterableRegion();
+	}
+
+	public static IterableRegion< BoolType > intersection( final IterableRegion< ? > a, final IterableRegion< ? > b )
+	{
+		return intersection( RunLengthCode.of( a ), RunLengthCode.of( b ) ).toIterableRegion();
+	}
+
+	/**
+	 * Returns the pixels of {@code a} which are not in {@code b}.
+	 */
+	public static IterableRegion< BoolType > difference( final IterableRegion< ? > a, final IterableRegion< ? > b )
+	{
+		return difference( RunLengthCode.of( a ), RunLengthCode.of( b ) ).toIterableRegion();
+	}
+
+	public static IterableRegion< BoolType > xor( final IterableRegion< ? > a, final IterableRegion< ? > b )
+	{
+		return xor( RunLengthCode.of( a ), RunLengthCode.of( b ) ).toIterableRegion();
+	}
+
+	// -- Helper methods --
+
+	private static RunLengthCode combine( final RunLengthCode a, final RunLengthCode b, final Operator op )
+	{
+		final int n = a.numDimensions();
+		if ( b.numDimensions() != n )
+			throw new IllegalArgumentException( "operands have different numbers of dimensions" );
+		final boolean keepA = op.apply( true, false );
+		final boolean keepB = op.apply( false, true );
+		final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( n );
+		final long[] row = new long[ n - 1 ];
+		int ra = 0;
+		int rb = 0;
+		while ( ra < a.numRows() || rb < b.numRows() )
+		{
+			final int c;
+			if ( ra == a.numRows() )
+				c = 1;
+			else if ( rb == b.numRows() )
+				c = -1;
+			else
+				c = compareRows( a, ra, b, rb );
+
+			if ( c < 0 )
+			{
+				if ( keepA )
+					copyRow( a, ra, row, builder );
+				++ra;
+			}
+			else if ( c > 0 )
+			{
+				if ( keepB )
+					copyRow( b, rb, row, builder );
+				++rb;
+			}
+			else
+			{
+				for ( int d = 1; d < n; ++d )
+					row[ d - 1 ] = a.rowPosition( ra, d );
+				mergeRow( a, ra, b, rb, op, row, builder );
+				++ra;
+				++rb;
+			}
+		}
+		return builder.build();
+	}
+
+	private static int compareRows( final RunLengthCode a, final int ra, final RunLengthCode b, final int rb )
+	{
+		for ( int d = a.numDimensions() - 1; d >= 1; --d )
+		{
+			final int c = Long.compare( a.rowPosition( ra, d ), b.rowPosition( rb, d ) );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	private static void copyRow( final RunLengthCode code, final int r, final long[] row, final RunLengthCodeBuilder builder )
+	{
+		for ( int d = 1; d <= row.length; ++d )
+			row[ d - 1 ] = code.rowPosition( r, d );
+		for ( int i = code.firstRun( r ); i < code.endRun( r ); ++i )
+			builder.addRun( row, code.runMin( i ), code.runMax( i ) );
+	}
+
+	/**
+	 * Sweeps over the run boundaries of row {@code ra} of {@code a} and row
+	 * {@code rb} of {@code b}. Each run {@code [min, max]} is in the operand
+	 * from {@code min} up to, but excluding, {@code max + 1}.
+	 */
+	private static void mergeRow( final RunLengthCode a, final int ra, final RunLengthCode b, final int rb, final Operator op, final long[] row, final RunLengthCodeBuilder builder )
+	{
+		// boundaries are numbered 2 * run (start) and 2 * run + 1 (end)
+		int ia = 2 * a.firstRun( ra );
+		final int endA = 2 * a.endRun( ra );
+		int ib = 2 * b.firstRun( rb );
+		final int endB = 2 * b.endRun( rb );
+		boolean inA = false;
+		boolean inB = false;
+		boolean in = false;
+		long start = 0;
+		while ( ia < endA || ib < endB )
+		{
+			final long xa = ia < endA ? boundary( a, ia ) : Long.MAX_VALUE;
+			final long xb = ib < endB ? boundary( b, ib ) : Long.MAX_VALUE;
+			final long x = Math.min( xa, xb );
+			if ( xa == x )
+			{
+				inA = !inA;
+				++ia;
+			}
+			if ( xb == x )
+			{
+				inB = !inB;
+				++ib;
+			}
+			final boolean out = op.apply( inA, inB );
+			if ( out != in )
+			{
+				if ( out )
+					start = x;
+				else
+					builder.addRun( row, start, x - 1 );
+				in = out;
+			}
+		}
+	}
+
+	private static long boundary( final RunLengthCode code, final int i )
+	{
+		final int run = i >> 1;
+		return ( i & 1 ) == 0 ? code.runMin( run ) : code.runMax( run ) + 1;
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import java.util.Arrays;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Growable list of runs, each with its own row position. Used to decode
+ * itcodes and to collect pixels, which are not necessarily in flat iteration
+ * order.
+ */
+final class RunList
+{
+	private final int n;
+
+	/** Row positions in dimensions 1, ..., n-1 ({@code n-1} per run). */
+	private final TLongArrayList rows = new TLongArrayList();
+
+	/** {@code min} and {@code max} of each run. */
+	private final TLongArrayList runs = new TLongArrayList();
+
+	RunList( final int n )
+	{
+		this.n = n;
+	}
+
+	/**
+	 * Decodes {@code itcode}, translated by {@code offset}.
+	 */
+	static RunList decode( final TIntArrayList itcode, final long[] offset )
+	{
+		final int n = offset.length;
+		final RunList list = new RunList( n );
+		if ( itcode.isEmpty() )
+			return list;
+		final long[] row = new long[ n - 1 ];
+		int i = 0;
+		final long offsetX = itcode.get( i++ ) + offset[ 0 ];
+		for ( int d = 1; d < n; ++d )
+			row[ d - 1 ] = itcode.get( i++ ) + offset[ d ];
+		final int size = itcode.size();
+		while ( i < size )
+		{
+			int v = itcode.get( i++ );
+			if ( v < 0 )
+			{
+				for ( int d = 1; d <= -v; ++d )
+					row[ d - 1 ] = itcode.get( i++ ) + offset[ d ];
+				v = itcode.get( i++ );
+			}
+			list.add( row, v + offsetX, itcode.get( i++ ) + offsetX );
+		}
+		return list;
+	}
+
+	boolean isEmpty()
+	{
+		return runs.isEmpty();
+	}
+
+	int size()
+	{
+		return runs.size() / 2;
+	}
+
+	void add( final long[] row, final long min, final long max )
+	{
+		rows.add( row );
+		runs.add( min );
+		runs.add( max );
+	}
+
+	/**
+	 * Adds a pixel. If it directly follows the last run in the same row, that
+	 * run is extended.
+	 */
+	void addPixel( final long[] position )
+	{
+		final int last = size() - 1;
+		final long x = position[ 0 ];
+		if ( last >= 0 && runs.get( 2 * last + 1 ) == x - 1 && sameRow( last, position ) )
+			runs.set( 2 * last + 1, x );
+		else
+		{
+			for ( int d = 1; d < n; ++d )
+				rows.add( position[ d ] );
+			runs.add( x );
+			runs.add( x );
+		}
+	}
+
+	/**
+	 * Returns this list, if it is in flat iteration order, or a sorted copy.
+	 */
+	RunList sorted()
+	{
+		final int size = size();
+		boolean isSorted = true;
+		for ( int i = 1; i < size && isSorted; ++i )
+			isSorted = compare( i - 1, i ) <= 0;
+		if ( isSorted )
+			return this;
+
+		final Integer[] order = new Integer[ size ];
+		for ( int i = 0; i < size; ++i )
+			order[ i ] = i;
+		Arrays.sort( order, this::compare );
+		final RunList sorted = new RunList( n );
+		for ( final int i : order )
+		{
+			for ( int d = 1; d < n; ++d )
+				sorted.rows.add( row( i, d ) );
+			sorted.runs.add( runs.get( 2 * i ) );
+			sorted.runs.add( runs.get( 2 * i + 1 ) );
+		}
+		return sorted;
+	}
+
+	/**
+	 * Returns a {@link RunStream} over the runs in this list. The list must be
+	 * {@link #sorted()}.
+	 */
+	RunStream stream()
+	{
+		return new RunStream()
+		{
+			private int i = 0;
+
+			@Override
+			public boolean hasRun()
+			{
+				return i < size();
+			}
+
+			@Override
+			public long rowPosition( final int d )
+			{
+				return row( i, d );
+			}
+
+			@Override
+			public long min()
+			{
+				return runs.get( 2 * i );
+			}
+
+			@Override
+			public long max()
+			{
+				return runs.get( 2 * i + 1 );
+			}
+
+			@Override
+			public void next()
+			{
+				++i;
+			}
+		};
+	}
+
+	// -- Helper methods --
+
+	private long row( final int i, final int d )
+	{
+		return rows.get( i * ( n - 1 ) + d - 1 );
+	}
+
+	private boolean sameRow( final int i, final long[] position )
+	{
+		for ( int d = 1; d < n; ++d )
+			if ( row( i, d ) != position[ d ] )
+				return false;
+		return true;
+	}
+
+	private int compare( final int i, final int j )
+	{
+		for ( int d = n - 1; d >= 1; --d )
+		{
+			final int c = Long.compare( row( i, d ), row( j, d ) );
+			if ( c != 0 )
+				return c;
+		}
+		return Long.compare( runs.get( 2 * i ), runs.get( 2 * j ) );
+	}
+}
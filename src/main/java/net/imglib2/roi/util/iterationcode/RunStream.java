@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A sequence of runs in flat iteration order: sorted by row (dimensions n-1
+ * down to 1) and, within a row, by {@code min}. Runs may overlap.
+ */
+interface RunStream
+{
+	/**
+	 * Returns {@code true} if there is a current run.
+	 */
+	boolean hasRun();
+
+	/**
+	 * Returns the row position of the current run in dimension {@code d},
+	 * where {@code 1 <= d < n}.
+	 */
+	long rowPosition( int d );
+
+	long min();
+
+	long max();
+
+	/**
+	 * Advances to the next run.
+	 */
+	void next();
+
+	/**
+	 * Compares the current runs of {@code a} and {@code b} in flat iteration
+	 * order (row first, then {@code min}).
+	 */
+	static int compare( final RunStream a, final RunStream b, final int n )
+	{
+		final int c = compareRows( a, b, n );
+		return c != 0 ? c : Long.compare( a.min(), b.min() );
+	}
+
+	/**
+	 * Compares the rows of the current runs of {@code a} and {@code b}.
+	 */
+	static int compareRows( final RunStream a, final RunStream b, final int n )
+	{
+		for ( int d = n - 1; d >= 1; --d )
+		{
+			final int c = Long.compare( a.rowPosition( d ), b.rowPosition( d ) );
+			if ( c != 0 )
+				return c;
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds the runs of all {@code streams} to {@code builder} in flat
+	 * iteration order. This is a k-way merge using a binary heap of the
+	 * streams, keyed by their current run.
+	 */
+	static void merge( final List< RunStream > streams, final RunLengthCodeBuilder builder )
+	{
+		final int n = builder.numDimensions();
+		if ( streams.size() == 1 )
+		{
+			final RunStream s = streams.get( 0 );
+			for ( ; s.hasRun(); s.next() )
+				builder.addRun( s );
+			return;
+		}
+		final PriorityQueue< RunStream > heap = new PriorityQueue<>( Math.max( 1, streams.size() ), ( a, b ) -> compare( a, b, n ) );
+		for ( final RunStream s : streams )
+			if ( s.hasRun() )
+				heap.add( s );
+		while ( !heap.isEmpty() )
+		{
+			final RunStream s = heap.poll();
+			builder.addRun( s );
+			s.next();
+			if ( s.hasRun() )
+				heap.add( s );
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.RealPositionable;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.realtransform.RealTransform;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.KDTreeRealPointCollection;
+import net.imglib2.roi.geom.real.RealPointSampleListWritableRealPointCollection;
+import net.imglib2.roi.geom.real.WritableBox;
+import net.imglib2.roi.geom.real.WritableSphere;
+import net.imglib2.type.logic.BoolType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MaskPredicate#evaluator()}.
+ */
+public class MaskEvaluatorTest
+{
+	private static final int SIZE = 48;
+
+	@Test
+	public void testStatelessMasks()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 4, 4 } );
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 0, 0 }, 3 );
+		assertSame( box, box.evaluator() );
+
+		final RealMask composite = box.and( sphere ).or( box.negate() );
+		assertSame( composite, composite.evaluator() );
+		assertSame( composite, Masks.evaluator( composite ) );
+	}
+
+	@Test
+	public void testStatefulMasks()
+	{
+		final RealMask points = points();
+		final RealMask transformed = points.transform( translation( 3, -2 ) );
+		final RealMask composite = transformed.or( GeomMasks.closedSphere( new double[] { 20, 20 }, 6 ) );
+
+		for ( final RealMask mask : new RealMask[] { points, transformed, composite } )
+		{
+			final RealMask evaluator = mask.evaluator();
+			assertNotSame( mask, evaluator );
+			assertEquals( mask.modificationCount(), evaluator.modificationCount() );
+			assertArrayEquals( sample( mask ), sample( evaluator ) );
+		}
+	}
+
+	@Test
+	public void testEvaluatorIsLive()
+	{
+		final List< RealPoint > list = new ArrayList<>();
+		list.add( new RealPoint( 1, 1 ) );
+		final RealPointSampleListWritableRealPointCollection< RealPoint > points = new RealPointSampleListWritableRealPointCollection<>( list );
+		final RealMask evaluator = points.evaluator();
+		assertFalse( evaluator.test( new RealPoint( 5, 7 ) ) );
+
+		points.addPoint( new RealPoint( 5, 7 ) );
+		assertTrue( evaluator.test( new RealPoint( 5, 7 ) ) );
+		assertEquals( points.modificationCount(), evaluator.modificationCount() );
+
+		// transformed masks follow modifications of the transform
+		final AffineTransform2D transform = translation( 0, 0 );
+		final RealMask transformed = points.transform( transform );
+		final RealMask transformedEvaluator = transformed.evaluator();
+		assertTrue( transformedEvaluator.test( new RealPoint( 5, 7 ) ) );
+		transform.set( 1, 0, 2, 0, 1, 3 );
+		assertFalse( transformedEvaluator.test( new RealPoint( 5, 7 ) ) );
+		assertTrue( transformedEvaluator.test( new RealPoint( 3, 4 ) ) );
+		assertTrue( transformed.test( new RealPoint( 3, 4 ) ) );
+	}
+
+	@Test
+	public void testEvaluatorsCopyNonAffineTransforms()
+	{
+		final RealMask points = points();
+		final ScratchTranslation transform = new ScratchTranslation( 3, -2 );
+		final RealMask transformed = points.transform( transform );
+		final RealMask evaluator1 = transformed.evaluator();
+		final RealMask evaluator2 = transformed.evaluator();
+		assertEquals( 2, transform.copies );
+		assertArrayEquals( sample( points.transform( translation( 3, -2 ) ) ), sample( evaluator1 ) );
+		assertArrayEquals( sample( evaluator1 ), sample( evaluator2 ) );
+
+		// affine transforms are not copied, evaluators follow their modifications
+		final AffineTransform2D affine = translation( 0, 0 );
+		final RealMask affineEvaluator = points.transform( affine ).evaluator();
+		affine.set( 1, 0, 3, 0, 1, -2 );
+		assertArrayEquals( sample( evaluator1 ), sample( affineEvaluator ) );
+	}
+
+	@Test
+	public void testParallelSampling() throws Exception
+	{
+		final RealMask mask = points().transform( translation( 1, 2 ) ).and( GeomMasks.openBox( new double[] { 2, 2 }, new double[] { 40, 40 } ) );
+		final boolean[] expected = sample( mask );
+
+		final int numTasks = 8;
+		final boolean[] actual = new boolean[ SIZE * SIZE ];
+		final RealRandomAccessible< BoolType > rra = Masks.toRealRandomAccessible( mask );
+		final ExecutorService service = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final List< Future< ? > > futures = new ArrayList<>();
+			for ( int t = 0; t < numTasks; t++ )
+			{
+				final int task = t;
+				futures.add( service.submit( () -> {
+					final RealRandomAccess< BoolType > access = rra.realRandomAccess();
+					for ( int y = task; y < SIZE; y += numTasks )
+						for ( int x = 0; x < SIZE; x++ )
+						{
+							access.setPosition( new double[] { x, y } );
+							actual[ y * SIZE + x ] = access.get().get();
+						}
+				} ) );
+			}
+			for ( final Future< ? > future : futures )
+				future.get();
+		}
+		finally
+		{
+			service.shutdown();
+		}
+		assertArrayEquals( expected, actual );
+	}
+
+	// -- Helper methods --
+
+	private static RealMask points()
+	{
+		final List< RealPoint > list = new ArrayList<>();
+		for ( int i = 0; i < 200; i++ )
+			list.add( new RealPoint( ( i * 7 ) % SIZE, ( i * 13 ) % SIZE ) );
+		return new KDTreeRealPointCollection<>( list );
+	}
+
+	private static AffineTransform2D translation( final double x, final double y )
+	{
+		final AffineTransform2D transform = new AffineTransform2D();
+		transform.set( 1, 0, x, 0, 1, y );
+		return transform;
+	}
+
+	private static boolean[] sample( final RealMask mask )
+	{
+		final boolean[] values = new boolean[ SIZE * SIZE ];
+		final RealPoint pos = new RealPoint( 2 );
+		for ( int y = 0; y < SIZE; y++ )
+			for ( int x = 0; x < SIZE; x++ )
+			{
+				pos.setPosition( new double[] { x, y } );
+				values[ y * SIZE + x ] = mask.test( pos );
+			}
+		return values;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * A translation which uses scratch state in {@code apply}, and counts how
+	 * often it was copied.
+	 */
+	private static final class ScratchTranslation implements RealTransform
+	{
+		private final double[] translation;
+
+		private final double[] scratch = new double[ 2 ];
+
+		private int copies;
+
+		ScratchTranslation( final double... translation )
+		{
+			this.translation = translation;
+		}
+
+		@Override
+		public int numSourceDimensions()
+		{
+			return 2;
+		}
+
+		@Override
+		public int numTargetDimensions()
+		{
+			return 2;
+		}
+
+		@Override
+		public void apply( final double[] source, final double[] target )
+		{
+			for ( int d = 0; d < 2; d++ )
+				scratch[ d ] = source[ d ] + translation[ d ];
+			System.arraycopy( scratch, 0, target, 0, 2 );
+		}
+
+		@Override
+		public void apply( final RealLocalizable source, final RealPositionable target )
+		{
+			for ( int d = 0; d < 2; d++ )
+				scratch[ d ] = source.getDoublePosition( d ) + translation[ d ];
+			target.setPosition( scratch );
+		}
+
+		@Override
+		public RealTransform copy()
+		{
+			++copies;
+			return new ScratchTranslation( translation );
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealPoint;
+import net.imglib2.roi.geom.real.ClosedWritableBox;
+import net.imglib2.roi.geom.real.ClosedWritableEllipsoid;
+import net.imglib2.roi.geom.real.ClosedWritableSphere;
+import net.imglib2.roi.geom.real.ClosedWritableSuperEllipsoid;
+import net.imglib2.roi.geom.real.OpenWritableBox;
+import net.imglib2.roi.geom.real.OpenWritableEllipsoid;
+import net.imglib2.roi.geom.real.OpenWritableSphere;
+import net.imglib2.roi.geom.real.OpenWritableSuperEllipsoid;
+import net.imglib2.roi.mask.integer.DefaultMaskInterval;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link RealMask#testRow(net.imglib2.RealLocalizable, double, int, boolean[])}
+ * and {@link Mask#testRow(Localizable, int, boolean[])} agree with testing
+ * every point individually.
+ */
+public class MaskRowEvaluationTest
+{
+	private static final int COUNT = 97;
+
+	private static List< RealMaskRealInterval > shapes()
+	{
+		return Arrays.asList(
+				new ClosedWritableBox( new double[] { -3, -2.5, 1 }, new double[] { 7, 4, 8 } ),
+				new OpenWritableBox( new double[] { -3, -2.5, 1 }, new double[] { 7, 4, 8 } ),
+				new ClosedWritableSphere( new double[] { 1, 2, 3 }, 5 ),
+				new OpenWritableSphere( new double[] { 1, 2, 3 }, 5 ),
+				new ClosedWritableEllipsoid( new double[] { 1, 2, 3 }, new double[] { 4, 6, 5 } ),
+				new OpenWritableEllipsoid( new double[] { 1, 2, 3 }, new double[] { 4, 6, 5 } ),
+				new ClosedWritableSuperEllipsoid( new double[] { 1, 2, 3 }, new double[] { 4, 6, 5 }, 3 ),
+				new OpenWritableSuperEllipsoid( new double[] { 1, 2, 3 }, new double[] { 4, 6, 5 }, 0.5 ) );
+	}
+
+	@Test
+	public void testShapes()
+	{
+		for ( final RealMaskRealInterval shape : shapes() )
+			assertRowsEqualPointwise( shape );
+	}
+
+	@Test
+	public void testComposites()
+	{
+		final List< RealMaskRealInterval > shapes = shapes();
+		final RealMaskRealInterval box = shapes.get( 0 );
+		final RealMaskRealInterval sphere = shapes.get( 2 );
+		final RealMaskRealInterval ellipsoid = shapes.get( 5 );
+		final RealMaskRealInterval superEllipsoid = shapes.get( 6 );
+
+		assertRowsEqualPointwise( box.and( sphere ) );
+		assertRowsEqualPointwise( box.or( ellipsoid ) );
+		assertRowsEqualPointwise( sphere.xor( superEllipsoid ) );
+		assertRowsEqualPointwise( box.minus( sphere ) );
+		assertRowsEqualPointwise( box.negate() );
+		assertRowsEqualPointwise( box.or( sphere ).minus( ellipsoid.negate() ).xor( superEllipsoid ) );
+		assertRowsEqualPointwise( box.and( l -> l.getDoublePosition( 1 ) > 0.5 ) );
+	}
+
+	@Test
+	public void testIntegerComposites()
+	{
+		final MaskInterval a = new DefaultMaskInterval( new FinalInterval( new long[] { -5, -5 }, new long[] { 20, 20 } ), BoundaryType.UNSPECIFIED, l -> ( l.getLongPosition( 0 ) * l.getLongPosition( 1 ) ) % 3 == 0, KnownConstant.UNKNOWN );
+		final MaskInterval b = new DefaultMaskInterval( new FinalInterval( new long[] { 0, 0 }, new long[] { 30, 10 } ), BoundaryType.UNSPECIFIED, l -> ( l.getLongPosition( 0 ) + l.getLongPosition( 1 ) ) % 2 == 0, KnownConstant.UNKNOWN );
+
+		for ( final Mask mask : Arrays.asList( a.and( b ), a.or( b ), a.xor( b ), a.minus( b ), a.negate(), a.or( b ).minus( a.xor( b ) ) ) )
+		{
+			final boolean[] expected = new boolean[ COUNT ];
+			final boolean[] actual = new boolean[ COUNT ];
+			for ( long y = -7; y <= 22; y++ )
+			{
+				final Point start = new Point( new long[] { -10, y } );
+				final Point pos = new Point( start );
+				for ( int i = 0; i < COUNT; i++ )
+				{
+					expected[ i ] = mask.test( pos );
+					pos.fwd( 0 );
+				}
+				mask.testRow( start, COUNT, actual );
+				assertArrayEquals( expected, actual );
+			}
+		}
+	}
+
+	@Test
+	public void testRasterizedRandomAccess()
+	{
+		final List< RealMaskRealInterval > shapes = shapes();
+		final RealMaskRealInterval mask = shapes.get( 0 ).or( shapes.get( 3 ) ).minus( shapes.get( 7 ) );
+		final RandomAccessibleInterval< BoolType > rai = Views.interval( Views.raster( Masks.toRealRandomAccessible( mask ) ), Intervals.largestContainedInterval( mask ) );
+
+		// forward iteration is served from row blocks
+		long expectedCount = 0;
+		final Cursor< BoolType > c = Views.flatIterable( rai ).localizingCursor();
+		final RealPoint pos = new RealPoint( 3 );
+		while ( c.hasNext() )
+		{
+			final boolean value = c.next().get();
+			pos.setPosition( c );
+			assertEquals( mask.test( pos ), value );
+			if ( value )
+				++expectedCount;
+		}
+		assertEquals( expectedCount, Masks.toIterableRegion( mask ).inside().size() );
+
+		// random order access falls back to single point tests
+		final Random random = new Random( 42 );
+		final RandomAccess< BoolType > ra = rai.randomAccess();
+		for ( int i = 0; i < 1000; i++ )
+		{
+			for ( int d = 0; d < 3; d++ )
+				ra.setPosition( rai.min( d ) + random.nextInt( ( int ) rai.dimension( d ) ), d );
+			pos.setPosition( ra );
+			assertEquals( mask.test( pos ), ra.get().get() );
+		}
+	}
+
+	// -- Helper methods --
+
+	private static void assertRowsEqualPointwise( final RealMask mask )
+	{
+		final Random random = new Random( 1 );
+		final boolean[] expected = new boolean[ COUNT ];
+		final boolean[] actual = new boolean[ COUNT ];
+		for ( final double step : new double[] { 1.0, 0.37 } )
+		{
+			for ( int r = 0; r < 200; r++ )
+			{
+				final RealPoint start = new RealPoint( -12 + random.nextInt( 4 ), -8 + 16 * random.nextDouble(), -3 + random.nextInt( 14 ) );
+				final RealPoint pos = new RealPoint( start );
+				for ( int i = 0; i < COUNT; i++ )
+				{
+					pos.setPosition( start.getDoublePosition( 0 ) + i * step, 0 );
+					expected[ i ] = mask.test( pos );
+				}
+				mask.testRow( start, step, COUNT, actual );
+				assertArrayEquals( expected, actual );
+			}
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.DefaultWritableRealPointCollection;
+import net.imglib2.roi.geom.real.WritableBox;
+import net.imglib2.roi.geom.real.WritablePointMask;
+import net.imglib2.roi.geom.real.WritablePolygon2D;
+import net.imglib2.roi.geom.real.WritableSphere;
+import net.imglib2.roi.mask.integer.DefaultMaskInterval;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MaskPredicate#modificationCount()} of writable shapes and
+ * composites, and the caches that depend on it.
+ */
+public class ModificationCountTest
+{
+	@Test
+	public void testWritableShapes()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 4, 4 } );
+		long count = box.modificationCount();
+		assertTrue( count >= 0 );
+		box.center().move( 1, 0 );
+		count = assertIncreased( count, box.modificationCount() );
+		box.setSideLength( 1, 10 );
+		count = assertIncreased( count, box.modificationCount() );
+		assertEquals( count, box.modificationCount() );
+
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 0, 0 }, 3 );
+		count = sphere.modificationCount();
+		sphere.setRadius( 4 );
+		count = assertIncreased( count, sphere.modificationCount() );
+		sphere.center().setPosition( new double[] { 2, 2 } );
+		assertIncreased( count, sphere.modificationCount() );
+
+		final WritablePolygon2D polygon = GeomMasks.polygon2D( new double[] { 0, 4, 4 }, new double[] { 0, 0, 4 } );
+		count = polygon.modificationCount();
+		polygon.vertex( 1 ).move( 2, 0 );
+		count = assertIncreased( count, polygon.modificationCount() );
+		polygon.addVertex( 0, new RealPoint( 0, 4 ) );
+		count = assertIncreased( count, polygon.modificationCount() );
+		polygon.removeVertex( 0 );
+		assertIncreased( count, polygon.modificationCount() );
+
+		final WritablePointMask point = GeomMasks.pointMask( new double[] { 1, 2 } );
+		count = point.modificationCount();
+		assertEquals( count, point.modificationCount() );
+		point.move( 3, 1 );
+		assertIncreased( count, point.modificationCount() );
+
+		final DefaultWritableRealPointCollection< RealPoint > points = new DefaultWritableRealPointCollection<>( Arrays.asList( new RealPoint( 1, 1 ), new RealPoint( 2, 3 ) ) );
+		count = points.modificationCount();
+		points.addPoint( new RealPoint( 5, 5 ) );
+		assertIncreased( count, points.modificationCount() );
+	}
+
+	@Test
+	public void testComposites()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 4, 4 } );
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 0, 0 }, 3 );
+		final RealMask composite = box.and( sphere ).or( box.negate().and( sphere ) );
+
+		long count = composite.modificationCount();
+		assertTrue( count >= 0 );
+		sphere.setRadius( 5 );
+		count = assertIncreased( count, composite.modificationCount() );
+		box.center().move( -1, 1 );
+		assertIncreased( count, composite.modificationCount() );
+
+		// plain predicates may have state, so they are untracked
+		final MaskInterval lambda = new DefaultMaskInterval( new FinalInterval( 10, 10 ), BoundaryType.UNSPECIFIED, l -> true, KnownConstant.ALL_TRUE );
+		assertEquals( -1, lambda.modificationCount() );
+		assertEquals( -1, box.and( l -> l.getDoublePosition( 0 ) > 2 ).modificationCount() );
+
+		// untracked operands make the composite untracked
+		final RealMask untracked = new RealMask()
+		{
+			@Override
+			public int numDimensions()
+			{
+				return 2;
+			}
+
+			@Override
+			public boolean test( final RealLocalizable l )
+			{
+				return l.getDoublePosition( 0 ) > 1;
+			}
+		};
+		assertTrue( untracked.modificationCount() < 0 );
+		assertTrue( box.and( untracked ).modificationCount() < 0 );
+	}
+
+	@Test
+	public void testCachedBounds()
+	{
+		final WritableBox box1 = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 4, 4 } );
+		final WritableBox box2 = GeomMasks.closedBox( new double[] { 2, 1 }, new double[] { 8, 3 } );
+		final RealMaskRealInterval and = box1.and( box2 );
+		final RealMaskRealInterval or = box1.or( box2 );
+		final Interval integerAnd = new Bounds.SmallestContainingInterval( and );
+
+		assertEquals( 2, and.realMin( 0 ), 0 );
+		assertEquals( 4, and.realMax( 0 ), 0 );
+		assertEquals( 8, or.realMax( 0 ), 0 );
+		assertEquals( 4, integerAnd.max( 0 ) );
+
+		box1.center().move( 2, 0 );
+		assertEquals( 2, and.realMin( 0 ), 0 );
+		assertEquals( 6, and.realMax( 0 ), 0 );
+		assertEquals( 8, or.realMax( 0 ), 0 );
+
+		box2.setSideLength( 0, 10 );
+		assertEquals( 2, and.realMin( 0 ), 0 );
+		assertEquals( 0, or.realMin( 0 ), 0 );
+		assertEquals( 10, or.realMax( 0 ), 0 );
+		assertEquals( 6, integerAnd.max( 0 ) );
+	}
+
+	@Test
+	public void testRasterizedRandomAccessAfterModification()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 20, 20 } );
+		final RandomAccessibleInterval< BoolType > rai = Views.interval( Views.raster( Masks.toRealRandomAccessible( box ) ), new FinalInterval( 30, 30 ) );
+		final Cursor< BoolType > c = Views.flatIterable( rai ).localizingCursor();
+		final RealPoint pos = new RealPoint( 2 );
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			if ( c.getLongPosition( 0 ) == 5 )
+				box.setSideLength( 0, c.getLongPosition( 1 ) % 2 == 0 ? 20 : 10 );
+			pos.setPosition( c );
+			assertEquals( box.test( pos ), c.get().get() );
+		}
+	}
+
+	@Test
+	public void testTransformModification()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 6, 6 } );
+		final WritableBox frame = GeomMasks.closedBox( new double[] { 10, 10 }, new double[] { 12, 12 } );
+		final AffineTransform2D transform = new AffineTransform2D();
+		final RealMaskRealInterval transformed = box.transform( transform );
+		final RealMaskRealInterval mask = transformed.or( frame );
+		final IterableRegion< BoolType > region = Masks.toIterableRegion( mask );
+		assertEquals( 49 + 9, region.inside().size() );
+
+		long count = mask.modificationCount();
+		assertTrue( count >= 0 );
+		transform.set( 1, 0, -2, 0, 1, -3 );
+		count = assertIncreased( count, mask.modificationCount() );
+		assertEquals( count, mask.modificationCount() );
+
+		// the box now covers [2, 8] x [3, 9]
+		assertEquals( 2, transformed.realMin( 0 ), 0 );
+		assertEquals( 9, transformed.realMax( 1 ), 0 );
+		assertEquals( 49 + 9, region.inside().size() );
+		assertEquals( new RasterizationCache( 1 << 20 ).get( mask, Intervals.largestContainedInterval( mask ) ).getSize(), region.inside().size() );
+		final Cursor< Void > c = region.inside().localizingCursor();
+		c.fwd();
+		assertEquals( 2, c.getLongPosition( 0 ) );
+		assertEquals( 3, c.getLongPosition( 1 ) );
+
+		// bounds of non-concrete transformed operands follow as well
+		final RealMaskRealInterval union = box.or( frame ).transform( transform );
+		transform.set( 1, 0, 1, 0, 1, 1 );
+		assertEquals( -1, union.realMin( 0 ), 0 );
+		assertEquals( 11, union.realMax( 1 ), 0 );
+	}
+
+	@Test
+	public void testStatefulPredicateIsNotReadAhead()
+	{
+		final boolean[] state = { true };
+		final MaskInterval mask = new DefaultMaskInterval( new FinalInterval( 10, 1 ), BoundaryType.UNSPECIFIED, l -> state[ 0 ], KnownConstant.UNKNOWN );
+		final RandomAccess< BoolType > ra = Masks.toRandomAccessibleInterval( mask ).randomAccess();
+		final StringBuilder values = new StringBuilder();
+		ra.setPosition( new long[] { 0, 0 } );
+		for ( int x = 0; x < 10; ++x )
+		{
+			if ( x == 4 )
+				state[ 0 ] = false;
+			values.append( ra.get().get() ? '1' : '0' );
+			ra.fwd( 0 );
+		}
+		assertEquals( "1111000000", values.toString() );
+	}
+
+	// -- Helper methods --
+
+	private static long assertIncreased( final long before, final long after )
+	{
+		assertTrue( after > before );
+		return after;
+	}
+}
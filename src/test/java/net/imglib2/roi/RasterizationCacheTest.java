@@ -0,0 +1,228 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.roi.geom.real.WritableBox;
+import net.imglib2.roi.geom.real.WritableSphere;
+import net.imglib2.roi.mask.integer.DefaultMaskInterval;
+import net.imglib2.roi.util.IterableRegionOnBooleanRAI;
+import net.imglib2.roi.util.iterationcode.IterationCode;
+import net.imglib2.roi.util.iterationcode.IterationCodeCursor;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RasterizationCache}.
+ */
+public class RasterizationCacheTest
+{
+	@Test
+	public void testRasterization()
+	{
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 3.5, -2, 7 }, 6.3 );
+		final RealMaskRealInterval mask = sphere.minus( GeomMasks.openBox( new double[] { 0, -10, 0 }, new double[] { 2, 10, 20 } ) );
+		final Interval interval = Intervals.largestContainedInterval( mask );
+
+		final IterationCode code = new RasterizationCache( 1 << 20 ).get( mask, interval );
+		final IterableInterval< Void > expected = new IterableRegionOnBooleanRAI<>( Views.interval( Views.raster( Masks.toRealRandomAccessible( mask ) ), interval ) ).inside();
+		assertEquals( expected.size(), code.getSize() );
+		assertSamePositions( expected.localizingCursor(), new IterationCodeCursor( code, new long[ 3 ] ) );
+	}
+
+	@Test
+	public void testToIterableRegion()
+	{
+		final WritableBox box = GeomMasks.closedBox( new double[] { 1.5, 2 }, new double[] { 7, 9.2 } );
+		final IterableRegion< ? > region = Masks.toIterableRegion( box );
+		final IterableInterval< Void > expected = new IterableRegionOnBooleanRAI<>( Views.interval( Views.raster( Masks.toRealRandomAccessible( box ) ), Intervals.largestContainedInterval( box ) ) ).inside();
+		assertEquals( expected.size(), region.inside().size() );
+		assertSamePositions( expected.localizingCursor(), region.inside().localizingCursor() );
+
+		// sampling visits the same pixels
+		final IterableInterval< IntType > sampled = Regions.sample( box, ArrayImgs.ints( 20, 20 ) );
+		assertEquals( expected.size(), sampled.size() );
+		assertSamePositions( expected.localizingCursor(), sampled.localizingCursor() );
+	}
+
+	@Test
+	public void testToIterableRegionIsLive()
+	{
+		final RasterizationCache cache = new RasterizationCache( 1 << 20 );
+		final WritableBox box = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 9, 9 } );
+		final IterableRegion< ? > region = Masks.toIterableRegion( box, cache );
+		assertEquals( 0, cache.misses() );
+		assertEquals( 100, region.inside().size() );
+		assertEquals( 100, region.inside().size() );
+		assertEquals( 1, cache.misses() );
+		assertEquals( 1, cache.hits() );
+
+		// x in [2.5, 6.5]
+		box.setSideLength( 0, 4 );
+		assertEquals( 40, region.inside().size() );
+		assertEquals( 2, cache.misses() );
+
+		// untracked masks are tested pixel by pixel, and never cached
+		final boolean[] all = { true };
+		final MaskInterval untracked = new DefaultMaskInterval( new FinalInterval( 10, 10 ), BoundaryType.UNSPECIFIED, l -> all[ 0 ] || l.getLongPosition( 0 ) < 3, KnownConstant.UNKNOWN );
+		final IterableRegion< ? > untrackedRegion = Masks.toIterableRegion( untracked, cache );
+		all[ 0 ] = false;
+		final Cursor< ? > c = untrackedRegion.inside().localizingCursor();
+		long count = 0;
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			assertTrue( c.getLongPosition( 0 ) < 3 );
+			++count;
+		}
+		assertEquals( 30, count );
+		assertEquals( 2, cache.misses() );
+	}
+
+	@Test
+	public void testHitsAndMisses()
+	{
+		final RasterizationCache cache = new RasterizationCache( 1 << 20 );
+		final WritableSphere sphere = GeomMasks.closedSphere( new double[] { 10, 10 }, 5 );
+		final Interval interval = new FinalInterval( new long[] { 0, 0 }, new long[] { 20, 20 } );
+
+		final IterationCode first = cache.get( sphere, interval );
+		assertEquals( 0, cache.hits() );
+		assertEquals( 1, cache.misses() );
+
+		assertSame( first, cache.get( sphere, interval ) );
+		assertEquals( 1, cache.hits() );
+
+		// a different sampling grid is a separate entry
+		final IterationCode shifted = cache.get( sphere, new FinalInterval( new long[] { 1, 0 }, new long[] { 20, 20 } ) );
+		assertNotSame( first, shifted );
+		assertEquals( 2, cache.misses() );
+		assertEquals( 2, cache.numEntries() );
+
+		// modifying the mask invalidates the entry
+		sphere.setRadius( 7 );
+		final IterationCode modified = cache.get( sphere, interval );
+		assertNotSame( first, modified );
+		assertTrue( modified.getSize() > first.getSize() );
+		assertEquals( 3, cache.misses() );
+		assertEquals( 2, cache.numEntries() );
+		assertSame( modified, cache.get( sphere, interval ) );
+	}
+
+	@Test
+	public void testUntrackedMasksAreNotStored()
+	{
+		final RasterizationCache cache = new RasterizationCache( 1 << 20 );
+		final RealMask untracked = new RealMask()
+		{
+			@Override
+			public int numDimensions()
+			{
+				return 2;
+			}
+
+			@Override
+			public boolean test( final RealLocalizable l )
+			{
+				return l.getDoublePosition( 0 ) < l.getDoublePosition( 1 );
+			}
+		};
+		final Interval interval = new FinalInterval( 10, 10 );
+		assertEquals( 45, cache.get( untracked, interval ).getSize() );
+		assertEquals( 45, cache.get( untracked, interval ).getSize() );
+		assertEquals( 0, cache.hits() );
+		assertEquals( 2, cache.misses() );
+		assertEquals( 0, cache.numEntries() );
+	}
+
+	@Test
+	public void testEviction()
+	{
+		final WritableBox box1 = GeomMasks.closedBox( new double[] { 0, 0 }, new double[] { 10, 10 } );
+		final WritableBox box2 = GeomMasks.closedBox( new double[] { 5, 5 }, new double[] { 15, 15 } );
+		final Interval interval = new FinalInterval( 20, 20 );
+
+		final RasterizationCache cache = new RasterizationCache( 1 << 20 );
+		cache.get( box1, interval );
+		final long bytesPerEntry = cache.bytes();
+		assertTrue( bytesPerEntry > 0 );
+
+		// room for one entry only
+		cache.setMaxBytes( bytesPerEntry + bytesPerEntry / 2 );
+		cache.get( box2, interval );
+		assertEquals( 1, cache.numEntries() );
+		assertEquals( 1, cache.evictions() );
+		assertTrue( cache.bytes() <= cache.maxBytes() );
+
+		// box2 is still cached, box1 was evicted
+		cache.get( box2, interval );
+		assertEquals( 1, cache.hits() );
+		cache.get( box1, interval );
+		assertEquals( 3, cache.misses() );
+
+		cache.setMaxBytes( 0 );
+		assertEquals( 0, cache.numEntries() );
+		assertEquals( 0, cache.bytes() );
+	}
+
+	// -- Helper methods --
+
+	private static void assertSamePositions( final Cursor< ? > expected, final Cursor< ? > actual )
+	{
+		while ( expected.hasNext() )
+		{
+			assertTrue( actual.hasNext() );
+			expected.fwd();
+			actual.fwd();
+			for ( int d = 0; d < expected.numDimensions(); d++ )
+				assertEquals( expected.getLongPosition( d ), actual.getLongPosition( d ) );
+		}
+		assertFalse( actual.hasNext() );
+	}
+}
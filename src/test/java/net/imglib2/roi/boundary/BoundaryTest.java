@@ -0,0 +1,241 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.boundary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.roi.boundary.Boundary.StructuringElement;
+import net.imglib2.type.BooleanType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.type.logic.NativeBoolType;
+import net.imglib2.view.Views;
+
+public class BoundaryTest
+{
+	@Test
+	public void testRandomMasks()
+	{
+		final Random random = new Random( 42 );
+		final long[][] dims = {
+				{ 70 },
+				{ 1, 1 },
+				{ 64, 5 },
+				{ 13, 17 },
+				{ 130, 3 },
+				{ 9, 11, 7 },
+				{ 5, 4, 3, 6 }
+		};
+		for ( final long[] d : dims )
+		{
+			final Img< BitType > img = ArrayImgs.bits( d );
+			for ( final BitType t : img )
+				t.set( random.nextDouble() < 0.85 );
+			final long[] offset = new long[ d.length ];
+			for ( int i = 0; i < d.length; ++i )
+				offset[ i ] = random.nextInt( 100 ) - 50;
+			final RandomAccessibleInterval< BitType > region = Views.translate( img, offset );
+			for ( final StructuringElement se : StructuringElement.values() )
+				assertBoundary( region, se );
+		}
+	}
+
+	@Test
+	public void testLargeSphere()
+	{
+		// large enough to be scanned in parallel
+		final long[] dims = { 70, 60, 50 };
+		final Img< BitType > img = ArrayImgs.bits( dims );
+		final Cursor< BitType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			double r = 0;
+			for ( int d = 0; d < 3; ++d )
+			{
+				final double x = c.getDoublePosition( d ) - dims[ d ] / 2;
+				r += x * x;
+			}
+			c.get().set( r <= 22 * 22 || c.getLongPosition( 0 ) == 0 );
+		}
+		final RandomAccessibleInterval< BitType > region = Views.translate( img, -1000, 5, 7 );
+		for ( final StructuringElement se : StructuringElement.values() )
+		{
+			assertBoundary( region, se );
+			Parallelization.runWithNumThreads( 3, () -> assertBoundary( region, se ) );
+		}
+	}
+
+	@Test
+	public void testArrayAndPlanarImgs()
+	{
+		final Random random = new Random( 7 );
+		final long[][] dims = { { 70 }, { 13, 17 }, { 9, 11, 7 }, { 5, 4, 3, 6 } };
+		for ( final long[] d : dims )
+		{
+			final Img< BitType > array = ArrayImgs.bits( d );
+			final Img< BitType > planar = PlanarImgs.bits( d );
+			final Cursor< BitType > a = array.cursor();
+			final Cursor< BitType > p = planar.cursor();
+			while ( a.hasNext() )
+			{
+				final boolean value = random.nextDouble() < 0.85;
+				a.next().set( value );
+				p.next().set( value );
+			}
+			for ( final StructuringElement se : StructuringElement.values() )
+			{
+				assertBoundary( array, se );
+				assertBoundary( planar, se );
+			}
+		}
+	}
+
+	@Test
+	public void testPlanarBooleans()
+	{
+		// NB: not BitType, so the neighbors are visited by moving a
+		// PlanarRandomAccess, whose move(long[]) also moves higher dimensions
+		final Random random = new Random( 13 );
+		final long[][] dims = { { 6, 6, 6 }, { 6, 6, 6, 6 } };
+		for ( final long[] d : dims )
+		{
+			final Img< NativeBoolType > planar = PlanarImgs.booleans( d );
+			for ( final NativeBoolType t : planar )
+				t.set( random.nextDouble() < 0.85 );
+			for ( final StructuringElement se : StructuringElement.values() )
+				assertBoundary( planar, se );
+		}
+	}
+
+	@Test
+	public void testNeighborCounts()
+	{
+		assertEquals( 6, StructuringElement.FOUR_CONNECTED.neighborOffsets( 3 ).length );
+		assertEquals( 18, StructuringElement.EDGE_CONNECTED.neighborOffsets( 3 ).length );
+		assertEquals( 26, StructuringElement.EIGHT_CONNECTED.neighborOffsets( 3 ).length );
+		assertEquals( 8, StructuringElement.FOUR_CONNECTED.neighborOffsets( 4 ).length );
+		assertEquals( 32, StructuringElement.EDGE_CONNECTED.neighborOffsets( 4 ).length );
+		assertEquals( 80, StructuringElement.EIGHT_CONNECTED.neighborOffsets( 4 ).length );
+		assertEquals( 8, StructuringElement.EDGE_CONNECTED.neighborOffsets( 2 ).length );
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final Boundary< BitType > boundary = new Boundary<>( ArrayImgs.bits( 10, 10 ) );
+		assertEquals( 0, boundary.inside().size() );
+		assertFalse( boundary.inside().cursor().hasNext() );
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checks that {@link Boundary#inside()} iterates exactly the boundary
+	 * pixels, in flat order, and that {@link Boundary#randomAccess()} is
+	 * {@code true} exactly on them.
+	 */
+	private static < B extends BooleanType< B > > void assertBoundary( final RandomAccessibleInterval< B > region, final StructuringElement se )
+	{
+		final int maxNonZero = se == StructuringElement.FOUR_CONNECTED ? 1 : se == StructuringElement.EDGE_CONNECTED ? 2 : region.numDimensions();
+		final Boundary< B > boundary = new Boundary<>( region, se );
+		final RandomAccess< BoolType > ba = boundary.randomAccess();
+		final RandomAccess< B > ra = region.randomAccess();
+		final Cursor< B > all = Views.flatIterable( region ).localizingCursor();
+		final Cursor< Void > inside = boundary.inside().localizingCursor();
+		long size = 0;
+		while ( all.hasNext() )
+		{
+			all.fwd();
+			ba.setPosition( all );
+			final boolean expected = isBoundary( region, ra, all.positionAsLongArray(), maxNonZero );
+			assertEquals( expected, ba.get().get() );
+			if ( !expected )
+				continue;
+			assertTrue( inside.hasNext() );
+			inside.fwd();
+			assertArrayEquals( all.positionAsLongArray(), inside.positionAsLongArray() );
+			++size;
+		}
+		assertFalse( inside.hasNext() );
+		assertEquals( size, boundary.inside().size() );
+	}
+
+	/**
+	 * Whether {@code position} is true, and at the border or next to a false
+	 * pixel. Neighbor offsets are non-zero in at most {@code maxNonZero}
+	 * dimensions.
+	 */
+	private static < B extends BooleanType< B > > boolean isBoundary( final RandomAccessibleInterval< B > region, final RandomAccess< B > ra, final long[] position, final int maxNonZero )
+	{
+		ra.setPosition( position );
+		if ( !ra.get().get() )
+			return false;
+		final int n = position.length;
+		for ( int d = 0; d < n; ++d )
+			if ( position[ d ] == region.min( d ) || position[ d ] == region.max( d ) )
+				return true;
+		final long[] neighbor = new long[ n ];
+		for ( int i = 0; i < Math.pow( 3, n ); ++i )
+		{
+			int nonZero = 0;
+			for ( int d = 0, j = i; d < n; ++d, j /= 3 )
+			{
+				neighbor[ d ] = position[ d ] + j % 3 - 1;
+				if ( neighbor[ d ] != position[ d ] )
+					++nonZero;
+			}
+			if ( nonZero > maxNonZero )
+				continue;
+			ra.setPosition( neighbor );
+			if ( !ra.get().get() )
+				return true;
+		}
+		return false;
+	}
+}
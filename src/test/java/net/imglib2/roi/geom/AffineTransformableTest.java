@@ -0,0 +1,236 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineTransform2D;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.Operators;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.real.Box;
+import net.imglib2.roi.geom.real.ClosedWritableBox;
+import net.imglib2.roi.geom.real.ClosedWritableEllipsoid;
+import net.imglib2.roi.geom.real.ClosedWritablePolygon2D;
+import net.imglib2.roi.geom.real.DefaultWritablePointMask;
+import net.imglib2.roi.geom.real.OpenWritableBox;
+import net.imglib2.roi.geom.real.OpenWritableSphere;
+import net.imglib2.roi.geom.real.OrientedBox;
+import net.imglib2.roi.geom.real.Polygon2D;
+import net.imglib2.roi.geom.real.QuadricEllipsoid;
+import net.imglib2.roi.geom.real.WritableEllipsoid;
+
+import org.junit.Test;
+
+/**
+ * Tests affine transforms of shapes that result in concrete shapes.
+ */
+public class AffineTransformableTest
+{
+	@Test
+	public void testRotatedSphereBounds()
+	{
+		final OpenWritableSphere sphere = new OpenWritableSphere( new double[] { 1, 2, 3 }, 4 );
+		final AffineTransform3D transformToSource = rotation3D( 0.3, 1.1 );
+		final RealMaskRealInterval rm = sphere.transform( transformToSource );
+		assertTrue( sphere.transformed( transformToSource ) instanceof QuadricEllipsoid );
+		assertEquals( BoundaryType.OPEN, rm.boundaryType() );
+
+		final RealPoint center = new RealPoint( 3 );
+		transformToSource.inverse().apply( sphere.center(), center );
+		for ( int d = 0; d < 3; d++ )
+		{
+			assertEquals( center.getDoublePosition( d ) - 4, rm.realMin( d ), 1e-12 );
+			assertEquals( center.getDoublePosition( d ) + 4, rm.realMax( d ), 1e-12 );
+		}
+		assertSameRegion( rm, new Operators.RealTransformMaskOperator( transformToSource ).predicate( sphere ), 1 );
+	}
+
+	@Test
+	public void testShearedEllipsoid()
+	{
+		final WritableEllipsoid ellipsoid = new ClosedWritableEllipsoid( new double[] { 4, -2 }, new double[] { 3, 1.5 } );
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		transformToSource.set( 1, 0.7, -1, 0.2, 1.3, 2 );
+		final RealMaskRealInterval rm = ellipsoid.transform( transformToSource );
+		final Predicate< RealLocalizable > expected = new Operators.RealTransformMaskOperator( transformToSource ).predicate( ellipsoid );
+		assertSameRegion( rm, expected, 2 );
+		assertTightBounds( rm, expected );
+
+		// the composite follows modifications of the ellipsoid
+		ellipsoid.center().setPosition( new double[] { -5, 1 } );
+		assertSameRegion( rm, expected, 3 );
+		assertTightBounds( rm, expected );
+
+		// ... and modifications of the transform
+		transformToSource.set( 0.9, -0.3, -40, 0.4, 1.1, 25 );
+		assertSameRegion( rm, expected, 6 );
+		assertTightBounds( rm, expected );
+	}
+
+	@Test
+	public void testRotatedBox()
+	{
+		final AffineTransform3D transformToSource = rotation3D( 0.5, -0.4 );
+		for ( final Box box : Arrays.< Box >asList(
+				new ClosedWritableBox( new double[] { -1, 0, 2 }, new double[] { 3, 2, 7 } ),
+				new OpenWritableBox( new double[] { -1, 0, 2 }, new double[] { 3, 2, 7 } ) ) )
+		{
+			final RealMaskRealInterval rm = box.transform( transformToSource );
+			assertTrue( box.transformed( transformToSource ) instanceof OrientedBox );
+			assertSameRegion( rm, new Operators.RealTransformMaskOperator( transformToSource ).predicate( box ), 4 );
+		}
+	}
+
+	@Test
+	public void testPolygonAndPoint()
+	{
+		final AffineTransform2D transformToSource = new AffineTransform2D();
+		transformToSource.set( 0.8, -0.6, 3, 0.6, 0.8, -1 );
+		final Polygon2D polygon = new ClosedWritablePolygon2D( new double[] { 0, 4, 5, 1 }, new double[] { 0, 1, 4, 3 } );
+		final RealMaskRealInterval transformed = polygon.transformed( transformToSource );
+		assertTrue( transformed instanceof ClosedWritablePolygon2D );
+		final RealPoint p = new RealPoint( 2 );
+		transformToSource.apply( ( ( Polygon2D ) transformed ).vertex( 2 ), p );
+		assertEquals( 5, p.getDoublePosition( 0 ), 1e-12 );
+		assertEquals( 4, p.getDoublePosition( 1 ), 1e-12 );
+		assertSameRegion( polygon.transform( transformToSource ), new Operators.RealTransformMaskOperator( transformToSource ).predicate( polygon ), 5 );
+
+		final DefaultWritablePointMask point = new DefaultWritablePointMask( new double[] { 2, 3 } );
+		final RealMaskRealInterval transformedPoint = point.transformed( transformToSource );
+		transformToSource.apply( new RealPoint( transformedPoint.realMin( 0 ), transformedPoint.realMin( 1 ) ), p );
+		assertEquals( 2, p.getDoublePosition( 0 ), 1e-12 );
+		assertEquals( 3, p.getDoublePosition( 1 ), 1e-12 );
+	}
+
+	@Test
+	public void testRowSpans()
+	{
+		final AffineTransform3D transformToSource = rotation3D( 1.2, 0.7 );
+		final RealMaskRealInterval[] shapes = {
+				new OrientedBox( new double[] { -2, -1, 0 }, new double[] { 2, 3, 1 }, transformToSource, BoundaryType.CLOSED ),
+				new OpenWritableSphere( new double[] { 0.5, 0, 0 }, 2.5 ).transformed( transformToSource ),
+				new ClosedWritableEllipsoid( new double[] { 0, 0, 0.25 }, new double[] { 2, 1, 3 } ).transformed( transformToSource ) };
+		final boolean[] row = new boolean[ 80 ];
+		final RealPoint start = new RealPoint( 3 );
+		final RealPoint pos = new RealPoint( 3 );
+		for ( final RealMaskRealInterval shape : shapes )
+		{
+			for ( double y = -4; y <= 4; y += 0.5 )
+			{
+				for ( double z = -4; z <= 4; z += 0.5 )
+				{
+					start.setPosition( new double[] { -5, y, z } );
+					shape.testRow( start, 0.125, row.length, row );
+					for ( int i = 0; i < row.length; i++ )
+					{
+						pos.setPosition( new double[] { -5 + i * 0.125, y, z } );
+						assertEquals( shape.test( pos ), row[ i ] );
+					}
+				}
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	private static AffineTransform3D rotation3D( final double a, final double b )
+	{
+		// rotation around z by a, followed by rotation around x by b
+		final double ca = Math.cos( a ), sa = Math.sin( a ), cb = Math.cos( b ), sb = Math.sin( b );
+		final AffineTransform3D t = new AffineTransform3D();
+		t.set(
+				ca, -sa, 0, 0.5,
+				cb * sa, cb * ca, -sb, -1,
+				sb * sa, sb * ca, cb, 2 );
+		return t;
+	}
+
+	private static void assertSameRegion( final RealMaskRealInterval actual, final Predicate< RealLocalizable > expected, final long seed )
+	{
+		final Random rand = new Random( seed );
+		final int n = actual.numDimensions();
+		final RealPoint p = new RealPoint( n );
+		int inside = 0;
+		for ( int i = 0; i < 5000; i++ )
+		{
+			for ( int d = 0; d < n; d++ )
+				p.setPosition( actual.realMin( d ) - 1 + rand.nextDouble() * ( actual.realMax( d ) - actual.realMin( d ) + 2 ), d );
+			final boolean e = expected.test( p );
+			assertEquals( e, actual.test( p ) );
+			if ( e )
+				++inside;
+		}
+		assertTrue( inside > 0 );
+	}
+
+	private static void assertTightBounds( final RealMaskRealInterval actual, final Predicate< RealLocalizable > expected )
+	{
+		// sample a fine grid and check that the bounds are reached
+		final double[] min = new double[ 2 ];
+		final double[] max = new double[ 2 ];
+		Arrays.fill( min, Double.POSITIVE_INFINITY );
+		Arrays.fill( max, Double.NEGATIVE_INFINITY );
+		final RealPoint p = new RealPoint( 2 );
+		final double step = 0.01;
+		for ( double x = actual.realMin( 0 ) - step; x <= actual.realMax( 0 ) + step; x += step )
+		{
+			for ( double y = actual.realMin( 1 ) - step; y <= actual.realMax( 1 ) + step; y += step )
+			{
+				p.setPosition( x, 0 );
+				p.setPosition( y, 1 );
+				if ( expected.test( p ) )
+				{
+					min[ 0 ] = Math.min( min[ 0 ], x );
+					min[ 1 ] = Math.min( min[ 1 ], y );
+					max[ 0 ] = Math.max( max[ 0 ], x );
+					max[ 1 ] = Math.max( max[ 1 ], y );
+				}
+			}
+		}
+		for ( int d = 0; d < 2; d++ )
+		{
+			assertEquals( min[ d ], actual.realMin( d ), 2 * step );
+			assertEquals( max[ d ], actual.realMax( d ), 2 * step );
+		}
+	}
+}
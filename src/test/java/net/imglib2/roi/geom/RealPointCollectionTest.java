@@ -40,19 +40,35 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.roi.BoundaryType;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.Masks;
+import net.imglib2.roi.geom.GeomMaths;
 import net.imglib2.roi.geom.real.DefaultWritablePointMask;
 import net.imglib2.roi.geom.real.DefaultWritableRealPointCollection;
+import net.imglib2.roi.geom.real.GridWritableRealPointCollection;
 import net.imglib2.roi.geom.real.KDTreeRealPointCollection;
 import net.imglib2.roi.geom.real.PointMask;
 import net.imglib2.roi.geom.real.RealPointCollection;
 import net.imglib2.roi.geom.real.RealPointSampleListWritableRealPointCollection;
 import net.imglib2.roi.geom.real.WritableRealPointCollection;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -176,6 +192,23 @@ public class RealPointCollectionTest
 		assertFalse( rpc.test( new RealPoint( new double[] { -13, -13 } ) ) );
 	}
 
+	@Test
+	public void testDefaultRPCMovedPointAfterRehash()
+	{
+		final RealPoint moved = new RealPoint( 1, 1 );
+		final WritableRealPointCollection< RealPoint > rpc = new DefaultWritableRealPointCollection<>( Collections.singletonList( moved ) );
+		moved.setPosition( new double[] { 2, 2 } );
+
+		// grow the table, so that all points are rehashed
+		for ( int i = 0; i < 100; i++ )
+			rpc.addPoint( new RealPoint( 10 + i, -10 ) );
+
+		assertTrue( rpc.test( new RealPoint( 1, 1 ) ) );
+		assertFalse( rpc.test( new RealPoint( 2, 2 ) ) );
+		rpc.removePoint( new RealPoint( 1, 1 ) );
+		assertEquals( 100, rpc.size() );
+	}
+
 	@Test
 	public void testRealPointSampleListRPCAddPoint()
 	{
@@ -196,6 +229,147 @@ public class RealPointCollectionTest
 		rpc.removePoint( new RealPoint( new double[] { 0.03125, 0.00390625 } ) );
 	}
 
+	@Test
+	public void testDefaultRPCManyEdits()
+	{
+		final Random rand = new Random( 11 );
+		final List< RealPoint > expected = new ArrayList<>();
+		for ( int i = 0; i < 200; i++ )
+		{
+			final RealPoint p = new RealPoint( rand.nextInt( 30 ) - 15, rand.nextInt( 30 ) - 15 );
+			if ( !containsPosition( expected, p ) )
+				expected.add( p );
+		}
+		final WritableRealPointCollection< RealPoint > rpc = new DefaultWritableRealPointCollection<>( expected );
+
+		for ( int i = 0; i < 2000; i++ )
+		{
+			final RealPoint p = new RealPoint( rand.nextInt( 30 ) - 15, rand.nextInt( 30 ) - 15 );
+			if ( rand.nextBoolean() )
+			{
+				rpc.addPoint( p );
+				if ( !containsPosition( expected, p ) )
+					expected.add( p );
+			}
+			else
+			{
+				rpc.removePoint( p );
+				expected.removeIf( q -> q.getDoublePosition( 0 ) == p.getDoublePosition( 0 ) && q.getDoublePosition( 1 ) == p.getDoublePosition( 1 ) );
+			}
+
+			assertEquals( expected.size(), rpc.size() );
+			assertEquals( containsPosition( expected, p ), rpc.test( p ) );
+			if ( !expected.isEmpty() )
+			{
+				final RealInterval bounds = GeomMaths.getBoundsReal( expected );
+				for ( int d = 0; d < 2; d++ )
+				{
+					assertEquals( bounds.realMin( d ), rpc.realMin( d ), 0 );
+					assertEquals( bounds.realMax( d ), rpc.realMax( d ), 0 );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testGridRPCManyEdits()
+	{
+		final Random rand = new Random( 13 );
+		final List< RealPoint > expected = new ArrayList<>();
+		final GridWritableRealPointCollection< RealPoint > rpc = new GridWritableRealPointCollection<>( 2, 2.5 );
+		for ( int i = 0; i < 2000; i++ )
+		{
+			final RealPoint p = new RealPoint( rand.nextInt( 30 ) - 15, ( rand.nextInt( 60 ) - 30 ) / 2.0 );
+			if ( rand.nextInt( 3 ) > 0 )
+			{
+				rpc.addPoint( p );
+				if ( !containsPosition( expected, p ) )
+					expected.add( p );
+			}
+			else
+			{
+				rpc.removePoint( p );
+				expected.removeIf( q -> q.getDoublePosition( 0 ) == p.getDoublePosition( 0 ) && q.getDoublePosition( 1 ) == p.getDoublePosition( 1 ) );
+			}
+
+			assertEquals( expected.size(), rpc.size() );
+			assertEquals( containsPosition( expected, p ), rpc.test( p ) );
+			if ( !expected.isEmpty() )
+			{
+				final RealInterval bounds = GeomMaths.getBoundsReal( expected );
+				for ( int d = 0; d < 2; d++ )
+				{
+					assertEquals( bounds.realMin( d ), rpc.realMin( d ), 0 );
+					assertEquals( bounds.realMax( d ), rpc.realMax( d ), 0 );
+				}
+			}
+		}
+
+		for ( final double radius : new double[] { 0, 1, 3.7, 100 } )
+		{
+			final RealPoint center = new RealPoint( 2.25, -1 );
+			final Set< RealPoint > neighbors = new HashSet<>();
+			for ( final RealPoint q : expected )
+				if ( Util.distance( q, center ) <= radius )
+					neighbors.add( q );
+			assertEquals( neighbors, new HashSet<>( rpc.neighbors( center, radius ) ) );
+		}
+	}
+
+	@Test
+	public void testGridRPCConcurrentReads() throws Exception
+	{
+		final GridWritableRealPointCollection< RealPoint > rpc = new GridWritableRealPointCollection<>( 2, 4 );
+		for ( int i = 0; i < 100; i++ )
+			rpc.addPoint( new RealPoint( i, i ) );
+
+		final ExecutorService service = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final List< Future< ? > > readers = new ArrayList<>();
+			for ( int t = 0; t < 3; t++ )
+				readers.add( service.submit( () -> {
+					// points on the diagonal are never removed
+					final double[] max = new double[ 2 ];
+					for ( int i = 0; i < 10000; i++ )
+					{
+						assertTrue( rpc.test( new RealPoint( i % 100, i % 100 ) ) );
+						assertEquals( 0, rpc.realMin( 0 ), 0 );
+						rpc.realMax( max );
+						assertEquals( 99, max[ 0 ], 0 );
+						assertEquals( 99, max[ 1 ], 0 );
+					}
+				} ) );
+			final Future< ? > writer = service.submit( () -> {
+				for ( int i = 0; i < 10000; i++ )
+				{
+					final RealPoint p = new RealPoint( i % 100, -1 - i % 7 );
+					if ( i % 2 == 0 )
+						rpc.addPoint( p );
+					else
+						rpc.removePoint( p );
+				}
+			} );
+			writer.get();
+			for ( final Future< ? > reader : readers )
+				reader.get();
+		}
+		finally
+		{
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testGridRPCNegativeRadius()
+	{
+		final GridWritableRealPointCollection< RealPoint > rpc = new GridWritableRealPointCollection<>( 2, 4 );
+		rpc.addPoint( new RealPoint( 1, 1 ) );
+
+		exception.expect( IllegalArgumentException.class );
+		rpc.neighbors( new RealPoint( 0, 0 ), -2 );
+	}
+
 	@Test
 	public void testDefaultRPCBounds()
 	{
@@ -266,6 +440,49 @@ public class RealPointCollectionTest
 		assertArrayEquals( max, rpcMax, 0 );
 	}
 
+	@Test
+	public void testIterableRegion()
+	{
+		final List< RealLocalizable > withDuplicates = new ArrayList<>( points );
+		withDuplicates.add( new RealPoint( new double[] { 200, 3 } ) );
+		withDuplicates.add( new RealPoint( new double[] { -12.001, 80 } ) );
+		withDuplicates.add( new RealPoint( new double[] { 5, 80 } ) );
+
+		final List< RealPointCollection< RealLocalizable > > rpcs = new ArrayList<>();
+		rpcs.add( new DefaultWritableRealPointCollection<>( withDuplicates ) );
+		rpcs.add( new KDTreeRealPointCollection<>( withDuplicates ) );
+		rpcs.add( new RealPointSampleListWritableRealPointCollection<>( withDuplicates ) );
+		rpcs.add( new GridWritableRealPointCollection<>( withDuplicates, 4 ) );
+		for ( final RealPointCollection< RealLocalizable > rpc : rpcs )
+		{
+			final IterableRegion< BoolType > region = Masks.toIterableRegion( rpc );
+			assertEquals( 4, region.inside().size() );
+			assertSameInside( region );
+		}
+
+		assertSameInside( Masks.toIterableRegion( new DefaultWritablePointMask( new double[] { 3, -7 } ) ) );
+		assertEquals( 1, Masks.toIterableRegion( new DefaultWritablePointMask( new double[] { 3, -7 } ) ).inside().size() );
+		assertEquals( 0, Masks.toIterableRegion( new DefaultWritablePointMask( new double[] { 3, -7.5 } ) ).inside().size() );
+	}
+
+	@Test
+	public void testIterableRegionFollowsEdits()
+	{
+		final List< RealPoint > list = new ArrayList<>();
+		list.add( new RealPoint( 0, 0 ) );
+		list.add( new RealPoint( 10, 10 ) );
+		final WritableRealPointCollection< RealPoint > rpc = new DefaultWritableRealPointCollection<>( list );
+		final IterableRegion< BoolType > region = Masks.toIterableRegion( rpc );
+		assertEquals( 2, region.inside().size() );
+
+		rpc.addPoint( new RealPoint( 4, 7 ) );
+		assertEquals( 3, region.inside().size() );
+		assertSameInside( region );
+
+		rpc.removePoint( new RealPoint( 0, 0 ) );
+		assertEquals( 2, region.inside().size() );
+	}
+
 	@Test
 	public void testEquals()
 	{
@@ -397,4 +614,36 @@ public class RealPointCollectionTest
 		final PointMask pm = new DefaultWritablePointMask( new double[] { 83, 4 } );
 		assertNotEquals( d.hashCode(), pm.hashCode() );
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checks that the inside of {@code region} iterates exactly its
+	 * {@code true} pixels, in flat order.
+	 */
+	private static void assertSameInside( final IterableRegion< BoolType > region )
+	{
+		final Cursor< Void > inside = region.inside().localizingCursor();
+		final Cursor< BoolType > all = Views.flatIterable( region ).localizingCursor();
+		long size = 0;
+		while ( all.hasNext() )
+		{
+			if ( !all.next().get() )
+				continue;
+			assertTrue( inside.hasNext() );
+			inside.fwd();
+			assertArrayEquals( all.positionAsLongArray(), inside.positionAsLongArray() );
+			++size;
+		}
+		assertFalse( inside.hasNext() );
+		assertEquals( size, region.inside().size() );
+	}
+
+	private static boolean containsPosition( final List< RealPoint > points, final RealLocalizable p )
+	{
+		for ( final RealPoint q : points )
+			if ( q.getDoublePosition( 0 ) == p.getDoublePosition( 0 ) && q.getDoublePosition( 1 ) == p.getDoublePosition( 1 ) )
+				return true;
+		return false;
+	}
 }
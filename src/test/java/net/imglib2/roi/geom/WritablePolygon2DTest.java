@@ -53,6 +53,8 @@ import net.imglib2.roi.geom.real.Polygon2D;
 import net.imglib2.roi.geom.real.WritablePolygon2D;
 import net.imglib2.util.Util;
 
+import gnu.trove.list.array.TDoubleArrayList;
+
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
@@ -480,8 +482,81 @@ public class WritablePolygon2DTest
 		assertNotEquals( p.hashCode(), cp.hashCode() );
 	}
 
+	@Test
+	public void testManyVertices()
+	{
+		final double[][] star = star( 64 );
+		for ( final WritablePolygon2D p : new WritablePolygon2D[] {
+				new DefaultWritablePolygon2D( star[ 0 ], star[ 1 ] ),
+				new ClosedWritablePolygon2D( star[ 0 ], star[ 1 ] ),
+				new OpenWritablePolygon2D( star[ 0 ], star[ 1 ] ) } )
+		{
+			assertMatchesUnindexed( p );
+
+			p.vertex( 3 ).move( 5, 0 );
+			assertMatchesUnindexed( p );
+
+			p.removeVertex( 10 );
+			p.addVertex( 20, new RealPoint( 30, 30 ) );
+			assertMatchesUnindexed( p );
+		}
+	}
+
 	// -- Helper methods --
 
+	/**
+	 * Vertices of a star with {@code n} vertices on a half-integer grid, so
+	 * that many grid points lie on edges.
+	 */
+	private static double[][] star( final int n )
+	{
+		final double[][] xy = new double[ 2 ][ n ];
+		for ( int i = 0; i < n; i++ )
+		{
+			final double r = i % 2 == 0 ? 20 : 9;
+			final double a = 2 * Math.PI * i / n;
+			xy[ 0 ][ i ] = Math.round( 2 * r * Math.cos( a ) ) / 2.0;
+			xy[ 1 ][ i ] = Math.round( 2 * r * Math.sin( a ) ) / 2.0;
+		}
+		return xy;
+	}
+
+	/**
+	 * Compares {@code test} and {@code testRow} of a polygon with enough
+	 * vertices to be indexed against the unindexed edge and pnpoly tests.
+	 */
+	private static void assertMatchesUnindexed( final WritablePolygon2D p )
+	{
+		final int n = p.numVertices();
+		final TDoubleArrayList xs = new TDoubleArrayList();
+		final TDoubleArrayList ys = new TDoubleArrayList();
+		for ( int i = 0; i < n; i++ )
+		{
+			xs.add( p.vertex( i ).getDoublePosition( 0 ) );
+			ys.add( p.vertex( i ).getDoublePosition( 1 ) );
+		}
+
+		final int count = 101;
+		final boolean[] row = new boolean[ count ];
+		final RealPoint pos = new RealPoint( 2 );
+		for ( double y = -25; y <= 25; y += 0.5 )
+		{
+			pos.setPosition( new double[] { -25, y } );
+			p.testRow( pos, 0.5, count, row );
+			for ( int i = 0; i < count; i++ )
+			{
+				pos.setPosition( new double[] { -25 + i * 0.5, y } );
+				boolean expected = GeomMaths.pnpoly( xs, ys, pos );
+				if ( p.boundaryType() != BoundaryType.UNSPECIFIED )
+					for ( int v = 0; v < n; v++ )
+						if ( GeomMaths.lineContains( new double[] { xs.get( v ), ys.get( v ) }, new double[] { xs.get( ( v + 1 ) % n ), ys.get( ( v + 1 ) % n ) }, pos, 2 ) )
+							expected = p.boundaryType() == BoundaryType.CLOSED;
+				assertEquals( expected, p.test( pos ) );
+				assertEquals( expected, row[ i ] );
+			}
+		}
+	}
+
 	private boolean assertRealLocalizableEquals( final RealLocalizable predicted, final RealLocalizable expected )
 	{
 		return predicted.getDoublePosition( 0 ) == expected.getDoublePosition( 0 ) &&
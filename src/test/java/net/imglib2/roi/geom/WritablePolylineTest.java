@@ -435,8 +435,65 @@ public class WritablePolylineTest
 		assertNotEquals( p.hashCode(), l.hashCode() );
 	}
 
+	@Test
+	public void testManyVertices()
+	{
+		final Random rand = new Random( 7 );
+		final List< RealLocalizable > walk = new ArrayList<>();
+		final double[] pos = new double[ 3 ];
+		for ( int i = 0; i < 500; i++ )
+		{
+			walk.add( new RealPoint( pos ) );
+			pos[ rand.nextInt( 3 ) ] += rand.nextInt( 5 ) - 2;
+		}
+		final WritablePolyline polyline = new DefaultWritablePolyline( walk );
+		assertMatchesSegments( polyline, rand );
+
+		polyline.vertex( 100 ).move( 3, 1 );
+		polyline.removeVertex( 200 );
+		polyline.addVertex( 300, new RealPoint( 1.5, -2, 4 ) );
+		assertMatchesSegments( polyline, rand );
+	}
+
 	// -- Helper methods --
 
+	/**
+	 * Compares {@code test} with testing each segment separately, at the
+	 * vertices, segment midpoints, and random grid points.
+	 */
+	private static void assertMatchesSegments( final WritablePolyline polyline, final Random rand )
+	{
+		final List< RealLocalizable > points = new ArrayList<>();
+		for ( int i = 0; i < polyline.numVertices(); i++ )
+		{
+			points.add( new RealPoint( polyline.vertex( i ) ) );
+			if ( i > 0 )
+			{
+				final RealPoint mid = new RealPoint( 3 );
+				for ( int d = 0; d < 3; d++ )
+					mid.setPosition( ( polyline.vertex( i - 1 ).getDoublePosition( d ) + polyline.vertex( i ).getDoublePosition( d ) ) / 2, d );
+				points.add( mid );
+			}
+		}
+		for ( int i = 0; i < 2000; i++ )
+			points.add( new RealPoint( rand.nextInt( 40 ) - 20, rand.nextInt( 40 ) - 20, ( rand.nextInt( 80 ) - 40 ) / 2.0 ) );
+
+		for ( final RealLocalizable p : points )
+		{
+			boolean expected = false;
+			for ( int i = 1; i < polyline.numVertices(); i++ )
+				expected |= GeomMaths.lineContains( position( polyline.vertex( i - 1 ) ), position( polyline.vertex( i ) ), p, 3 );
+			assertEquals( expected, polyline.test( p ) );
+		}
+	}
+
+	private static double[] position( final RealLocalizable l )
+	{
+		final double[] position = new double[ l.numDimensions() ];
+		l.localize( position );
+		return position;
+	}
+
 	private boolean assertRealLocalizableEquals( final RealLocalizable predicted, final RealLocalizable expected )
 	{
 		if ( predicted.numDimensions() != expected.numDimensions() )
@@ -182,6 +182,55 @@ public class WritableSuperEllipsoidTest
 		assertTrue( se.boundaryType() == BoundaryType.CLOSED );
 	}
 
+	@Test
+	public void testKernelsMatchPow()
+	{
+		final double[] center = new double[] { 1.5, 0, -2 };
+		final double[] semiAxes = new double[] { 49, 3, 7 };
+		final double[] exponents = new double[] { 0.5, 1, 2, 2.5, 3, 4, 7, 64, 100 };
+		final WritableSuperEllipsoid open = new OpenWritableSuperEllipsoid( center, semiAxes, 1 );
+		final WritableSuperEllipsoid closed = new ClosedWritableSuperEllipsoid( center, semiAxes, 1 );
+		final RealPoint start = new RealPoint( 3 );
+		final RealPoint p = new RealPoint( 3 );
+		final int count = 103;
+		final boolean[] openRow = new boolean[ count ];
+		final boolean[] closedRow = new boolean[ count ];
+		for ( final double exponent : exponents )
+		{
+			open.setExponent( exponent );
+			closed.setExponent( exponent );
+			for ( int z = -10; z <= 6; z++ )
+				for ( int y = -4; y <= 4; y++ )
+				{
+					start.setPosition( new double[] { -50, y, z } );
+					open.testRow( start, 1, count, openRow );
+					closed.testRow( start, 1, count, closedRow );
+					for ( int i = 0; i < count; i++ )
+					{
+						p.setPosition( new double[] { -50 + i, y, z } );
+						double distancePowered = 0;
+						for ( int d = 0; d < 3; d++ )
+							distancePowered += Math.pow( Math.abs( ( p.getDoublePosition( d ) - center[ d ] ) / semiAxes[ d ] ), exponent );
+						assertEquals( distancePowered < 1, open.test( p ) );
+						assertEquals( distancePowered <= 1, closed.test( p ) );
+						assertEquals( distancePowered < 1, openRow[ i ] );
+						assertEquals( distancePowered <= 1, closedRow[ i ] );
+					}
+				}
+		}
+
+		// exact boundary points
+		closed.setExponent( 2 );
+		open.setExponent( 2 );
+		for ( int d = 0; d < 3; d++ )
+		{
+			p.setPosition( center );
+			p.move( semiAxes[ d ], d );
+			assertTrue( closed.test( p ) );
+			assertFalse( open.test( p ) );
+		}
+	}
+
 	@Test
 	public void testMutateOpenSuperEllipsoid()
 	{
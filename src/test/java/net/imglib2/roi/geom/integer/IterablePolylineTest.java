@@ -0,0 +1,197 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.geom.integer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.util.Intervals;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link IterablePolyline}.
+ */
+public class IterablePolylineTest
+{
+	@Test
+	public void testSegmentMatchesIterableLine()
+	{
+		// odd number of steps, so that no coordinate is rounded from exactly .5
+		final Point a = new Point( 2, -3, 5 );
+		final Point b = new Point( 13, 1, -2 );
+		final IterablePolyline polyline = new IterablePolyline( Arrays.asList( a, b ), false );
+		final IterableLine line = new IterableLine( a, b );
+		assertEquals( line.size(), polyline.size() );
+		assertEquals( positions( line.cursor() ), positions( polyline.cursor() ) );
+	}
+
+	@Test
+	public void testOpenPolyline()
+	{
+		final List< Point > vertices = Arrays.asList( new Point( 0, 0 ), new Point( 7, 3 ), new Point( 7, 3 ), new Point( -2, 10 ), new Point( 4, -5 ) );
+		final IterablePolyline polyline = new IterablePolyline( vertices, false );
+		final List< List< Long > > positions = positions( polyline.cursor() );
+
+		assertEquals( 7 + 9 + 15 + 1, polyline.size() );
+		assertEquals( polyline.size(), positions.size() );
+		assertConnected( positions );
+		for ( final Point v : vertices )
+			assertTrue( positions.contains( toList( v ) ) );
+		assertEquals( toList( vertices.get( 0 ) ), positions.get( 0 ) );
+		assertEquals( toList( vertices.get( 4 ) ), positions.get( positions.size() - 1 ) );
+		assertBounds( polyline, positions );
+	}
+
+	@Test
+	public void testPolygonOutline()
+	{
+		final IterablePolyline outline = IterablePolyline.of( GeomMasks.polygon2D( new double[] { 0.2, 10, 10, 3.6 }, new double[] { 0, 0.4, 8, 5 } ) );
+		final List< List< Long > > positions = positions( outline.cursor() );
+
+		assertEquals( 10 + 8 + 6 + 5, outline.size() );
+		assertEquals( outline.size(), positions.size() );
+		assertConnected( positions );
+		// closed: the first point follows the last one
+		final List< List< Long > > loop = new ArrayList<>( positions );
+		loop.add( positions.get( 0 ) );
+		assertConnected( loop );
+		assertEquals( positions.size(), new HashSet<>( positions ).size() );
+	}
+
+	@Test
+	public void testJumpFwd()
+	{
+		final IterablePolyline polyline = new IterablePolyline( Arrays.asList( new Point( 0, 0 ), new Point( 20, 7 ), new Point( 3, 30 ), new Point( -4, -4 ) ), true );
+		final List< List< Long > > positions = positions( polyline.cursor() );
+		for ( int first = 1; first <= positions.size(); first += 3 )
+			for ( int second = 0; first + second <= positions.size(); second += 5 )
+			{
+				final Cursor< Void > c = polyline.cursor();
+				c.jumpFwd( first );
+				assertEquals( positions.get( first - 1 ), toList( c ) );
+				if ( second > 0 )
+				{
+					c.jumpFwd( second );
+					assertEquals( positions.get( first + second - 1 ), toList( c ) );
+				}
+				final Cursor< Void > copy = c.copy();
+				if ( copy.hasNext() )
+				{
+					copy.fwd();
+					assertEquals( positions.get( first + second ), toList( copy ) );
+				}
+			}
+	}
+
+	@Test
+	public void testSplit()
+	{
+		final IterablePolyline polyline = new IterablePolyline( Arrays.asList( new Point( 0, 0, 0 ), new Point( 20, 7, 1 ), new Point( 3, 30, -6 ), new Point( -4, -4, 2 ) ), false );
+		final List< List< Long > > expected = positions( polyline.cursor() );
+		for ( final int numParts : new int[] { 1, 2, 7, 1000 } )
+		{
+			final List< IterablePolyline > parts = polyline.split( numParts );
+			assertEquals( Math.min( numParts, polyline.size() ), parts.size() );
+			final List< List< Long > > actual = new ArrayList<>();
+			for ( final IterablePolyline part : parts )
+			{
+				final List< List< Long > > positions = positions( part.cursor() );
+				assertEquals( part.size(), positions.size() );
+				assertBounds( part, positions );
+				actual.addAll( positions );
+			}
+			assertEquals( expected, actual );
+		}
+	}
+
+	// -- Helper methods --
+
+	private static List< List< Long > > positions( final Cursor< Void > cursor )
+	{
+		final List< List< Long > > positions = new ArrayList<>();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			positions.add( toList( cursor ) );
+		}
+		return positions;
+	}
+
+	private static List< Long > toList( final Localizable l )
+	{
+		final List< Long > list = new ArrayList<>();
+		for ( int d = 0; d < l.numDimensions(); d++ )
+			list.add( l.getLongPosition( d ) );
+		return list;
+	}
+
+	private static void assertConnected( final List< List< Long > > positions )
+	{
+		for ( int i = 1; i < positions.size(); i++ )
+		{
+			long distance = 0;
+			for ( int d = 0; d < positions.get( i ).size(); d++ )
+				distance = Math.max( distance, Math.abs( positions.get( i ).get( d ) - positions.get( i - 1 ).get( d ) ) );
+			assertEquals( "step " + i, 1, distance );
+		}
+	}
+
+	private static void assertBounds( final IterablePolyline polyline, final List< List< Long > > positions )
+	{
+		final int n = polyline.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		Arrays.fill( min, Long.MAX_VALUE );
+		Arrays.fill( max, Long.MIN_VALUE );
+		for ( final List< Long > p : positions )
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ d ] = Math.min( min[ d ], p.get( d ) );
+				max[ d ] = Math.max( max[ d ], p.get( d ) );
+			}
+		assertArrayEquals( min, Intervals.minAsLongArray( polyline ) );
+		assertArrayEquals( max, Intervals.maxAsLongArray( polyline ) );
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.labeling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.LabelRegionsSummary.LabelSummary;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+public class LabelRegionsSummaryTest
+{
+	@Test
+	public void testMergeTiles()
+	{
+		final ImgLabeling< Integer, IntType > labeling = LabelRegionsTest.overlappingLabeling( 40, 30 );
+		final LabelRegions< Integer > global = new LabelRegions<>( labeling );
+		final List< LabelRegionsSummary< Integer > > tiles = tileSummaries( labeling, true );
+
+		final LabelRegionsSummary< Integer > left = tiles.get( 0 ).merge( tiles.get( 1 ) ).merge( tiles.get( 2 ).merge( tiles.get( 3 ) ) );
+		final LabelRegionsSummary< Integer > right = tiles.get( 3 ).merge( tiles.get( 2 ).merge( tiles.get( 1 ).merge( tiles.get( 0 ) ) ) );
+		assertEquals( left, right );
+		assertTrue( left.hasIterationCodes() );
+
+		assertEquals( global.getExistingLabels(), left.getLabelSummaries().keySet() );
+		for ( final LabelRegion< Integer > region : global )
+		{
+			final LabelSummary summary = left.getLabelSummary( region.getLabel() );
+			assertEquals( region.inside().size(), summary.getSize() );
+			assertArrayEquals( region.minAsLongArray(), summary.getBoundingBoxMin() );
+			assertArrayEquals( region.maxAsLongArray(), summary.getBoundingBoxMax() );
+			assertArrayEquals( region.getCenterOfMass().positionAsDoubleArray(), summary.getCenterOfMass(), 1e-12 );
+			assertEquals( region.iterationCode(), summary.getIterationCode() );
+			assertArrayEquals( new double[] { summary.getSize() }, summary.getFeatures(), 0 );
+		}
+	}
+
+	@Test
+	public void testWithoutIterationCodes()
+	{
+		final ImgLabeling< Integer, IntType > labeling = LabelRegionsTest.overlappingLabeling( 20, 20 );
+		final List< LabelRegionsSummary< Integer > > withCodes = tileSummaries( labeling, true );
+		final List< LabelRegionsSummary< Integer > > withoutCodes = tileSummaries( labeling, false );
+		final LabelRegionsSummary< Integer > merged = withCodes.get( 0 ).merge( withoutCodes.get( 1 ) );
+		assertFalse( merged.hasIterationCodes() );
+		for ( final LabelSummary summary : merged.getLabelSummaries().values() )
+			assertNull( summary.getIterationCode() );
+		assertEquals( withoutCodes.get( 0 ).merge( withoutCodes.get( 1 ) ), merged );
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException
+	{
+		final ImgLabeling< Integer, IntType > labeling = LabelRegionsTest.overlappingLabeling( 20, 10 );
+		final LabelRegionsSummary< Integer > summary = tileSummaries( labeling, true ).get( 3 );
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream( bytes ))
+		{
+			out.writeObject( summary );
+		}
+		try (ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			assertEquals( summary, in.readObject() );
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Summarize the four quadrants of {@code labeling}, each as a zero-min
+	 * view with its own {@link LabelRegions}. The number of pixels is
+	 * accumulated as a feature.
+	 */
+	private static List< LabelRegionsSummary< Integer > > tileSummaries( final ImgLabeling< Integer, IntType > labeling, final boolean withCodes )
+	{
+		final long w = labeling.dimension( 0 );
+		final long h = labeling.dimension( 1 );
+		final List< LabelRegionsSummary< Integer > > summaries = new ArrayList<>();
+		for ( final long[] min : new long[][] { { 0, 0 }, { w / 2, 0 }, { 0, h / 2 }, { w / 2, h / 2 } } )
+		{
+			final Interval tile = new FinalInterval( min, new long[] { min[ 0 ] == 0 ? w / 2 - 1 : w - 1, min[ 1 ] == 0 ? h / 2 - 1 : h - 1 } );
+			final RandomAccessibleInterval< LabelingType< Integer > > view = Views.zeroMin( Views.interval( labeling, tile ) );
+			final LabelRegions< Integer > regions = new LabelRegions<>( view, true );
+			final LabelRegionsSummary< Integer > summary = LabelRegionsSummary.of( regions, min, withCodes );
+			for ( final LabelRegion< Integer > region : regions )
+				summary.accumulate( region.getLabel(), region.inside().size() );
+			summaries.add( summary );
+		}
+		return summaries;
+	}
+}
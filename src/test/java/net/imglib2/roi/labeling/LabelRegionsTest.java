@@ -0,0 +1,312 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.labeling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.roi.util.iterationcode.RunLengthCodeRandomAccess;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.type.numeric.integer.IntType;
+
+public class LabelRegionsTest
+{
+	@Test
+	public void testMergeFragments()
+	{
+		final ImgLabeling< Integer, IntType > labeling = overlappingLabeling( 40, 30 );
+		final LabelRegions< Integer > regions = new LabelRegions<>( labeling );
+		assertFalse( regions.isMergeFragments() );
+		for ( final LabelRegion< Integer > region : regions )
+		{
+			region.setPosition( new long[] { -3, 8 } );
+			final Set< List< Long > > fragmentOrder = positions( region.inside().cursor() );
+			regions.setMergeFragments( true );
+			final Set< List< Long > > flatOrder = positions( region.inside().cursor() );
+			regions.setMergeFragments( false );
+			assertEquals( fragmentOrder, flatOrder );
+			assertEquals( region.inside().size(), flatOrder.size() );
+			assertEquals( region.inside().size(), region.iterationCode().getSize() );
+		}
+	}
+
+	@Test
+	public void testMergedCursorIsFlat()
+	{
+		final ImgLabeling< Integer, IntType > labeling = overlappingLabeling( 25, 20 );
+		final LabelRegions< Integer > regions = new LabelRegions<>( labeling );
+		regions.setMergeFragments( true );
+		for ( final LabelRegion< Integer > region : regions )
+		{
+			final Cursor< Void > c = region.inside().cursor();
+			long previous = Long.MIN_VALUE;
+			long count = 0;
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				final long index = c.getLongPosition( 0 ) + 25 * c.getLongPosition( 1 );
+				assertTrue( index > previous );
+				previous = index;
+				++count;
+			}
+			assertEquals( region.inside().size(), count );
+		}
+	}
+
+	@Test
+	public void testMergedCodeFollowsModifications()
+	{
+		final ImgLabeling< Integer, IntType > labeling = overlappingLabeling( 10, 10 );
+		final LabelRegions< Integer > regions = new LabelRegions<>( labeling );
+		regions.setMergeFragments( true );
+		final LabelRegion< Integer > region = regions.getLabelRegion( 0 );
+		final long size = region.iterationCode().getSize();
+
+		final RandomAccess< LabelingType< Integer > > ra = labeling.randomAccess();
+		ra.setPosition( new long[] { 0, 0 } );
+		final boolean added = ra.get().add( 0 );
+		final Set< List< Long > > inside = positions( region.inside().cursor() );
+		assertEquals( added ? size + 1 : size, region.iterationCode().getSize() );
+		assertEquals( inside.size(), region.iterationCode().getSize() );
+	}
+
+	@Test
+	public void testCodeRandomAccess()
+	{
+		final ImgLabeling< Integer, IntType > labeling = overlappingLabeling( 30, 20 );
+		final LabelRegions< Integer > regions = new LabelRegions<>( labeling );
+		for ( final LabelRegion< Integer > region : regions )
+		{
+			final RunLengthCodeRandomAccess codeAccess = region.codeRandomAccess();
+			for ( final long[] position : new long[][] { { 0, 0 }, { 7, -4 } } )
+			{
+				region.setPosition( position );
+				final RandomAccess< BoolType > access = region.randomAccess();
+				final LocalizingIntervalIterator c = new LocalizingIntervalIterator( region );
+				while ( c.hasNext() )
+				{
+					c.fwd();
+					access.setPosition( c );
+					codeAccess.setPosition( c );
+					assertEquals( access.get().get(), codeAccess.get().get() );
+				}
+				codeAccess.setPosition( region.max( 0 ) + 1, 0 );
+				assertFalse( codeAccess.get().get() );
+				codeAccess.setPosition( region.max( 1 ) + 1, 1 );
+				assertFalse( codeAccess.get().get() );
+			}
+		}
+	}
+
+	@Test
+	public void testParallelStream()
+	{
+		final ImgLabeling< Integer, IntType > labeling = manyLabels();
+		final LabelRegions< Integer > regions = new LabelRegions<>( labeling );
+		final Set< Integer > labels = regions.parallelStream().map( LabelRegion::getLabel ).collect( Collectors.toSet() );
+		assertEquals( regions.getExistingLabels(), labels );
+		final long size = regions.parallelStream().mapToLong( r -> r.inside().size() ).sum();
+		assertEquals( 100 * 100, size );
+		assertEquals( labels.size(), regions.stream().count() );
+		for ( final LabelRegion< Integer > region : regions )
+			assertTrue( region == regions.getLabelRegion( region.getLabel() ) );
+	}
+
+	@Test
+	public void testSplitBySize()
+	{
+		final LabelRegions< Integer > regions = new LabelRegions<>( manyLabels() );
+		final Spliterator< LabelRegion< Integer > > suffix = regions.spliterator();
+		final long total = suffix.estimateSize();
+		final Spliterator< LabelRegion< Integer > > prefix = suffix.trySplit();
+		assertEquals( total, prefix.estimateSize() + suffix.estimateSize() );
+		// the giant label has half of the pixels, 200 small labels share the rest
+		assertEquals( 201, total );
+		assertTrue( prefix.tryAdvance( r -> assertEquals( 0, r.getLabel().intValue() ) ) );
+		// each region weighs its size plus one
+		final long[] weights = { 5001, 0 };
+		prefix.forEachRemaining( r -> weights[ 0 ] += r.inside().size() + 1 );
+		suffix.forEachRemaining( r -> weights[ 1 ] += r.inside().size() + 1 );
+		assertTrue( Math.abs( weights[ 0 ] - weights[ 1 ] ) <= 26 );
+	}
+
+	@Test
+	public void testForEachParallel()
+	{
+		final LabelRegions< Integer > regions = new LabelRegions<>( manyLabels() );
+		final Map< Integer, Long > sizes = new ConcurrentHashMap<>();
+		Parallelization.runWithNumThreads( 4, () -> regions.forEachParallel( r -> assertNull( sizes.put( r.getLabel(), r.inside().size() ) ) ) );
+		assertEquals( regions.getExistingLabels(), sizes.keySet() );
+		for ( final LabelRegion< Integer > region : regions )
+			assertEquals( region.inside().size(), sizes.get( region.getLabel() ).longValue() );
+	}
+
+	@Test
+	public void testLazyIterationCodes()
+	{
+		final ImgLabeling< Integer, IntType > labeling = overlappingLabeling( 31, 17 );
+		final LabelRegions< Integer > eager = new LabelRegions<>( labeling );
+		final LabelRegions< Integer > lazy = new LabelRegions<>( labeling, true );
+		assertEquals( eager.getExistingLabels(), lazy.getExistingLabels() );
+		// no fragment itcodes are built
+		assertTrue( lazy.indexToFragmentProperties.isEmpty() );
+		for ( int i = 0; i < 2; ++i )
+		{
+			for ( final Integer label : eager.getExistingLabels() )
+			{
+				final LabelRegion< Integer > expected = eager.getLabelRegion( label );
+				final LabelRegion< Integer > actual = lazy.getLabelRegion( label );
+				assertEquals( expected.inside().size(), actual.inside().size() );
+				assertArrayEquals( expected.minAsLongArray(), actual.minAsLongArray() );
+				assertArrayEquals( expected.maxAsLongArray(), actual.maxAsLongArray() );
+				assertArrayEquals( expected.getCenterOfMass().positionAsDoubleArray(), actual.getCenterOfMass().positionAsDoubleArray(), 0 );
+				assertEquals( positions( expected.inside().cursor() ), positions( actual.inside().cursor() ) );
+				assertEquals( expected.iterationCode(), actual.iterationCode() );
+			}
+
+			// modify the labeling, and check again
+			final RandomAccess< LabelingType< Integer > > ra = labeling.randomAccess();
+			ra.setPosition( new long[] { 30, 16 } );
+			ra.get().clear();
+			ra.get().add( 7 );
+		}
+	}
+
+	@Test
+	public void testIterationCodeCache()
+	{
+		final ImgLabeling< Integer, IntType > labeling = manyLabels();
+		final LabelRegions< Integer > eager = new LabelRegions<>( labeling );
+		// measure one of the (equally shaped) small labels, and make room for two
+		final LabelRegions< Integer > probe = new LabelRegions<>( labeling, Long.MAX_VALUE );
+		probe.getLabelRegion( 11 ).inside().cursor();
+		final long bytesPerLabel = probe.getIterationCodeCache().getBytes();
+		final LabelRegions< Integer > cached = new LabelRegions<>( labeling, 2 * bytesPerLabel );
+		final IterationCodeCache cache = cached.getIterationCodeCache();
+		assertEquals( 0, cache.size() );
+
+		for ( final Integer label : Arrays.asList( 11, 12, 11, 13, 11 ) )
+		{
+			final LabelRegion< Integer > region = cached.getLabelRegion( label );
+			assertEquals( positions( eager.getLabelRegion( label ).inside().cursor() ), positions( region.inside().cursor() ) );
+		}
+		assertEquals( 2, cache.getHits() );
+		assertEquals( 3, cache.getMisses() );
+		assertEquals( 1, cache.getEvictions() );
+		assertEquals( 2, cache.size() );
+		assertTrue( cache.getBytes() <= cache.getMaxBytes() );
+
+		// the giant label alone exceeds the budget, but is kept until the next one
+		final LabelRegion< Integer > giant = cached.getLabelRegion( 0 );
+		assertEquals( eager.getLabelRegion( 0 ).iterationCode(), giant.iterationCode() );
+		assertEquals( 1, cache.size() );
+		assertTrue( giant.codeRandomAccess().setPositionAndGet( 3, 4 ).get() );
+
+		// modifying the labeling invalidates the cache
+		final RandomAccess< LabelingType< Integer > > ra = labeling.randomAccess();
+		ra.setPosition( new long[] { 0, 0 } );
+		ra.get().clear();
+		assertEquals( eager.getLabelRegion( 0 ).inside().size(), giant.inside().size() );
+		assertEquals( positions( eager.getLabelRegion( 0 ).inside().cursor() ), positions( giant.inside().cursor() ) );
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Creates a 100x100 labeling where the left half is label 0 and every
+	 * 5x5 tile of the right half has its own label.
+	 */
+	private static ImgLabeling< Integer, IntType > manyLabels()
+	{
+		final ImgLabeling< Integer, IntType > labeling = new ImgLabeling<>( ArrayImgs.ints( 100, 100 ) );
+		final Cursor< LabelingType< Integer > > c = labeling.localizingCursor();
+		while ( c.hasNext() )
+		{
+			final LabelingType< Integer > t = c.next();
+			final int x = c.getIntPosition( 0 );
+			final int y = c.getIntPosition( 1 );
+			t.add( x < 50 ? 0 : 1 + x / 5 + 20 * ( y / 5 ) );
+		}
+		return labeling;
+	}
+
+	/**
+	 * Creates a labeling where every pixel has a random subset of the labels
+	 * 0, 1, 2, 3.
+	 */
+	static ImgLabeling< Integer, IntType > overlappingLabeling( final long... dims )
+	{
+		final Img< IntType > indexImg = ArrayImgs.ints( dims );
+		final ImgLabeling< Integer, IntType > labeling = new ImgLabeling<>( indexImg );
+		final Random random = new Random( 11 );
+		for ( final LabelingType< Integer > t : labeling )
+			for ( int label = 0; label < 4; ++label )
+				if ( random.nextDouble() < 0.4 )
+					t.add( label );
+		return labeling;
+	}
+
+	private static Set< List< Long > > positions( final Cursor< Void > c )
+	{
+		final Set< List< Long > > positions = new HashSet<>();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			assertTrue( positions.add( LongStream.of( c.positionAsLongArray() ).boxed().collect( Collectors.toList() ) ) );
+		}
+		return positions;
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.mask.integer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.MaskInterval;
+import net.imglib2.roi.Masks;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.view.Views;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests {@link BitMaskInterval}.
+ */
+public class BitMaskIntervalTest
+{
+	private static MaskInterval a;
+
+	private static MaskInterval b;
+
+	private static BitMaskInterval bitsA;
+
+	private static BitMaskInterval bitsB;
+
+	@BeforeClass
+	public static void setup()
+	{
+		a = randomMask( 1 );
+		b = randomMask( 2 );
+		bitsA = BitMaskInterval.of( a );
+		bitsB = BitMaskInterval.of( b );
+	}
+
+	@Test
+	public void testConversion()
+	{
+		assertMatches( a, bitsA );
+		assertSame( bitsA, BitMaskInterval.of( bitsA ) );
+		assertEquals( 0, bitsA.modificationCount() );
+	}
+
+	@Test
+	public void testOperations()
+	{
+		assertMatches( a.and( b ), bitsA.and( bitsB ) );
+		assertMatches( a.or( b ), bitsA.or( bitsB ) );
+		assertMatches( a.xor( b ), bitsA.xor( bitsB ) );
+		assertMatches( a.minus( b ), bitsA.minus( bitsB ) );
+		final BitMaskInterval complement = bitsA.complement();
+		assertEquals( 70 * 9 * 4 - bitsA.size(), complement.size() );
+		assertMatches( complement.and( a.negate() ), complement );
+		assertEquals( 0, complement.and( bitsA ).size() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testDifferentIntervals()
+	{
+		bitsA.and( BitMaskInterval.of( a, new FinalInterval( 70, 9, 3 ) ) );
+	}
+
+	@Test
+	public void testRow()
+	{
+		final boolean[] row = new boolean[ 90 ];
+		final Point start = new Point( -10, 3, 2 );
+		bitsA.testRow( start, row.length, row );
+		for ( int i = 0; i < row.length; i++ )
+		{
+			start.setPosition( -10 + i, 0 );
+			assertEquals( a.test( start ), row[ i ] );
+		}
+	}
+
+	@Test
+	public void testJumpFwd()
+	{
+		final List< long[] > expected = positions( a );
+		for ( final int steps : new int[] { 1, 3, 64, 100 } )
+		{
+			final Cursor< Void > c = bitsA.inside().cursor();
+			for ( int i = steps - 1; i < expected.size(); i += steps )
+			{
+				c.jumpFwd( steps );
+				assertArrayEquals( expected.get( i ), c.positionAsLongArray() );
+			}
+		}
+	}
+
+	@Test
+	public void testIterableRegion()
+	{
+		final IterableRegion< BoolType > region = Masks.toIterableRegion( bitsA );
+		assertEquals( bitsA.size(), region.inside().size() );
+		final Cursor< Void > c = region.inside().cursor();
+		c.fwd();
+		assertTrue( region.randomAccess().setPositionAndGet( c ).get() );
+	}
+
+	// -- Helper methods --
+
+	private static MaskInterval randomMask( final long seed )
+	{
+		final Img< BitType > img = ArrayImgs.bits( 70, 9, 4 );
+		final Random rand = new Random( seed );
+		for ( final BitType t : img )
+			t.set( rand.nextInt( 3 ) == 0 );
+		return Masks.toMaskInterval( Views.translate( img, 5, -2, 1 ) );
+	}
+
+	private static List< long[] > positions( final Predicate< ? super Localizable > mask )
+	{
+		final List< long[] > positions = new ArrayList<>();
+		final LocalizingIntervalIterator it = new LocalizingIntervalIterator( a );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			if ( mask.test( it ) )
+				positions.add( it.positionAsLongArray() );
+		}
+		return positions;
+	}
+
+	private static void assertMatches( final MaskInterval expected, final BitMaskInterval actual )
+	{
+		final List< long[] > positions = positions( expected );
+		assertEquals( positions.size(), actual.size() );
+		assertEquals( positions.size(), actual.inside().size() );
+		final Cursor< Void > c = actual.inside().cursor();
+		for ( final long[] pos : positions )
+		{
+			assertTrue( c.hasNext() );
+			c.fwd();
+			assertArrayEquals( pos, c.positionAsLongArray() );
+			assertTrue( actual.test( c ) );
+		}
+		assertFalse( c.hasNext() );
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.Regions;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests {@link BlockOccupancy} and {@link BlockSkippingTrueCursor}.
+ */
+public class BlockOccupancyTest
+{
+	private static Img< BitType > img;
+
+	private static List< long[] > expected;
+
+	@BeforeClass
+	public static void setUp()
+	{
+		img = ArrayImgs.bits( 37, 29, 23 );
+		final Random rand = new Random( 7 );
+		final RandomAccess< BitType > ra = img.randomAccess();
+		for ( int i = 0; i < 150; ++i )
+			ra.setPositionAndGet( rand.nextInt( 37 ), rand.nextInt( 29 ), rand.nextInt( 5 ) ).set( true );
+		ra.setPositionAndGet( 36, 28, 22 ).set( true );
+		ra.setPositionAndGet( 0, 0, 0 ).set( true );
+
+		expected = new ArrayList<>();
+		final Cursor< BitType > c = Views.flatIterable( img ).localizingCursor();
+		while ( c.hasNext() )
+			if ( c.next().get() )
+				expected.add( c.positionAsLongArray() );
+	}
+
+	@Test
+	public void testCounts()
+	{
+		final BlockOccupancy popcount = new BlockOccupancy( img, 128, 4 );
+		final BlockOccupancy generic = new BlockOccupancy( Views.interval( img, img ), 128, 4 );
+		assertEquals( expected.size(), popcount.size() );
+		assertEquals( expected.size(), generic.size() );
+		for ( int b = 0; b < popcount.numBlocks(); ++b )
+			assertEquals( generic.blockCount( b ), popcount.blockCount( b ) );
+		assertTrue( Intervals.equals( img, popcount.interval() ) );
+	}
+
+	@Test
+	public void testIteration()
+	{
+		for ( final int blockSize : new int[] { 1, 7, 64, 256, 100000 } )
+		{
+			final IterableRegion< BitType > region = new IterableRegionOnBooleanRAI<>( img, new BlockOccupancy( img, blockSize, 3 ) );
+			assertEquals( expected.size(), region.inside().size() );
+			final Cursor< Void > c = region.inside().cursor();
+			for ( final long[] pos : expected )
+			{
+				assertTrue( c.hasNext() );
+				c.fwd();
+				assertArrayEquals( pos, c.positionAsLongArray() );
+			}
+			assertFalse( c.hasNext() );
+		}
+	}
+
+	@Test
+	public void testJumpFwd()
+	{
+		final IterableRegion< BitType > region = new IterableRegionOnBooleanRAI<>( img, new BlockOccupancy( img, 64, 2 ) );
+		for ( final int steps : new int[] { 1, 2, 5, 17, 60 } )
+		{
+			final Cursor< Void > c = region.inside().cursor();
+			int i = -1;
+			while ( i + steps < expected.size() )
+			{
+				c.jumpFwd( steps );
+				i += steps;
+				assertArrayEquals( expected.get( i ), c.positionAsLongArray() );
+			}
+		}
+	}
+
+	@Test
+	public void testCopy()
+	{
+		final Cursor< Void > c = Regions.sparseIterable( img ).inside().cursor();
+		c.jumpFwd( 10 );
+		final Cursor< Void > copy = c.copy();
+		c.fwd();
+		copy.fwd();
+		assertArrayEquals( expected.get( 10 ), copy.positionAsLongArray() );
+		assertArrayEquals( c.positionAsLongArray(), copy.positionAsLongArray() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testMismatchedInterval()
+	{
+		final RandomAccessibleInterval< BitType > other = Views.interval( img, Intervals.expand( img, -1 ) );
+		new IterableRegionOnBooleanRAI<>( other, new BlockOccupancy( img ) );
+	}
+}
@@ -38,19 +38,25 @@ import java.util.NoSuchElementException;
 import java.util.Random;
 import net.imglib2.Cursor;
 import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.roi.IterableRegion;
 import net.imglib2.roi.Regions;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.util.ConstantUtils;
+import net.imglib2.view.Views;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -121,6 +127,26 @@ public class IterableRegionOnBooleanRAITest
 		}
 	}
 
+	@Test
+	public void testPositionAfterHasNext()
+	{
+		final Cursor< BitType > imgC = img.localizingCursor();
+		final Cursor< Void > irC = ir.inside().cursor();
+
+		while ( imgC.hasNext() )
+		{
+			if ( imgC.next().get() )
+			{
+				irC.fwd();
+				// looking ahead does not move the cursor
+				irC.hasNext();
+				assertEquals( imgC.getLongPosition( 0 ), irC.getLongPosition( 0 ) );
+				assertEquals( imgC.getLongPosition( 1 ), irC.getLongPosition( 1 ) );
+			}
+		}
+		assertFalse( irC.hasNext() );
+	}
+
 	@Test
 	public void testFirstElement()
 	{
@@ -164,4 +190,76 @@ public class IterableRegionOnBooleanRAITest
 		exception.expect( NoSuchElementException.class );
 		empty.inside().firstElement();
 	}
+
+	@Test
+	public void testLazySize()
+	{
+		final Img< BitType > bits = ArrayImgs.bits( 10, 10 );
+		final IterableRegion< BitType > region = Regions.iterable( bits );
+		final Cursor< Void > c = region.inside().cursor();
+		assertFalse( c.hasNext() );
+
+		// size is computed on demand, not when wrapping
+		bits.randomAccess().setPositionAndGet( 3, 4 ).set( true );
+		final Cursor< Void > c2 = region.inside().cursor();
+		assertTrue( c2.hasNext() );
+		c2.fwd();
+		assertEquals( 3, c2.getLongPosition( 0 ) );
+		assertEquals( 4, c2.getLongPosition( 1 ) );
+		assertFalse( c2.hasNext() );
+		assertEquals( 1, region.inside().size() );
+
+		// ... and cached afterwards
+		bits.randomAccess().setPositionAndGet( 5, 6 ).set( true );
+		assertEquals( 1, region.inside().size() );
+	}
+
+	@Test
+	public void testCursorCopy()
+	{
+		final Cursor< Void > c = ir.inside().cursor();
+		c.fwd();
+		c.fwd();
+		assertTrue( c.hasNext() );
+		final Cursor< Void > copy = c.copy();
+		assertEquals( c.getLongPosition( 0 ), copy.getLongPosition( 0 ) );
+		assertEquals( c.getLongPosition( 1 ), copy.getLongPosition( 1 ) );
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			copy.fwd();
+			assertEquals( c.getLongPosition( 0 ), copy.getLongPosition( 0 ) );
+			assertEquals( c.getLongPosition( 1 ), copy.getLongPosition( 1 ) );
+		}
+		assertFalse( copy.hasNext() );
+	}
+
+	@Test
+	public void testCountTrue()
+	{
+		final long[] dims = { 67, 45, 33 };
+		final Img< BitType > array = ArrayImgs.bits( dims );
+		final Img< BitType > planar = PlanarImgs.bits( dims );
+		final Img< BitType > cell = new CellImgFactory<>( new BitType(), 10, 7, 5 ).create( dims );
+		final Random rand = new Random( 42 );
+		final Cursor< BitType > ca = array.localizingCursor();
+		final RandomAccess< BitType > rp = planar.randomAccess();
+		final RandomAccess< BitType > rc = cell.randomAccess();
+		long expected = 0;
+		while ( ca.hasNext() )
+		{
+			final boolean value = rand.nextInt( 3 ) == 0;
+			ca.next().set( value );
+			rp.setPositionAndGet( ca ).set( value );
+			rc.setPositionAndGet( ca ).set( value );
+			if ( value )
+				++expected;
+		}
+
+		assertEquals( expected, Regions.countTrue( array ) );
+		assertEquals( expected, Regions.countTrue( planar ) );
+		assertEquals( expected, Regions.countTrue( cell ) );
+		assertEquals( expected, Regions.countTrue( Views.interval( array, array ) ) );
+		assertEquals( expected, Parallelization.runSingleThreaded( () -> Regions.countTrue( Views.interval( cell, cell ) ) ).longValue() );
+	}
 }
@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RowScratch}.
+ */
+public class RowScratchTest
+{
+	@Test
+	public void testReuse()
+	{
+		final boolean[] booleans;
+		final double[] doubles;
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			booleans = scratch.booleans( 10 );
+			doubles = scratch.doubles( 10 );
+			assertTrue( booleans.length >= 10 );
+			assertTrue( doubles.length >= 10 );
+		}
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			assertSame( booleans, scratch.booleans( 5 ) );
+			assertSame( doubles, scratch.doubles( booleans.length ) );
+			assertTrue( scratch.booleans( booleans.length + 1 ).length > booleans.length );
+		}
+	}
+
+	@Test
+	public void testNesting()
+	{
+		try ( RowScratch outer = RowScratch.acquire() )
+		{
+			final boolean[] booleans = outer.booleans( 10 );
+			final double[] doubles = outer.doubles( 10 );
+			try ( RowScratch inner = RowScratch.acquire() )
+			{
+				assertNotSame( outer, inner );
+				assertNotSame( booleans, inner.booleans( 10 ) );
+				assertNotSame( doubles, inner.doubles( 10 ) );
+			}
+			assertSame( booleans, outer.booleans( 10 ) );
+		}
+	}
+
+	@Test
+	public void testThreads() throws InterruptedException
+	{
+		final boolean[][] other = new boolean[ 1 ][];
+		final Thread thread = new Thread( () -> {
+			try ( RowScratch scratch = RowScratch.acquire() )
+			{
+				other[ 0 ] = scratch.booleans( 10 );
+			}
+		} );
+		thread.start();
+		thread.join();
+		try ( RowScratch scratch = RowScratch.acquire() )
+		{
+			assertNotSame( other[ 0 ], scratch.booleans( 10 ) );
+		}
+	}
+}
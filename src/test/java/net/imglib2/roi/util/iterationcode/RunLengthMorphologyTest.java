@@ -0,0 +1,305 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.Regions;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelRegion;
+import net.imglib2.roi.labeling.LabelRegions;
+import net.imglib2.roi.util.iterationcode.RunLengthMorphology.StructuringElement;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import gnu.trove.list.array.TIntArrayList;
+
+public class RunLengthMorphologyTest
+{
+	@Test
+	public void testRandomMasks()
+	{
+		final Random random = new Random( 17 );
+		final long[][] dims = { { 40 }, { 23, 19 }, { 12, 9, 7 } };
+		final long[][] radii = { { 2 }, { 2, 1 }, { 1, 2, 1 } };
+		for ( int i = 0; i < dims.length; ++i )
+		{
+			final Img< BitType > img = ArrayImgs.bits( dims[ i ] );
+			for ( final BitType t : img )
+				t.set( random.nextDouble() < 0.6 );
+			final long[] offset = new long[ dims[ i ].length ];
+			Arrays.setAll( offset, d -> random.nextInt( 20 ) - 10 );
+			final IterableRegion< BitType > region = Regions.iterable( Views.translate( img, offset ) );
+			final RunLengthCode code = RunLengthCode.of( region );
+			assertSameInside( region, code );
+
+			for ( final boolean box : new boolean[] { true, false } )
+			{
+				final long[] r = radii[ i ];
+				final StructuringElement se = box ? StructuringElement.box( r ) : StructuringElement.ellipsoid( r );
+				final RunLengthCode dilated = RunLengthMorphology.dilate( code, se );
+				final RunLengthCode eroded = RunLengthMorphology.erode( code, se );
+				final Interval domain = Intervals.expand( region, r );
+				final Point p = new Point( r.length );
+				final Point q = new Point( r.length );
+				final Cursor< ? > c = Views.interval( Views.extendZero( img ), domain ).localizingCursor();
+				long dilatedSize = 0;
+				long erodedSize = 0;
+				while ( c.hasNext() )
+				{
+					c.fwd();
+					p.setPosition( c );
+					boolean any = false;
+					boolean all = true;
+					final LocalizingIntervalIterator s = new LocalizingIntervalIterator( seInterval( r ) );
+					while ( s.hasNext() )
+					{
+						s.fwd();
+						if ( !inSE( s, r, box ) )
+							continue;
+						for ( int d = 0; d < r.length; ++d )
+							q.setPosition( p.getLongPosition( d ) + s.getLongPosition( d ), d );
+						final boolean in = code.contains( q );
+						any |= in;
+						all &= in;
+					}
+					assertEquals( any, dilated.contains( p ) );
+					assertEquals( all, eroded.contains( p ) );
+					dilatedSize += any ? 1 : 0;
+					erodedSize += all ? 1 : 0;
+				}
+				assertEquals( dilatedSize, dilated.getSize() );
+				assertEquals( erodedSize, eroded.getSize() );
+				assertSameInside( dilated.toIterableRegion(), dilated );
+				assertEquals( RunLengthMorphology.dilate( eroded, se ), RunLengthMorphology.open( code, se ) );
+				assertEquals( RunLengthMorphology.erode( dilated, se ), RunLengthMorphology.close( code, se ) );
+			}
+		}
+	}
+
+	@Test
+	public void testLabelRegion()
+	{
+		final Img< IntType > indexImg = ArrayImgs.ints( 30, 20 );
+		final ImgLabeling< Integer, IntType > labeling = new ImgLabeling<>( indexImg );
+		final Random random = new Random( 3 );
+		labeling.forEach( t -> {
+			if ( random.nextDouble() < 0.5 )
+				t.add( random.nextInt( 3 ) );
+		} );
+		final LabelRegions< Integer > regions = new LabelRegions<>( labeling );
+		for ( final LabelRegion< Integer > region : regions )
+		{
+			region.setPosition( new long[] { 5, -7 } );
+			final RunLengthCode code = region.iterationCode();
+			assertSameSet( region, code );
+			assertEquals( code, RunLengthCode.of( region ) );
+
+			final IterableRegion< BoolType > dilated = RunLengthMorphology.dilate( region, StructuringElement.ellipsoid( 1, 1 ) );
+			final RandomAccess< BoolType > ra = region.randomAccess( Intervals.expand( region, 1 ) );
+			final Cursor< Void > c = dilated.inside().localizingCursor();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				boolean any = false;
+				for ( final long[] o : new long[][] { { 0, 0 }, { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } } )
+				{
+					ra.setPosition( new long[] { c.getLongPosition( 0 ) + o[ 0 ], c.getLongPosition( 1 ) + o[ 1 ] } );
+					any |= ra.get().get();
+				}
+				assertTrue( any );
+			}
+		}
+	}
+
+	@Test
+	public void testEllipsoid()
+	{
+		assertEquals( 5, StructuringElement.ellipsoid( 1, 1 ).size() );
+		assertEquals( 9, StructuringElement.box( 1, 1 ).size() );
+		assertEquals( 7, StructuringElement.ellipsoid( 1, 1, 1 ).size() );
+		// 3-4-5 triangle lies exactly on the boundary
+		assertEquals( 81, StructuringElement.ellipsoid( 5, 5 ).size() );
+		assertEquals( 3, StructuringElement.ellipsoid( 0, 1 ).size() );
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final RunLengthCode empty = new RunLengthCodeBuilder( 2 ).build();
+		assertEquals( 0, empty.getSize() );
+		assertTrue( empty.getItcode().isEmpty() );
+		assertEquals( empty, RunLengthMorphology.dilate( empty, StructuringElement.box( 1, 1 ) ) );
+		assertEquals( 0, empty.toIterableRegion().inside().size() );
+		assertTrue( !empty.toIterableRegion().inside().cursor().hasNext() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testBuilderRejectsUnsortedRuns()
+	{
+		final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( 2 );
+		builder.addRun( new long[] { 3 }, 0, 4 );
+		builder.addRun( new long[] { 2 }, 0, 4 );
+	}
+
+	@Test
+	public void testBuilderMergesRuns()
+	{
+		final RunLengthCodeBuilder builder = new RunLengthCodeBuilder( 2 );
+		builder.addRun( new long[] { 1 }, 0, 4 );
+		builder.addRun( new long[] { 1 }, 2, 6 );
+		builder.addRun( new long[] { 1 }, 7, 8 );
+		builder.addRun( new long[] { 1 }, 10, 10 );
+		final RunLengthCode code = builder.build();
+		assertEquals( 2, code.numRuns() );
+		assertEquals( 10, code.getSize() );
+		assertEquals( code, RunLengthCode.of( wrap( code ) ) );
+	}
+
+	// -- Helper methods --
+
+	private static IterationCode wrap( final IterationCode code )
+	{
+		return new IterationCode()
+		{
+			@Override
+			public int numDimensions()
+			{
+				return code.numDimensions();
+			}
+
+			@Override
+			public TIntArrayList getItcode()
+			{
+				return code.getItcode();
+			}
+
+			@Override
+			public long getSize()
+			{
+				return code.getSize();
+			}
+
+			@Override
+			public long[] getBoundingBoxMin()
+			{
+				return code.getBoundingBoxMin();
+			}
+
+			@Override
+			public long[] getBoundingBoxMax()
+			{
+				return code.getBoundingBoxMax();
+			}
+		};
+	}
+
+	private static Interval seInterval( final long[] r )
+	{
+		final long[] min = new long[ r.length ];
+		Arrays.setAll( min, d -> -r[ d ] );
+		return new FinalInterval( min, r );
+	}
+
+	private static boolean inSE( final Localizable s, final long[] r, final boolean box )
+	{
+		if ( box )
+			return true;
+		double sum = 0;
+		for ( int d = 0; d < r.length; ++d )
+		{
+			final double t = ( double ) s.getLongPosition( d ) / r[ d ];
+			sum += t * t;
+		}
+		return sum <= 1;
+	}
+
+	/**
+	 * Checks that {@code region.inside()} and {@code code} contain the same
+	 * positions, in any order.
+	 */
+	private static void assertSameSet( final IterableRegion< ? > region, final RunLengthCode code )
+	{
+		long size = 0;
+		final Cursor< Void > c = region.inside().localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			assertTrue( code.contains( c ) );
+			++size;
+		}
+		assertEquals( size, code.getSize() );
+	}
+
+	/**
+	 * Checks that {@code region.inside()} and {@code code} contain the same
+	 * positions, in the same order.
+	 */
+	private static void assertSameInside( final IterableRegion< ? > region, final RunLengthCode code )
+	{
+		final Cursor< Void > expected = region.inside().localizingCursor();
+		final Cursor< Void > actual = new IterationCodeCursor( code, new long[ code.numDimensions() ] );
+		long size = 0;
+		while ( expected.hasNext() )
+		{
+			expected.fwd();
+			assertTrue( actual.hasNext() );
+			actual.fwd();
+			assertTrue( Arrays.equals( expected.positionAsLongArray(), actual.positionAsLongArray() ) );
+			assertTrue( code.contains( expected ) );
+			++size;
+		}
+		assertTrue( !actual.hasNext() );
+		assertEquals( size, code.getSize() );
+	}
+}
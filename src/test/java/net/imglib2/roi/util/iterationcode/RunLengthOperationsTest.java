@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.roi.util.iterationcode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.IterableRegion;
+import net.imglib2.roi.Regions;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelRegion;
+import net.imglib2.roi.labeling.LabelRegions;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.logic.BoolType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+public class RunLengthOperationsTest
+{
+	@Test
+	public void testRandomMasks()
+	{
+		final Random random = new Random( 5 );
+		final long[][] dims = { { 50 }, { 21, 17 }, { 9, 8, 7 } };
+		for ( final long[] d : dims )
+		{
+			final Img< BitType > imgA = randomMask( d, random );
+			final Img< BitType > imgB = randomMask( d, random );
+			final long[] offset = new long[ d.length ];
+			Arrays.setAll( offset, i -> random.nextInt( 7 ) - 3 );
+			final RunLengthCode a = RunLengthCode.of( Regions.iterable( imgA ) );
+			final RunLengthCode b = RunLengthCode.of( Regions.iterable( Views.translate( imgB, offset ) ) );
+
+			final RunLengthCode union = RunLengthOperations.union( a, b );
+			final RunLengthCode intersection = RunLengthOperations.intersection( a, b );
+			final RunLengthCode difference = RunLengthOperations.difference( a, b );
+			final RunLengthCode xor = RunLengthOperations.xor( a, b );
+
+			final Interval domain = Intervals.union( imgA, Intervals.translate( imgB, offset ) );
+			final Cursor< ? > c = Views.interval( Views.extendZero( imgA ), domain ).localizingCursor();
+			final long[] size = new long[ 4 ];
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				final boolean inA = a.contains( c );
+				final boolean inB = b.contains( c );
+				assertEquals( inA || inB, union.contains( c ) );
+				assertEquals( inA && inB, intersection.contains( c ) );
+				assertEquals( inA && !inB, difference.contains( c ) );
+				assertEquals( inA ^ inB, xor.contains( c ) );
+				size[ 0 ] += inA || inB ? 1 : 0;
+				size[ 1 ] += inA && inB ? 1 : 0;
+				size[ 2 ] += inA && !inB ? 1 : 0;
+				size[ 3 ] += inA ^ inB ? 1 : 0;
+			}
+			assertEquals( size[ 0 ], union.getSize() );
+			assertEquals( size[ 1 ], intersection.getSize() );
+			assertEquals( size[ 2 ], difference.getSize() );
+			assertEquals( size[ 3 ], xor.getSize() );
+			assertEquals( union, RunLengthOperations.union( xor, intersection ) );
+			assertEquals( a, RunLengthOperations.union( difference, intersection ) );
+		}
+	}
+
+	@Test
+	public void testLabelRegions()
+	{
+		final Img< IntType > indexImg = ArrayImgs.ints( 24, 18 );
+		final ImgLabeling< String, IntType > labeling = new ImgLabeling<>( indexImg );
+		final RandomAccess< LabelingType< String > > ra = labeling.randomAccess();
+		for ( int y = 2; y < 16; ++y )
+			for ( int x = 2; x < 22; ++x )
+			{
+				ra.setPosition( new int[] { x, y } );
+				ra.get().add( "cell" );
+				if ( x >= 8 && x < 16 && y >= 5 && y < 12 )
+					ra.get().add( "nucleus" );
+				if ( x >= 12 && y >= 9 )
+					ra.get().add( "spot" );
+			}
+		final LabelRegions< String > regions = new LabelRegions<>( labeling );
+		final LabelRegion< String > cell = regions.getLabelRegion( "cell" );
+		final LabelRegion< String > nucleus = regions.getLabelRegion( "nucleus" );
+		final LabelRegion< String > spot = regions.getLabelRegion( "spot" );
+
+		final IterableRegion< BoolType > nucleusSpot = RunLengthOperations.intersection( nucleus, spot );
+		assertEquals( 4 * 3, nucleusSpot.inside().size() );
+		assertEquals( 12, nucleusSpot.min( 0 ) );
+		assertEquals( 9, nucleusSpot.min( 1 ) );
+		assertEquals( 15, nucleusSpot.max( 0 ) );
+		assertEquals( 11, nucleusSpot.max( 1 ) );
+		final Cursor< Void > c = nucleusSpot.inside().localizingCursor();
+		final RandomAccess< BoolType > access = nucleusSpot.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			access.setPosition( c );
+			assertTrue( access.get().get() );
+		}
+
+		assertEquals( cell.inside().size(), RunLengthOperations.union( cell, nucleus ).inside().size() );
+		assertEquals( cell.inside().size() - nucleus.inside().size(), RunLengthOperations.difference( cell, nucleus ).inside().size() );
+	}
+
+	// -- Helper methods --
+
+	private static Img< BitType > randomMask( final long[] dims, final Random random )
+	{
+		final Img< BitType > img = ArrayImgs.bits( dims );
+		for ( final BitType t : img )
+			t.set( random.nextDouble() < 0.5 );
+		return img;
+	}
+}